@@ -0,0 +1,159 @@
+import benchmarks.Workloads;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Adapter that lets the benchmarks drive a PokemonBackend over a synthetic dataset
+ */
+public class BackendWorkload implements Workloads.Backend {
+
+  private final List<IPokemon> POKEMON;
+  private final PokemonStatQuery STAT_QUERY = new PokemonStatQuery()
+      .atLeast(PokemonStats.SPEED, 100).between(PokemonStats.BASE_TOTAL, 500, 600)
+      .legendary(false);
+  private final PokemonDataset DATASET;
+  private final IPokemonBackend BACKEND;
+
+  /**
+   * Constructor that loads the synthetic dataset into a new backend
+   *
+   * @param rows the number of rows in the dataset
+   */
+  public BackendWorkload(String rows) {
+    this(rows, "false");
+  }
+
+  /**
+   * Constructor that loads the synthetic dataset into a new backend, optionally recording its
+   * calls into metrics
+   *
+   * @param rows         the number of rows in the dataset
+   * @param instrumented "true" to wrap the backend in an InstrumentedPokemonBackend
+   */
+  public BackendWorkload(String rows, String instrumented) {
+    this(rows, instrumented, "repeated");
+  }
+
+  /**
+   * Constructor that loads the synthetic dataset into a new backend, optionally recording its
+   * calls into metrics and giving every row a distinct name
+   *
+   * @param rows         the number of rows in the dataset
+   * @param instrumented "true" to wrap the backend in an InstrumentedPokemonBackend
+   * @param names        "distinct" to suffix the name of every repeated row, "repeated" to keep
+   *                     the names of pokemon.csv
+   */
+  public BackendWorkload(String rows, String instrumented, String names) {
+    try {
+      this.POKEMON = SyntheticPokemon.load(Integer.parseInt(rows), names.equals("distinct"));
+      this.DATASET = new PokemonDataset(filename -> this.POKEMON);
+      IPokemonBackend backend = new PokemonBackend(this.DATASET);
+      this.BACKEND = Boolean.parseBoolean(instrumented)
+          ? new InstrumentedPokemonBackend(backend, new PokemonMetrics()) : backend;
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  @Override public Object newSession() {
+    return new PokemonBackend(this.DATASET);
+  }
+
+  @Override public void setFilters(String types, String generations) {
+    this.BACKEND.resetTypeFilter();
+    for (PokemonTypes type : PokemonTypes.values())
+      if (types.equals("*") || ("," + types + ",").contains("," + type.name() + ","))
+        this.BACKEND.toggleTypeFilter(type);
+    this.BACKEND.resetGenerationFilter();
+    for (int generation = 1; generation <= PokemonFilterIndex.MAX_GENERATION; ++generation)
+      if (generations.equals("*") || ("," + generations + ",").contains("," + generation + ","))
+        this.BACKEND.toggleGenerationFilter(generation);
+  }
+
+  @Override public int search() {
+    return this.BACKEND.searchPokemon().size();
+  }
+
+  @Override public int statSearch() {
+    return this.BACKEND.searchPokemon(this.STAT_QUERY).size();
+  }
+
+  @Override public List<?> searchPage() {
+    return this.BACKEND.searchPage(0, 10);
+  }
+
+  @Override public int query(String query) {
+    return this.BACKEND.searchQuery(query).size();
+  }
+
+  @Override public int queryUncached(String query) {
+    long[] match = this.DATASET.getDefaultMatch().clone();
+    new PokemonQueryPlan(PokemonQuery.parse(query), this.DATASET).retainMatches(match);
+    return PokemonFilterIndex.cardinality(match);
+  }
+
+  @Override public List<?> sortedPage(String key, boolean descending, int page) {
+    return this.BACKEND.searchPage(page, 10, PokemonSortKey.parse(key), descending);
+  }
+
+  @Override public List<?> sortedPageBySorting(String key, boolean descending, int page) {
+    PokemonStats stat = PokemonSortKey.parse(key).getStat();
+    List<IPokemon> pokemon = new ArrayList<>(this.BACKEND.searchPokemon());
+    Comparator<IPokemon> order = Comparator.comparingInt(p -> p.getStat(stat));
+    pokemon.sort(descending ? order.reversed() : order);
+    return pokemon.subList(Math.min(page * 10, pokemon.size()),
+        Math.min(page * 10 + 10, pokemon.size()));
+  }
+
+  @Override public int top(String key, boolean descending) {
+    return this.BACKEND.searchTop(PokemonSortKey.parse(key), descending, 10).size();
+  }
+
+  @Override public int facets() {
+    return this.BACKEND.getFacets().getTypeToggleCount(PokemonTypes.values()[0]);
+  }
+
+  @Override public int completeName(String prefix) {
+    return this.BACKEND.completeName(prefix, 10).size();
+  }
+
+  @Override public int searchName(String name) {
+    return this.BACKEND.searchByName(name, 2, 10).size();
+  }
+
+  @Override public int findByAbilities(String abilities, boolean all) {
+    List<String> names = Arrays.asList(abilities.split(","));
+    return (all ? this.BACKEND.findByAllAbilities(names) : this.BACKEND.findByAnyAbility(names))
+        .size();
+  }
+
+  @Override public int findSimilar(int row) {
+    return this.BACKEND.findSimilar(this.POKEMON.get(row), 10).size();
+  }
+
+  @Override public void toggleType(int type) {
+    this.BACKEND.toggleTypeFilter(PokemonTypes.values()[type]);
+  }
+
+  @Override public void toggleGeneration(int generation) {
+    this.BACKEND.toggleGenerationFilter(generation);
+  }
+
+  @Override public void addToTeam(int row) {
+    this.BACKEND.addToTeam(this.POKEMON.get(row));
+  }
+
+  @Override public List<?> getTeam() {
+    return this.BACKEND.getTeam();
+  }
+
+  @Override public void clearTeam() {
+    for (int i = this.BACKEND.getTeam().size() - 1; i >= 0; --i)
+      this.BACKEND.removeFromTeam(i);
+  }
+}
@@ -0,0 +1,52 @@
+import benchmarks.Workloads;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Adapter that lets the benchmarks drive an IPokemonLoader
+ */
+public class LoaderWorkload implements Workloads.Loader {
+
+  private final IPokemonLoader LOADER;
+
+  /**
+   * Constructor that picks the loader under test
+   *
+   * @param loader "opencsv" for PokemonLoader, "streaming" for StreamingPokemonLoader or
+   *               "parallel" for ParallelPokemonLoader on the common pool
+   */
+  public LoaderWorkload(String loader) {
+    this(loader, null);
+  }
+
+  /**
+   * Constructor that picks the loader under test and the workers of the parallel loader
+   *
+   * @param loader      "opencsv" for PokemonLoader, "streaming" for StreamingPokemonLoader or
+   *                    "parallel" for ParallelPokemonLoader
+   * @param parallelism the workers of the parallel loader's own pool, null for the common pool,
+   *                    ignored by the other loaders
+   */
+  public LoaderWorkload(String loader, String parallelism) {
+    switch (loader) {
+      case "opencsv":
+        this.LOADER = new PokemonLoader();
+        break;
+      case "streaming":
+        this.LOADER = new StreamingPokemonLoader();
+        break;
+      case "parallel":
+        this.LOADER = parallelism == null ? new ParallelPokemonLoader()
+            : new ParallelPokemonLoader(new ForkJoinPool(Integer.parseInt(parallelism)));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown loader: " + loader);
+    }
+  }
+
+  @Override public List<?> load(String filename) throws IOException {
+    return this.LOADER.loadPokemon(filename);
+  }
+}
@@ -0,0 +1,29 @@
+import benchmarks.Workloads;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * Adapter that lets the load generator start an embedded PokemonServer over pokemon.csv
+ */
+public class ServerWorkload implements Workloads.Server {
+
+  private PokemonServer server;
+
+  @Override public String start() {
+    try {
+      this.server = new PokemonServer(new PokemonDataset(new StreamingPokemonLoader()),
+          new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+    this.server.start();
+    return "http://localhost:" + this.server.getAddress().getPort();
+  }
+
+  @Override public void stop() {
+    this.server.stop(0);
+  }
+}
@@ -0,0 +1,89 @@
+import benchmarks.Workloads;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Generates synthetic datasets by repeating the rows of pokemon.csv until the requested size is
+ * reached. Generated files are kept under target/synthetic so later runs reuse them
+ */
+public class SyntheticPokemon implements Workloads.Dataset {
+
+  // the real dataset every synthetic one is scaled up from
+  private static final String SOURCE = "pokemon.csv";
+  // directory the generated datasets are cached in
+  private static final Path DIRECTORY = Paths.get("target", "synthetic");
+
+  /**
+   * Gets the path of a csv with the given number of rows, generating it on first use
+   *
+   * @param rows the number of rows
+   * @return the path of the csv
+   * @throws IOException if the csv could not be generated
+   */
+  @Override public String csv(int rows) throws IOException {
+    Path source = Paths.get(SOURCE);
+    List<String> lines = Files.readAllLines(source, StandardCharsets.UTF_8);
+    if (rows == lines.size() - 1)
+      return SOURCE;
+
+    Path target = DIRECTORY.resolve("pokemon-" + rows + ".csv");
+    if (Files.isRegularFile(target))
+      return target.toString();
+    Files.createDirectories(DIRECTORY);
+    Path temp = Files.createTempFile(DIRECTORY, "pokemon-" + rows, ".tmp");
+    try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      out.write(lines.get(0));
+      out.newLine();
+      for (int i = 0; i < rows; ++i) {
+        out.write(lines.get(1 + i % (lines.size() - 1)));
+        out.newLine();
+      }
+    }
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    return target.toString();
+  }
+
+  /**
+   * Loads a synthetic dataset with the given number of rows
+   *
+   * @param rows the number of rows
+   * @return the Pokemon in the dataset
+   * @throws IOException if the dataset could not be generated or loaded
+   */
+  public static List<IPokemon> load(int rows) throws IOException {
+    return load(rows, false);
+  }
+
+  /**
+   * Loads a synthetic dataset with the given number of rows, optionally giving every repeat of a
+   * row a name of its own, such as "Charizard bc", so name lookups face as many distinct names as
+   * there are rows
+   *
+   * @param rows          the number of rows
+   * @param distinctNames true to suffix the name of every repeated row with its repeat
+   * @return the Pokemon in the dataset
+   * @throws IOException if the dataset could not be generated or loaded
+   */
+  public static List<IPokemon> load(int rows, boolean distinctNames) throws IOException {
+    List<IPokemon> pokemon =
+        new StreamingPokemonLoader().loadPokemon(new SyntheticPokemon().csv(rows));
+    if (!distinctNames)
+      return pokemon;
+    int sourceRows = Files.readAllLines(Paths.get(SOURCE), StandardCharsets.UTF_8).size() - 1;
+    for (int row = sourceRows; row < pokemon.size(); ++row) {
+      // the repeat written in base 26 letters
+      StringBuilder suffix = new StringBuilder();
+      for (int repeat = row / sourceRows; repeat > 0; repeat /= 26)
+        suffix.insert(0, (char) ('a' + repeat % 26));
+      pokemon.get(row).setName(pokemon.get(row).getName() + " " + suffix);
+    }
+    return pokemon;
+  }
+}
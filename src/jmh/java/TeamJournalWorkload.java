@@ -0,0 +1,77 @@
+import benchmarks.Workloads;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Adapter that lets the benchmarks drive a PokemonTeamJournal in a temporary directory, filled
+ * with random teams of pokemon.csv
+ */
+public class TeamJournalWorkload implements Workloads.TeamStore {
+
+  private static final int FILL_THREADS = 64;
+
+  private final Path DIRECTORY;
+  private final Path FILE;
+  private final byte[][] TEAMS = new byte[1024][];
+  private PokemonTeamJournal journal;
+
+  /**
+   * Constructor that fills a new journal
+   *
+   * @param teams the number of teams to save up front
+   */
+  public TeamJournalWorkload(String teams) {
+    try {
+      PokemonDataset dataset = new PokemonDataset(new StreamingPokemonLoader());
+      Random random = new Random(42);
+      for (int i = 0; i < this.TEAMS.length; ++i) {
+        List<IPokemon> team = new ArrayList<>();
+        for (int j = random.nextInt(PokemonTeamOptimizer.TEAM_SIZE) + 1; j > 0; --j)
+          team.add(dataset.findPokedex(random.nextInt(801) + 1));
+        this.TEAMS[i] = PokemonTeamCodec.encode(team, dataset);
+      }
+      this.DIRECTORY = Files.createTempDirectory("team-journal");
+      this.FILE = this.DIRECTORY.resolve("teams.journal");
+      this.journal = new PokemonTeamJournal(this.FILE);
+      // saved from many threads so that their syncs are batched together
+      int count = Integer.parseInt(teams);
+      try (ExecutorService savers = Executors.newVirtualThreadPerTaskExecutor()) {
+        for (int saver = 0; saver < FILL_THREADS; ++saver) {
+          int first = saver;
+          savers.submit(() -> {
+            for (int id = first + 1; id <= count; id += FILL_THREADS)
+              this.journal.save(id, this.TEAMS[id % this.TEAMS.length]);
+            return null;
+          });
+        }
+      }
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  @Override public long save() throws IOException {
+    return this.journal.save(this.TEAMS[ThreadLocalRandom.current().nextInt(this.TEAMS.length)]);
+  }
+
+  @Override public int reopen() throws IOException {
+    this.journal.close();
+    this.journal = new PokemonTeamJournal(this.FILE);
+    return this.journal.size();
+  }
+
+  @Override public void close() throws IOException {
+    this.journal.close();
+    Files.deleteIfExists(this.FILE);
+    Files.deleteIfExists(this.DIRECTORY);
+  }
+}
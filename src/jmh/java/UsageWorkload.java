@@ -0,0 +1,76 @@
+import benchmarks.Workloads;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Adapter that lets the benchmarks drive a PokemonUsageAnalyzer over a synthetic team log of
+ * random teams of pokemon.csv, named by name or by pokedex number. Generated logs are kept under
+ * target/synthetic so later runs reuse them
+ */
+public class UsageWorkload implements Workloads.Usage {
+
+  // directory the generated logs are cached in
+  private static final Path DIRECTORY = Paths.get("target", "synthetic");
+
+  private final List<Path> LOGS;
+  private final PokemonUsageAnalyzer ANALYZER;
+  private final PokemonUsageAnalyzer SINGLE_WORKER;
+
+  /**
+   * Constructor that generates the log on first use
+   *
+   * @param teams the number of teams in the log
+   */
+  public UsageWorkload(String teams) {
+    try {
+      PokemonDataset dataset = new PokemonDataset(new StreamingPokemonLoader());
+      this.LOGS = List.of(log(Integer.parseInt(teams), dataset));
+      this.ANALYZER = new PokemonUsageAnalyzer(dataset);
+      this.SINGLE_WORKER = new PokemonUsageAnalyzer(dataset, new ForkJoinPool(1));
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  /**
+   * Gets the path of a log with the given number of teams, generating it on first use
+   */
+  private static Path log(int teams, PokemonDataset dataset) throws IOException {
+    Path target = DIRECTORY.resolve("teams-" + teams + ".log");
+    if (Files.isRegularFile(target))
+      return target;
+    Files.createDirectories(DIRECTORY);
+    Path temp = Files.createTempFile(DIRECTORY, "teams-" + teams, ".tmp");
+    Random random = new Random(42);
+    try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      for (int i = 0; i < teams; ++i) {
+        for (int j = random.nextInt(PokemonTeamOptimizer.TEAM_SIZE) + 1; j > 0; --j) {
+          IPokemon pokemon = dataset.findPokedex(random.nextInt(801) + 1);
+          out.write(random.nextInt(4) == 0 ? Integer.toString(pokemon.getPokedex())
+              : pokemon.getName());
+          out.write(j > 1 ? ", " : "\n");
+        }
+      }
+    }
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    return target;
+  }
+
+  @Override public long analyze() throws IOException {
+    return this.ANALYZER.analyze(this.LOGS).getTeams();
+  }
+
+  @Override public long analyzeOnOneWorker() throws IOException {
+    return this.SINGLE_WORKER.analyze(this.LOGS).getTeams();
+  }
+}
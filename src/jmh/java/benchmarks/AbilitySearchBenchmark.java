@@ -0,0 +1,57 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ability queries: Pokemon having any of a few common and rare abilities, and Pokemon
+ * having both of two abilities, with every filter on and with a narrow type filter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class AbilitySearchBenchmark {
+
+  // a common ability, a hidden one and a rare one
+  private static final String ANY = "Levitate,Swift Swim,Multiscale";
+  // two abilities some Pokemon have together
+  private static final String ALL = "Intimidate,Moxie";
+
+  @Param({"801", "1000000"})
+  public String rows;
+
+  @Param({"*", "DRAGON"})
+  public String types;
+
+  private Workloads.Backend backend;
+
+  @Setup
+  public void setup() {
+    this.backend = Workloads.create("BackendWorkload", Workloads.Backend.class, this.rows);
+    this.backend.setFilters(this.types, "*");
+  }
+
+  @Benchmark
+  public int anyOf() {
+    return this.backend.findByAbilities(ANY, false);
+  }
+
+  @Benchmark
+  public int allOf() {
+    return this.backend.findByAbilities(ALL, true);
+  }
+}
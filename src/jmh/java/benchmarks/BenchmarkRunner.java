@@ -0,0 +1,45 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the usual JMH command line, but writes the results as
+ * JSON to jmh-result.json unless another result format or file is given, so every run leaves a
+ * machine-readable record that can be diffed against the previous build
+ */
+public class BenchmarkRunner {
+
+  // file the results are written to when none is given on the command line
+  private static final String DEFAULT_RESULT = "jmh-result.json";
+
+  public static void main(String[] args) throws RunnerException, IOException {
+    CommandLineOptions commandLine;
+    try {
+      commandLine = new CommandLineOptions(args);
+    } catch (CommandLineOptionException cloe) {
+      System.err.println("Error parsing command line: " + cloe.getMessage());
+      System.exit(1);
+      return;
+    }
+    if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers()
+        || commandLine.shouldListResultFormats() || commandLine.shouldListWithParams()) {
+      org.openjdk.jmh.Main.main(args);
+      return;
+    }
+
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+    if (!commandLine.getResultFormat().hasValue())
+      options.resultFormat(ResultFormatType.JSON);
+    if (!commandLine.getResult().hasValue())
+      options.result(DEFAULT_RESULT);
+    new Runner(options.build()).run();
+  }
+}
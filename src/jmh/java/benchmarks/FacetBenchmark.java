@@ -0,0 +1,69 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the counts behind the filter menus: facets computed after a filter change, facets
+ * read again for the same filters, and the same toggle counts found by toggling every filter and
+ * searching
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class FacetBenchmark {
+
+  // number of types, each toggled once by the naive count
+  private static final int TYPES = 18;
+
+  @Param({"801", "1000000"})
+  public String rows;
+
+  @Param({"*", "DRAGON"})
+  public String types;
+
+  private Workloads.Backend backend;
+
+  @Setup
+  public void setup() {
+    this.backend = Workloads.create("BackendWorkload", Workloads.Backend.class, this.rows);
+    this.backend.setFilters(this.types, "*");
+  }
+
+  @Benchmark
+  public int toggleThenFacets() {
+    // generation 4 flips on and off on alternate invocations, so every call counts afresh
+    this.backend.toggleGeneration(4);
+    return this.backend.facets();
+  }
+
+  @Benchmark
+  public int cachedFacets() {
+    return this.backend.facets();
+  }
+
+  @Benchmark
+  public int toggleEveryTypeAndSearch() {
+    int total = 0;
+    for (int type = 0; type < TYPES; ++type) {
+      this.backend.toggleType(type);
+      total += this.backend.search();
+      this.backend.toggleType(type);
+    }
+    return total;
+  }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what recording metrics adds to the cheapest backend calls, the ones where it would
+ * show most, by running them with and without an InstrumentedPokemonBackend in front
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class InstrumentationBenchmark {
+
+  @Param({"801", "1000000"})
+  public String rows;
+
+  @Param({"false", "true"})
+  public String instrumented;
+
+  private Workloads.Backend backend;
+
+  @Setup
+  public void setup() {
+    this.backend = Workloads.create("BackendWorkload", Workloads.Backend.class, this.rows,
+        this.instrumented);
+  }
+
+  @Benchmark
+  public List<?> searchPage() {
+    return this.backend.searchPage();
+  }
+
+  @Benchmark
+  public int toggleTypeThenSearch() {
+    this.backend.toggleType(5);
+    return this.backend.search();
+  }
+}
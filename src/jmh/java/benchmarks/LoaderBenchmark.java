@@ -0,0 +1,57 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the OpenCSV bean loader with the streaming and parallel loaders on pokemon.csv and on
+ * synthetic datasets scaled up from it. Run with "-prof gc" to compare allocation rates as well as
+ * wall time. The parallel loader runs on a pool of its own with parallelism workers, so its runs
+ * show how it scales with workers; the other loaders ignore parallelism, run with
+ * "-p loader=parallel" to skip their repeats
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoaderBenchmark {
+
+  @Param({"opencsv", "streaming", "parallel"})
+  public String loader;
+
+  @Param({"801", "100000", "1000000"})
+  public int rows;
+
+  @Param({"1", "2", "4", "8"})
+  public String parallelism;
+
+  private String file;
+  private Workloads.Loader workload;
+
+  @Setup
+  public void setup() throws IOException {
+    this.file = Workloads.syntheticCsv(this.rows);
+    this.workload = Workloads.create("LoaderWorkload", Workloads.Loader.class, this.loader,
+        this.parallelism);
+  }
+
+  @Benchmark
+  public List<?> loadPokemon() throws IOException {
+    return this.workload.load(this.file);
+  }
+}
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures name lookups: autocompleting every keystroke of a name, as a search box would, and
+ * typo tolerant searches, with every filter on and with a narrow type filter. Synthetic datasets
+ * repeat the 801 names of pokemon.csv unless names is distinct, which gives every row a name of
+ * its own and so a trie as large as the dataset
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class NameSearchBenchmark {
+
+  // names typed one keystroke at a time
+  private static final String[] TYPED = {"charizard", "mr. mime", "pikachu", "garchomp"};
+  // misspelt names
+  private static final String[] MISSPELT = {"charzard", "pikahcu", "gyrados", "mewtow"};
+
+  @Param({"801", "1000000"})
+  public String rows;
+
+  @Param({"*", "DRAGON"})
+  public String types;
+
+  @Param({"repeated", "distinct"})
+  public String names;
+
+  private Workloads.Backend backend;
+  private int next;
+
+  @Setup
+  public void setup() {
+    this.backend = Workloads.create("BackendWorkload", Workloads.Backend.class, this.rows,
+        "false", this.names);
+    this.backend.setFilters(this.types, "*");
+  }
+
+  @Benchmark
+  public int completeEveryKeystroke() {
+    String name = TYPED[this.next++ & TYPED.length - 1];
+    int found = 0;
+    for (int length = 1; length <= name.length(); ++length)
+      found += this.backend.completeName(name.substring(0, length));
+    return found;
+  }
+
+  @Benchmark
+  public int searchMisspelt() {
+    return this.backend.searchName(MISSPELT[this.next++ & MISSPELT.length - 1]);
+  }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures query language searches with all filters on, run with the cached plan and parsed and
+ * compiled on every call, over queries driven by the name trie, a type bitset and a stat order
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class QueryBenchmark {
+
+  @Param({"801", "1000000"})
+  public String rows;
+
+  @Param({"type:fire|dragon gen:1..3 speed>=100 !legendary name:char*",
+      "type:dragon !legendary speed>=100", "base_total>=600 ability:pressure"})
+  public String query;
+
+  private Workloads.Backend backend;
+
+  @Setup
+  public void setup() {
+    this.backend = Workloads.create("BackendWorkload", Workloads.Backend.class, this.rows);
+  }
+
+  @Benchmark
+  public int cachedPlan() {
+    return this.backend.query(this.query);
+  }
+
+  @Benchmark
+  public int compileEveryTime() {
+    return this.backend.queryUncached(this.query);
+  }
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures searches under different type and generation filters, both straight searches,
+ * stat range searches and toggle-then-search sequences that invalidate the cached result
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SearchBenchmark {
+
+  @Param({"801", "100000", "1000000"})
+  public String rows;
+
+  @Param({"*", "FIRE,WATER", "DRAGON"})
+  public String types;
+
+  @Param({"*", "1", "1,2,3"})
+  public String generations;
+
+  private Workloads.Backend backend;
+
+  @Setup
+  public void setup() {
+    this.backend = Workloads.create("BackendWorkload", Workloads.Backend.class, this.rows);
+    this.backend.setFilters(this.types, this.generations);
+  }
+
+  @Benchmark
+  public int searchPokemon() {
+    return this.backend.search();
+  }
+
+  @Benchmark
+  public List<?> searchPage() {
+    return this.backend.searchPage();
+  }
+
+  @Benchmark
+  public int statRangeSearch() {
+    return this.backend.statSearch();
+  }
+
+  @Benchmark
+  public int toggleTypeThenSearch() {
+    // GHOST flips on and off on alternate invocations, so every search sees a new filter
+    this.backend.toggleType(5);
+    return this.backend.search();
+  }
+
+  @Benchmark
+  public int toggleGenerationThenSearch() {
+    this.backend.toggleGeneration(4);
+    return this.backend.search();
+  }
+}
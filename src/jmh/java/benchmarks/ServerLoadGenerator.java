@@ -0,0 +1,171 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load generator for the JSON API. Every client runs on its own virtual thread, owns
+ * one session and loops over a mix of searches, team changes and team analyses until the time is
+ * up, then the throughput and latency percentiles of all clients are printed
+ *
+ * <p>Run with: java -cp target/benchmarks.jar benchmarks.ServerLoadGenerator [url|embedded]
+ * [clients] [seconds]. "embedded" starts a server over pokemon.csv in the same JVM
+ */
+public class ServerLoadGenerator {
+
+  // latencies each client keeps for the percentiles
+  private static final int SAMPLES_PER_CLIENT = 1 << 14;
+  // type names searches filter on
+  private static final String[] TYPES = {"FIRE", "WATER", "GRASS", "DRAGON", "STEEL", "FAIRY"};
+  // finds the session id in the create response
+  private static final Pattern SESSION = Pattern.compile("\"session\":\"([^\"]+)\"");
+
+  public static void main(String[] args) throws Exception {
+    String target = args.length > 0 ? args[0] : "embedded";
+    int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+    Workloads.Server embedded = null;
+    if (target.equals("embedded")) {
+      embedded = Workloads.create("ServerWorkload", Workloads.Server.class);
+      target = embedded.start();
+    }
+    HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+        .executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+
+    LongAdder requests = new LongAdder();
+    LongAdder errors = new LongAdder();
+    long[][] samples = new long[clients][];
+    int[] sampleCounts = new int[clients];
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    String base = target;
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int c = 0; c < clients; ++c) {
+        int client = c;
+        samples[client] = new long[SAMPLES_PER_CLIENT];
+        executor.execute(() -> {
+          try {
+            String session = createSession(http, base);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int teamStep = 0;
+            while (System.nanoTime() < deadline) {
+              int pick = random.nextInt(10);
+              HttpRequest request = pick < 7 ? search(base, session, random)
+                  : pick < 9 ? changeTeam(base, session, teamStep++ % 12, random)
+                  : analyzeTeam(base, session);
+              long start = System.nanoTime();
+              int status = send(http, request);
+              long latency = System.nanoTime() - start;
+              requests.increment();
+              if (status >= 400)
+                errors.increment();
+              int n = sampleCounts[client]++;
+              // reservoir sampling keeps a uniform sample of a long run
+              if (n < SAMPLES_PER_CLIENT)
+                samples[client][n] = latency;
+              else if (random.nextInt(n + 1) < SAMPLES_PER_CLIENT)
+                samples[client][random.nextInt(SAMPLES_PER_CLIENT)] = latency;
+            }
+          } catch (IOException | InterruptedException e) {
+            errors.increment();
+          }
+        });
+      }
+    }
+    if (embedded != null)
+      embedded.stop();
+
+    // every client's samples are concatenated once into an array sized for all of them
+    int total = 0;
+    for (int c = 0; c < clients; ++c)
+      total += Math.min(sampleCounts[c], SAMPLES_PER_CLIENT);
+    long[] latencies = new long[total];
+    for (int c = 0, at = 0; c < clients; ++c) {
+      int kept = Math.min(sampleCounts[c], SAMPLES_PER_CLIENT);
+      System.arraycopy(samples[c], 0, latencies, at, kept);
+      at += kept;
+    }
+    Arrays.sort(latencies);
+    System.out.printf("%d clients, %d s: %d requests, %.0f req/s, %d errors%n", clients, seconds,
+        requests.sum(), requests.sum() / (double) seconds, errors.sum());
+    if (latencies.length > 0)
+      System.out.printf("latency ms: p50 %.2f  p90 %.2f  p99 %.2f  max %.2f%n",
+          percentile(latencies, .5), percentile(latencies, .9), percentile(latencies, .99),
+          latencies[latencies.length - 1] / 1e6);
+  }
+
+  /**
+   * Builds a search for two random types in a random generation
+   */
+  private static HttpRequest search(String base, String session, ThreadLocalRandom random) {
+    return request("GET", base + "/pokemon?session=" + session + "&types="
+        + TYPES[random.nextInt(TYPES.length)] + "," + TYPES[random.nextInt(TYPES.length)]
+        + "&generations=" + (1 + random.nextInt(7)) + "&page=" + random.nextInt(3) + "&size=10");
+  }
+
+  /**
+   * Builds a team change. Steps 0..5 add a random Pokemon and steps 6..11 remove them again, so
+   * the team never overflows
+   */
+  private static HttpRequest changeTeam(String base, String session, int step,
+      ThreadLocalRandom random) {
+    String team = base + "/team?session=" + session;
+    return step < 6 ? request("POST", team + "&pokedex=" + (1 + random.nextInt(801)))
+        : request("DELETE", team + "&index=0");
+  }
+
+  /**
+   * Builds a team analysis
+   */
+  private static HttpRequest analyzeTeam(String base, String session) {
+    return request("GET", base + "/team/analysis?session=" + session);
+  }
+
+  /**
+   * Builds a request without a body
+   */
+  private static HttpRequest request(String method, String uri) {
+    return HttpRequest.newBuilder(URI.create(uri)).timeout(Duration.ofSeconds(30))
+        .method(method, HttpRequest.BodyPublishers.noBody()).build();
+  }
+
+  /**
+   * Creates the session a client works in
+   */
+  private static String createSession(HttpClient http, String base)
+      throws IOException, InterruptedException {
+    HttpResponse<String> response =
+        http.send(request("POST", base + "/sessions"), HttpResponse.BodyHandlers.ofString());
+    Matcher matcher = SESSION.matcher(response.body());
+    if (!matcher.find())
+      throw new IOException("Unexpected session response " + response.body());
+    return matcher.group(1);
+  }
+
+  /**
+   * Sends a request and drains its body
+   */
+  private static int send(HttpClient http, HttpRequest request)
+      throws IOException, InterruptedException {
+    return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+  }
+
+  /**
+   * Reads a percentile from sorted nanosecond latencies, in milliseconds
+   */
+  private static double percentile(long[] sorted, double fraction) {
+    return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1e6;
+  }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding the 10 Pokemon most like a given one, with every filter on and with a narrow
+ * type filter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SimilarityBenchmark {
+
+  // rows the queries are for, spread over the dataset
+  private static final int[] ROWS = {5, 149, 248, 383, 444, 571, 700, 799};
+
+  @Param({"801", "1000000"})
+  public String rows;
+
+  @Param({"*", "DRAGON"})
+  public String types;
+
+  private Workloads.Backend backend;
+  private int next;
+
+  @Setup
+  public void setup() {
+    this.backend = Workloads.create("BackendWorkload", Workloads.Backend.class, this.rows);
+    this.backend.setFilters(this.types, "*");
+  }
+
+  @Benchmark
+  public int findSimilar() {
+    return this.backend.findSimilar(ROWS[this.next++ & ROWS.length - 1]);
+  }
+}
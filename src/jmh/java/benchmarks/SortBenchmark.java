@@ -0,0 +1,63 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures sorted paging by base total, largest first: the first and a later page read off the
+ * precomputed order, the same page found by sorting the filtered list, and the top 10 by speed
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SortBenchmark {
+
+  @Param({"801", "1000000"})
+  public String rows;
+
+  @Param({"*", "DRAGON"})
+  public String types;
+
+  private Workloads.Backend backend;
+
+  @Setup
+  public void setup() {
+    this.backend = Workloads.create("BackendWorkload", Workloads.Backend.class, this.rows);
+    this.backend.setFilters(this.types, "*");
+  }
+
+  @Benchmark
+  public List<?> firstPage() {
+    return this.backend.sortedPage("base_total", true, 0);
+  }
+
+  @Benchmark
+  public List<?> tenthPage() {
+    return this.backend.sortedPage("base_total", true, 9);
+  }
+
+  @Benchmark
+  public List<?> firstPageBySorting() {
+    return this.backend.sortedPageBySorting("base_total", true, 0);
+  }
+
+  @Benchmark
+  public int topBySpeed() {
+    return this.backend.top("speed", true);
+  }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures starting a session, building a full team of six and reading it back
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TeamBenchmark {
+
+  @Param({"801", "1000000"})
+  public String rows;
+
+  private Workloads.Backend backend;
+  private int size;
+
+  @Setup
+  public void setup() {
+    this.backend = Workloads.create("BackendWorkload", Workloads.Backend.class, this.rows);
+    this.size = Integer.parseInt(this.rows);
+  }
+
+  @Benchmark
+  public Object newSession() {
+    return this.backend.newSession();
+  }
+
+  @Benchmark
+  public List<?> buildTeam() {
+    this.backend.clearTeam();
+    for (int i = 0; i < 6; ++i)
+      this.backend.addToTeam((i * 7919) % this.size);
+    return this.backend.getTeam();
+  }
+
+  @Benchmark
+  public List<?> getTeam() {
+    return this.backend.getTeam();
+  }
+}
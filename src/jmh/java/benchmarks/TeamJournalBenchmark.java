@@ -0,0 +1,66 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the team journal: reopening it, which replays every saved team, and durable saves
+ * from one thread and from many, where syncs are shared between concurrent saves
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TeamJournalBenchmark {
+
+  @Param({"100000", "1000000"})
+  public String teams;
+
+  private Workloads.TeamStore store;
+
+  @Setup
+  public void setup() {
+    this.store = Workloads.create("TeamJournalWorkload", Workloads.TeamStore.class, this.teams);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    this.store.close();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 3, batchSize = 1)
+  @Measurement(iterations = 10, batchSize = 1)
+  public int reopen() throws IOException {
+    return this.store.reopen();
+  }
+
+  @Benchmark
+  public long saveOneThread() throws IOException {
+    return this.store.save();
+  }
+
+  @Benchmark
+  @Threads(32)
+  public long saveManyThreads() throws IOException {
+    return this.store.save();
+  }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures usage statistics over a synthetic team log, about 50 bytes a team, counted on every
+ * worker of the common pool and on a single worker
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class UsageBenchmark {
+
+  @Param({"1000000", "10000000"})
+  public String teams;
+
+  private Workloads.Usage usage;
+
+  @Setup
+  public void setup() {
+    this.usage = Workloads.create("UsageWorkload", Workloads.Usage.class, this.teams);
+  }
+
+  @Benchmark
+  public long analyze() throws IOException {
+    return this.usage.analyze();
+  }
+
+  @Benchmark
+  public long analyzeOnOneWorker() throws IOException {
+    return this.usage.analyzeOnOneWorker();
+  }
+}
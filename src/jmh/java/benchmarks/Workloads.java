@@ -0,0 +1,265 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bridge between the benchmarks and the app. JMH refuses benchmarks in the default package and
+ * named packages cannot see default package classes, so the app is driven through these
+ * interfaces, implemented by default package adapters that are looked up once per trial
+ */
+public final class Workloads {
+
+  private Workloads() {
+  }
+
+  /**
+   * Loads the Pokemon dataset from a file
+   */
+  public interface Loader {
+
+    /**
+     * @param filename the path of the csv to load
+     * @return the loaded Pokemon
+     * @throws IOException if the file could not be loaded
+     */
+    List<?> load(String filename) throws IOException;
+  }
+
+  /**
+   * Provides synthetic datasets scaled up from pokemon.csv
+   */
+  public interface Dataset {
+
+    /**
+     * @param rows the number of rows the dataset should have
+     * @return the path of a csv with that many rows, generated on first use
+     * @throws IOException if the csv could not be generated
+     */
+    String csv(int rows) throws IOException;
+  }
+
+  /**
+   * Drives a single backend over a synthetic dataset
+   */
+  public interface Backend {
+
+    /**
+     * @return a new session over the same dataset
+     */
+    Object newSession();
+
+    /**
+     * Sets the filters to exactly the given types and generations
+     *
+     * @param types       comma separated type names, "*" for all types
+     * @param generations comma separated generations, "*" for all generations
+     */
+    void setFilters(String types, String generations);
+
+    /**
+     * @return the number of Pokemon matching the filters, read from a fresh search list
+     */
+    int search();
+
+    /**
+     * @return the number of non-legendary Pokemon matching the filters with a speed of at least
+     * 100 and a base total between 500 and 600
+     */
+    int statSearch();
+
+    /**
+     * @return the first page of 10 Pokemon matching the filters
+     */
+    List<?> searchPage();
+
+    /**
+     * @param query a query of the query language
+     * @return the number of Pokemon matching the filters and the query, run with its cached plan
+     */
+    int query(String query);
+
+    /**
+     * @param query a query of the query language
+     * @return the number of Pokemon matching the query with all filters on, parsed and compiled
+     *         again
+     */
+    int queryUncached(String query);
+
+    /**
+     * @param key        the name of the column to order by
+     * @param descending true for the largest values first
+     * @param page       the zero-based page number
+     * @return the page of 10 Pokemon matching the filters in the order of the column
+     */
+    List<?> sortedPage(String key, boolean descending, int page);
+
+    /**
+     * Sorts a copy of every Pokemon matching the filters, as paging would without a precomputed
+     * order
+     *
+     * @param key        the name of the column to order by
+     * @param descending true for the largest values first
+     * @param page       the zero-based page number
+     * @return the page of 10 Pokemon matching the filters in the order of the column
+     */
+    List<?> sortedPageBySorting(String key, boolean descending, int page);
+
+    /**
+     * @param key        the name of the column to order by
+     * @param descending true for the largest values first
+     * @return the number of the first 10 Pokemon matching the filters in the order of the column
+     */
+    int top(String key, boolean descending);
+
+    /**
+     * @return the number of Pokemon matching the filters after toggling the first type, read from
+     * the facet counts of the filters
+     */
+    int facets();
+
+    /**
+     * @param prefix the start of a name
+     * @return the number of the 10 best completions of the prefix that match the filters
+     */
+    int completeName(String prefix);
+
+    /**
+     * @param name a name, possibly misspelt
+     * @return the number of the 10 closest names within two typos that match the filters
+     */
+    int searchName(String name);
+
+    /**
+     * @param abilities comma separated ability names
+     * @param all       true to match Pokemon having all of the abilities, false for any of them
+     * @return the number of Pokemon matching the filters and the abilities
+     */
+    int findByAbilities(String abilities, boolean all);
+
+    /**
+     * @param row the dataset row of a Pokemon
+     * @return the number of the 10 Pokemon most like it that match the filters
+     */
+    int findSimilar(int row);
+
+    /**
+     * @param type the ordinal of the type to toggle
+     */
+    void toggleType(int type);
+
+    /**
+     * @param generation the generation to toggle
+     */
+    void toggleGeneration(int generation);
+
+    /**
+     * @param row the dataset row of the Pokemon to add
+     */
+    void addToTeam(int row);
+
+    /**
+     * @return the current team
+     */
+    List<?> getTeam();
+
+    /**
+     * Removes every Pokemon from the team
+     */
+    void clearTeam();
+  }
+
+  /**
+   * Saves teams to a journal
+   */
+  public interface TeamStore {
+
+    /**
+     * Saves a team and waits until it is on disk
+     *
+     * @return the id of the team
+     * @throws IOException if the journal could not be written
+     */
+    long save() throws IOException;
+
+    /**
+     * Opens the journal afresh, replaying every saved team
+     *
+     * @return the number of teams
+     * @throws IOException if the journal could not be read
+     */
+    int reopen() throws IOException;
+
+    /**
+     * Closes the journal and deletes it
+     *
+     * @throws IOException if the journal could not be deleted
+     */
+    void close() throws IOException;
+  }
+
+  /**
+   * Computes usage statistics over a synthetic team log
+   */
+  public interface Usage {
+
+    /**
+     * @return the number of teams in the log, counted on every worker of the common pool
+     * @throws IOException if the log could not be read
+     */
+    long analyze() throws IOException;
+
+    /**
+     * @return the number of teams in the log, counted on a single worker
+     * @throws IOException if the log could not be read
+     */
+    long analyzeOnOneWorker() throws IOException;
+  }
+
+  /**
+   * Runs an embedded server
+   */
+  public interface Server {
+
+    /**
+     * @return the base url the started server listens on
+     */
+    String start();
+
+    /**
+     * Stops the server
+     */
+    void stop();
+  }
+
+  /**
+   * Instantiates a default package adapter
+   *
+   * @param className the simple name of the adapter class
+   * @param type      the interface the adapter implements
+   * @param arguments the String arguments of the adapter's constructor
+   * @return the adapter
+   */
+  public static <T> T create(String className, Class<T> type, String... arguments) {
+    try {
+      Class<?>[] parameters = new Class<?>[arguments.length];
+      Arrays.fill(parameters, String.class);
+      return type.cast(Class.forName(className).getConstructor(parameters)
+          .newInstance((Object[]) arguments));
+    } catch (ReflectiveOperationException roe) {
+      throw new IllegalStateException("Cannot create benchmark adapter " + className, roe);
+    }
+  }
+
+  /**
+   * Gets the path of a synthetic csv with the given number of rows
+   *
+   * @param rows the number of rows
+   * @return the path of the csv
+   * @throws IOException if the csv could not be generated
+   */
+  public static String syntheticCsv(int rows) throws IOException {
+    return create("SyntheticPokemon", Dataset.class).csv(rows);
+  }
+}
@@ -0,0 +1,26 @@
+import com.opencsv.bean.AbstractBeanField;
+import com.opencsv.exceptions.CsvDataTypeMismatchException;
+
+import java.util.List;
+
+/**
+ * OpenCSV converter for the abilities column, a Python style list such as
+ * "['Overgrow', 'Chlorophyll']", into a list of interned ability names
+ */
+public class AbilitiesConverter extends AbstractBeanField<Pokemon, String> {
+
+  /**
+   * Parses the list of abilities
+   *
+   * @param value the csv field
+   * @return the ability names, empty if the field is empty
+   * @throws CsvDataTypeMismatchException if the field is not a list of quoted names
+   */
+  @Override protected Object convert(String value) throws CsvDataTypeMismatchException {
+    try {
+      return PokemonAbilities.parse(value);
+    } catch (IllegalArgumentException iae) {
+      throw new CsvDataTypeMismatchException(value, List.class, iae.getMessage());
+    }
+  }
+}
@@ -1,7 +1,13 @@
 import java.awt.*;
+import java.util.List;
 
 /**
  * Class representing a Pokémon object
+ *
+ * <p>The setters are optional operations. Loaders fill mutable Pokemon beans through them, but
+ * the pokemon a dataset hands out are PokemonView rows of a store shared by every session, whose
+ * setters throw UnsupportedOperationException. Callers that need to change a pokemon build a
+ * Pokemon of their own
  */
 public interface IPokemon {
 
@@ -14,9 +20,25 @@ public interface IPokemon {
 
   /**
    * Sets the name of the pokemon
+   *
+   * @throws UnsupportedOperationException if the pokemon is read-only
    */
   public void setName(String name);
 
+  /**
+   * Gets the Japanese name of the Pokémon, its romanization followed by its katakana
+   *
+   * @return the Japanese name of the Pokémon, or null if the dataset has none
+   */
+  public String getJapaneseName();
+
+  /**
+   * Sets the Japanese name of the pokemon
+   *
+   * @throws UnsupportedOperationException if the pokemon is read-only
+   */
+  public void setJapaneseName(String japaneseName);
+
   /**
    * Gets the first type of the Pokémon
    *
@@ -26,6 +48,8 @@ public interface IPokemon {
 
   /**
    * Sets the first type of the Pokemon
+   *
+   * @throws UnsupportedOperationException if the pokemon is read-only
    */
   public void setTypeOne(PokemonTypes typeOne);
 
@@ -38,6 +62,8 @@ public interface IPokemon {
 
   /**
    * Sets the second type of the Pokemon
+   *
+   * @throws UnsupportedOperationException if the pokemon is read-only
    */
   public void setTypeTwo(PokemonTypes typeTwo);
 
@@ -50,6 +76,8 @@ public interface IPokemon {
 
   /**
    * Sets the generation of the Pokemon
+   *
+   * @throws UnsupportedOperationException if the pokemon is read-only
    */
   public void setGeneration(int generation);
 
@@ -62,11 +90,77 @@ public interface IPokemon {
 
   /**
    * Sets the Pokedex number
+   *
+   * @throws UnsupportedOperationException if the pokemon is read-only
    */
   public void setPokedex(int pokedex);
 
+  /**
+   * Gets one of the Pokémon's stats
+   *
+   * @param stat the stat to get
+   * @return the value of the stat
+   */
+  public int getStat(PokemonStats stat);
+
+  /**
+   * Sets one of the Pokemon's stats
+   *
+   * @throws UnsupportedOperationException if the pokemon is read-only
+   */
+  public void setStat(PokemonStats stat, int value);
+
+  /**
+   * Checks if the Pokémon is legendary
+   *
+   * @return true if the Pokémon is legendary
+   */
+  public boolean isLegendary();
+
+  /**
+   * Sets if the Pokemon is legendary
+   *
+   * @throws UnsupportedOperationException if the pokemon is read-only
+   */
+  public void setLegendary(boolean legendary);
+
+  /**
+   * Gets the damage multiplier of attacks of the given type against the Pokémon, e.g. 2 for a
+   * super effective attack
+   *
+   * @param attacking the type of the attack
+   * @return the damage multiplier
+   */
+  public float getDamageMultiplier(PokemonTypes attacking);
+
+  /**
+   * Sets the damage multiplier of attacks of the given type against the Pokemon
+   *
+   * @throws UnsupportedOperationException if the pokemon is read-only
+   */
+  public void setDamageMultiplier(PokemonTypes attacking, float multiplier);
+
+  /**
+   * Gets the abilities the Pokémon can have, its hidden ability last if it has one
+   *
+   * @return an immutable list of the ability names, empty if the dataset has none
+   */
+  public List<String> getAbilities();
+
+  /**
+   * Sets the abilities of the Pokemon
+   *
+   * @throws UnsupportedOperationException if the pokemon is read-only
+   */
+  public void setAbilities(List<String> abilities);
+
   public Image getImage();
 
+  /**
+   * Sets the picture of the Pokemon
+   *
+   * @throws UnsupportedOperationException if the pokemon is read-only
+   */
   public void setImage(Image picture);
 
 }
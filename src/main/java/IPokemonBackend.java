@@ -6,10 +6,116 @@ import java.util.List;
 public interface IPokemonBackend {
 
   /**
-   * Returns a list of current pokemon with filters
+   * Returns an immutable list of current pokemon with filters
    */
   public List<IPokemon> searchPokemon();
 
+  /**
+   * Returns a list of current pokemon with filters that also match a stat query
+   * @param query the stat ranges and legendary status to match
+   * @return an immutable list of the matching pokemon
+   */
+  public List<IPokemon> searchPokemon(PokemonStatQuery query);
+
+  /**
+   * Returns a list of current pokemon with filters that also match a query of the query language,
+   * such as "type:fire|dragon gen:1..3 speed>=100 !legendary name:char*"
+   * @param query the query text
+   * @return an immutable list of the matching pokemon
+   * @throws IllegalArgumentException if the query is not part of the query language
+   */
+  public List<IPokemon> searchQuery(String query);
+
+  /**
+   * Returns one page of the current pokemon with filters
+   * @param page the zero-based page number
+   * @param size the number of pokemon per page
+   * @return an immutable view of the pokemon on the requested page
+   */
+  public List<IPokemon> searchPage(int page, int size);
+
+  /**
+   * Returns one page of the current pokemon with filters in the order of a column
+   * @param page the zero-based page number
+   * @param size the number of pokemon per page
+   * @param order the column to order by, null for dataset order
+   * @param descending true for the largest values first, ties stay in dataset order
+   * @return the pokemon on the requested page, empty if the page is out of range
+   */
+  public List<IPokemon> searchPage(int page, int size, PokemonSortKey order, boolean descending);
+
+  /**
+   * Returns the first current pokemon with filters in the order of a column, such as the fastest
+   * @param order the column to order by
+   * @param descending true for the largest values first, ties stay in dataset order
+   * @param count the most pokemon to return
+   * @return an immutable list of up to count pokemon, in order
+   */
+  public List<IPokemon> searchTop(PokemonSortKey order, boolean descending, int count);
+
+  /**
+   * Returns the number of current pokemon with filters
+   * @return the number of pokemon matching the filters
+   */
+  public int searchCount();
+
+  /**
+   * Counts the current pokemon with filters of every type and generation, and the pokemon every
+   * filter toggle would leave
+   * @return the facet counts of the current filters
+   */
+  public PokemonFacets getFacets();
+
+  /**
+   * Returns the current pokemon with filters whose name or Japanese name is the given name,
+   * ignoring case, spaces and punctuation
+   * @param name the name to look up
+   * @return an immutable list of the matching pokemon
+   */
+  public List<IPokemon> findByName(String name);
+
+  /**
+   * Returns the current pokemon with filters whose name starts with the given prefix, shortest
+   * names first, fast enough to run on every keystroke
+   * @param prefix the start of the name
+   * @param count the most pokemon to return
+   * @return an immutable list of up to count pokemon
+   */
+  public List<IPokemon> completeName(String prefix, int count);
+
+  /**
+   * Returns the current pokemon with filters whose name is within a number of typos of the given
+   * name, closest first
+   * @param name the name to look up
+   * @param maxEdits the most missing, extra, wrong or swapped characters to allow
+   * @param count the most pokemon to return
+   * @return an immutable list of up to count pokemon
+   */
+  public List<IPokemon> searchByName(String name, int maxEdits, int count);
+
+  /**
+   * Returns the current pokemon with filters that can have any of the given abilities
+   * @param abilities the ability names, in any case
+   * @return an immutable list of the matching pokemon in dataset order
+   */
+  public List<IPokemon> findByAnyAbility(List<String> abilities);
+
+  /**
+   * Returns the current pokemon with filters that can have all of the given abilities
+   * @param abilities the ability names, in any case
+   * @return an immutable list of the matching pokemon in dataset order
+   */
+  public List<IPokemon> findByAllAbilities(List<String> abilities);
+
+  /**
+   * Returns the current pokemon with filters most like the given one in base stats and type
+   * matchups, leaving out the given pokemon and its other forms
+   * @param pokemon the pokemon to find alternatives to
+   * @param count the most pokemon to return
+   * @return an immutable list of up to count pokemon, most alike first
+   */
+  public List<IPokemon> findSimilar(IPokemon pokemon, int count);
+
   /**
    * Check if the current filter is active or not for a certain type
    * @param type the type to be checked
@@ -38,6 +144,7 @@ public interface IPokemonBackend {
   /**
    * Toggles the current filter of the given generation. All filters are on by default
    * @param generation the pokemon generation to toggle
+   * @throws IllegalArgumentException if the generation is out of range
    */
   public void toggleGenerationFilter(int generation);
 
@@ -52,10 +159,31 @@ public interface IPokemonBackend {
    */
   public void addToTeam(IPokemon pokemon);
 
+  /**
+   * Removes a pokemon from the user's current team
+   * @param index the position of the pokemon in the team
+   */
+  public void removeFromTeam(int index);
+
   /**
    * Gets the user's current team
-   * @return the user's current team
+   * @return a read-only view of the user's current team
    */
   public List<IPokemon> getTeam();
 
+  /**
+   * Suggests completions of the user's current team from the pokemon matching the current
+   * filters, ranked by type coverage
+   * @param count the number of teams to suggest
+   * @param timeoutMillis how long to search before returning the best teams found so far
+   * @return up to count teams, best first
+   */
+  public List<PokemonTeamSuggestion> suggestTeams(int count, long timeoutMillis);
+
+  /**
+   * Gets the type effectiveness chart derived from the dataset, used to score teams
+   * @return the type chart
+   */
+  public PokemonTypeChart getTypeChart();
+
 }
@@ -5,10 +5,18 @@ import java.util.List;
  */
 public interface IPokemonFrontend {
 
+  /**
+   * The screens of the app. Every screen handles one response and names the screen to show next,
+   * so the command loop never recurses
+   */
+  public enum Screen {
+    MENU, POKEMON, TYPES, GENERATIONS, TEAM, QUIT
+  }
+
   /**
    * This method drives the entire read, eval, print loop (repl) for the
    * Pokemon Team Builder app.  This loop will continue to run until the user
-   * explicitly enters the quit command.
+   * explicitly enters the quit command or the input ends.
    */
   public void runCommandLoop();
 
@@ -20,29 +28,35 @@ public interface IPokemonFrontend {
    * 3) Filter [g]enerations
    * 4) Display [c]urrent team
    * 5) [Q]uit
+   * @return the screen chosen by the user
    */
-  public void displayCommandMenu();
+  public Screen displayCommandMenu();
 
   /**
    * Accept different user input once a list of Pokemon has been displayed
+   * @param page the page of Pokemon to display
+   * @return the screen to show next
    */
-  public void pokemonInput(int page);
+  public Screen pokemonInput(int page);
 
   /**
    * Accept different user input once the user wants to change filters
+   * @return the screen to show next
    */
-  public void typeInput();
+  public Screen typeInput();
 
   /**
    * Accept different user input once the user wants to change filters
+   * @return the screen to show next
    */
-  public void generationInput();
+  public Screen generationInput();
 
   /**
    * Display the user's currently built pokemon team
    *
    * @param pokemon list of user's current pokemon team
+   * @return the screen to show next
    */
-  public void displayPokemonTeam(List<IPokemon> pokemon);
+  public Screen displayPokemonTeam(List<IPokemon> pokemon);
 
 }
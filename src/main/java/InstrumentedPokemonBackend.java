@@ -0,0 +1,234 @@
+import java.util.List;
+
+/**
+ * Backend that records the latency, result size and allocations of every search, filter change
+ * and team change of another backend into PokemonMetrics. Cheap getters pass straight through
+ */
+public class InstrumentedPokemonBackend implements IPokemonBackend {
+
+  // the backend doing the work
+  private final IPokemonBackend BACKEND;
+  // recorders of each instrumented call, shared by every session over the same metrics
+  private final Operations OPERATIONS;
+
+  /**
+   * Constructor that instruments a backend
+   *
+   * @param backend the backend to instrument
+   * @param metrics where the calls are recorded
+   */
+  public InstrumentedPokemonBackend(IPokemonBackend backend, PokemonMetrics metrics) {
+    this.BACKEND = backend;
+    this.OPERATIONS = metrics.getBackendOperations();
+  }
+
+  @Override public List<IPokemon> searchPokemon() {
+    try (PokemonMetrics.Call call = OPERATIONS.SEARCH.start()) {
+      return call.results(BACKEND.searchPokemon());
+    }
+  }
+
+  @Override public List<IPokemon> searchPokemon(PokemonStatQuery query) {
+    try (PokemonMetrics.Call call = OPERATIONS.STAT_SEARCH.start()) {
+      return call.results(BACKEND.searchPokemon(query));
+    }
+  }
+
+  @Override public List<IPokemon> searchQuery(String query) {
+    try (PokemonMetrics.Call call = OPERATIONS.SEARCH_QUERY.start()) {
+      return call.results(BACKEND.searchQuery(query));
+    }
+  }
+
+  @Override public List<IPokemon> searchPage(int page, int size) {
+    try (PokemonMetrics.Call call = OPERATIONS.SEARCH_PAGE.start()) {
+      return call.results(BACKEND.searchPage(page, size));
+    }
+  }
+
+  @Override public List<IPokemon> searchPage(int page, int size, PokemonSortKey order,
+      boolean descending) {
+    try (PokemonMetrics.Call call = OPERATIONS.SORTED_PAGE.start()) {
+      return call.results(BACKEND.searchPage(page, size, order, descending));
+    }
+  }
+
+  @Override public List<IPokemon> searchTop(PokemonSortKey order, boolean descending,
+      int count) {
+    try (PokemonMetrics.Call call = OPERATIONS.SEARCH_TOP.start()) {
+      return call.results(BACKEND.searchTop(order, descending, count));
+    }
+  }
+
+  @Override public int searchCount() {
+    try (PokemonMetrics.Call call = OPERATIONS.SEARCH_COUNT.start()) {
+      return call.results(BACKEND.searchCount());
+    }
+  }
+
+  @Override public PokemonFacets getFacets() {
+    try (PokemonMetrics.Call call = OPERATIONS.FACETS.start()) {
+      PokemonFacets facets = BACKEND.getFacets();
+      call.succeeded();
+      return facets;
+    }
+  }
+
+  @Override public List<IPokemon> findByName(String name) {
+    try (PokemonMetrics.Call call = OPERATIONS.FIND_BY_NAME.start()) {
+      return call.results(BACKEND.findByName(name));
+    }
+  }
+
+  @Override public List<IPokemon> completeName(String prefix, int count) {
+    try (PokemonMetrics.Call call = OPERATIONS.COMPLETE_NAME.start()) {
+      return call.results(BACKEND.completeName(prefix, count));
+    }
+  }
+
+  @Override public List<IPokemon> searchByName(String name, int maxEdits, int count) {
+    try (PokemonMetrics.Call call = OPERATIONS.SEARCH_BY_NAME.start()) {
+      return call.results(BACKEND.searchByName(name, maxEdits, count));
+    }
+  }
+
+  @Override public List<IPokemon> findByAnyAbility(List<String> abilities) {
+    try (PokemonMetrics.Call call = OPERATIONS.FIND_BY_ANY_ABILITY.start()) {
+      return call.results(BACKEND.findByAnyAbility(abilities));
+    }
+  }
+
+  @Override public List<IPokemon> findByAllAbilities(List<String> abilities) {
+    try (PokemonMetrics.Call call = OPERATIONS.FIND_BY_ALL_ABILITIES.start()) {
+      return call.results(BACKEND.findByAllAbilities(abilities));
+    }
+  }
+
+  @Override public List<IPokemon> findSimilar(IPokemon pokemon, int count) {
+    try (PokemonMetrics.Call call = OPERATIONS.FIND_SIMILAR.start()) {
+      return call.results(BACKEND.findSimilar(pokemon, count));
+    }
+  }
+
+  @Override public boolean getTypeFilter(PokemonTypes type) {
+    return BACKEND.getTypeFilter(type);
+  }
+
+  @Override public void toggleTypeFilter(PokemonTypes type) {
+    try (PokemonMetrics.Call call = OPERATIONS.TOGGLE_TYPE.start()) {
+      BACKEND.toggleTypeFilter(type);
+      call.succeeded();
+    }
+  }
+
+  @Override public void resetTypeFilter() {
+    try (PokemonMetrics.Call call = OPERATIONS.RESET_TYPES.start()) {
+      BACKEND.resetTypeFilter();
+      call.succeeded();
+    }
+  }
+
+  @Override public boolean getGenerationFilter(int generation) {
+    return BACKEND.getGenerationFilter(generation);
+  }
+
+  @Override public void toggleGenerationFilter(int generation) {
+    try (PokemonMetrics.Call call = OPERATIONS.TOGGLE_GENERATION.start()) {
+      BACKEND.toggleGenerationFilter(generation);
+      call.succeeded();
+    }
+  }
+
+  @Override public void resetGenerationFilter() {
+    try (PokemonMetrics.Call call = OPERATIONS.RESET_GENERATIONS.start()) {
+      BACKEND.resetGenerationFilter();
+      call.succeeded();
+    }
+  }
+
+  @Override public void addToTeam(IPokemon pokemon) {
+    try (PokemonMetrics.Call call = OPERATIONS.ADD_TO_TEAM.start()) {
+      BACKEND.addToTeam(pokemon);
+      call.succeeded();
+    }
+  }
+
+  @Override public void removeFromTeam(int index) {
+    try (PokemonMetrics.Call call = OPERATIONS.REMOVE_FROM_TEAM.start()) {
+      BACKEND.removeFromTeam(index);
+      call.succeeded();
+    }
+  }
+
+  @Override public List<IPokemon> getTeam() {
+    return BACKEND.getTeam();
+  }
+
+  @Override public List<PokemonTeamSuggestion> suggestTeams(int count, long timeoutMillis) {
+    try (PokemonMetrics.Call call = OPERATIONS.SUGGEST_TEAMS.start()) {
+      return call.results(BACKEND.suggestTeams(count, timeoutMillis));
+    }
+  }
+
+  @Override public PokemonTypeChart getTypeChart() {
+    return BACKEND.getTypeChart();
+  }
+
+  /**
+   * The recorders of every instrumented call, looked up once per metrics
+   */
+  public static final class Operations {
+
+    // recorder of each instrumented call
+    private final PokemonMetrics.Operation SEARCH;
+    private final PokemonMetrics.Operation STAT_SEARCH;
+    private final PokemonMetrics.Operation SEARCH_QUERY;
+    private final PokemonMetrics.Operation SEARCH_PAGE;
+    private final PokemonMetrics.Operation SORTED_PAGE;
+    private final PokemonMetrics.Operation SEARCH_TOP;
+    private final PokemonMetrics.Operation SEARCH_COUNT;
+    private final PokemonMetrics.Operation FACETS;
+    private final PokemonMetrics.Operation FIND_BY_NAME;
+    private final PokemonMetrics.Operation COMPLETE_NAME;
+    private final PokemonMetrics.Operation SEARCH_BY_NAME;
+    private final PokemonMetrics.Operation FIND_BY_ANY_ABILITY;
+    private final PokemonMetrics.Operation FIND_BY_ALL_ABILITIES;
+    private final PokemonMetrics.Operation FIND_SIMILAR;
+    private final PokemonMetrics.Operation TOGGLE_TYPE;
+    private final PokemonMetrics.Operation RESET_TYPES;
+    private final PokemonMetrics.Operation TOGGLE_GENERATION;
+    private final PokemonMetrics.Operation RESET_GENERATIONS;
+    private final PokemonMetrics.Operation ADD_TO_TEAM;
+    private final PokemonMetrics.Operation REMOVE_FROM_TEAM;
+    private final PokemonMetrics.Operation SUGGEST_TEAMS;
+
+    /**
+     * Constructor that looks up every operation
+     *
+     * @param metrics where the calls are recorded
+     */
+    Operations(PokemonMetrics metrics) {
+      this.SEARCH = metrics.operation("search");
+      this.STAT_SEARCH = metrics.operation("stat_search");
+      this.SEARCH_QUERY = metrics.operation("search_query");
+      this.SEARCH_PAGE = metrics.operation("search_page");
+      this.SORTED_PAGE = metrics.operation("sorted_page");
+      this.SEARCH_TOP = metrics.operation("search_top");
+      this.SEARCH_COUNT = metrics.operation("search_count");
+      this.FACETS = metrics.operation("facets");
+      this.FIND_BY_NAME = metrics.operation("find_by_name");
+      this.COMPLETE_NAME = metrics.operation("complete_name");
+      this.SEARCH_BY_NAME = metrics.operation("search_by_name");
+      this.FIND_BY_ANY_ABILITY = metrics.operation("find_by_any_ability");
+      this.FIND_BY_ALL_ABILITIES = metrics.operation("find_by_all_abilities");
+      this.FIND_SIMILAR = metrics.operation("find_similar");
+      this.TOGGLE_TYPE = metrics.operation("toggle_type_filter");
+      this.RESET_TYPES = metrics.operation("reset_type_filter");
+      this.TOGGLE_GENERATION = metrics.operation("toggle_generation_filter");
+      this.RESET_GENERATIONS = metrics.operation("reset_generation_filter");
+      this.ADD_TO_TEAM = metrics.operation("add_to_team");
+      this.REMOVE_FROM_TEAM = metrics.operation("remove_from_team");
+      this.SUGGEST_TEAMS = metrics.operation("suggest_teams");
+    }
+  }
+}
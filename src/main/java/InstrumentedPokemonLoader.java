@@ -0,0 +1,31 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Loader that records the latency, size and allocations of every load of another loader into
+ * PokemonMetrics, under the load operation
+ */
+public class InstrumentedPokemonLoader implements IPokemonLoader {
+
+  // the loader doing the work
+  private final IPokemonLoader LOADER;
+  // records every load
+  private final PokemonMetrics.Operation LOAD;
+
+  /**
+   * Constructor that instruments a loader
+   *
+   * @param loader  the loader to instrument
+   * @param metrics where the loads are recorded
+   */
+  public InstrumentedPokemonLoader(IPokemonLoader loader, PokemonMetrics metrics) {
+    this.LOADER = loader;
+    this.LOAD = metrics.operation("load");
+  }
+
+  @Override public List<IPokemon> loadPokemon(String filename) throws IOException {
+    try (PokemonMetrics.Call call = LOAD.start()) {
+      return call.results(LOADER.loadPokemon(filename));
+    }
+  }
+}
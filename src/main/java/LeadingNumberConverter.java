@@ -0,0 +1,28 @@
+import com.opencsv.bean.AbstractBeanField;
+import com.opencsv.exceptions.CsvDataTypeMismatchException;
+
+/**
+ * OpenCSV converter for numeric columns that sometimes carry annotations after the number, such
+ * as Minior's capture rate "30 (Meteorite)255 (Core)". Only the leading number is kept
+ */
+public class LeadingNumberConverter extends AbstractBeanField<Pokemon, String> {
+
+  /**
+   * Parses the digits at the start of the value
+   *
+   * @param value the csv field
+   * @return the leading number, 0 if the field is empty
+   * @throws CsvDataTypeMismatchException if the field does not start with a digit
+   */
+  @Override protected Object convert(String value) throws CsvDataTypeMismatchException {
+    String trimmed = value.trim();
+    int end = 0;
+    while (end < trimmed.length() && Character.isDigit(trimmed.charAt(end)))
+      ++end;
+    if (trimmed.isEmpty())
+      return 0;
+    if (end == 0)
+      throw new CsvDataTypeMismatchException(value, Integer.class, "Not a number: " + value);
+    return Integer.parseInt(trimmed.substring(0, end));
+  }
+}
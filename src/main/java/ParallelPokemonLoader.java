@@ -0,0 +1,264 @@
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+
+/**
+ * Class that loads very large csv files by splitting them into chunks that are read and parsed in
+ * parallel on a fork-join pool, returning the Pokemon in stable pokedex order
+ *
+ * <p>A chunk cannot tell on its own whether a line break is a record boundary or sits inside a
+ * quoted field. So every chunk counts its quotes and remembers its first line break under both
+ * possible quote states. Quotes come in pairs, even when doubled inside a field, so the parity
+ * of the quotes before a chunk picks the chunk's true first record. Records that span two
+ * chunks are stitched together from the end of one and the start of the next
+ */
+public class ParallelPokemonLoader implements IPokemonLoader {
+
+  // smallest and largest number of bytes a worker reads and parses at once
+  private static final int MIN_CHUNK = 1 << 16;
+  private static final int MAX_CHUNK = 1 << 23;
+  // chunks per worker, so workers that finish early can take over the rest
+  private static final int CHUNKS_PER_WORKER = 4;
+  // the order the Pokemon are returned in, ties keep file order
+  private static final Comparator<IPokemon> BY_POKEDEX =
+      Comparator.comparingInt(IPokemon::getPokedex);
+
+  // runs the chunks
+  private final ForkJoinPool POOL;
+
+  /**
+   * Constructor that loads on the common fork-join pool
+   */
+  public ParallelPokemonLoader() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructor that loads on the given pool, using as many workers as it has
+   *
+   * @param pool the pool to parse on
+   */
+  public ParallelPokemonLoader(ForkJoinPool pool) {
+    this.POOL = pool;
+  }
+
+  /**
+   * Parses through a given csv file of Pokemon data
+   *
+   * @param filename the path of the file to parse through
+   * @return a list of all Pokemon objects found in the file, by pokedex number
+   * @throws FileNotFoundException if the filepath was incorrect/file not found
+   */
+  @Override public List<IPokemon> loadPokemon(String filename) throws IOException {
+    Chunk[] chunks;
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      long size = channel.size();
+      long chunkSize = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK,
+          size / ((long) this.POOL.getParallelism() * CHUNKS_PER_WORKER) + 1));
+      chunks = new Chunk[(int) Math.max(1, (size + chunkSize - 1) / chunkSize)];
+      for (int i = 0; i < chunks.length; ++i) {
+        long offset = i * chunkSize;
+        chunks[i] = new Chunk(offset, (int) Math.min(chunkSize, size - offset));
+      }
+      // first pass: read the chunks and find their candidate record starts
+      runAll(chunks, chunk -> chunk.read(channel));
+    } catch (NoSuchFileException nsfe) {
+      throw new FileNotFoundException(filename);
+    }
+
+    // the quotes before each chunk tell which candidate is where its first record starts
+    int parity = 0;
+    for (Chunk chunk : chunks) {
+      chunk.start = chunk.FIRST_RECORD[parity];
+      parity ^= chunk.quotes & 1;
+    }
+    if (chunks[0].start > chunks[0].BYTES.length)
+      throw new IOException("csv header is not terminated by a line break");
+    PokemonCsvParser parser = PokemonCsvParser.fromHeader(chunks[0].BYTES, 0, chunks[0].start);
+    chunks[chunks.length - 1].last = true;
+
+    // second pass: parse the records that start in each chunk
+    runAll(chunks, chunk -> chunk.parse(parser));
+
+    // concatenate in file order, stitching the records that span chunks
+    int total = 0;
+    for (Chunk chunk : chunks)
+      total += chunk.records.size();
+    List<IPokemon> pokemon = new ArrayList<>(total + chunks.length);
+    ByteArrayOutputStream spanning = new ByteArrayOutputStream();
+    boolean sorted = true;
+    for (int i = 0; i < chunks.length; ++i) {
+      Chunk chunk = chunks[i];
+      // the header is all that comes before the first chunk's first record
+      if (i > 0)
+        spanning.write(chunk.BYTES, 0, Math.min(chunk.start, chunk.BYTES.length));
+      if (chunk.start > chunk.BYTES.length)
+        continue;
+      sorted &= parseSpanning(parser, spanning, pokemon);
+      sorted &= append(pokemon, chunk.records) && chunk.sorted;
+      spanning.write(chunk.BYTES, chunk.tail, chunk.BYTES.length - chunk.tail);
+    }
+    sorted &= parseSpanning(parser, spanning, pokemon);
+
+    if (sorted)
+      return pokemon;
+    IPokemon[] order = pokemon.toArray(new IPokemon[0]);
+    // invoked from inside the pool so the stable merge sort forks onto its workers
+    this.POOL.invoke(ForkJoinTask.adapt(() -> Arrays.parallelSort(order, BY_POKEDEX)));
+    return new ArrayList<>(Arrays.asList(order));
+  }
+
+  /**
+   * Parses the records stitched together from the end of one chunk and the start of the next,
+   * then clears them
+   *
+   * @return true if the Pokemon are still in pokedex order
+   */
+  private static boolean parseSpanning(PokemonCsvParser parser, ByteArrayOutputStream spanning,
+      List<IPokemon> pokemon) throws IOException {
+    if (spanning.size() == 0)
+      return true;
+    List<IPokemon> records = new ArrayList<>(1);
+    parser.parseRecords(spanning.toByteArray(), 0, spanning.size(), true, records);
+    spanning.reset();
+    return append(pokemon, records);
+  }
+
+  /**
+   * Appends records to the Pokemon loaded so far
+   *
+   * @return true if the first record does not come before the last Pokemon in pokedex order
+   */
+  private static boolean append(List<IPokemon> pokemon, List<IPokemon> records) {
+    boolean sorted = records.isEmpty() || pokemon.isEmpty()
+        || BY_POKEDEX.compare(pokemon.get(pokemon.size() - 1), records.get(0)) <= 0;
+    pokemon.addAll(records);
+    return sorted;
+  }
+
+  /**
+   * Runs a step on every element on the pool and waits for all of them
+   */
+  private <T> void runAll(T[] elements, Step<T> step) throws IOException {
+    List<Callable<Void>> tasks = new ArrayList<>(elements.length);
+    for (T element : elements)
+      tasks.add(() -> {
+        step.run(element);
+        return null;
+      });
+    try {
+      for (Future<Void> task : this.POOL.invokeAll(tasks))
+        task.get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("loading was interrupted");
+    } catch (ExecutionException ee) {
+      if (ee.getCause() instanceof IOException ioe)
+        throw ioe;
+      if (ee.getCause() instanceof RuntimeException re)
+        throw re;
+      if (ee.getCause() instanceof Error e)
+        throw e;
+      throw new IOException(ee.getCause());
+    }
+  }
+
+  /**
+   * One step of loading, run on every element
+   */
+  private interface Step<T> {
+    void run(T element) throws IOException;
+  }
+
+  /**
+   * A range of the file, parsed by one worker
+   */
+  private static final class Chunk {
+
+    // where the chunk starts in the file
+    private final long OFFSET;
+    // the chunk's bytes
+    private final byte[] BYTES;
+    // offset just past the chunk's first line break when it starts outside and inside quotes,
+    // past the end of the chunk if it has none
+    private final int[] FIRST_RECORD = new int[2];
+    // the quotes in the chunk
+    private int quotes;
+    // where the first record starting in the chunk is
+    private int start;
+    // where the record the chunk ends in the middle of starts
+    private int tail;
+    // true if the chunk ends the file, so its final record needs no line break
+    private boolean last;
+    // the records that start and end in the chunk
+    private List<IPokemon> records = List.of();
+    // true if the records are in pokedex order
+    private boolean sorted = true;
+
+    private Chunk(long offset, int length) {
+      this.OFFSET = offset;
+      this.BYTES = new byte[length];
+    }
+
+    /**
+     * Reads the chunk, counts its quotes and finds its candidate record starts
+     */
+    private void read(FileChannel channel) throws IOException {
+      ByteBuffer buffer = ByteBuffer.wrap(this.BYTES);
+      while (buffer.hasRemaining())
+        if (channel.read(buffer, this.OFFSET + buffer.position()) < 0)
+          throw new EOFException("csv file shrank while it was loaded");
+
+      byte[] bytes = this.BYTES;
+      int quotes = 0;
+      int outside = bytes.length + 1;
+      int inside = bytes.length + 1;
+      for (int i = 0; i < bytes.length; ++i) {
+        byte b = bytes[i];
+        if (b == '"')
+          ++quotes;
+        // a line break after an even number of quotes here is outside quotes only if the chunk
+        // started outside quotes
+        else if (b == '\n' && (quotes & 1) == 0 && outside > bytes.length)
+          outside = i + 1;
+        else if (b == '\n' && (quotes & 1) == 1 && inside > bytes.length)
+          inside = i + 1;
+      }
+      this.quotes = quotes;
+      this.FIRST_RECORD[0] = outside;
+      this.FIRST_RECORD[1] = inside;
+    }
+
+    /**
+     * Parses the records that start in the chunk, leaving the one it ends inside for stitching
+     */
+    private void parse(PokemonCsvParser parser) throws IOException {
+      if (this.start > this.BYTES.length) {
+        this.tail = this.BYTES.length;
+        return;
+      }
+      List<IPokemon> records = new ArrayList<>();
+      this.tail = parser.parseRecords(this.BYTES, this.start, this.BYTES.length, this.last,
+          records);
+      for (int i = 1; i < records.size() && this.sorted; ++i)
+        this.sorted = BY_POKEDEX.compare(records.get(i - 1), records.get(i)) <= 0;
+      this.records = records;
+    }
+  }
+}
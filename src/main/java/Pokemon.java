@@ -1,6 +1,8 @@
 import com.opencsv.bean.CsvBindByName;
+import com.opencsv.bean.CsvCustomBindByName;
 
 import java.awt.*;
+import java.util.List;
 
 /**
  * Class representing a Pokémon object
@@ -9,6 +11,8 @@ public class Pokemon implements IPokemon {
 
   @CsvBindByName(column = "name") String name;
 
+  @CsvBindByName(column = "japanese_name") String japaneseName;
+
   @CsvBindByName(column = "type1") PokemonTypes typeOne;
 
   @CsvBindByName(column = "type2") PokemonTypes typeTwo;
@@ -17,6 +21,64 @@ public class Pokemon implements IPokemon {
 
   @CsvBindByName(column = "pokedex_number") int pokedex;
 
+  @CsvBindByName(column = "hp") int hp;
+
+  @CsvBindByName(column = "attack") int attack;
+
+  @CsvBindByName(column = "defense") int defense;
+
+  @CsvBindByName(column = "sp_attack") int spAttack;
+
+  @CsvBindByName(column = "sp_defense") int spDefense;
+
+  @CsvBindByName(column = "speed") int speed;
+
+  @CsvBindByName(column = "base_total") int baseTotal;
+
+  @CsvCustomBindByName(column = "capture_rate", converter = LeadingNumberConverter.class)
+  int captureRate;
+
+  @CsvBindByName(column = "is_legendary") boolean legendary;
+
+  @CsvBindByName(column = "against_water") float againstWater = 1;
+
+  @CsvBindByName(column = "against_grass") float againstGrass = 1;
+
+  @CsvBindByName(column = "against_fire") float againstFire = 1;
+
+  @CsvBindByName(column = "against_electric") float againstElectric = 1;
+
+  @CsvBindByName(column = "against_dark") float againstDark = 1;
+
+  @CsvBindByName(column = "against_ghost") float againstGhost = 1;
+
+  @CsvBindByName(column = "against_bug") float againstBug = 1;
+
+  @CsvBindByName(column = "against_ground") float againstGround = 1;
+
+  @CsvBindByName(column = "against_rock") float againstRock = 1;
+
+  @CsvBindByName(column = "against_ice") float againstIce = 1;
+
+  @CsvBindByName(column = "against_dragon") float againstDragon = 1;
+
+  @CsvBindByName(column = "against_psychic") float againstPsychic = 1;
+
+  @CsvBindByName(column = "against_normal") float againstNormal = 1;
+
+  @CsvBindByName(column = "against_fight") float againstFighting = 1;
+
+  @CsvBindByName(column = "against_fairy") float againstFairy = 1;
+
+  @CsvBindByName(column = "against_steel") float againstSteel = 1;
+
+  @CsvBindByName(column = "against_flying") float againstFlying = 1;
+
+  @CsvBindByName(column = "against_poison") float againstPoison = 1;
+
+  @CsvCustomBindByName(column = "abilities", converter = AbilitiesConverter.class)
+  List<String> abilities = List.of();
+
   Image picture;
 
   /**
@@ -37,6 +99,24 @@ public class Pokemon implements IPokemon {
     this.name = name;
   }
 
+  /**
+   * Gets the Japanese name of the Pokémon
+   *
+   * @return the Japanese name of the Pokémon
+   */
+  @Override public String getJapaneseName() {
+    return this.japaneseName;
+  }
+
+  /**
+   * Sets the Japanese name of the pokemon
+   *
+   * @param japaneseName the Japanese name of the pokemon
+   */
+  @Override public void setJapaneseName(String japaneseName) {
+    this.japaneseName = japaneseName;
+  }
+
   /**
    * Gets the first type of the Pokémon
    *
@@ -111,8 +191,222 @@ public class Pokemon implements IPokemon {
     this.pokedex = pokedex;
   }
 
+  /**
+   * Gets one of the Pokémon's stats
+   *
+   * @param stat the stat to get
+   * @return the value of the stat
+   */
+  @Override public int getStat(PokemonStats stat) {
+    switch (stat) {
+      case HP:
+        return this.hp;
+      case ATTACK:
+        return this.attack;
+      case DEFENSE:
+        return this.defense;
+      case SP_ATTACK:
+        return this.spAttack;
+      case SP_DEFENSE:
+        return this.spDefense;
+      case SPEED:
+        return this.speed;
+      case BASE_TOTAL:
+        return this.baseTotal;
+      default:
+        return this.captureRate;
+    }
+  }
+
+  /**
+   * Sets one of the Pokemon's stats
+   *
+   * @param stat  the stat to set
+   * @param value the value of the stat
+   */
+  @Override public void setStat(PokemonStats stat, int value) {
+    switch (stat) {
+      case HP:
+        this.hp = value;
+        break;
+      case ATTACK:
+        this.attack = value;
+        break;
+      case DEFENSE:
+        this.defense = value;
+        break;
+      case SP_ATTACK:
+        this.spAttack = value;
+        break;
+      case SP_DEFENSE:
+        this.spDefense = value;
+        break;
+      case SPEED:
+        this.speed = value;
+        break;
+      case BASE_TOTAL:
+        this.baseTotal = value;
+        break;
+      default:
+        this.captureRate = value;
+    }
+  }
+
+  /**
+   * Checks if the Pokémon is legendary
+   *
+   * @return true if the Pokémon is legendary
+   */
+  @Override public boolean isLegendary() {
+    return this.legendary;
+  }
+
+  /**
+   * Sets if the Pokemon is legendary
+   *
+   * @param legendary true if the pokemon is legendary
+   */
+  @Override public void setLegendary(boolean legendary) {
+    this.legendary = legendary;
+  }
+
+  /**
+   * Gets the damage multiplier of attacks of the given type against the Pokémon
+   *
+   * @param attacking the type of the attack
+   * @return the damage multiplier
+   */
+  @Override public float getDamageMultiplier(PokemonTypes attacking) {
+    switch (attacking) {
+      case WATER:
+        return this.againstWater;
+      case GRASS:
+        return this.againstGrass;
+      case FIRE:
+        return this.againstFire;
+      case ELECTRIC:
+        return this.againstElectric;
+      case DARK:
+        return this.againstDark;
+      case GHOST:
+        return this.againstGhost;
+      case BUG:
+        return this.againstBug;
+      case GROUND:
+        return this.againstGround;
+      case ROCK:
+        return this.againstRock;
+      case ICE:
+        return this.againstIce;
+      case DRAGON:
+        return this.againstDragon;
+      case PSYCHIC:
+        return this.againstPsychic;
+      case NORMAL:
+        return this.againstNormal;
+      case FIGHTING:
+        return this.againstFighting;
+      case FAIRY:
+        return this.againstFairy;
+      case STEEL:
+        return this.againstSteel;
+      case FLYING:
+        return this.againstFlying;
+      default:
+        return this.againstPoison;
+    }
+  }
+
+  /**
+   * Sets the damage multiplier of attacks of the given type against the Pokemon
+   *
+   * @param attacking  the type of the attack
+   * @param multiplier the damage multiplier
+   */
+  @Override public void setDamageMultiplier(PokemonTypes attacking, float multiplier) {
+    switch (attacking) {
+      case WATER:
+        this.againstWater = multiplier;
+        break;
+      case GRASS:
+        this.againstGrass = multiplier;
+        break;
+      case FIRE:
+        this.againstFire = multiplier;
+        break;
+      case ELECTRIC:
+        this.againstElectric = multiplier;
+        break;
+      case DARK:
+        this.againstDark = multiplier;
+        break;
+      case GHOST:
+        this.againstGhost = multiplier;
+        break;
+      case BUG:
+        this.againstBug = multiplier;
+        break;
+      case GROUND:
+        this.againstGround = multiplier;
+        break;
+      case ROCK:
+        this.againstRock = multiplier;
+        break;
+      case ICE:
+        this.againstIce = multiplier;
+        break;
+      case DRAGON:
+        this.againstDragon = multiplier;
+        break;
+      case PSYCHIC:
+        this.againstPsychic = multiplier;
+        break;
+      case NORMAL:
+        this.againstNormal = multiplier;
+        break;
+      case FIGHTING:
+        this.againstFighting = multiplier;
+        break;
+      case FAIRY:
+        this.againstFairy = multiplier;
+        break;
+      case STEEL:
+        this.againstSteel = multiplier;
+        break;
+      case FLYING:
+        this.againstFlying = multiplier;
+        break;
+      default:
+        this.againstPoison = multiplier;
+    }
+  }
+
+  /**
+   * Gets the abilities the Pokémon can have
+   *
+   * @return an immutable list of the ability names
+   */
+  @Override public List<String> getAbilities() {
+    return this.abilities;
+  }
+
+  /**
+   * Sets the abilities of the Pokemon
+   *
+   * @param abilities the ability names, copied unless already immutable
+   */
+  @Override public void setAbilities(List<String> abilities) {
+    this.abilities = List.copyOf(abilities);
+  }
+
+  /**
+   * Gets the image set on the Pokemon, falling back to its sprite from the shared sprite cache
+   *
+   * @return the image, or null if there is none
+   */
   @Override public Image getImage() {
-    return this.picture;
+    return this.picture != null ? this.picture
+        : PokemonSpriteCache.getDefault().getSprite(this.pokedex, null);
   }
 
   @Override public void setImage(Image picture) {
@@ -125,10 +419,32 @@ public class Pokemon implements IPokemon {
    * @return A nicely formatted string containing the Pokemons metadata
    */
   @Override public String toString() {
-    String pokemon = "\tDex Number: " + pokedex + "\n\tPokemon: " + name + "\n\tType: " + typeOne;
-    if (typeTwo != null)
-      pokemon += ", " + typeTwo;
-    pokemon += "\n\tGeneration: " + generation;
-    return pokemon;
+    return toString(this);
+  }
+
+  /**
+   * Forms a string of any Pokemon's metadata
+   *
+   * @param pokemon the Pokemon to describe
+   * @return A nicely formatted string containing the Pokemons metadata
+   */
+  public static String toString(IPokemon pokemon) {
+    return appendTo(pokemon, new StringBuilder(96)).toString();
+  }
+
+  /**
+   * Appends the description of any Pokemon's metadata to a builder, so callers printing many
+   * Pokemon can reuse one builder
+   *
+   * @param pokemon the Pokemon to describe
+   * @param out     the builder to append to
+   * @return the builder
+   */
+  public static StringBuilder appendTo(IPokemon pokemon, StringBuilder out) {
+    out.append("\tDex Number: ").append(pokemon.getPokedex()).append("\n\tPokemon: ")
+        .append(pokemon.getName()).append("\n\tType: ").append(pokemon.getTypeOne());
+    if (pokemon.getTypeTwo() != null)
+      out.append(", ").append(pokemon.getTypeTwo());
+    return out.append("\n\tGeneration: ").append(pokemon.getGeneration());
   }
 }
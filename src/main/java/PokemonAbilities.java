@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class that parses the abilities column of pokemon.csv, which holds Python style lists such as
+ * "['Overgrow', 'Chlorophyll']"
+ *
+ * <p>Every ability name is interned, so the few hundred abilities are stored once however many
+ * rows share them, and the lists of the most common columns are shared as well, so loading a
+ * dataset that repeats rows does not repeat lists either
+ */
+public final class PokemonAbilities {
+
+  // most distinct columns whose lists are kept, past it lists are still parsed but not shared
+  private static final int MAX_SHARED_LISTS = 1 << 12;
+  // canonical instance of every ability name seen
+  private static final ConcurrentHashMap<String, String> NAMES = new ConcurrentHashMap<>();
+  // parsed list of every column seen, until there are MAX_SHARED_LISTS
+  private static final ConcurrentHashMap<String, List<String>> LISTS = new ConcurrentHashMap<>();
+
+  private PokemonAbilities() {
+  }
+
+  /**
+   * Parses an abilities column
+   *
+   * @param column the column, a Python list of quoted names, or empty for no abilities
+   * @return an immutable list of interned ability names, in column order
+   * @throws IllegalArgumentException if the column is not a list of quoted names
+   */
+  public static List<String> parse(String column) {
+    List<String> abilities = LISTS.get(column);
+    if (abilities != null)
+      return abilities;
+    abilities = split(column);
+    if (LISTS.size() < MAX_SHARED_LISTS) {
+      List<String> previous = LISTS.putIfAbsent(column, abilities);
+      if (previous != null)
+        return previous;
+    }
+    return abilities;
+  }
+
+  /**
+   * Splits a column into its names
+   */
+  private static List<String> split(String column) {
+    String list = column.trim();
+    if (list.isEmpty())
+      return List.of();
+    if (list.charAt(0) != '[' || list.charAt(list.length() - 1) != ']')
+      throw new IllegalArgumentException("Not a list of abilities: " + column);
+    List<String> abilities = new ArrayList<>(4);
+    int position = 1;
+    int end = list.length() - 1;
+    while (true) {
+      while (position < end && (list.charAt(position) == ' ' || list.charAt(position) == ','))
+        ++position;
+      if (position >= end)
+        return List.copyOf(abilities);
+      // Python quotes with ' unless the name holds one
+      char quote = list.charAt(position);
+      int close = quote == '\'' || quote == '"' ? list.indexOf(quote, position + 1) : -1;
+      if (close < 0 || close > end)
+        throw new IllegalArgumentException("Not a list of abilities: " + column);
+      abilities.add(intern(list.substring(position + 1, close)));
+      position = close + 1;
+    }
+  }
+
+  /**
+   * Gets the canonical instance of an ability name
+   *
+   * @param name the ability name
+   * @return an equal string shared by every user of the name
+   */
+  public static String intern(String name) {
+    String canonical = NAMES.putIfAbsent(name, name);
+    return canonical == null ? name : canonical;
+  }
+}
@@ -0,0 +1,186 @@
+import java.util.Arrays;
+
+/**
+ * Class representing an inverted index over the abilities of a PokemonStore. Every ability owns a
+ * posting list of the rows having it, so ability queries read only the rows of the abilities
+ * asked for and combine with the type and generation bitsets
+ *
+ * <p>Postings are kept in the smaller of two containers, as roaring bitmaps do: rare abilities as
+ * the gaps between their rows in ascending order, written as variable length integers of seven
+ * bits per byte, and abilities common enough that this would take more room than a bitset as a
+ * bitset with one bit per row
+ */
+public class PokemonAbilityIndex {
+
+  // the store the postings point into, checked for the abilities of a row
+  private final PokemonStore STORE;
+  // number of 64-bit words needed to hold one bit per row
+  private final int WORDS;
+  // number of rows having every ability, indexed by ability id
+  private final int[] COUNTS;
+  // gaps between the rows of every sparse ability back to back
+  private final byte[] GAPS;
+  // start of every ability's gaps in GAPS, with one extra entry marking the end, dense abilities
+  // take no bytes
+  private final int[] GAP_OFFSETS;
+  // bitset of every dense ability, null for sparse ones
+  private final long[][] DENSE;
+
+  /**
+   * Constructor that builds the postings of every ability of a store
+   *
+   * @param store the store to index
+   */
+  public PokemonAbilityIndex(PokemonStore store) {
+    this.STORE = store;
+    this.WORDS = PokemonFilterIndex.wordsFor(store.size());
+    int abilities = store.abilityCount();
+    this.COUNTS = new int[abilities];
+    // the first pass sizes every gap list, the second writes them
+    long[] bytes = new long[abilities];
+    int[] last = new int[abilities];
+    Arrays.fill(last, -1);
+    for (int row = 0; row < store.size(); ++row)
+      for (int i = 0; i < store.getAbilityCount(row); ++i) {
+        int ability = store.getAbility(row, i);
+        // a row listing an ability twice is posted once
+        if (last[ability] == row)
+          continue;
+        ++this.COUNTS[ability];
+        bytes[ability] += varintBytes(row - last[ability]);
+        last[ability] = row;
+      }
+
+    this.DENSE = new long[abilities][];
+    this.GAP_OFFSETS = new int[abilities + 1];
+    for (int ability = 0; ability < abilities; ++ability) {
+      boolean dense = bytes[ability] > (long) this.WORDS * Long.BYTES;
+      if (dense)
+        this.DENSE[ability] = new long[this.WORDS];
+      this.GAP_OFFSETS[ability + 1] =
+          this.GAP_OFFSETS[ability] + (dense ? 0 : (int) bytes[ability]);
+    }
+    this.GAPS = new byte[this.GAP_OFFSETS[abilities]];
+    int[] written = Arrays.copyOf(this.GAP_OFFSETS, abilities);
+    Arrays.fill(last, -1);
+    for (int row = 0; row < store.size(); ++row)
+      for (int i = 0; i < store.getAbilityCount(row); ++i) {
+        int ability = store.getAbility(row, i);
+        if (last[ability] == row)
+          continue;
+        if (this.DENSE[ability] != null)
+          this.DENSE[ability][row >>> 6] |= 1L << row;
+        else
+          for (int gap = row - last[ability]; ; gap >>>= 7) {
+            if (gap < 0x80) {
+              this.GAPS[written[ability]++] = (byte) gap;
+              break;
+            }
+            this.GAPS[written[ability]++] = (byte) (gap | 0x80);
+          }
+        last[ability] = row;
+      }
+  }
+
+  /**
+   * Gets the number of bytes a gap takes
+   */
+  private static int varintBytes(int gap) {
+    return gap < 1 << 7 ? 1 : gap < 1 << 14 ? 2 : gap < 1 << 21 ? 3 : gap < 1 << 28 ? 4 : 5;
+  }
+
+  /**
+   * Gets the number of rows having an ability
+   *
+   * @param ability the ability id
+   * @return the number of rows
+   */
+  public int count(int ability) {
+    return this.COUNTS[ability];
+  }
+
+  /**
+   * Finds the rows having any of the given abilities
+   *
+   * @param abilities the ability ids
+   * @param match     the rows to search, such as the rows matching the type and generation
+   *                  filters
+   * @param out       the bitset to overwrite with the matching rows
+   */
+  public void anyOf(int[] abilities, long[] match, long[] out) {
+    Arrays.fill(out, 0L);
+    for (int ability : abilities) {
+      if (this.DENSE[ability] != null) {
+        PokemonFilterIndex.or(out, this.DENSE[ability]);
+        continue;
+      }
+      int row = -1;
+      for (int i = this.GAP_OFFSETS[ability]; i < this.GAP_OFFSETS[ability + 1]; ) {
+        int gap = 0;
+        for (int shift = 0; ; shift += 7) {
+          byte b = this.GAPS[i++];
+          gap |= (b & 0x7F) << shift;
+          if (b >= 0)
+            break;
+        }
+        row += gap;
+        out[row >>> 6] |= 1L << row;
+      }
+    }
+    PokemonFilterIndex.and(out, match, out);
+  }
+
+  /**
+   * Finds the rows having all of the given abilities. Only the rows of the rarest ability are
+   * read, the others are checked against each row's own short list of abilities
+   *
+   * @param abilities the ability ids, none for every row of match
+   * @param match     the rows to search, such as the rows matching the type and generation
+   *                  filters
+   * @param out       the bitset to overwrite with the matching rows
+   */
+  public void allOf(int[] abilities, long[] match, long[] out) {
+    if (abilities.length == 0) {
+      System.arraycopy(match, 0, out, 0, out.length);
+      return;
+    }
+    int rarest = abilities[0];
+    for (int ability : abilities)
+      if (this.COUNTS[ability] < this.COUNTS[rarest])
+        rarest = ability;
+    Arrays.fill(out, 0L);
+    if (this.DENSE[rarest] != null) {
+      long[] dense = this.DENSE[rarest];
+      for (int word = 0; word < out.length; ++word)
+        for (long bits = dense[word] & match[word]; bits != 0; bits &= bits - 1) {
+          int row = word << 6 | Long.numberOfTrailingZeros(bits);
+          if (hasAll(row, abilities))
+            out[word] |= bits & -bits;
+        }
+      return;
+    }
+    int row = -1;
+    for (int i = this.GAP_OFFSETS[rarest]; i < this.GAP_OFFSETS[rarest + 1]; ) {
+      int gap = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = this.GAPS[i++];
+        gap |= (b & 0x7F) << shift;
+        if (b >= 0)
+          break;
+      }
+      row += gap;
+      if ((match[row >>> 6] & 1L << row) != 0 && hasAll(row, abilities))
+        out[row >>> 6] |= 1L << row;
+    }
+  }
+
+  /**
+   * Checks if a row has every one of the given abilities
+   */
+  private boolean hasAll(int row, int[] abilities) {
+    for (int ability : abilities)
+      if (!this.STORE.hasAbility(row, ability))
+        return false;
+    return true;
+  }
+}
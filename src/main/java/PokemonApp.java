@@ -1,10 +1,100 @@
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
 
 public class PokemonApp {
   public static void main(String[] args) {
     try {
-      IPokemonFrontend app = new PokemonFrontend(new PokemonBackend(new PokemonLoader()));
+      // --watch reloads pokemon.csv whenever it changes, in any mode
+      List<String> options = new ArrayList<>(Arrays.asList(args));
+      boolean watch = options.remove("--watch");
+      // --metrics file writes the recorded metrics to the file when the app exits
+      PokemonMetrics metrics = new PokemonMetrics();
+      int metricsOption = options.indexOf("--metrics");
+      if (metricsOption >= 0 && metricsOption + 1 < options.size()) {
+        Path metricsFile = Paths.get(options.remove(metricsOption + 1));
+        options.remove(metricsOption);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+          try {
+            metrics.dump(metricsFile);
+          } catch (IOException ioe) {
+            System.out.println("ERROR: writing metrics to " + metricsFile + " failed");
+          }
+        }));
+      }
+      args = options.toArray(new String[0]);
+      Supplier<PokemonDataset> datasets;
+      if (watch) {
+        PokemonDatasetReloader reloader = new PokemonDatasetReloader(Paths.get("pokemon.csv"));
+        // reloads are reported on stderr, stdout carries the output of --batch and --usage
+        reloader.start(new PokemonDatasetReloader.Listener() {
+          @Override public void reloaded(Path csv, PokemonDatasetReloader.Change change) {
+            System.err.println("Reloaded " + csv.getFileName() + ": " + change);
+          }
+
+          @Override public void failed(Path csv, IOException error) {
+            System.err.println("ERROR: reloading " + csv.getFileName()
+                + " failed, keeping the previous data: " + error.getMessage());
+          }
+        });
+        datasets = reloader;
+      } else {
+        PokemonDataset dataset = new PokemonDataset(new InstrumentedPokemonLoader(
+            new PokemonSnapshotLoader(new ParallelPokemonLoader()), metrics));
+        datasets = () -> dataset;
+      }
+      // --usage log... streams team logs and writes their usage statistics as JSON, listing the
+      // 20 most used pokemon and pairs
+      if (args.length > 0 && args[0].equals("--usage")) {
+        List<Path> logs = new ArrayList<>();
+        for (int i = 1; i < args.length; ++i)
+          logs.add(Paths.get(args[i]));
+        PokemonUsageReport report = new PokemonUsageAnalyzer(datasets.get()).analyze(logs);
+        PokemonJsonWriter json = new PokemonJsonWriter(System.out);
+        report.writeTo(json, 20);
+        json.flush();
+        System.out.println();
+        return;
+      }
+      // --server [port] serves the JSON API instead of the command loop
+      if (args.length > 0 && args[0].equals("--server")) {
+        // saved teams outlive the server in a journal next to pokemon.csv
+        PokemonTeamJournal teams = new PokemonTeamJournal(Paths.get("teams.journal"));
+        if (teams.getTruncatedBytes() > 0)
+          System.out.println("Recovered teams.journal, dropping " + teams.getTruncatedBytes()
+              + " bytes of unfinished changes");
+        // thumbnails are served from an atlas next to pokemon.csv, packed on the first start
+        PokemonSpriteAtlas sprites =
+            PokemonSpriteAtlas.open(new File("pokemon"), Paths.get("pokemon.atlas"), 64);
+        PokemonServer server = new PokemonServer(datasets, metrics, teams, sprites,
+            new InetSocketAddress(args.length > 1 ? Integer.parseInt(args[1]) : 8080));
+        server.start();
+        System.out.println("Serving on port " + server.getAddress().getPort());
+        return;
+      }
+      // --batch [file] reads commands from the file, or from stdin without one
+      IPokemonBackend backend =
+          new InstrumentedPokemonBackend(new PokemonBackend(datasets), metrics);
+      IPokemonFrontend app;
+      if (args.length > 0 && args[0].equals("--batch")) {
+        Reader input = args.length > 1 ? new FileReader(args[1])
+            : new InputStreamReader(System.in);
+        app = new PokemonFrontend(backend, new BufferedReader(input),
+            new OutputStreamWriter(System.out), true);
+      } else
+        app = new PokemonFrontend(backend);
       app.runCommandLoop();
     } catch (IOException ioe) {
       System.out.println("ERROR: data collection failed");
@@ -1,64 +1,430 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
 /**
- * Class representing the backend for the Pokemon Team Builder
+ * Class representing one team building session of the Pokemon Team Builder. The dataset is shared
+ * by every session, so a session only holds its filters, its team and the bitsets its filters
+ * match, which are not allocated until the session first changes a filter
+ *
+ * <p>The dataset can be replaced while the session is open. Every search result is tied to the
+ * dataset it was computed on and a search reads nothing else, so a search never mixes rows of two
+ * datasets. The first call after a swap re-derives the bitsets from the filters and moves the team
+ * to the new rows with the same pokedex numbers
  */
 public class PokemonBackend implements IPokemonBackend {
 
-  // maps pokemon types to their filter status
-  private final HashMap<PokemonTypes, Boolean> TYPES_FILTER = new HashMap<>();
-  // maps pokemon generations to their filter status
-  private final HashMap<Integer, Boolean> GENERATION_FILTER = new HashMap<>();
-  // list of the user's pokemon team
-  private final List<IPokemon> POKEMON_TEAM = new ArrayList<>();
-  // list of all pokemon in the dataset
-  private final List<IPokemon> ALL_POKEMON;
+  // the shared dataset the session searches, which may change between calls
+  private final Supplier<PokemonDataset> DATASETS;
+  // list of the user's pokemon team, safe to read while another thread changes it
+  private final List<IPokemon> POKEMON_TEAM = new CopyOnWriteArrayList<>();
+  // read-only view of the team handed out by getTeam
+  private final List<IPokemon> TEAM_VIEW = Collections.unmodifiableList(this.POKEMON_TEAM);
+  // bit i is set if the type with ordinal i is active
+  private volatile long typesFilter;
+  // bit i is set if generation i is active
+  private volatile long generationFilter;
+  // rows matching any active type, null until the first filter change
+  private long[] typesMatch;
+  // rows matching any active generation, null until the first filter change
+  private long[] generationMatch;
+  // result of the current filter state, replaced by a new result after every toggle and dataset
+  // swap, so the result read identifies the state it belongs to and searches never see a
+  // half-updated bitset
+  private volatile SearchResult searchResult;
 
   /**
-   * Constructor that loads pokemon and initializes filters
+   * Constructor that loads pokemon into a dataset used only by this session
    *
    * @param loader PokemonLoader to load pokemon
    * @throws FileNotFoundException if pokemon.csv is not found
    */
   public PokemonBackend(IPokemonLoader loader) throws IOException {
-    // loads Pokemon from the csv
-    this.ALL_POKEMON = loader.loadPokemon("pokemon.csv");
-    // initialize types
-    for (int i = 0; i < PokemonTypes.values().length; ++i)
-      this.TYPES_FILTER.put(PokemonTypes.values()[i], true);
-    // initialize generations
-    for (int i = 1; i <= 7; ++i)
-      this.GENERATION_FILTER.put(i, true);
+    this(new PokemonDataset(loader));
+  }
+
+  /**
+   * Constructor that starts a session over a shared dataset with all filters on
+   *
+   * @param dataset the loaded dataset
+   */
+  public PokemonBackend(PokemonDataset dataset) {
+    this(() -> dataset);
+  }
+
+  /**
+   * Constructor that starts a session over a dataset that may be replaced, such as the one kept
+   * by a PokemonDatasetReloader, with all filters on
+   *
+   * @param datasets supplies the current dataset
+   */
+  public PokemonBackend(Supplier<PokemonDataset> datasets) {
+    this.DATASETS = datasets;
+    PokemonDataset dataset = datasets.get();
+    this.typesFilter = dataset.getAllTypes();
+    this.generationFilter = dataset.getAllGenerations();
+    this.searchResult = SearchResult.ofDefault(dataset);
   }
 
   /**
    * Returns a list of current pokemon with filters
    */
   @Override public List<IPokemon> searchPokemon() {
-    ArrayList<IPokemon> pokemon = new ArrayList<>();
-    // filter out pokemon
-    // if the pokemon is within the current filters, add it to the list of pokemon being searched
-    for (IPokemon Pokemon : this.ALL_POKEMON)
-      if (isValidPokemon(Pokemon))
-        pokemon.add(Pokemon);
+    SearchResult result = result();
+    List<IPokemon> pokemon = result.pokemon;
+    // the list is only built the first time it is asked for after a filter change
+    if (pokemon == null) {
+      pokemon = PokemonRowList.of(result.DATASET.getStore(), result.MATCH);
+      result.pokemon = pokemon;
+    }
     return pokemon;
   }
 
   /**
-   * Checks to see if pokemon fits current filter criteria
+   * Returns a list of current pokemon with filters that also match a stat query
+   *
+   * @param query the stat ranges and legendary status to match
+   * @return the matching pokemon in dataset order
+   */
+  @Override public List<IPokemon> searchPokemon(PokemonStatQuery query) {
+    SearchResult result = result();
+    long[] match = result.MATCH.clone();
+    query.retainMatches(result.DATASET.getStore(), match);
+    return PokemonRowList.of(result.DATASET.getStore(), match);
+  }
+
+  /**
+   * Returns a list of current pokemon with filters that also match a query of the query language.
+   * The query is compiled once per dataset and its plan reused by every later search with the
+   * same normalised text
+   *
+   * @param query the query text
+   * @return the matching pokemon in dataset order
+   * @throws IllegalArgumentException if the query is not part of the query language
+   */
+  @Override public List<IPokemon> searchQuery(String query) {
+    SearchResult result = result();
+    long[] match = result.MATCH.clone();
+    result.DATASET.getQueryPlan(query).retainMatches(match);
+    return PokemonRowList.of(result.DATASET.getStore(), match);
+  }
+
+  /**
+   * Returns one page of the current pokemon with filters
+   *
+   * @param page the zero-based page number
+   * @param size the number of pokemon per page
+   * @return the pokemon on the requested page, empty if the page is out of range
+   */
+  @Override public List<IPokemon> searchPage(int page, int size) {
+    if (page < 0 || size <= 0)
+      return Collections.emptyList();
+    List<IPokemon> pokemon = searchPokemon();
+    int from = (int) Math.min((long) page * size, pokemon.size());
+    return pokemon.subList(from, Math.min(from + size, pokemon.size()));
+  }
+
+  /**
+   * Returns one page of the current pokemon with filters in the order of a column, read off the
+   * column's precomputed order
+   *
+   * @param page       the zero-based page number
+   * @param size       the number of pokemon per page
+   * @param order      the column to order by, null for dataset order
+   * @param descending true for the largest values first, ties stay in dataset order
+   * @return the pokemon on the requested page, empty if the page is out of range
+   */
+  @Override public List<IPokemon> searchPage(int page, int size, PokemonSortKey order,
+      boolean descending) {
+    if (order == null)
+      return searchPage(page, size);
+    SearchResult result = result();
+    long skip = (long) page * size;
+    if (page < 0 || size <= 0 || skip >= result.COUNT)
+      return Collections.emptyList();
+    int[] rows = new int[(int) Math.min(size, result.COUNT - skip)];
+    int found = result.DATASET.getSortIndex().page(order, descending, result.MATCH, (int) skip,
+        rows);
+    return new PokemonRowList(result.DATASET.getStore(),
+        found == rows.length ? rows : Arrays.copyOf(rows, found));
+  }
+
+  /**
+   * Returns the first current pokemon with filters in the order of a column
    *
-   * @param pokemon the pokemon being checked
-   * @return true if it is valid, false otherwise
+   * @param order      the column to order by
+   * @param descending true for the largest values first, ties stay in dataset order
+   * @param count      the most pokemon to return
+   * @return up to count pokemon, in order
    */
-  private boolean isValidPokemon(IPokemon pokemon) {
-    // Checks to see if the Pokemon's type and generation is within the current filter
-    return (this.TYPES_FILTER.get(pokemon.getTypeOne()) || (pokemon.getTypeTwo() != null
-        && this.TYPES_FILTER.get(pokemon.getTypeTwo()))) && this.GENERATION_FILTER.get(
-        pokemon.getGeneration());
+  @Override public List<IPokemon> searchTop(PokemonSortKey order, boolean descending,
+      int count) {
+    SearchResult result = result();
+    if (count <= 0 || result.COUNT == 0)
+      return Collections.emptyList();
+    int[] rows = new int[Math.min(count, result.COUNT)];
+    int found = result.DATASET.getSortIndex().top(order, descending, result.MATCH, result.COUNT,
+        rows);
+    return new PokemonRowList(result.DATASET.getStore(),
+        found == rows.length ? rows : Arrays.copyOf(rows, found));
+  }
+
+  /**
+   * Returns the number of current pokemon with filters
+   *
+   * @return the number of pokemon matching the filters
+   */
+  @Override public int searchCount() {
+    return result().COUNT;
+  }
+
+  /**
+   * Counts the current pokemon with filters of every type and generation, and the pokemon every
+   * filter toggle would leave. The counts are computed once per filter change
+   *
+   * @return the facet counts of the current filters
+   */
+  @Override public PokemonFacets getFacets() {
+    SearchResult result = result();
+    PokemonFacets facets = result.facets;
+    if (facets == null) {
+      facets = result.DATASET.getIndex().facets(result.TYPES, result.GENERATIONS);
+      result.facets = facets;
+    }
+    return facets;
+  }
+
+  /**
+   * Returns the current pokemon with filters whose name or Japanese name is the given name
+   *
+   * @param name the name to look up
+   * @return the matching pokemon in dataset order
+   */
+  @Override public List<IPokemon> findByName(String name) {
+    SearchResult result = result();
+    return new PokemonRowList(result.DATASET.getStore(),
+        result.DATASET.getNameIndex().exact(name, result.MATCH));
+  }
+
+  /**
+   * Returns the current pokemon with filters whose name starts with the given prefix
+   *
+   * @param prefix the start of the name
+   * @param count  the most pokemon to return
+   * @return up to count pokemon, shortest names first
+   */
+  @Override public List<IPokemon> completeName(String prefix, int count) {
+    SearchResult result = result();
+    return new PokemonRowList(result.DATASET.getStore(),
+        result.DATASET.getNameIndex().complete(prefix, count, result.MATCH));
+  }
+
+  /**
+   * Returns the current pokemon with filters whose name is within a number of typos of the given
+   * name
+   *
+   * @param name     the name to look up
+   * @param maxEdits the most typos to allow
+   * @param count    the most pokemon to return
+   * @return up to count pokemon, closest first
+   */
+  @Override public List<IPokemon> searchByName(String name, int maxEdits, int count) {
+    SearchResult result = result();
+    return new PokemonRowList(result.DATASET.getStore(),
+        result.DATASET.getNameIndex().search(name, maxEdits, count, result.MATCH));
+  }
+
+  /**
+   * Returns the current pokemon with filters that can have any of the given abilities
+   *
+   * @param abilities the ability names, in any case, unknown names match nothing
+   * @return the matching pokemon in dataset order
+   */
+  @Override public List<IPokemon> findByAnyAbility(List<String> abilities) {
+    SearchResult result = result();
+    int[] ids = abilityIds(result.DATASET.getStore(), abilities);
+    long[] match = new long[result.MATCH.length];
+    result.DATASET.getAbilityIndex().anyOf(ids, result.MATCH, match);
+    return PokemonRowList.of(result.DATASET.getStore(), match);
+  }
+
+  /**
+   * Returns the current pokemon with filters that can have all of the given abilities
+   *
+   * @param abilities the ability names, in any case
+   * @return the matching pokemon in dataset order, none if an ability is unknown
+   */
+  @Override public List<IPokemon> findByAllAbilities(List<String> abilities) {
+    SearchResult result = result();
+    int[] ids = abilityIds(result.DATASET.getStore(), abilities);
+    if (ids.length < abilities.size())
+      return Collections.emptyList();
+    long[] match = new long[result.MATCH.length];
+    result.DATASET.getAbilityIndex().allOf(ids, result.MATCH, match);
+    return PokemonRowList.of(result.DATASET.getStore(), match);
+  }
+
+  /**
+   * Looks up the ids of ability names in a store, leaving out the names it does not have
+   */
+  private static int[] abilityIds(PokemonStore store, List<String> abilities) {
+    int[] ids = new int[abilities.size()];
+    int found = 0;
+    for (String ability : abilities) {
+      int id = store.findAbility(ability);
+      if (id >= 0)
+        ids[found++] = id;
+    }
+    return found == ids.length ? ids : Arrays.copyOf(ids, found);
+  }
+
+  /**
+   * Returns the current pokemon with filters most like the given one in base stats and type
+   * matchups, leaving out the given pokemon and its other forms
+   *
+   * @param pokemon the pokemon to find alternatives to
+   * @param count   the most pokemon to return
+   * @return up to count pokemon, most alike first
+   */
+  @Override public List<IPokemon> findSimilar(IPokemon pokemon, int count) {
+    SearchResult result = result();
+    int row = result.DATASET.rowOf(pokemon);
+    if (row < 0 || count <= 0)
+      return Collections.emptyList();
+    int[] rows = new int[Math.min(count, result.COUNT)];
+    int found = result.DATASET.getSimilarityIndex().nearest(row, result.MATCH, result.TYPES,
+        result.GENERATIONS, rows, new float[rows.length]);
+    return new PokemonRowList(result.DATASET.getStore(),
+        found == rows.length ? rows : Arrays.copyOf(rows, found));
+  }
+
+  /**
+   * Gets the result of the current filters over the current dataset, first moving the session to
+   * the current dataset if it was swapped since the last call
+   */
+  private SearchResult result() {
+    SearchResult result = this.searchResult;
+    if (result.DATASET == this.DATASETS.get())
+      return result;
+    synchronized (this) {
+      migrate();
+      return this.searchResult;
+    }
+  }
+
+  /**
+   * Moves the session to the current dataset: the bitsets are rebuilt from the filters, which
+   * only name types and generations, and the team is resolved against the new rows. Callers hold
+   * the session's lock
+   *
+   * @return the dataset the session now uses
+   */
+  private PokemonDataset migrate() {
+    PokemonDataset dataset = this.DATASETS.get();
+    PokemonDataset previous = this.searchResult.DATASET;
+    if (previous == dataset)
+      return dataset;
+    for (int i = 0; i < this.POKEMON_TEAM.size(); ++i) {
+      IPokemon resolved = resolve(this.POKEMON_TEAM.get(i), previous, dataset);
+      if (resolved != this.POKEMON_TEAM.get(i))
+        this.POKEMON_TEAM.set(i, resolved);
+    }
+    if (this.typesMatch == null) {
+      this.searchResult = SearchResult.ofDefault(dataset);
+      return dataset;
+    }
+    this.typesMatch = null;
+    this.generationMatch = null;
+    ensureMatches(dataset);
+    publishFilterMatch(dataset);
+    return dataset;
+  }
+
+  /**
+   * Finds the row of a dataset a team member now stands for. Members read from an older dataset
+   * become the same form of their pokedex number, or its first form if that form is gone, others
+   * are kept as they are. Forms are only known for rows of the previous dataset, rows of any
+   * other count as the first form
+   */
+  private static IPokemon resolve(IPokemon pokemon, PokemonDataset previous,
+      PokemonDataset dataset) {
+    if (!(pokemon instanceof PokemonView) || ((PokemonView) pokemon).getStore()
+        == dataset.getStore())
+      return pokemon;
+    IPokemon current = dataset.findForm(pokemon.getPokedex(),
+        previous.formOf(pokemon, Integer.MAX_VALUE));
+    if (current == null)
+      current = dataset.findPokedex(pokemon.getPokedex());
+    // a pokemon dropped from the data stays on the team as it was last seen
+    return current == null ? pokemon : current;
+  }
+
+  /**
+   * Allocates the type and generation matches of the session the first time a filter changes
+   */
+  private void ensureMatches(PokemonDataset dataset) {
+    if (this.typesMatch != null)
+      return;
+    PokemonFilterIndex index = dataset.getIndex();
+    this.typesMatch = new long[index.words()];
+    index.unionTypes(this.typesFilter, this.typesMatch);
+    this.generationMatch = new long[index.words()];
+    index.unionGenerations(this.generationFilter, this.generationMatch);
+  }
+
+  /**
+   * Recomputes the rows matching both the type and generation filters and publishes them as a new
+   * result
+   */
+  private void publishFilterMatch(PokemonDataset dataset) {
+    long[] match = new long[dataset.getIndex().words()];
+    PokemonFilterIndex.and(this.typesMatch, this.generationMatch, match);
+    this.searchResult = new SearchResult(dataset, this.typesFilter, this.generationFilter, match,
+        null);
+  }
+
+  /**
+   * Search result of a single filter state over a single dataset
+   */
+  private static final class SearchResult {
+
+    // dataset the result was computed on, the rows of MATCH are rows of its store
+    private final PokemonDataset DATASET;
+    // type and generation filters MATCH was computed from
+    private final long TYPES;
+    private final long GENERATIONS;
+    // rows matching the filter
+    private final long[] MATCH;
+    // number of rows matching the filter
+    private final int COUNT;
+    // matching rows in row order, built lazily
+    private volatile List<IPokemon> pokemon;
+    // facet counts of the filters, built lazily
+    private volatile PokemonFacets facets;
+
+    private SearchResult(PokemonDataset dataset, long types, long generations, long[] match,
+        List<IPokemon> pokemon) {
+      this.DATASET = dataset;
+      this.TYPES = types;
+      this.GENERATIONS = generations;
+      this.MATCH = match;
+      this.COUNT = pokemon == null ? PokemonFilterIndex.cardinality(match) : pokemon.size();
+      this.pokemon = pokemon;
+    }
+
+    /**
+     * Builds the result of the default filters, shared with every other session of the dataset
+     */
+    private static SearchResult ofDefault(PokemonDataset dataset) {
+      SearchResult result = new SearchResult(dataset, dataset.getAllTypes(),
+          dataset.getAllGenerations(), dataset.getDefaultMatch(), dataset.getDefaultPokemon());
+      result.facets = dataset.getDefaultFacets();
+      return result;
+    }
   }
 
   /**
@@ -68,53 +434,81 @@ public class PokemonBackend implements IPokemonBackend {
    * @return true if the filter is active, false otherwise
    */
   @Override public boolean getTypeFilter(PokemonTypes type) {
-    return this.TYPES_FILTER.get(type);
+    return (this.typesFilter & (1L << type.ordinal())) != 0;
   }
 
   /**
-   * Toggles the current filter of the given type. Alll filters are on by default
+   * Toggles the current filter of the given type. All filters are on by default
    *
    * @param type the pokemon type to toggle
    */
-  @Override public void toggleTypeFilter(PokemonTypes type) {
+  @Override public synchronized void toggleTypeFilter(PokemonTypes type) {
+    PokemonDataset dataset = migrate();
+    ensureMatches(dataset);
     // toggle filter
-    this.TYPES_FILTER.replace(type, !this.TYPES_FILTER.get(type));
+    this.typesFilter ^= 1L << type.ordinal();
+    // turning a type on only adds rows, turning it off needs the remaining types re-unioned
+    if (getTypeFilter(type))
+      dataset.getIndex().addType(type, this.typesMatch);
+    else
+      dataset.getIndex().unionTypes(this.typesFilter, this.typesMatch);
+    publishFilterMatch(dataset);
   }
 
   /**
    * Resets the current type filter
    */
-  @Override public void resetTypeFilter() {
-    for (int i = 0; i < PokemonTypes.values().length; ++i)
-      this.TYPES_FILTER.replace(PokemonTypes.values()[i], false);
+  @Override public synchronized void resetTypeFilter() {
+    PokemonDataset dataset = migrate();
+    ensureMatches(dataset);
+    this.typesFilter = 0;
+    dataset.getIndex().unionTypes(this.typesFilter, this.typesMatch);
+    publishFilterMatch(dataset);
   }
 
   /**
    * Check if the current filter is active for a certain generation
    *
    * @param generation the generation to be checked
-   * @return true if the current filter is active
+   * @return true if the current filter is active, false for generations out of range
    */
   @Override public boolean getGenerationFilter(int generation) {
-    return this.GENERATION_FILTER.get(generation);
+    return generation >= 0 && generation <= PokemonFilterIndex.MAX_GENERATION
+        && (this.generationFilter & (1L << generation)) != 0;
   }
 
   /**
    * Toggles the current filter of the given generation. All filters are on by default
    *
    * @param generation the pokemon generation to toggle
+   * @throws IllegalArgumentException if the generation is not between 0 and
+   *                                  PokemonFilterIndex.MAX_GENERATION
    */
-  @Override public void toggleGenerationFilter(int generation) {
+  @Override public synchronized void toggleGenerationFilter(int generation) {
+    if (generation < 0 || generation > PokemonFilterIndex.MAX_GENERATION)
+      throw new IllegalArgumentException("Generations go from 0 to "
+          + PokemonFilterIndex.MAX_GENERATION + ": " + generation);
+    PokemonDataset dataset = migrate();
+    ensureMatches(dataset);
     // toggle filter
-    this.GENERATION_FILTER.replace(generation, !this.GENERATION_FILTER.get(generation));
+    this.generationFilter ^= 1L << generation;
+    // turning a generation on only adds rows, turning it off needs the rest re-unioned
+    if (getGenerationFilter(generation))
+      dataset.getIndex().addGeneration(generation, this.generationMatch);
+    else
+      dataset.getIndex().unionGenerations(this.generationFilter, this.generationMatch);
+    publishFilterMatch(dataset);
   }
 
   /**
    * Resets the current generation filter
    */
-  @Override public void resetGenerationFilter() {
-    for (int i = 1; i <= 7; ++i)
-      this.GENERATION_FILTER.replace(i, false);
+  @Override public synchronized void resetGenerationFilter() {
+    PokemonDataset dataset = migrate();
+    ensureMatches(dataset);
+    this.generationFilter = 0;
+    dataset.getIndex().unionGenerations(this.generationFilter, this.generationMatch);
+    publishFilterMatch(dataset);
   }
 
   /**
@@ -122,17 +516,53 @@ public class PokemonBackend implements IPokemonBackend {
    *
    * @param pokemon the pokemon to be added
    */
-  @Override public void addToTeam(IPokemon pokemon) {
-    // adds pokemon to the given team
-    this.POKEMON_TEAM.add(pokemon);
+  @Override public synchronized void addToTeam(IPokemon pokemon) {
+    // a pokemon picked from a page of an older dataset joins as its current row, most likely
+    // picked from the dataset the session used until now
+    PokemonDataset previous = this.searchResult.DATASET;
+    this.POKEMON_TEAM.add(resolve(pokemon, previous, migrate()));
+  }
+
+  /**
+   * Removes a pokemon from the user's current team
+   *
+   * @param index the position of the pokemon in the team
+   * @throws IndexOutOfBoundsException if there is no pokemon at the position
+   */
+  @Override public synchronized void removeFromTeam(int index) {
+    this.POKEMON_TEAM.remove(index);
   }
 
   /**
    * Gets the user's current team
    *
-   * @return the user's current team
+   * @return a read-only view of the user's current team
    */
   @Override public List<IPokemon> getTeam() {
-    return POKEMON_TEAM;
+    result();
+    return this.TEAM_VIEW;
+  }
+
+  /**
+   * Suggests completions of the user's current team from the pokemon matching the current
+   * filters, ranked by type coverage
+   *
+   * @param count         the number of teams to suggest
+   * @param timeoutMillis how long to search before returning the best teams found so far
+   * @return up to count teams, best first
+   */
+  @Override public List<PokemonTeamSuggestion> suggestTeams(int count, long timeoutMillis) {
+    SearchResult result = result();
+    return result.DATASET.getOptimizer().optimize(this.POKEMON_TEAM, result.MATCH, count,
+        timeoutMillis);
+  }
+
+  /**
+   * Gets the type effectiveness chart derived from the dataset
+   *
+   * @return the type chart
+   */
+  @Override public PokemonTypeChart getTypeChart() {
+    return result().DATASET.getTypeChart();
   }
 }
@@ -0,0 +1,436 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class that parses Pokemon csv records straight out of a byte buffer. Columns that are not bound
+ * to a Pokemon are skipped byte by byte and never turned into Strings, and the bound columns are
+ * decoded without reflection
+ */
+public class PokemonCsvParser {
+
+  // roles a csv column can play
+  private static final byte SKIP = 0;
+  private static final byte NAME = 1;
+  private static final byte TYPE_ONE = 2;
+  private static final byte TYPE_TWO = 3;
+  private static final byte GENERATION = 4;
+  private static final byte POKEDEX = 5;
+  private static final byte LEGENDARY = 6;
+  private static final byte JAPANESE_NAME = 7;
+  private static final byte ABILITIES = 8;
+  // stats take the roles from STAT onwards, in ordinal order
+  private static final byte STAT = 9;
+  // damage multipliers take the roles from AGAINST onwards, in type ordinal order
+  private static final byte AGAINST = (byte) (STAT + PokemonStats.values().length);
+
+  // initial size of the read buffer, grown only if a single record does not fit
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  // lower case names of every pokemon type, indexed by ordinal
+  private static final byte[][] TYPE_NAMES = new byte[PokemonTypes.values().length][];
+
+  static {
+    for (PokemonTypes type : PokemonTypes.values())
+      TYPE_NAMES[type.ordinal()] = type.name().toLowerCase().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  // role of every column, indexed by column position
+  private final byte[] ROLES;
+
+  /**
+   * Constructor that maps the columns of a csv header to the Pokemon fields they hold
+   *
+   * @param header the column names in file order
+   * @throws IOException if a bound column is missing from the header
+   */
+  public PokemonCsvParser(String[] header) throws IOException {
+    this.ROLES = new byte[header.length];
+    boolean[] found = new boolean[AGAINST + PokemonTypes.values().length];
+    for (int i = 0; i < header.length; ++i) {
+      this.ROLES[i] = roleOf(header[i].trim());
+      found[this.ROLES[i]] = true;
+    }
+    for (byte role = NAME; role <= POKEDEX; ++role)
+      if (!found[role])
+        throw new IOException("csv header is missing a required Pokemon column");
+  }
+
+  /**
+   * Builds a parser from the header line at the start of a range of bytes
+   *
+   * @param buffer the bytes holding the header
+   * @param start  the offset of the header
+   * @param end    the offset just past the last available byte
+   * @return a parser for the records that follow the header
+   * @throws IOException if the range does not hold a complete header line
+   */
+  public static PokemonCsvParser fromHeader(byte[] buffer, int start, int end)
+      throws IOException {
+    int lineEnd = headerEnd(buffer, start, end);
+    if (lineEnd < 0)
+      throw new IOException("csv header is not terminated by a line break");
+    // strip a UTF-8 byte order mark if the file has one
+    if (lineEnd - start >= 3 && buffer[start] == (byte) 0xEF && buffer[start + 1] == (byte) 0xBB
+        && buffer[start + 2] == (byte) 0xBF)
+      start += 3;
+    int length = lineEnd - start;
+    if (length > 0 && buffer[lineEnd - 1] == '\r')
+      --length;
+    return new PokemonCsvParser(
+        new String(buffer, start, length, StandardCharsets.UTF_8).split(","));
+  }
+
+  /**
+   * Finds the end of the header line at the start of a range of bytes
+   *
+   * @return the offset of the header's line break, or -1 if there is none in the range
+   */
+  public static int headerEnd(byte[] buffer, int start, int end) {
+    for (int i = start; i < end; ++i)
+      if (buffer[i] == '\n')
+        return i;
+    return -1;
+  }
+
+  /**
+   * Parses a whole csv stream, header included, through a single reused buffer
+   *
+   * @param in  the stream to parse
+   * @param out the list the parsed Pokemon are appended to
+   * @throws IOException if the stream could not be read or holds a malformed record
+   */
+  public static void parse(InputStream in, List<IPokemon> out) throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int end = 0;
+    boolean eof = false;
+    PokemonCsvParser parser = null;
+    int start = 0;
+    while (true) {
+      int headerEnd = parser == null ? headerEnd(buffer, 0, end) : -1;
+      if (headerEnd >= 0) {
+        parser = fromHeader(buffer, 0, end);
+        start = headerEnd + 1;
+      }
+      if (parser != null) {
+        start = parser.parseRecords(buffer, start, end, eof, out);
+        if (eof)
+          return;
+      } else if (eof) {
+        throw new IOException("csv file has no header");
+      }
+      // move the unfinished record to the front and refill behind it
+      int remaining = end - start;
+      if (remaining == buffer.length)
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      System.arraycopy(buffer, start, buffer, 0, remaining);
+      start = 0;
+      end = remaining;
+      int read = in.read(buffer, end, buffer.length - end);
+      if (read == -1)
+        eof = true;
+      else
+        end += read;
+    }
+  }
+
+  /**
+   * Parses every complete record in a range of bytes
+   *
+   * @param buffer the bytes holding the records
+   * @param start  the offset of the first record
+   * @param end    the offset just past the last byte
+   * @param eof    true if the range ends the input, so a final record without a line break is
+   *               complete
+   * @param out    the list the parsed Pokemon are appended to
+   * @return the offset of the first record that was not complete
+   * @throws IOException if a record is malformed
+   */
+  public int parseRecords(byte[] buffer, int start, int end, boolean eof, List<IPokemon> out)
+      throws IOException {
+    int position = start;
+    while (position < end) {
+      int next = parseRecord(buffer, position, end, eof, out);
+      if (next < 0)
+        return position;
+      position = next;
+    }
+    return position;
+  }
+
+  /**
+   * Finds the end of a record without binding any of its fields, so callers can split a buffer
+   * into records and only parse the ones they need. A blank line counts as a record of its own
+   *
+   * @param buffer the bytes holding the record
+   * @param start  the offset of the record
+   * @param end    the offset just past the last byte, which ends the input
+   * @return the offset just past the record
+   * @throws IOException if the record is malformed
+   */
+  public int recordEnd(byte[] buffer, int start, int end) throws IOException {
+    return parseRecord(buffer, start, end, true, null);
+  }
+
+  /**
+   * Parses a single record
+   *
+   * @param buffer the bytes holding the record
+   * @param start  the offset of the record
+   * @param end    the offset just past the last available byte
+   * @param eof    true if no bytes follow the range
+   * @param out    the list the parsed Pokemon is appended to, null to only find the record's end
+   * @return the offset just past the record, or -1 if the record is not complete
+   * @throws IOException if the record is malformed
+   */
+  private int parseRecord(byte[] buffer, int start, int end, boolean eof, List<IPokemon> out)
+      throws IOException {
+    // skip blank lines between records
+    if (buffer[start] == '\n' || buffer[start] == '\r')
+      return start + 1;
+
+    Pokemon pokemon = out == null ? null : new Pokemon();
+    int column = 0;
+    int position = start;
+    while (true) {
+      int fieldStart;
+      int fieldEnd;
+      boolean escaped = false;
+      if (position < end && buffer[position] == '"') {
+        // quoted field, runs until a quote that is not doubled
+        fieldStart = ++position;
+        while (true) {
+          if (position >= end)
+            return eof ? malformed("Unterminated quoted field", start) : -1;
+          if (buffer[position] == '"') {
+            if (position + 1 >= end && !eof)
+              return -1;
+            if (position + 1 < end && buffer[position + 1] == '"') {
+              escaped = true;
+              position += 2;
+              continue;
+            }
+            break;
+          }
+          ++position;
+        }
+        fieldEnd = position++;
+      } else {
+        fieldStart = position;
+        while (position < end && buffer[position] != ',' && buffer[position] != '\n'
+            && buffer[position] != '\r')
+          ++position;
+        fieldEnd = position;
+      }
+      if (position >= end && !eof)
+        return -1;
+
+      if (pokemon != null && column < this.ROLES.length && this.ROLES[column] != SKIP)
+        bind(pokemon, this.ROLES[column], buffer, fieldStart, fieldEnd, escaped);
+
+      if (position < end && buffer[position] == ',') {
+        ++position;
+        ++column;
+        continue;
+      }
+      // only a quoted field can stop short of a comma or line break
+      if (position < end && buffer[position] != '\r' && buffer[position] != '\n')
+        return malformed("Unexpected character after quoted field", start);
+      // end of the record, swallow the line break
+      if (position < end && buffer[position] == '\r')
+        ++position;
+      if (position < end && buffer[position] == '\n')
+        ++position;
+      else if (position >= end && !eof)
+        return -1;
+      if (out != null)
+        out.add(pokemon);
+      return position;
+    }
+  }
+
+  /**
+   * Stores one bound field in the Pokemon
+   *
+   * @param pokemon the Pokemon being built
+   * @param role    the role of the field's column
+   * @param buffer  the bytes holding the field
+   * @param start   the offset of the field
+   * @param end     the offset just past the field
+   * @param escaped true if the field contains doubled quotes
+   * @throws IOException if the field does not hold a valid value
+   */
+  private static void bind(Pokemon pokemon, byte role, byte[] buffer, int start, int end,
+      boolean escaped) throws IOException {
+    switch (role) {
+      case NAME:
+        String name = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        pokemon.setName(escaped ? name.replace("\"\"", "\"") : name);
+        break;
+      case JAPANESE_NAME:
+        String japaneseName = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        pokemon.setJapaneseName(escaped ? japaneseName.replace("\"\"", "\"") : japaneseName);
+        break;
+      case ABILITIES:
+        String abilities = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        try {
+          pokemon.setAbilities(
+              PokemonAbilities.parse(escaped ? abilities.replace("\"\"", "\"") : abilities));
+        } catch (IllegalArgumentException iae) {
+          throw new IOException(iae.getMessage());
+        }
+        break;
+      case TYPE_ONE:
+        pokemon.setTypeOne(parseType(buffer, start, end));
+        break;
+      case TYPE_TWO:
+        pokemon.setTypeTwo(parseType(buffer, start, end));
+        break;
+      case GENERATION:
+        pokemon.setGeneration(parseInt(buffer, start, end));
+        break;
+      case POKEDEX:
+        pokemon.setPokedex(parseInt(buffer, start, end));
+        break;
+      case LEGENDARY:
+        pokemon.setLegendary(parseInt(buffer, start, end) != 0);
+        break;
+      default:
+        if (role >= AGAINST) {
+          pokemon.setDamageMultiplier(PokemonTypes.values()[role - AGAINST],
+              parseDecimal(buffer, start, end));
+          break;
+        }
+        PokemonStats stat = PokemonStats.values()[role - STAT];
+        // capture rates can carry notes after the number, as Minior's "30 (Meteorite)255 (Core)"
+        pokemon.setStat(stat, stat == PokemonStats.CAPTURE_RATE
+            ? parseLeadingInt(buffer, start, end) : parseInt(buffer, start, end));
+    }
+  }
+
+  /**
+   * Matches a type name against every pokemon type without creating a String
+   *
+   * @return the matching type, or null if the field is empty
+   * @throws IOException if the field is not a pokemon type
+   */
+  private static PokemonTypes parseType(byte[] buffer, int start, int end) throws IOException {
+    if (start == end)
+      return null;
+    for (int type = 0; type < TYPE_NAMES.length; ++type) {
+      byte[] name = TYPE_NAMES[type];
+      if (name.length != end - start)
+        continue;
+      int i = 0;
+      // ASCII letters only differ from their lower case by the 0x20 bit
+      while (i < name.length && (buffer[start + i] | 0x20) == name[i])
+        ++i;
+      if (i == name.length)
+        return PokemonTypes.values()[type];
+    }
+    throw new IOException(
+        "Unknown pokemon type: " + new String(buffer, start, end - start, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Parses a non-negative decimal integer, an empty field is read as 0
+   *
+   * @throws IOException if the field is not a number or larger than Integer.MAX_VALUE
+   */
+  private static int parseInt(byte[] buffer, int start, int end) throws IOException {
+    int value = 0;
+    for (int i = start; i < end; ++i) {
+      int digit = buffer[i] - '0';
+      if (digit < 0 || digit > 9)
+        throw new IOException(
+            "Invalid number: " + new String(buffer, start, end - start, StandardCharsets.UTF_8));
+      if (value > (Integer.MAX_VALUE - digit) / 10)
+        throw new IOException("Number out of range: "
+            + new String(buffer, start, end - start, StandardCharsets.UTF_8));
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  /**
+   * Parses a non-negative decimal number such as 0.25, an empty field is read as 1
+   *
+   * @throws IOException if the field is not a number
+   */
+  private static float parseDecimal(byte[] buffer, int start, int end) throws IOException {
+    if (start == end)
+      return 1;
+    int point = start;
+    while (point < end && buffer[point] != '.')
+      ++point;
+    float value = parseInt(buffer, start, point);
+    float scale = 1;
+    for (int i = point + 1; i < end; ++i) {
+      int digit = buffer[i] - '0';
+      if (digit < 0 || digit > 9)
+        throw new IOException(
+            "Invalid number: " + new String(buffer, start, end - start, StandardCharsets.UTF_8));
+      scale /= 10;
+      value += digit * scale;
+    }
+    return value;
+  }
+
+  /**
+   * Parses the decimal digits at the start of a field, ignoring anything after them
+   *
+   * @throws IOException if the field is not empty and does not start with a digit
+   */
+  private static int parseLeadingInt(byte[] buffer, int start, int end) throws IOException {
+    int digits = start;
+    while (digits < end && buffer[digits] >= '0' && buffer[digits] <= '9')
+      ++digits;
+    if (digits == start && start != end)
+      throw new IOException(
+          "Invalid number: " + new String(buffer, start, end - start, StandardCharsets.UTF_8));
+    return parseInt(buffer, start, digits);
+  }
+
+  /**
+   * Reports a record that can never be parsed
+   *
+   * @throws IOException always
+   */
+  private static int malformed(String problem, int offset) throws IOException {
+    throw new IOException(problem + " in record at byte " + offset);
+  }
+
+  /**
+   * Maps a csv column name to its role
+   */
+  private static byte roleOf(String column) {
+    switch (column) {
+      case "name":
+        return NAME;
+      case "type1":
+        return TYPE_ONE;
+      case "type2":
+        return TYPE_TWO;
+      case "generation":
+        return GENERATION;
+      case "pokedex_number":
+        return POKEDEX;
+      case "is_legendary":
+        return LEGENDARY;
+      case "japanese_name":
+        return JAPANESE_NAME;
+      case "abilities":
+        return ABILITIES;
+      default:
+        for (PokemonStats stat : PokemonStats.values())
+          if (stat.getColumn().equals(column))
+            return (byte) (STAT + stat.ordinal());
+        for (PokemonTypes type : PokemonTypes.values())
+          if (type.getAgainstColumn().equals(column))
+            return (byte) (AGAINST + type.ordinal());
+        return SKIP;
+    }
+  }
+}
@@ -0,0 +1,306 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Class representing the Pokemon dataset and everything derived from it. It is loaded once and
+ * never changes afterwards, so a single instance is shared by every PokemonBackend session
+ * without locking. Only its cache of compiled queries grows, in a concurrent map
+ */
+public class PokemonDataset {
+
+  // most compiled queries kept, past it the cache starts over so it follows the queries in use
+  private static final int MAX_QUERY_PLANS = 1 << 10;
+
+  // columns of all pokemon in the dataset
+  private final PokemonStore STORE;
+  // bitsets of every type and generation in the dataset
+  private final PokemonFilterIndex INDEX;
+  // trie over the names of the dataset
+  private final PokemonNameIndex NAMES;
+  // posting lists of every ability of the dataset
+  private final PokemonAbilityIndex ABILITIES;
+  // the rows in the order of every sort key
+  private final PokemonSortIndex ORDERS;
+  // vantage point tree over the stats and type matchups of the dataset
+  private final PokemonSimilarityIndex SIMILAR;
+  // type effectiveness chart derived from the dataset
+  private final PokemonTypeChart CHART;
+  // completes teams from the filtered pokemon
+  private final PokemonTeamOptimizer OPTIMIZER;
+  // every type filter on
+  private final long ALL_TYPES;
+  // every generation filter on
+  private final long ALL_GENERATIONS;
+  // rows matching the default filters, shared by every session until it changes a filter
+  private final long[] DEFAULT_MATCH;
+  // pokemon matching the default filters
+  private final List<IPokemon> DEFAULT_POKEMON;
+  // facet counts of the default filters
+  private final PokemonFacets DEFAULT_FACETS;
+  // first row of every pokedex number, -1 for numbers not in the dataset
+  private final int[] POKEDEX_ROWS;
+  // next row with the same pokedex number as each row, -1 after the last, so the rows of a number
+  // are its forms in dataset order
+  private final int[] NEXT_FORM_ROWS;
+  // compiled queries by their text as sent and by their normalised text
+  private final ConcurrentHashMap<String, PokemonQueryPlan> QUERY_PLANS =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Constructor that loads pokemon.csv
+   *
+   * @param loader PokemonLoader to load pokemon
+   * @throws FileNotFoundException if pokemon.csv is not found
+   */
+  public PokemonDataset(IPokemonLoader loader) throws IOException {
+    this(loader.loadPokemon("pokemon.csv"));
+  }
+
+  /**
+   * Constructor that indexes already loaded pokemon
+   *
+   * @param pokemon the pokemon of the dataset
+   */
+  public PokemonDataset(List<IPokemon> pokemon) {
+    this.STORE = new PokemonStore(pokemon);
+    this.INDEX = new PokemonFilterIndex(this.STORE);
+    this.NAMES = new PokemonNameIndex(this.STORE);
+    this.ABILITIES = new PokemonAbilityIndex(this.STORE);
+    this.ORDERS = new PokemonSortIndex(this.STORE);
+    this.SIMILAR = new PokemonSimilarityIndex(this.STORE);
+    this.CHART = new PokemonTypeChart(this.STORE);
+    this.OPTIMIZER =
+        new PokemonTeamOptimizer(this.STORE, this.CHART, ForkJoinPool.commonPool());
+    this.ALL_TYPES = (1L << PokemonTypes.values().length) - 1;
+    long generations = 0;
+    for (int i = 1; i <= PokemonFilterIndex.MAX_GENERATION; ++i)
+      generations |= 1L << i;
+    this.ALL_GENERATIONS = generations;
+    long[] types = new long[this.INDEX.words()];
+    this.INDEX.unionTypes(this.ALL_TYPES, types);
+    long[] generationMatch = new long[this.INDEX.words()];
+    this.INDEX.unionGenerations(this.ALL_GENERATIONS, generationMatch);
+    this.DEFAULT_MATCH = new long[this.INDEX.words()];
+    PokemonFilterIndex.and(types, generationMatch, this.DEFAULT_MATCH);
+    this.DEFAULT_POKEMON = PokemonRowList.of(this.STORE, this.DEFAULT_MATCH);
+    this.DEFAULT_FACETS = this.INDEX.facets(this.ALL_TYPES, this.ALL_GENERATIONS);
+    int maxPokedex = 0;
+    for (int row = 0; row < this.STORE.size(); ++row)
+      maxPokedex = Math.max(maxPokedex, this.STORE.getPokedex(row));
+    this.POKEDEX_ROWS = new int[maxPokedex + 1];
+    Arrays.fill(this.POKEDEX_ROWS, -1);
+    this.NEXT_FORM_ROWS = new int[this.STORE.size()];
+    for (int row = this.STORE.size() - 1; row >= 0; --row) {
+      this.NEXT_FORM_ROWS[row] = this.POKEDEX_ROWS[this.STORE.getPokedex(row)];
+      this.POKEDEX_ROWS[this.STORE.getPokedex(row)] = row;
+    }
+  }
+
+  /**
+   * Gets the columns of all pokemon in the dataset
+   *
+   * @return the store
+   */
+  public PokemonStore getStore() {
+    return this.STORE;
+  }
+
+  /**
+   * Gets the type and generation bitsets of the dataset
+   *
+   * @return the filter index
+   */
+  public PokemonFilterIndex getIndex() {
+    return this.INDEX;
+  }
+
+  /**
+   * Gets the trie over the names of the dataset
+   *
+   * @return the name index
+   */
+  public PokemonNameIndex getNameIndex() {
+    return this.NAMES;
+  }
+
+  /**
+   * Gets the posting lists of the abilities of the dataset
+   *
+   * @return the ability index
+   */
+  public PokemonAbilityIndex getAbilityIndex() {
+    return this.ABILITIES;
+  }
+
+  /**
+   * Gets the rows of the dataset in the order of every sort key
+   *
+   * @return the sort index
+   */
+  public PokemonSortIndex getSortIndex() {
+    return this.ORDERS;
+  }
+
+  /**
+   * Gets the tree answering which pokemon of the dataset are most like another
+   *
+   * @return the similarity index
+   */
+  public PokemonSimilarityIndex getSimilarityIndex() {
+    return this.SIMILAR;
+  }
+
+  /**
+   * Finds the row of the dataset a pokemon stands for
+   *
+   * @param pokemon the pokemon, possibly loaded separately or kept from an older dataset
+   * @return the pokemon's row if it is a row of this dataset, otherwise the first row with its
+   * pokedex number, or -1 if there is none
+   */
+  public int rowOf(IPokemon pokemon) {
+    if (pokemon instanceof PokemonView && ((PokemonView) pokemon).getStore() == this.STORE)
+      return ((PokemonView) pokemon).getRow();
+    int pokedex = pokemon.getPokedex();
+    return pokedex < 0 || pokedex >= this.POKEDEX_ROWS.length ? -1 : this.POKEDEX_ROWS[pokedex];
+  }
+
+  /**
+   * Gets the type effectiveness chart derived from the dataset
+   *
+   * @return the type chart
+   */
+  public PokemonTypeChart getTypeChart() {
+    return this.CHART;
+  }
+
+  /**
+   * Gets the optimizer that completes teams from the dataset
+   *
+   * @return the team optimizer
+   */
+  public PokemonTeamOptimizer getOptimizer() {
+    return this.OPTIMIZER;
+  }
+
+  /**
+   * Gets the type filter mask with every type on
+   *
+   * @return bit i is set for the type with ordinal i
+   */
+  public long getAllTypes() {
+    return this.ALL_TYPES;
+  }
+
+  /**
+   * Gets the generation filter mask with every generation on
+   *
+   * @return bit i is set for generation i
+   */
+  public long getAllGenerations() {
+    return this.ALL_GENERATIONS;
+  }
+
+  /**
+   * Gets the rows matching the default filters. The bitset is shared and must not be modified
+   *
+   * @return the default match
+   */
+  public long[] getDefaultMatch() {
+    return this.DEFAULT_MATCH;
+  }
+
+  /**
+   * Gets the facet counts of the default filters
+   *
+   * @return the default facets
+   */
+  public PokemonFacets getDefaultFacets() {
+    return this.DEFAULT_FACETS;
+  }
+
+  /**
+   * Gets the compiled plan of a query of the query language, compiling it the first time its
+   * normalised text is seen
+   *
+   * @param text the query text
+   * @return the plan, shared by every caller asking for an equal query
+   * @throws IllegalArgumentException if the query is not part of the query language
+   */
+  public PokemonQueryPlan getQueryPlan(String text) {
+    PokemonQueryPlan plan = this.QUERY_PLANS.get(text);
+    if (plan != null)
+      return plan;
+    PokemonQuery query = PokemonQuery.parse(text);
+    plan = this.QUERY_PLANS.get(query.toString());
+    if (plan == null)
+      plan = new PokemonQueryPlan(query, this);
+    if (this.QUERY_PLANS.size() >= MAX_QUERY_PLANS)
+      this.QUERY_PLANS.clear();
+    PokemonQueryPlan previous = this.QUERY_PLANS.putIfAbsent(query.toString(), plan);
+    if (previous != null)
+      plan = previous;
+    this.QUERY_PLANS.putIfAbsent(text, plan);
+    return plan;
+  }
+
+  /**
+   * Finds a pokemon by its pokedex number
+   *
+   * @param pokedex the pokedex number
+   * @return the first pokemon with the number, or null if there is none
+   */
+  public IPokemon findPokedex(int pokedex) {
+    if (pokedex < 0 || pokedex >= this.POKEDEX_ROWS.length || this.POKEDEX_ROWS[pokedex] < 0)
+      return null;
+    return this.STORE.get(this.POKEDEX_ROWS[pokedex]);
+  }
+
+  /**
+   * Finds one of the forms of a pokedex number, the rows sharing the number in dataset order
+   *
+   * @param pokedex the pokedex number
+   * @param form    the form, 0 for the first row with the number
+   * @return the pokemon, or null if the number has no such form
+   */
+  public IPokemon findForm(int pokedex, int form) {
+    if (pokedex < 0 || pokedex >= this.POKEDEX_ROWS.length || form < 0)
+      return null;
+    int row = this.POKEDEX_ROWS[pokedex];
+    for (int i = 0; i < form && row >= 0; ++i)
+      row = this.NEXT_FORM_ROWS[row];
+    return row < 0 ? null : this.STORE.get(row);
+  }
+
+  /**
+   * Gets which form of its pokedex number a pokemon is. Pokemon that are not rows of this
+   * dataset, such as ones loaded separately or kept from an older dataset, count as the first
+   * form
+   *
+   * @param pokemon  the pokemon
+   * @param maxForms the most forms to look through
+   * @return the form, or -1 if the pokemon is a row past the first maxForms forms
+   */
+  public int formOf(IPokemon pokemon, int maxForms) {
+    if (!(pokemon instanceof PokemonView) || ((PokemonView) pokemon).getStore() != this.STORE)
+      return 0;
+    int target = ((PokemonView) pokemon).getRow();
+    int row = this.POKEDEX_ROWS[pokemon.getPokedex()];
+    for (int form = 0; form < maxForms && row >= 0; ++form, row = this.NEXT_FORM_ROWS[row])
+      if (row == target)
+        return form;
+    return -1;
+  }
+
+  /**
+   * Gets the pokemon matching the default filters
+   *
+   * @return an immutable list of the pokemon in dataset order
+   */
+  public List<IPokemon> getDefaultPokemon() {
+    return this.DEFAULT_POKEMON;
+  }
+}
@@ -0,0 +1,353 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Class that keeps the dataset of a csv file current while the app runs. A WatchService reports
+ * changes to the file, and a reload only parses the records whose bytes changed since the last
+ * load, copying every other record's row from the current store. Between loads the reloader only
+ * keeps a 64-bit hash of every record, so watching costs 8 bytes a row beside the store's
+ * columns. The new dataset is built off to the side and published with a single volatile write,
+ * so searches running on the old dataset finish on it undisturbed and sessions move to the new
+ * one on their next call
+ */
+public final class PokemonDatasetReloader implements Supplier<PokemonDataset>, Closeable {
+
+  // how long the file has to stay quiet before it is reloaded, editors save in several writes
+  private static final long SETTLE_MILLIS = 200;
+  // offset basis and prime of the 64-bit FNV-1a hash of the records
+  private static final long FNV_BASIS = 0xCBF29CE484222325L;
+  private static final long FNV_PRIME = 0x100000001B3L;
+
+  // the csv file kept loaded
+  private final Path CSV;
+  // watches the directory of the csv, null until watching starts
+  private WatchService watcher;
+  // the current dataset
+  private volatile PokemonDataset dataset;
+  // hash of every record of the last load under its header, by row of the current store
+  private long[] hashes = new long[0];
+
+  /**
+   * Constructor that loads the csv file
+   *
+   * @param csv the csv file to keep loaded
+   * @throws IOException if the file could not be loaded
+   */
+  public PokemonDatasetReloader(Path csv) throws IOException {
+    this.CSV = csv.toAbsolutePath();
+    reload();
+  }
+
+  /**
+   * Gets the current dataset
+   *
+   * @return the dataset of the last successful load
+   */
+  @Override public PokemonDataset get() {
+    return this.dataset;
+  }
+
+  /**
+   * Starts watching the csv file on a daemon thread, reloading it whenever it changes. A change
+   * that fails to load is reported and the previous dataset is kept
+   *
+   * @param listener told about every reload that changed some pokemon or failed, on the watching
+   *                 thread
+   * @throws IOException if the directory of the file could not be watched
+   */
+  public synchronized void start(Listener listener) throws IOException {
+    if (this.watcher != null)
+      return;
+    this.watcher = this.CSV.getFileSystem().newWatchService();
+    // files replaced by a rename show up as created, files written in place as modified
+    this.CSV.getParent().register(this.watcher, StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY);
+    WatchService watcher = this.watcher;
+    Thread thread = new Thread(() -> watch(watcher, listener), "pokemon-csv-watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops watching the csv file. The current dataset stays available
+   *
+   * @throws IOException if the watch service failed to close
+   */
+  @Override public synchronized void close() throws IOException {
+    if (this.watcher != null)
+      this.watcher.close();
+    this.watcher = null;
+  }
+
+  /**
+   * Reloads the csv file, parsing only the records that changed since the last load, and
+   * publishes a new dataset if any Pokemon changed
+   *
+   * @return the changes found, by pokedex number
+   * @throws IOException if the file could not be read or holds a malformed record
+   */
+  public synchronized Change reload() throws IOException {
+    byte[] bytes = Files.readAllBytes(this.CSV);
+    int headerEnd = PokemonCsvParser.headerEnd(bytes, 0, bytes.length);
+    if (headerEnd < 0)
+      throw new IOException("csv header is not terminated by a line break");
+    PokemonCsvParser parser = PokemonCsvParser.fromHeader(bytes, 0, bytes.length);
+    // moved or added columns change what every record means, so records are hashed under their
+    // header and none match after it changes
+    long seed = hash(FNV_BASIS, bytes, 0, headerEnd);
+    PokemonStore previous = this.dataset == null ? null : this.dataset.getStore();
+    int[] rows = table(this.hashes);
+
+    long[] hashes = new long[Math.max(1, this.hashes.length)];
+    List<IPokemon> pokemon = new ArrayList<>(this.hashes.length);
+    List<IPokemon> parsed = new ArrayList<>(1);
+    int parsedCount = 0;
+    for (int start = headerEnd + 1; start < bytes.length; ) {
+      int end = parser.recordEnd(bytes, start, bytes.length);
+      int contentEnd = end;
+      while (contentEnd > start
+          && (bytes[contentEnd - 1] == '\n' || bytes[contentEnd - 1] == '\r'))
+        --contentEnd;
+      if (contentEnd > start) {
+        long hash = hash(seed, bytes, start, contentEnd);
+        int row = find(rows, this.hashes, hash);
+        IPokemon current;
+        if (row >= 0) {
+          // the new store copies the row's columns, so the old store is not kept alive
+          current = new PokemonView(previous, row);
+        } else {
+          parsed.clear();
+          parser.parseRecords(bytes, start, end, true, parsed);
+          current = parsed.get(0);
+          ++parsedCount;
+        }
+        if (pokemon.size() == hashes.length)
+          hashes = Arrays.copyOf(hashes, hashes.length * 2);
+        hashes[pokemon.size()] = hash;
+        pokemon.add(current);
+      }
+      start = end;
+    }
+    hashes = Arrays.copyOf(hashes, pokemon.size());
+
+    // the same records in the same order make the same dataset
+    if (this.dataset != null && Arrays.equals(hashes, this.hashes))
+      return new Change(Map.of(), Map.of(), parsedCount);
+    PokemonDataset dataset = new PokemonDataset(pokemon);
+    Change change = new Change(previous == null ? Map.of() : byPokedex(previous, this.hashes),
+        byPokedex(dataset.getStore(), hashes), parsedCount);
+    this.hashes = hashes;
+    this.dataset = dataset;
+    return change;
+  }
+
+  /**
+   * Hashes bytes with 64-bit FNV-1a, continuing from a previous hash
+   */
+  private static long hash(long hash, byte[] bytes, int from, int to) {
+    for (int i = from; i < to; ++i)
+      hash = (hash ^ bytes[i]) * FNV_PRIME;
+    return hash;
+  }
+
+  /**
+   * Builds an open addressing table of the rows of some record hashes, holding row + 1 in the
+   * slot of every hash and 0 in empty slots
+   */
+  private static int[] table(long[] hashes) {
+    int[] rows = new int[Integer.highestOneBit(Math.max(1, hashes.length) * 2) * 2];
+    for (int row = 0; row < hashes.length; ++row) {
+      int slot = slot(hashes[row], rows.length);
+      while (rows[slot] != 0)
+        slot = (slot + 1) & (rows.length - 1);
+      rows[slot] = row + 1;
+    }
+    return rows;
+  }
+
+  /**
+   * Finds the first row of a table whose record has a hash
+   *
+   * @return the row, -1 if no record has the hash
+   */
+  private static int find(int[] rows, long[] hashes, long hash) {
+    for (int slot = slot(hash, rows.length); rows[slot] != 0;
+        slot = (slot + 1) & (rows.length - 1))
+      if (hashes[rows[slot] - 1] == hash)
+        return rows[slot] - 1;
+    return -1;
+  }
+
+  /**
+   * Gets the slot a hash starts probing from in a table of a power of two slots
+   */
+  private static int slot(long hash, int slots) {
+    return (int) (hash ^ hash >>> 32) & (slots - 1);
+  }
+
+  /**
+   * Waits for changes to the csv file and reloads it, until the watch service is closed
+   */
+  private void watch(WatchService watcher, Listener listener) {
+    try {
+      while (true) {
+        WatchKey key = watcher.take();
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents())
+          changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+              || this.CSV.getFileName().equals(event.context());
+        key.reset();
+        if (!changed)
+          continue;
+        // let the write settle so a half saved file is not loaded
+        WatchKey more;
+        while ((more = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+          more.pollEvents();
+          more.reset();
+        }
+        try {
+          Change change = reload();
+          if (!change.isEmpty())
+            listener.reloaded(this.CSV, change);
+        } catch (IOException ioe) {
+          listener.failed(this.CSV, ioe);
+        }
+      }
+    } catch (ClosedWatchServiceException | InterruptedException e) {
+      // watching stopped
+    }
+  }
+
+  /**
+   * Groups the record hashes of a store's rows by pokedex number, keeping file order within a
+   * number
+   */
+  private static Map<Integer, List<Long>> byPokedex(PokemonStore store, long[] hashes) {
+    Map<Integer, List<Long>> groups = new HashMap<>();
+    for (int row = 0; row < hashes.length; ++row)
+      groups.computeIfAbsent(store.getPokedex(row), dex -> new ArrayList<>(1)).add(hashes[row]);
+    return groups;
+  }
+
+  /**
+   * Receives the outcome of the reloads the watching thread runs
+   */
+  public interface Listener {
+
+    /**
+     * Called after a reload that added, updated or removed some pokemon
+     *
+     * @param csv    the csv file that was reloaded
+     * @param change the changes found
+     */
+    public void reloaded(Path csv, Change change);
+
+    /**
+     * Called after a reload that failed, leaving the previous dataset current
+     *
+     * @param csv   the csv file that failed to load
+     * @param error why it failed
+     */
+    public void failed(Path csv, IOException error);
+  }
+
+  /**
+   * Class representing the pokedex numbers a reload added, updated and removed
+   */
+  public static final class Change {
+
+    // pokedex numbers only in the new load
+    private final int ADDED;
+    // pokedex numbers in both loads whose records changed
+    private final int UPDATED;
+    // pokedex numbers only in the old load
+    private final int REMOVED;
+    // records that had to be parsed
+    private final int PARSED;
+
+    private Change(Map<Integer, List<Long>> before, Map<Integer, List<Long>> after, int parsed) {
+      int added = 0;
+      int updated = 0;
+      for (Map.Entry<Integer, List<Long>> entry : after.entrySet()) {
+        List<Long> old = before.get(entry.getKey());
+        if (old == null)
+          ++added;
+        // a number is unchanged if its records hash the same in the same order
+        else if (!old.equals(entry.getValue()))
+          ++updated;
+      }
+      int removed = 0;
+      for (Integer pokedex : before.keySet())
+        if (!after.containsKey(pokedex))
+          ++removed;
+      this.ADDED = added;
+      this.UPDATED = updated;
+      this.REMOVED = removed;
+      this.PARSED = parsed;
+    }
+
+    /**
+     * Gets the number of pokedex numbers the reload added
+     *
+     * @return the number added
+     */
+    public int getAdded() {
+      return this.ADDED;
+    }
+
+    /**
+     * Gets the number of pokedex numbers whose Pokemon the reload changed
+     *
+     * @return the number updated
+     */
+    public int getUpdated() {
+      return this.UPDATED;
+    }
+
+    /**
+     * Gets the number of pokedex numbers the reload removed
+     *
+     * @return the number removed
+     */
+    public int getRemoved() {
+      return this.REMOVED;
+    }
+
+    /**
+     * Gets the number of records the reload had to parse
+     *
+     * @return the number parsed
+     */
+    public int getParsed() {
+      return this.PARSED;
+    }
+
+    /**
+     * Checks whether the reload changed no Pokemon
+     *
+     * @return true if nothing was added, updated or removed
+     */
+    public boolean isEmpty() {
+      return this.ADDED == 0 && this.UPDATED == 0 && this.REMOVED == 0;
+    }
+
+    @Override public String toString() {
+      return this.UPDATED + " updated, " + this.ADDED + " added, " + this.REMOVED + " removed ("
+          + this.PARSED + " records parsed)";
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * Class representing the facet counts of one filter state: how many of the matching pokemon have
+ * each type and generation, and how many pokemon would match after toggling each filter
+ */
+public class PokemonFacets {
+
+  // number of pokemon matching the filters
+  private final int COUNT;
+  // number of matching pokemon of every type, indexed by type ordinal
+  private final int[] TYPE_COUNTS;
+  // number of pokemon matching after toggling every type, indexed by type ordinal
+  private final int[] TYPE_TOGGLE_COUNTS;
+  // number of matching pokemon of every generation, indexed by generation
+  private final int[] GENERATION_COUNTS;
+  // number of pokemon matching after toggling every generation, indexed by generation
+  private final int[] GENERATION_TOGGLE_COUNTS;
+
+  /**
+   * Constructor that sets the counts, which are not copied
+   *
+   * @param count                  number of pokemon matching the filters
+   * @param typeCounts             matching pokemon of every type, by type ordinal
+   * @param typeToggleCounts       pokemon matching after toggling every type, by type ordinal
+   * @param generationCounts       matching pokemon of every generation, by generation
+   * @param generationToggleCounts pokemon matching after toggling every generation, by generation
+   */
+  public PokemonFacets(int count, int[] typeCounts, int[] typeToggleCounts,
+      int[] generationCounts, int[] generationToggleCounts) {
+    this.COUNT = count;
+    this.TYPE_COUNTS = typeCounts;
+    this.TYPE_TOGGLE_COUNTS = typeToggleCounts;
+    this.GENERATION_COUNTS = generationCounts;
+    this.GENERATION_TOGGLE_COUNTS = generationToggleCounts;
+  }
+
+  /**
+   * Gets the number of pokemon matching the filters
+   *
+   * @return the number of pokemon
+   */
+  public int getCount() {
+    return this.COUNT;
+  }
+
+  /**
+   * Gets the number of matching pokemon with a type, as either of their types
+   *
+   * @param type the type
+   * @return the number of pokemon
+   */
+  public int getTypeCount(PokemonTypes type) {
+    return this.TYPE_COUNTS[type.ordinal()];
+  }
+
+  /**
+   * Gets the number of pokemon that would match after toggling a type filter
+   *
+   * @param type the type
+   * @return the number of pokemon
+   */
+  public int getTypeToggleCount(PokemonTypes type) {
+    return this.TYPE_TOGGLE_COUNTS[type.ordinal()];
+  }
+
+  /**
+   * Gets the number of matching pokemon of a generation
+   *
+   * @param generation the generation
+   * @return the number of pokemon, 0 for generations outside the index
+   */
+  public int getGenerationCount(int generation) {
+    return generation < 0 || generation >= this.GENERATION_COUNTS.length ? 0
+        : this.GENERATION_COUNTS[generation];
+  }
+
+  /**
+   * Gets the number of pokemon that would match after toggling a generation filter
+   *
+   * @param generation the generation
+   * @return the number of pokemon, the current count for generations outside the index
+   */
+  public int getGenerationToggleCount(int generation) {
+    return generation < 0 || generation >= this.GENERATION_TOGGLE_COUNTS.length ? this.COUNT
+        : this.GENERATION_TOGGLE_COUNTS[generation];
+  }
+}
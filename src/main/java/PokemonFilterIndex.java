@@ -0,0 +1,212 @@
+import java.util.Arrays;
+
+/**
+ * Class representing an inverted index over the type and generation columns of a Pokemon dataset.
+ * Each type and each generation owns a bitset with one bit per row, so a filter query is a
+ * handful of word-wide OR/AND operations instead of a scan over every Pokemon
+ */
+public class PokemonFilterIndex {
+
+  // highest generation in the dataset
+  public static final int MAX_GENERATION = 7;
+
+  // number of rows covered by the index
+  private final int SIZE;
+  // number of 64-bit words needed to hold one bit per row
+  private final int WORDS;
+  // one bitset per pokemon type, indexed by type ordinal
+  private final long[][] TYPE_BITS;
+  // one bitset per generation, indexed by generation number
+  private final long[][] GENERATION_BITS;
+
+  /**
+   * Constructor that builds the bitsets for every row of the dataset
+   *
+   * @param store the dataset to index
+   */
+  public PokemonFilterIndex(PokemonStore store) {
+    this.SIZE = store.size();
+    this.WORDS = wordsFor(this.SIZE);
+    this.TYPE_BITS = new long[PokemonTypes.values().length][this.WORDS];
+    this.GENERATION_BITS = new long[MAX_GENERATION + 1][this.WORDS];
+    for (int row = 0; row < this.SIZE; ++row) {
+      long bit = 1L << row;
+      this.TYPE_BITS[store.getTypeOne(row)][row >>> 6] |= bit;
+      if (store.getTypeTwo(row) != PokemonStore.NO_TYPE)
+        this.TYPE_BITS[store.getTypeTwo(row)][row >>> 6] |= bit;
+      if (store.getGeneration(row) >= 0 && store.getGeneration(row) <= MAX_GENERATION)
+        this.GENERATION_BITS[store.getGeneration(row)][row >>> 6] |= bit;
+    }
+  }
+
+  /**
+   * Gets the number of rows covered by the index
+   *
+   * @return the number of rows
+   */
+  public int size() {
+    return this.SIZE;
+  }
+
+  /**
+   * Gets the number of words in every bitset of this index
+   *
+   * @return the number of 64-bit words per bitset
+   */
+  public int words() {
+    return this.WORDS;
+  }
+
+  /**
+   * Computes the union of the bitsets of every type in the mask
+   *
+   * @param typeMask bit i is set if the type with ordinal i is selected
+   * @param out      the bitset to overwrite with the union
+   */
+  public void unionTypes(long typeMask, long[] out) {
+    Arrays.fill(out, 0L);
+    for (long mask = typeMask; mask != 0; mask &= mask - 1)
+      or(out, this.TYPE_BITS[Long.numberOfTrailingZeros(mask)]);
+  }
+
+  /**
+   * Computes the union of the bitsets of every generation in the mask, ignoring generations past
+   * MAX_GENERATION
+   *
+   * @param generationMask bit i is set if generation i is selected
+   * @param out            the bitset to overwrite with the union
+   */
+  public void unionGenerations(long generationMask, long[] out) {
+    Arrays.fill(out, 0L);
+    for (long mask = generationMask; mask != 0; mask &= mask - 1)
+      if (Long.numberOfTrailingZeros(mask) < this.GENERATION_BITS.length)
+        or(out, this.GENERATION_BITS[Long.numberOfTrailingZeros(mask)]);
+  }
+
+  /**
+   * ORs the bitset of a single type into the given bitset
+   *
+   * @param type the type to add
+   * @param out  the bitset to update
+   */
+  public void addType(PokemonTypes type, long[] out) {
+    or(out, this.TYPE_BITS[type.ordinal()]);
+  }
+
+  /**
+   * ORs the bitset of a single generation into the given bitset
+   *
+   * @param generation the generation to add
+   * @param out        the bitset to update
+   */
+  public void addGeneration(int generation, long[] out) {
+    if (generation >= 0 && generation <= MAX_GENERATION)
+      or(out, this.GENERATION_BITS[generation]);
+  }
+
+  /**
+   * Counts, in a single pass over the bitsets, how many rows match a filter state, how many of
+   * them have each type and generation, and how many would match after toggling each filter.
+   * Every word of the type and generation bitsets is read once, and rows have at most two types,
+   * so a type filter is only lost by the rows it is the one active type of
+   *
+   * @param typeMask       bit i is set if the type with ordinal i is active
+   * @param generationMask bit i is set if generation i is active
+   * @return the facet counts
+   */
+  public PokemonFacets facets(long typeMask, long generationMask) {
+    int types = this.TYPE_BITS.length;
+    int generations = this.GENERATION_BITS.length;
+    int count = 0;
+    int[] typeCounts = new int[types];
+    // rows a toggle would add for inactive filters, or remove for active ones
+    int[] typeChanges = new int[types];
+    int[] generationCounts = new int[generations];
+    int[] generationChanges = new int[generations];
+    for (int w = 0; w < this.WORDS; ++w) {
+      // rows with at least one, and at least two, active types
+      long once = 0;
+      long twice = 0;
+      for (long mask = typeMask; mask != 0; mask &= mask - 1) {
+        long bits = this.TYPE_BITS[Long.numberOfTrailingZeros(mask)][w];
+        twice |= once & bits;
+        once |= bits;
+      }
+      long generation = 0;
+      for (long mask = generationMask; mask != 0; mask &= mask - 1)
+        if (Long.numberOfTrailingZeros(mask) < generations)
+          generation |= this.GENERATION_BITS[Long.numberOfTrailingZeros(mask)][w];
+      long match = once & generation;
+      count += Long.bitCount(match);
+      for (int t = 0; t < types; ++t) {
+        long bits = this.TYPE_BITS[t][w];
+        typeCounts[t] += Long.bitCount(bits & match);
+        long kept = (typeMask & 1L << t) != 0 ? twice : once;
+        typeChanges[t] += Long.bitCount(bits & generation & ~kept);
+      }
+      for (int g = 0; g < generations; ++g) {
+        long bits = this.GENERATION_BITS[g][w];
+        generationCounts[g] += Long.bitCount(bits & match);
+        generationChanges[g] += Long.bitCount(bits & once & ~generation);
+      }
+    }
+
+    int[] typeToggleCounts = new int[types];
+    for (int t = 0; t < types; ++t)
+      typeToggleCounts[t] =
+          (typeMask & 1L << t) != 0 ? count - typeChanges[t] : count + typeChanges[t];
+    // a row has one generation, so an active generation takes away every match it has
+    int[] generationToggleCounts = new int[generations];
+    for (int g = 0; g < generations; ++g)
+      generationToggleCounts[g] = (generationMask & 1L << g) != 0 ? count - generationCounts[g]
+          : count + generationChanges[g];
+    return new PokemonFacets(count, typeCounts, typeToggleCounts, generationCounts,
+        generationToggleCounts);
+  }
+
+  /**
+   * Gets the number of 64-bit words needed to hold the given number of bits
+   *
+   * @param bits the number of bits
+   * @return the number of words
+   */
+  public static int wordsFor(int bits) {
+    return (bits + 63) >>> 6;
+  }
+
+  /**
+   * ORs one bitset into another
+   *
+   * @param out  the bitset to update
+   * @param bits the bitset to OR in
+   */
+  public static void or(long[] out, long[] bits) {
+    for (int i = 0; i < out.length; ++i)
+      out[i] |= bits[i];
+  }
+
+  /**
+   * Writes the intersection of two bitsets into a third
+   *
+   * @param a   the first bitset
+   * @param b   the second bitset
+   * @param out the bitset to overwrite with the intersection
+   */
+  public static void and(long[] a, long[] b, long[] out) {
+    for (int i = 0; i < out.length; ++i)
+      out[i] = a[i] & b[i];
+  }
+
+  /**
+   * Counts the set bits in a bitset
+   *
+   * @param bits the bitset to count
+   * @return the number of set bits
+   */
+  public static int cardinality(long[] bits) {
+    int count = 0;
+    for (long word : bits)
+      count += Long.bitCount(word);
+    return count;
+  }
+}
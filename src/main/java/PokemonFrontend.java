@@ -1,26 +1,104 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.List;
-import java.util.Scanner;
 
 /**
  * Interface handling the frontend side of the Pokemon Team Builder app
+ *
+ * <p>The app is a state machine: every screen handles one response and returns the screen to show
+ * next, and runCommandLoop loops over them, so sessions of any length run in constant stack. All
+ * output goes through one reused StringBuilder, which is written out before every prompt, or only
+ * when it fills up in batch mode
  */
 public class PokemonFrontend implements IPokemonFrontend {
 
-  final private Scanner INPUT = new Scanner(System.in);
+  // output buffered before it is written in batch mode
+  private static final int BATCH_FLUSH_CHARS = 1 << 16;
+  // pokemon shown per page
+  private static final int PAGE_SIZE = 10;
+  // alternatives offered after a pokemon joins the team
+  private static final int SIMILAR_COUNT = 3;
+  // highest generation that can be filtered
+  private static final int MAX_GENERATION = 7;
+
+  final private Reader INPUT;
+  final private Writer OUTPUT;
   final private IPokemonBackend BACKEND;
+  // batch mode reads commands without printing menus or prompts
+  final private boolean BATCH;
+  // output not yet written, reused for the whole session
+  final private StringBuilder OUT = new StringBuilder(1 << 12);
+  // the token being read, reused for the whole session
+  final private StringBuilder TOKEN = new StringBuilder();
+  // chars copied out of OUT when it is written
+  private char[] chars = new char[1 << 12];
+  // the page of pokemon currently shown
+  private int page;
+  // the column the pokemon are shown in the order of, null for dataset order
+  private PokemonSortKey sortKey;
+  // true to show the largest values of sortKey first
+  private boolean descending;
 
+  /**
+   * Constructor that runs the app interactively on the console
+   *
+   * @param backend the backend to drive
+   */
   public PokemonFrontend(IPokemonBackend backend) {
+    this(backend, new BufferedReader(new InputStreamReader(System.in)),
+        new OutputStreamWriter(System.out), false);
+  }
+
+  /**
+   * Constructor that runs the app on the given input and output
+   *
+   * @param backend the backend to drive
+   * @param input   the commands, one token per response
+   * @param output  where screens are written
+   * @param batch   true to skip menus and prompts and only write output when the buffer fills
+   */
+  public PokemonFrontend(IPokemonBackend backend, Reader input, Writer output, boolean batch) {
     this.BACKEND = backend;
+    this.INPUT = input;
+    this.OUTPUT = output;
+    this.BATCH = batch;
   }
 
   /**
    * This method drives the entire read, eval, print loop (repl) for the
    * Pokemon Team Builder app.  This loop will continue to run until the user
-   * explicitly enters the quit command.
+   * explicitly enters the quit command or the input ends.
    */
   @Override public void runCommandLoop() {
-    System.out.print("Welcome to the Pokemon Team Builder!\n=================================");
-    displayCommandMenu();
+    if (!BATCH)
+      OUT.append("Welcome to the Pokemon Team Builder!\n=================================");
+    Screen screen = Screen.MENU;
+    while (screen != Screen.QUIT) {
+      switch (screen) {
+        case POKEMON:
+          screen = pokemonInput(page);
+          break;
+        case TYPES:
+          screen = typeInput();
+          break;
+        case GENERATIONS:
+          screen = generationInput();
+          break;
+        case TEAM:
+          screen = displayPokemonTeam(BACKEND.getTeam());
+          break;
+        default:
+          screen = displayCommandMenu();
+      }
+      if (OUT.length() >= BATCH_FLUSH_CHARS)
+        flush();
+    }
+    flush();
   }
 
   /**
@@ -32,168 +110,196 @@ public class PokemonFrontend implements IPokemonFrontend {
    * 4) Display [c]urrent team
    * 5) [Q]uit
    */
-  @Override public void displayCommandMenu() {
+  @Override public Screen displayCommandMenu() {
     // prints out a simply command menu for the user to choose from
-    System.out.print("\n\t1) Display [P]okemon\n\t2) Filter [t]ypes\n\t3) Filter "
+    prompt("\n\t1) Display [P]okemon\n\t2) Filter [t]ypes\n\t3) Filter "
         + "[g]enerations\n\t4) Display [c]urrent team\n\t5) [Q]uit\nChoose a command from the "
         + "menu above: ");
 
-    String response = INPUT.next().trim().toUpperCase();
+    String response = nextToken();
+    if (response == null)
+      return Screen.QUIT;
     // opens a new menu depending on what the user chooses
     switch (response) {
       case "1":
       case "P":
         // allow the user to display all pokemon with current filters
-        pokemonInput(0);
+        page = 0;
+        return Screen.POKEMON;
       case "2":
       case "T":
         // allow the user to filter by type
-        typeInput();
+        return Screen.TYPES;
       case "3":
       case "G":
         // allow the user to filter by generation
-        generationInput();
+        return Screen.GENERATIONS;
       case "4":
       case "C":
         // display the current pokemon team
-        displayPokemonTeam(BACKEND.getTeam());
+        return Screen.TEAM;
       case "5":
       case "Q":
         // close program
-        INPUT.close();
-        System.exit(0);
+        return Screen.QUIT;
       default:
         // check for invalid input
-        System.out.println("Invalid response provided");
-        displayCommandMenu();
+        OUT.append("Invalid response provided\n");
+        return Screen.MENU;
     }
   }
 
   /**
    * Accept different user input once a list of Pokemon has been displayed
    */
-  @Override public void pokemonInput(int page) {
+  @Override public Screen pokemonInput(int page) {
+    this.page = page;
+    int count = BACKEND.searchCount();
     // display the current page
-    System.out.println(
-        "Showing page " + (page + 1) + " out of " + ((BACKEND.searchPokemon().size()) / 10
-            + 1));
+    OUT.append("Showing page ").append(page + 1).append(" out of ").append(count / PAGE_SIZE + 1)
+        .append('\n');
 
     // prints out all pokemon on this page
-    for (int i = 1; i <= Math.min(10, BACKEND.searchPokemon().size() - page * 10); ++i)
-      System.out.println(
-          "================" + (i + page * 10) + "================\n" + BACKEND.searchPokemon()
-              .get((i - 1) + page * 10));
+    List<IPokemon> pokemonPage = BACKEND.searchPage(page, PAGE_SIZE, sortKey, descending);
+    for (int i = 1; i <= pokemonPage.size(); ++i) {
+      OUT.append("================").append(i + page * PAGE_SIZE).append("================\n");
+      Pokemon.appendTo(pokemonPage.get(i - 1), OUT).append('\n');
+    }
 
     // allow the user to choose from input...
     // next page, previous page, quit, or add a pokemon to their team
-    System.out.print(
-        "\n\t1) [N]ext page\n\t2) [P]revious page\n\t3) [Q]uit\n\t4) Pokemon number to add to "
-            + "your team\nChoose command from menu above: ");
-    String response = INPUT.next().toUpperCase().trim();
+    prompt("\n\t1) [N]ext page\n\t2) [P]revious page\n\t3) [Q]uit\n\t4) Pokemon number to add to "
+        + "your team\n\t5) [S]ort, followed by NAME, DEX or a stat, with a leading - for "
+        + "largest first\nChoose command from menu above: ");
+    String response = nextToken();
+    if (response == null)
+      return Screen.QUIT;
 
     // check what their response is
-    try {
+    int number = parseNumber(response);
+    if (response.equals("N") && (page != count / PAGE_SIZE)) {
       // checks if there is a next page
-      if (response.equals("N") && (page != BACKEND.searchPokemon().size() / 10)) {
-        ++page;
-        pokemonInput(page);
-      } else if (response.equals("P") && (page > 0)) {
-        // checks if there is a previous page
-        --page;
-        pokemonInput(page);
-      } else if (response.equals("Q")) {
-        // quit back to main menu
-        page = 0;
-        displayCommandMenu();
-      } else if (Integer.parseInt(response) > page * 10 && Integer.parseInt(response) <= Math.min(
-          BACKEND.searchPokemon().size(), (page + 1) * 10)) {
-        // if the number provided is within range displayed on current screen, add that pokemon
-        // to the current team
-        BACKEND.addToTeam(BACKEND.searchPokemon().get(Integer.parseInt(response) - 1));
-        pokemonInput(page);
-      } else {
-        // if invalid input, throw an exception to display error message
-        throw new NumberFormatException();
+      ++this.page;
+    } else if (response.equals("P") && (page > 0)) {
+      // checks if there is a previous page
+      --this.page;
+    } else if (response.equals("Q")) {
+      // quit back to main menu
+      this.page = 0;
+      return Screen.MENU;
+    } else if (response.equals("S")) {
+      // order by the column named next and start over from the first page
+      String column = nextToken();
+      if (column == null)
+        return Screen.QUIT;
+      try {
+        boolean descending = column.startsWith("-");
+        this.sortKey = PokemonSortKey.parse(descending ? column.substring(1) : column);
+        this.descending = descending;
+        this.page = 0;
+      } catch (IllegalArgumentException iae) {
+        OUT.append("Invalid response provided\n");
+      }
+    } else if (number > page * PAGE_SIZE && number <= Math.min(count, (page + 1) * PAGE_SIZE)) {
+      // if the number provided is within range displayed on current screen, add that pokemon
+      // to the current team
+      IPokemon pokemon = pokemonPage.get(number - 1 - page * PAGE_SIZE);
+      BACKEND.addToTeam(pokemon);
+      // offer the filtered pokemon most like the one picked, in case one of them fits better
+      List<IPokemon> similar = BACKEND.findSimilar(pokemon, SIMILAR_COUNT);
+      if (!similar.isEmpty()) {
+        OUT.append("Similar to ").append(pokemon.getName()).append(':');
+        for (IPokemon alternative : similar)
+          OUT.append(' ').append(alternative.getName()).append(" (#")
+              .append(alternative.getPokedex()).append(')');
+        OUT.append('\n');
       }
-    } catch (NumberFormatException nfe) {
+    } else {
       // display error message...
-      System.out.println("Invalid response provided");
-      pokemonInput(page);
+      OUT.append("Invalid response provided\n");
     }
-
+    return Screen.POKEMON;
   }
 
   /**
    * Accept different user input once the user wants to change filters
    */
-  @Override public void typeInput() {
+  @Override public Screen typeInput() {
     // display all types and their filters
     // if a filters has an 'X' by it... it is active
+    // next to it are the pokemon shown of the type and the pokemon shown if it was toggled
+    PokemonFacets facets = BACKEND.getFacets();
     for (PokemonTypes type : PokemonTypes.values()) {
       char active = BACKEND.getTypeFilter(type) ? 'X' : '_';
-      System.out.println("\t" + type + " _" + active + "_");
+      OUT.append('\t').append(type.name()).append(" _").append(active).append("_ ")
+          .append(facets.getTypeCount(type)).append(" shown, ")
+          .append(facets.getTypeToggleCount(type)).append(" if toggled\n");
     }
 
     // allow the user to select a type to toggle, reset the type filter, or the quit the menu
-    System.out.print("\tSelect type, [q]uit, or [r]eset: ");
-    String response = INPUT.next().toUpperCase().trim();
+    prompt("\tSelect type, [q]uit, or [r]eset: ");
+    String response = nextToken();
+    if (response == null)
+      return Screen.QUIT;
     // handle different responses
-    try {
-      BACKEND.toggleTypeFilter(PokemonTypes.valueOf(response));
-      typeInput();
-    } catch (IllegalArgumentException iae) {
-      switch (response) {
-        // quit the menu
-        case "Q":
-          displayCommandMenu();
-          // reset all the filters to be not active
-        case "R":
-          BACKEND.resetTypeFilter();
-          typeInput();
-        default:
-          // an invalid response was provided, go back to the menu
-          System.out.println("Invalid response provided");
-          typeInput();
+    for (PokemonTypes type : PokemonTypes.values())
+      if (type.name().equals(response)) {
+        BACKEND.toggleTypeFilter(type);
+        return Screen.TYPES;
       }
+    switch (response) {
+      // quit the menu
+      case "Q":
+        return Screen.MENU;
+      // reset all the filters to be not active
+      case "R":
+        BACKEND.resetTypeFilter();
+        return Screen.TYPES;
+      default:
+        // an invalid response was provided, go back to the menu
+        OUT.append("Invalid response provided\n");
+        return Screen.TYPES;
     }
   }
 
   /**
    * Accept different user input once the user wants to change filters
    */
-  @Override public void generationInput() {
+  @Override public Screen generationInput() {
     // display all generations and their filter status
     // if a filter has an 'X' by it, it is active
-    for (int i = 1; i <= 7; ++i) {
+    // next to it are the pokemon shown of the generation and the pokemon shown if it was toggled
+    PokemonFacets facets = BACKEND.getFacets();
+    for (int i = 1; i <= MAX_GENERATION; ++i) {
       char active = BACKEND.getGenerationFilter(i) ? 'X' : '_';
-      System.out.println("\tGeneration " + i + " _" + active + "_");
+      OUT.append("\tGeneration ").append(i).append(" _").append(active).append("_ ")
+          .append(facets.getGenerationCount(i)).append(" shown, ")
+          .append(facets.getGenerationToggleCount(i)).append(" if toggled\n");
     }
 
     // Prompt the user for input...
-    System.out.print("\tSelect generation, [q]uit, or [r]eset: ");
-    String response = INPUT.next().toUpperCase().trim();
-    try {
-      // handle response, checks if the number given was within the generation range
-      if (Integer.parseInt(response) >= 0 && Integer.parseInt(response) <= 7) {
-        BACKEND.toggleGenerationFilter(Integer.parseInt(response));
-        generationInput();
-      }
-      // throw an exception the if number provided was outuside of the generation range
-      throw new NumberFormatException();
-    } catch (NumberFormatException nfe) {
-      switch (response) {
-        // quit the menu
-        case "Q":
-          displayCommandMenu();
-          // reset the filters
-        case "R":
-          BACKEND.resetGenerationFilter();
-          generationInput();
-        default:
-          // display an error message for the user
-          System.out.println("Invalid response provided");
-          generationInput();
-      }
+    prompt("\tSelect generation, [q]uit, or [r]eset: ");
+    String response = nextToken();
+    if (response == null)
+      return Screen.QUIT;
+    // handle response, checks if the number given was within the generation range
+    int generation = parseNumber(response);
+    if (generation >= 0 && generation <= MAX_GENERATION) {
+      BACKEND.toggleGenerationFilter(generation);
+      return Screen.GENERATIONS;
+    }
+    switch (response) {
+      // quit the menu
+      case "Q":
+        return Screen.MENU;
+      // reset the filters
+      case "R":
+        BACKEND.resetGenerationFilter();
+        return Screen.GENERATIONS;
+      default:
+        // display an error message for the user
+        OUT.append("Invalid response provided\n");
+        return Screen.GENERATIONS;
     }
   }
 
@@ -202,49 +308,113 @@ public class PokemonFrontend implements IPokemonFrontend {
    *
    * @param pokemon list of user's current pokemon team
    */
-  @Override public void displayPokemonTeam(List<IPokemon> pokemon) {
+  @Override public Screen displayPokemonTeam(List<IPokemon> pokemon) {
     // if the size of the team is already maxed (6)
-    if (pokemon.size() > 6) {
-      System.out.println("Max team size reached");
-      pokemon.remove(6);
-      displayCommandMenu();
+    if (pokemon.size() > PokemonTeamOptimizer.TEAM_SIZE) {
+      OUT.append("Max team size reached\n");
+      BACKEND.removeFromTeam(PokemonTeamOptimizer.TEAM_SIZE);
+      return Screen.MENU;
     }
 
     // if the pokemon team is empty thus far
     if (pokemon.size() == 0) {
-      System.out.println("No Pokemon have been added to the team");
-      displayCommandMenu();
+      OUT.append("No Pokemon have been added to the team\n");
+      return Screen.MENU;
     }
 
     // display all the pokemon in the current team
-    System.out.println("Current Pokemon Team: ");
+    OUT.append("Current Pokemon Team: \n");
     int i = 1;
     // display all pokemon
-    for (IPokemon pokes : pokemon)
-      System.out.println("================" + i++ + "================\n" + pokes + "\n");
+    for (IPokemon pokes : pokemon) {
+      OUT.append("================").append(i++).append("================\n");
+      Pokemon.appendTo(pokes, OUT).append("\n\n");
+    }
 
     // take input from the user
-    System.out.print("Remove pokemon number from team or [q]uit: ");
-    String response = INPUT.next().trim().toUpperCase();
+    prompt("Remove pokemon number from team or [q]uit: ");
+    String response = nextToken();
+    if (response == null)
+      return Screen.QUIT;
+
+    // check if the response is a valid pokemon team number
+    int number = parseNumber(response);
+    if (number > 0 && number <= pokemon.size()) {
+      BACKEND.removeFromTeam(number - 1);
+      return Screen.MENU;
+    }
+    // quit the menu
+    if (response.equals("Q"))
+      return Screen.MENU;
+    // invalid response was provided
+    OUT.append("Invalid response provided\n");
+    return Screen.TEAM;
+  }
 
+  /**
+   * Appends a menu or prompt, which batch mode skips
+   */
+  private void prompt(String text) {
+    if (!BATCH)
+      OUT.append(text);
+  }
+
+  /**
+   * Reads the next whitespace separated response in upper case, writing out the pending output
+   * first when a user is waiting for it
+   *
+   * @return the response, or null once the input has ended
+   */
+  private String nextToken() {
+    if (!BATCH)
+      flush();
     try {
-      // check if the response is a valid pokemon team number
-      if (Integer.parseInt(response) > 0 && Integer.parseInt(response) <= BACKEND.getTeam()
-          .size()) {
-        pokemon.remove(Integer.parseInt(response) - 1);
-        displayCommandMenu();
-      }
-      // number was outside of range -> thrown an exception
-      throw new NumberFormatException();
-    } catch (NumberFormatException nfe) {
-      // quit the menu
-      if (response.equals("Q"))
-        displayCommandMenu();
-      else {
-        // invalid response was provided
-        System.out.println("Invalid response provided");
-        displayPokemonTeam(BACKEND.getTeam());
+      TOKEN.setLength(0);
+      int c = INPUT.read();
+      while (c != -1 && Character.isWhitespace(c))
+        c = INPUT.read();
+      while (c != -1 && !Character.isWhitespace(c)) {
+        TOKEN.append(Character.toUpperCase((char) c));
+        c = INPUT.read();
       }
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+    return TOKEN.length() == 0 ? null : TOKEN.toString();
+  }
+
+  /**
+   * Parses a response made only of digits
+   *
+   * @return the number, or -1 if the response is not a number
+   */
+  private static int parseNumber(String response) {
+    if (response.length() > 9)
+      return -1;
+    int number = 0;
+    for (int i = 0; i < response.length(); ++i) {
+      char c = response.charAt(i);
+      if (c < '0' || c > '9')
+        return -1;
+      number = number * 10 + c - '0';
+    }
+    return number;
+  }
+
+  /**
+   * Writes out and clears the pending output
+   */
+  private void flush() {
+    int length = OUT.length();
+    if (chars.length < length)
+      chars = new char[Math.max(length, chars.length * 2)];
+    OUT.getChars(0, length, chars, 0);
+    OUT.setLength(0);
+    try {
+      OUTPUT.write(chars, 0, length);
+      OUTPUT.flush();
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
     }
   }
 }
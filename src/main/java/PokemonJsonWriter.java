@@ -0,0 +1,383 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Class that streams JSON as UTF-8 straight to an OutputStream, one token at a time, so a
+ * response never builds intermediate Strings of the Pokemon it holds. Tokens are encoded into a
+ * small buffer of its own, which avoids the per-call locking of a Writer
+ */
+public class PokemonJsonWriter implements Closeable, Flushable {
+
+  // hex digits of \\u escapes
+  private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b',
+      'c', 'd', 'e', 'f'};
+  // deepest nesting of objects and arrays
+  private static final int MAX_DEPTH = 64;
+  // bytes encoded before they are written to the stream
+  private static final int BUFFER_BYTES = 8192;
+
+  // the stream tokens are written to
+  private final OutputStream OUT;
+  // encoded bytes not yet written to the stream
+  private final byte[] BUFFER = new byte[BUFFER_BYTES];
+  // per nesting level, true once the level holds a value and the next needs a comma
+  private final boolean[] HAS_VALUE = new boolean[MAX_DEPTH];
+  // number of bytes in the buffer
+  private int count;
+  // current nesting level, 0 outside of any object or array
+  private int depth;
+  // true right after a name, whose value needs no comma
+  private boolean afterName;
+
+  /**
+   * Constructor that sets the stream to write to
+   *
+   * @param out the stream
+   */
+  public PokemonJsonWriter(OutputStream out) {
+    this.OUT = out;
+  }
+
+  /**
+   * Writes the buffered bytes to the stream and flushes it
+   *
+   * @throws IOException if the stream failed
+   */
+  @Override public void flush() throws IOException {
+    this.OUT.write(this.BUFFER, 0, this.count);
+    this.count = 0;
+    this.OUT.flush();
+  }
+
+  /**
+   * Writes the buffered bytes to the stream and closes it
+   *
+   * @throws IOException if the stream failed
+   */
+  @Override public void close() throws IOException {
+    try (OutputStream out = this.OUT) {
+      out.write(this.BUFFER, 0, this.count);
+      this.count = 0;
+    }
+  }
+
+  /**
+   * Opens an object
+   *
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter beginObject() throws IOException {
+    return open('{');
+  }
+
+  /**
+   * Closes the innermost object
+   *
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter endObject() throws IOException {
+    return close('}');
+  }
+
+  /**
+   * Opens an array
+   *
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter beginArray() throws IOException {
+    return open('[');
+  }
+
+  /**
+   * Closes the innermost array
+   *
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter endArray() throws IOException {
+    return close(']');
+  }
+
+  /**
+   * Writes the name of the next member of the current object
+   *
+   * @param name the member name
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter name(String name) throws IOException {
+    separate();
+    string(name);
+    write(':');
+    this.afterName = true;
+    return this;
+  }
+
+  /**
+   * Writes a string value, or null
+   *
+   * @param value the value
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter value(String value) throws IOException {
+    separate();
+    if (value == null)
+      ascii("null");
+    else
+      string(value);
+    return this;
+  }
+
+  /**
+   * Writes a number value
+   *
+   * @param value the value
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter value(long value) throws IOException {
+    separate();
+    ascii(Long.toString(value));
+    return this;
+  }
+
+  /**
+   * Writes a number value, rounded to two decimals the way the csv stores them
+   *
+   * @param value the value
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter value(float value) throws IOException {
+    separate();
+    ascii(Float.toString(Math.round(value * 100) / 100f));
+    return this;
+  }
+
+  /**
+   * Writes a number value in full precision, the shortest decimal that reads back as the same
+   * double, for values such as rates that rounding to two decimals would lose
+   *
+   * @param value the value
+   * @return this writer
+   * @throws IllegalArgumentException if the value is NaN or infinite, which JSON cannot hold
+   * @throws IOException              if the writer failed
+   */
+  public PokemonJsonWriter value(double value) throws IOException {
+    if (Double.isNaN(value) || Double.isInfinite(value))
+      throw new IllegalArgumentException("JSON numbers are finite: " + value);
+    separate();
+    ascii(Double.toString(value));
+    return this;
+  }
+
+  /**
+   * Writes a boolean value
+   *
+   * @param value the value
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter value(boolean value) throws IOException {
+    separate();
+    ascii(value ? "true" : "false");
+    return this;
+  }
+
+  /**
+   * Writes a Pokemon as an object of its metadata and stats
+   *
+   * @param pokemon the Pokemon
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter pokemon(IPokemon pokemon) throws IOException {
+    return pokemon(pokemon, null);
+  }
+
+  /**
+   * Writes a Pokemon as an object of its metadata and stats, plus the path of its thumbnail
+   * under /sprites when an atlas is given, null if the atlas has no sprite of it
+   *
+   * @param pokemon the Pokemon
+   * @param sprites the atlas of thumbnails, or null to leave the sprite out
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter pokemon(IPokemon pokemon, PokemonSpriteAtlas sprites)
+      throws IOException {
+    beginObject();
+    name("name").value(pokemon.getName());
+    name("japaneseName").value(pokemon.getJapaneseName());
+    name("pokedex").value(pokemon.getPokedex());
+    name("generation").value(pokemon.getGeneration());
+    name("typeOne").value(pokemon.getTypeOne().name());
+    name("typeTwo").value(pokemon.getTypeTwo() == null ? null : pokemon.getTypeTwo().name());
+    name("legendary").value(pokemon.isLegendary());
+    name("abilities").beginArray();
+    for (String ability : pokemon.getAbilities())
+      value(ability);
+    endArray();
+    name("stats").beginObject();
+    for (PokemonStats stat : PokemonStats.values())
+      name(stat.getColumn()).value(pokemon.getStat(stat));
+    endObject();
+    if (sprites != null)
+      name("sprite").value(sprites.hasThumbnail(pokemon.getPokedex(), null)
+          ? "/sprites?pokedex=" + pokemon.getPokedex() : null);
+    return endObject();
+  }
+
+  /**
+   * Writes a list of Pokemon as an array
+   *
+   * @param pokemon the Pokemon
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter pokemon(List<IPokemon> pokemon) throws IOException {
+    return pokemon(pokemon, null);
+  }
+
+  /**
+   * Writes a list of Pokemon as an array, each with the path of its thumbnail when an atlas is
+   * given
+   *
+   * @param pokemon the Pokemon
+   * @param sprites the atlas of thumbnails, or null to leave the sprites out
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter pokemon(List<IPokemon> pokemon, PokemonSpriteAtlas sprites)
+      throws IOException {
+    beginArray();
+    for (IPokemon current : pokemon)
+      pokemon(current, sprites);
+    return endArray();
+  }
+
+  /**
+   * Writes the names of the types in a mask as an array
+   *
+   * @param typeMask bit i is set for the type with ordinal i
+   * @return this writer
+   * @throws IOException if the writer failed
+   */
+  public PokemonJsonWriter types(int typeMask) throws IOException {
+    PokemonTypes[] types = PokemonTypes.values();
+    beginArray();
+    for (int mask = typeMask; mask != 0; mask &= mask - 1)
+      value(types[Integer.numberOfTrailingZeros(mask)].name());
+    return endArray();
+  }
+
+  /**
+   * Opens an object or array
+   */
+  private PokemonJsonWriter open(char bracket) throws IOException {
+    separate();
+    if (this.depth + 1 == MAX_DEPTH)
+      throw new IllegalStateException("JSON nested deeper than " + MAX_DEPTH);
+    write(bracket);
+    this.HAS_VALUE[++this.depth] = false;
+    return this;
+  }
+
+  /**
+   * Closes the innermost object or array
+   */
+  private PokemonJsonWriter close(char bracket) throws IOException {
+    if (this.depth == 0)
+      throw new IllegalStateException("Nothing to close");
+    write(bracket);
+    --this.depth;
+    return this;
+  }
+
+  /**
+   * Writes the comma between two values of the current level, unless a value follows its name
+   */
+  private void separate() throws IOException {
+    if (this.afterName) {
+      this.afterName = false;
+      return;
+    }
+    if (this.HAS_VALUE[this.depth])
+      write(',');
+    this.HAS_VALUE[this.depth] = true;
+  }
+
+  /**
+   * Writes a quoted string, escaping quotes, backslashes and control characters and encoding
+   * everything else as UTF-8
+   */
+  private void string(String value) throws IOException {
+    write('"');
+    for (int i = 0; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        if (c < 0x20) {
+          write('\\');
+          write('u');
+          write('0');
+          write('0');
+          write(HEX[c >> 4]);
+          write(HEX[c & 0xF]);
+          continue;
+        }
+        if (c == '"' || c == '\\')
+          write('\\');
+        write(c);
+      } else if (c < 0x800) {
+        write(0xC0 | c >> 6);
+        write(0x80 | c & 0x3F);
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        write(0xF0 | codePoint >> 18);
+        write(0x80 | codePoint >> 12 & 0x3F);
+        write(0x80 | codePoint >> 6 & 0x3F);
+        write(0x80 | codePoint & 0x3F);
+      } else {
+        // a lone surrogate has no UTF-8 encoding, so it is escaped
+        if (Character.isSurrogate(c)) {
+          write('\\');
+          write('u');
+          for (int shift = 12; shift >= 0; shift -= 4)
+            write(HEX[c >> shift & 0xF]);
+          continue;
+        }
+        write(0xE0 | c >> 12);
+        write(0x80 | c >> 6 & 0x3F);
+        write(0x80 | c & 0x3F);
+      }
+    }
+    write('"');
+  }
+
+  /**
+   * Writes a token made only of ASCII characters
+   */
+  private void ascii(String token) throws IOException {
+    for (int i = 0; i < token.length(); ++i)
+      write(token.charAt(i));
+  }
+
+  /**
+   * Buffers a single byte, writing the buffer to the stream when it is full
+   */
+  private void write(int b) throws IOException {
+    if (this.count == BUFFER_BYTES) {
+      this.OUT.write(this.BUFFER, 0, BUFFER_BYTES);
+      this.count = 0;
+    }
+    this.BUFFER[this.count++] = (byte) b;
+  }
+}
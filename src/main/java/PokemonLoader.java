@@ -1,7 +1,5 @@
 import com.opencsv.bean.CsvToBeanBuilder;
 
-import javax.imageio.ImageIO;
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
@@ -21,16 +19,8 @@ public class PokemonLoader implements IPokemonLoader {
    */
   @Override public List<IPokemon> loadPokemon(String filename) throws IOException {
     // uses OpenCSV to read csv file and build pokemon objects off of each line
-    List<IPokemon> pokemon =
-        (new CsvToBeanBuilder<IPokemon>(new FileReader(filename)).withType(Pokemon.class).build()
-            .parse());
-
-
-    // for future updates to frontend where image feature might be useful
-    /*for (IPokemon pokes : pokemon)
-      pokes.setImage(ImageIO.read(new File("pokemon/" + pokes.getPokedex() + ".png")));*/
-
-
-    return pokemon;
+    // images are not read here, getImage decodes them lazily through PokemonSpriteCache
+    return (new CsvToBeanBuilder<IPokemon>(new FileReader(filename)).withType(Pokemon.class).build()
+        .parse());
   }
 }
@@ -0,0 +1,471 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class that records how long operations take, how many results they return and how much they
+ * allocate, and exports the totals in the Prometheus text format
+ *
+ * <p>Recording never locks: every value lands in a log-linear histogram of atomic counters whose
+ * buckets are within 1/16 of the values they hold, the same trade HdrHistogram makes, so a call
+ * costs two clock reads, two allocation counter reads and a few uncontended atomic adds. Every
+ * call is also a JFR event, which costs nothing unless a recording enables it
+ */
+public class PokemonMetrics {
+
+  // quantiles exported for result sizes and allocations
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99, 1};
+  // shortest and longest latency buckets exported, as powers of two nanoseconds: 1 µs to 34 s
+  private static final int MIN_EXPORTED_OCTAVE = 10;
+  private static final int MAX_EXPORTED_OCTAVE = 35;
+  // counts this thread's allocations, null when the JVM cannot
+  private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+  // the operations recorded so far, by name
+  private final Map<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+  // the operations of every InstrumentedPokemonBackend, null until the first one is created
+  private volatile InstrumentedPokemonBackend.Operations backendOperations;
+
+  /**
+   * Gets the recorder of an operation, creating it the first time its name is used. Look
+   * operations up once and keep them, the lookup is not meant for every call
+   *
+   * @param name the operation's name, exported as its operation label
+   * @return the operation's recorder
+   */
+  public Operation operation(String name) {
+    return this.OPERATIONS.computeIfAbsent(name, Operation::new);
+  }
+
+  /**
+   * Gets the operations an InstrumentedPokemonBackend records into, looked up the first time and
+   * shared by every later backend, so a session created per request does not look them up again
+   *
+   * @return the operations of the backend
+   */
+  public InstrumentedPokemonBackend.Operations getBackendOperations() {
+    InstrumentedPokemonBackend.Operations operations = this.backendOperations;
+    if (operations == null) {
+      // racing threads look up the same operations, so either result may be kept
+      operations = new InstrumentedPokemonBackend.Operations(this);
+      this.backendOperations = operations;
+    }
+    return operations;
+  }
+
+  /**
+   * Writes every operation's metrics in the Prometheus text exposition format
+   *
+   * @param out where to write the metrics
+   * @throws IOException if writing failed
+   */
+  public void writePrometheus(Writer out) throws IOException {
+    // sorted so that consecutive scrapes and dumps diff cleanly
+    Collection<Operation> operations = new TreeMap<>(this.OPERATIONS).values();
+    StringBuilder text = new StringBuilder(4096);
+
+    family(text, "pokemon_operation_duration_seconds", "histogram",
+        "Time spent in each operation");
+    for (Operation operation : operations) {
+      Histogram durations = operation.DURATIONS;
+      long count = 0;
+      long[] buckets = durations.snapshot();
+      int bucket = 0;
+      for (int octave = MIN_EXPORTED_OCTAVE; octave <= MAX_EXPORTED_OCTAVE; ++octave) {
+        // everything in the buckets below the one starting at 2^octave is shorter than it
+        for (int below = Histogram.indexOf(1L << octave); bucket < below; ++bucket)
+          count += buckets[bucket];
+        sample(text, "pokemon_operation_duration_seconds_bucket", operation.NAME, "le",
+            Double.toString((1L << octave) / 1e9), count);
+      }
+      for (; bucket < buckets.length; ++bucket)
+        count += buckets[bucket];
+      sample(text, "pokemon_operation_duration_seconds_bucket", operation.NAME, "le", "+Inf",
+          count);
+      sample(text, "pokemon_operation_duration_seconds_sum", operation.NAME,
+          durations.sum() / 1e9);
+      sample(text, "pokemon_operation_duration_seconds_count", operation.NAME, count);
+    }
+
+    family(text, "pokemon_operation_failures_total", "counter",
+        "Calls of each operation that threw");
+    for (Operation operation : operations)
+      sample(text, "pokemon_operation_failures_total", operation.NAME,
+          operation.FAILURES.sum());
+
+    summary(text, "pokemon_operation_results", "Pokemon returned by each operation", operations,
+        false);
+    summary(text, "pokemon_operation_allocated_bytes",
+        "Bytes allocated by each operation, on platform threads of JVMs that count them",
+        operations, true);
+    out.append(text);
+  }
+
+  /**
+   * Writes the metrics to a file in the Prometheus text format, replacing it whole so that a
+   * collector reading it never sees half a dump
+   *
+   * @param file the file to write
+   * @throws IOException if the file could not be written
+   */
+  public void dump(Path file) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+    try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+      writePrometheus(out);
+    }
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Writes a summary of the result sizes or allocations of every operation
+   */
+  private static void summary(StringBuilder text, String name, String help,
+      Collection<Operation> operations, boolean allocations) {
+    family(text, name, "summary", help);
+    for (Operation operation : operations) {
+      Histogram histogram = allocations ? operation.ALLOCATIONS : operation.RESULTS;
+      long[] buckets = histogram.snapshot();
+      for (double quantile : QUANTILES)
+        sample(text, name, operation.NAME, "quantile", Double.toString(quantile),
+            Histogram.quantile(buckets, quantile, histogram.max()));
+      sample(text, name + "_sum", operation.NAME, histogram.sum());
+      sample(text, name + "_count", operation.NAME, Histogram.count(buckets));
+    }
+  }
+
+  /**
+   * Writes the help and type lines of a metric family
+   */
+  private static void family(StringBuilder text, String name, String type, String help) {
+    text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  /**
+   * Writes a sample labelled with its operation
+   */
+  private static void sample(StringBuilder text, String name, String operation, double value) {
+    text.append(name).append("{operation=\"").append(operation).append("\"} ");
+    appendValue(text, value).append('\n');
+  }
+
+  /**
+   * Writes a sample labelled with its operation and one more label
+   */
+  private static void sample(StringBuilder text, String name, String operation, String label,
+      String labelValue, double value) {
+    text.append(name).append("{operation=\"").append(operation).append("\",").append(label)
+        .append("=\"").append(labelValue).append("\"} ");
+    appendValue(text, value).append('\n');
+  }
+
+  /**
+   * Appends a value, without a fraction when it is whole
+   */
+  private static StringBuilder appendValue(StringBuilder text, double value) {
+    if (value == (long) value)
+      return text.append((long) value);
+    return text.append(value);
+  }
+
+  /**
+   * Gets the thread allocation counter, or null if the JVM does not provide one
+   */
+  private static com.sun.management.ThreadMXBean allocationCounter() {
+    try {
+      if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+          && threads.isThreadAllocatedMemorySupported()) {
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+      }
+    } catch (UnsupportedOperationException | SecurityException e) {
+      // allocations are not recorded
+    }
+    return null;
+  }
+
+  /**
+   * Reads the bytes this thread has allocated so far
+   *
+   * @return the bytes allocated, or -1 where they are not counted, such as on virtual threads
+   */
+  private static long allocatedBytes() {
+    return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+  }
+
+  /**
+   * Class recording the calls of one operation
+   */
+  public static final class Operation {
+
+    // the operation's name
+    private final String NAME;
+    // nanoseconds per call
+    private final Histogram DURATIONS = new Histogram();
+    // pokemon returned per call
+    private final Histogram RESULTS = new Histogram();
+    // bytes allocated per call, on threads where they are counted
+    private final Histogram ALLOCATIONS = new Histogram();
+    // calls that threw
+    private final LongAdder FAILURES = new LongAdder();
+
+    private Operation(String name) {
+      this.NAME = name;
+    }
+
+    /**
+     * Starts timing a call. Close the returned call when the operation returns or throws, best
+     * with try-with-resources
+     *
+     * @return the running call
+     */
+    public Call start() {
+      Call call = new Call(this);
+      call.begin();
+      // read last so that neither the call nor the clock counts against the operation
+      call.allocatedBefore = allocatedBytes();
+      call.startNanos = System.nanoTime();
+      return call;
+    }
+
+    /**
+     * Gets the name of the operation
+     *
+     * @return the name
+     */
+    public String getName() {
+      return this.NAME;
+    }
+
+    /**
+     * Gets the number of calls that finished, including those that threw
+     *
+     * @return the number of calls
+     */
+    public long getCount() {
+      return Histogram.count(this.DURATIONS.snapshot());
+    }
+
+    /**
+     * Gets a latency quantile of the calls so far
+     *
+     * @param quantile the quantile between 0 and 1, such as 0.99
+     * @return the latency in nanoseconds, accurate to 1/16
+     */
+    public long getDurationQuantile(double quantile) {
+      return Histogram.quantile(this.DURATIONS.snapshot(), quantile, this.DURATIONS.max());
+    }
+  }
+
+  /**
+   * Class representing one running call of an operation. It is also the call's JFR event,
+   * committed when the call is closed if a recording enables pokemon.Operation events
+   */
+  @Name("pokemon.Operation")
+  @Label("Pokemon Operation")
+  @Category("Pokemon")
+  @Description("A call to the team builder's loader or backend")
+  public static final class Call extends Event implements AutoCloseable {
+
+    // event fields are named as JFR shows them
+    @Label("Operation")
+    private String operation;
+    @Label("Results")
+    @Description("Pokemon returned, -1 if the operation returns none")
+    private int results = -1;
+    @Label("Allocated")
+    @DataAmount
+    @Description("Bytes allocated by the call, -1 where they are not counted")
+    private long allocated = -1;
+    @Label("Failed")
+    private boolean failed = true;
+
+    // the operation being called, not recorded in the event
+    private final transient Operation OPERATION;
+    // when the call started
+    private transient long startNanos;
+    // the thread's allocation counter when the call started
+    private transient long allocatedBefore;
+
+    private Call(Operation operation) {
+      this.OPERATION = operation;
+      this.operation = operation.NAME;
+    }
+
+    /**
+     * Records the pokemon a call returns
+     *
+     * @param pokemon what the operation returned
+     * @return the same pokemon
+     */
+    public <T extends Collection<?>> T results(T pokemon) {
+      this.results = pokemon.size();
+      this.failed = false;
+      return pokemon;
+    }
+
+    /**
+     * Records the number of pokemon a call counted
+     *
+     * @param count what the operation returned
+     * @return the same count
+     */
+    public int results(int count) {
+      this.results = count;
+      this.failed = false;
+      return count;
+    }
+
+    /**
+     * Records that a call returning no pokemon succeeded
+     */
+    public void succeeded() {
+      this.failed = false;
+    }
+
+    /**
+     * Stops timing the call and records it, as failed unless a result was recorded first
+     */
+    @Override public void close() {
+      long nanos = System.nanoTime() - this.startNanos;
+      long after = allocatedBytes();
+      Operation operation = this.OPERATION;
+      operation.DURATIONS.record(nanos);
+      if (this.results >= 0)
+        operation.RESULTS.record(this.results);
+      if (this.allocatedBefore >= 0 && after >= this.allocatedBefore) {
+        this.allocated = after - this.allocatedBefore;
+        operation.ALLOCATIONS.record(this.allocated);
+      }
+      if (this.failed)
+        operation.FAILURES.increment();
+      end();
+      if (shouldCommit())
+        commit();
+    }
+  }
+
+  /**
+   * Class counting non-negative values in log-linear buckets: values below 32 get a bucket each,
+   * and every power of two above is split into 16 equal buckets
+   */
+  static final class Histogram {
+
+    // bits of a value kept below its leading one
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // enough buckets for every long
+    private static final int BUCKETS = indexOf(Long.MAX_VALUE) + 1;
+
+    // values counted per bucket
+    private final AtomicLongArray COUNTS = new AtomicLongArray(BUCKETS);
+    // total of the values counted
+    private final LongAdder SUM = new LongAdder();
+    // largest value counted, which caps the quantiles
+    private final LongAccumulator MAX = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Counts a value, negative values as 0
+     */
+    void record(long value) {
+      value = Math.max(value, 0);
+      this.COUNTS.getAndIncrement(indexOf(value));
+      this.SUM.add(value);
+      this.MAX.accumulate(value);
+    }
+
+    /**
+     * Gets the total of the values counted
+     */
+    long sum() {
+      return this.SUM.sum();
+    }
+
+    /**
+     * Gets the largest value counted
+     */
+    long max() {
+      return this.MAX.get();
+    }
+
+    /**
+     * Copies the bucket counts, which calls may still be adding to
+     */
+    long[] snapshot() {
+      long[] counts = new long[BUCKETS];
+      for (int i = 0; i < BUCKETS; ++i)
+        counts[i] = this.COUNTS.get(i);
+      return counts;
+    }
+
+    /**
+     * Gets the bucket a value is counted in
+     */
+    static int indexOf(long value) {
+      if (value < 2 * SUB_BUCKETS)
+        return (int) value;
+      int octave = 63 - Long.numberOfLeadingZeros(value);
+      int sub = (int) (value >>> (octave - SUB_BITS)) & (SUB_BUCKETS - 1);
+      return (octave - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gets the largest value counted in a bucket
+     */
+    static long highestIn(int index) {
+      if (index < 2 * SUB_BUCKETS)
+        return index;
+      int shift = index / SUB_BUCKETS - 1;
+      long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+      return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Sums the bucket counts of a snapshot
+     */
+    static long count(long[] counts) {
+      long count = 0;
+      for (long bucket : counts)
+        count += bucket;
+      return count;
+    }
+
+    /**
+     * Gets the largest value in the bucket holding a quantile of a snapshot, at most the largest
+     * value counted, 0 if it is empty
+     */
+    static long quantile(long[] counts, double quantile, long max) {
+      long count = count(counts);
+      if (count == 0)
+        return 0;
+      long rank = Math.max(1, (long) Math.ceil(quantile * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; ++i) {
+        seen += counts[i];
+        if (seen >= rank)
+          return Math.min(highestIn(i), max);
+      }
+      return max;
+    }
+  }
+}
@@ -0,0 +1,493 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class representing a trie over the names of a PokemonStore, answering exact, prefix and typo
+ * tolerant lookups with row ids so the results combine with the filter bitsets
+ *
+ * <p>Names are indexed under a key of their lower cased letters and digits, so "mr mime" finds
+ * "Mr. Mime". Japanese names are indexed too, once under their romanization and once under their
+ * katakana. The trie is laid out in preorder in flat arrays, the nodes below a node following it
+ * directly, and every key node owns a run of postings holding its rows in row order. Lookups
+ * first pick the key nodes that match and then read their postings best ranked node first, so a
+ * top-k lookup stops after k rows however many rows share a name
+ */
+public class PokemonNameIndex {
+
+  // most edits a typo tolerant search may allow, more would match nearly every short name
+  public static final int MAX_EDITS = 3;
+  // bits of a candidate holding its node
+  private static final int NODE_BITS = 32;
+  // bits of a candidate holding its key length
+  private static final int LENGTH_BITS = 24;
+
+  // character leading to every node, unused for the root
+  private final char[] LABELS;
+  // one past the last node below every node, children are found by jumping from END to END
+  private final int[] END;
+  // first posting of every node, with one extra entry marking the end of the postings
+  private final int[] POSTING_START;
+  // row of every posting, in key order, then English names before Japanese names, then row
+  // order
+  private final int[] ROWS;
+  // first posting of every node that only comes from a Japanese name, which ranks below every
+  // English name with as many typos
+  private final int[] JAPANESE_START;
+  // length of the longest key
+  private final int MAX_LENGTH;
+
+  /**
+   * Constructor that indexes the names and Japanese names of every row
+   *
+   * @param store the store to index
+   */
+  public PokemonNameIndex(PokemonStore store) {
+    // names repeat across forms and datasets, so every distinct key is only built once
+    Map<String, Integer> ids = new HashMap<>();
+    List<String> texts = new ArrayList<>();
+    Map<String, int[]> englishKeys = new HashMap<>();
+    Map<String, int[]> japaneseKeys = new HashMap<>();
+    int[] counts = new int[16];
+    int[] japaneseCounts = new int[16];
+    int[] lastRow = new int[16];
+    Arrays.fill(lastRow, -1);
+    for (int row = 0; row < store.size(); ++row)
+      for (int japanese = 0; japanese < 2; ++japanese) {
+        String name = japanese == 0 ? store.getName(row) : store.getJapaneseName(row);
+        if (name == null)
+          continue;
+        int[] keys = (japanese == 0 ? englishKeys : japaneseKeys)
+            .computeIfAbsent(name, n -> keyIds(n, ids, texts));
+        if (counts.length < texts.size()) {
+          int length = Math.max(texts.size(), counts.length * 2);
+          int old = counts.length;
+          counts = Arrays.copyOf(counts, length);
+          japaneseCounts = Arrays.copyOf(japaneseCounts, length);
+          lastRow = Arrays.copyOf(lastRow, length);
+          Arrays.fill(lastRow, old, length, -1);
+        }
+        // a row reaching the same key twice, as a name equal to its romanization, posts once
+        // under its English name
+        for (int key : keys)
+          if (lastRow[key] != row) {
+            lastRow[key] = row;
+            ++(japanese == 0 ? counts : japaneseCounts)[key];
+          }
+      }
+
+    // sorted keys visit the trie in preorder, so every node is appended right where it belongs
+    // and the path stack only has to be unwound to the prefix shared with the previous key
+    Integer[] order = new Integer[texts.size()];
+    for (int i = 0; i < order.length; ++i)
+      order[i] = i;
+    Arrays.sort(order, (a, b) -> texts.get(a).compareTo(texts.get(b)));
+    int capacity = 1;
+    int maxLength = 0;
+    for (String text : texts) {
+      capacity += text.length();
+      maxLength = Math.max(maxLength, text.length());
+    }
+    char[] labels = new char[capacity];
+    int[] end = new int[capacity];
+    int[] postingStart = new int[capacity + 1];
+    int[] keyNodes = new int[texts.size()];
+    int[] path = new int[maxLength + 1];
+    int nodes = 1;
+    int postings = 0;
+    String previous = "";
+    for (int key : order) {
+      String text = texts.get(key);
+      int shared = 0;
+      while (shared < text.length() && shared < previous.length()
+          && text.charAt(shared) == previous.charAt(shared))
+        ++shared;
+      for (int depth = previous.length(); depth > shared; --depth)
+        end[path[depth]] = nodes;
+      for (int depth = shared + 1; depth <= text.length(); ++depth) {
+        labels[nodes] = text.charAt(depth - 1);
+        postingStart[nodes] = postings;
+        path[depth] = nodes++;
+      }
+      keyNodes[key] = path[text.length()];
+      postings += counts[key] + japaneseCounts[key];
+      previous = text;
+    }
+    for (int depth = previous.length(); depth >= 0; --depth)
+      end[path[depth]] = nodes;
+    postingStart[nodes] = postings;
+
+    // a second pass over the rows drops every posting into the English or Japanese run of its
+    // key node, nodes that end no key have both runs empty
+    int[] rows = new int[postings];
+    int[] japaneseStart = Arrays.copyOf(postingStart, nodes);
+    int[][] cursors = new int[2][texts.size()];
+    for (int key = 0; key < texts.size(); ++key) {
+      cursors[0][key] = postingStart[keyNodes[key]];
+      cursors[1][key] = cursors[0][key] + counts[key];
+      japaneseStart[keyNodes[key]] = cursors[1][key];
+    }
+    Arrays.fill(lastRow, -1);
+    for (int row = 0; row < store.size(); ++row)
+      for (int japanese = 0; japanese < 2; ++japanese) {
+        String name = japanese == 0 ? store.getName(row) : store.getJapaneseName(row);
+        if (name == null)
+          continue;
+        for (int key : (japanese == 0 ? englishKeys : japaneseKeys).get(name))
+          if (lastRow[key] != row) {
+            lastRow[key] = row;
+            rows[cursors[japanese][key]++] = row;
+          }
+      }
+
+    this.LABELS = Arrays.copyOf(labels, nodes);
+    this.END = Arrays.copyOf(end, nodes);
+    this.POSTING_START = Arrays.copyOf(postingStart, nodes + 1);
+    this.ROWS = rows;
+    this.JAPANESE_START = japaneseStart;
+    this.MAX_LENGTH = maxLength;
+  }
+
+  /**
+   * Finds the rows whose name is the given name, ignoring case, spaces and punctuation
+   *
+   * @param name  the name to look up
+   * @param match rows that may be returned, null for every row
+   * @return the matching rows in row order
+   */
+  public int[] exact(String name, long[] match) {
+    int node = find(normalize(name));
+    if (node < 0)
+      return new int[0];
+    Selection selection =
+        new Selection(this.POSTING_START[node + 1] - this.POSTING_START[node]);
+    select(node, false, match, selection);
+    select(node, true, match, selection);
+    int[] rows = selection.rows();
+    Arrays.sort(rows);
+    return rows;
+  }
+
+  /**
+   * Counts the postings of the names that are, or start with, the given name, at least as many
+   * as the rows addMatches adds
+   *
+   * @param name   the name or the start of the name
+   * @param prefix true to count every name starting with name
+   * @return the number of postings
+   */
+  public int count(String name, boolean prefix) {
+    int node = find(normalize(name));
+    if (node < 0)
+      return 0;
+    return this.POSTING_START[prefix ? this.END[node] : node + 1] - this.POSTING_START[node];
+  }
+
+  /**
+   * Sets the bits of the rows whose name or Japanese name is, or starts with, the given name.
+   * The keys below a node own the postings between the node and the end of its subtree, so a
+   * prefix reads one run of postings
+   *
+   * @param name   the name or the start of the name
+   * @param prefix true to add every name starting with name
+   * @param out    the bitset to add the rows to
+   */
+  public void addMatches(String name, boolean prefix, long[] out) {
+    int node = find(normalize(name));
+    if (node < 0)
+      return;
+    int end = this.POSTING_START[prefix ? this.END[node] : node + 1];
+    for (int posting = this.POSTING_START[node]; posting < end; ++posting)
+      out[this.ROWS[posting] >>> 6] |= 1L << this.ROWS[posting];
+  }
+
+  /**
+   * Finds the rows with a name starting with the given prefix, English names before Japanese
+   * names and shortest names first
+   *
+   * @param prefix the start of the name
+   * @param count  the most rows to return
+   * @param match  rows that may be returned, null for every row
+   * @return up to count rows, best first
+   */
+  public int[] complete(String prefix, int count, long[] match) {
+    String key = normalize(prefix);
+    int node = find(key);
+    if (node < 0 || count <= 0)
+      return new int[0];
+    Selection selection = new Selection(Math.min(count, this.ROWS.length));
+    // a breadth first walk of the node's subtree visits its keys shortest first and in key order
+    // within a length, and stops as soon as the English postings fill the selection
+    int[] queue = new int[16];
+    queue[0] = node;
+    int queued = 1;
+    for (int head = 0; head < queued; ++head) {
+      int current = queue[head];
+      if (select(current, false, match, selection))
+        return selection.rows();
+      for (int child = current + 1; child < this.END[current]; child = this.END[child]) {
+        if (queued == queue.length)
+          queue = Arrays.copyOf(queue, queued * 2);
+        queue[queued++] = child;
+      }
+    }
+    // the walk covered the whole subtree, whose Japanese postings rank below every English one
+    for (int i = 0; i < queued; ++i)
+      if (select(queue[i], true, match, selection))
+        return selection.rows();
+    return selection.rows();
+  }
+
+  /**
+   * Finds the rows with a name at most a number of typos away from the given name, where a typo
+   * is a missing, extra or wrong character or two swapped neighbours
+   *
+   * @param name     the name to look up
+   * @param maxEdits the most typos to allow, clamped to MAX_EDITS
+   * @param count    the most rows to return
+   * @param match    rows that may be returned, null for every row
+   * @return up to count rows, fewest typos first, then English names first, then shortest names
+   *         first
+   */
+  public int[] search(String name, int maxEdits, int count, long[] match) {
+    String query = normalize(name);
+    if (count <= 0)
+      return new int[0];
+    maxEdits = Math.max(0, Math.min(maxEdits, MAX_EDITS));
+    int maxLength = this.MAX_LENGTH;
+    // one row of the edit distance table per depth of the walk, row d compares the query with
+    // the first d characters of the path
+    int[][] distances = new int[maxLength + 2][query.length() + 1];
+    for (int j = 0; j <= query.length(); ++j)
+      distances[0][j] = j;
+    char[] path = new char[maxLength + 1];
+    long[][] candidates = {new long[16]};
+    int found = collect(0, 0, query, maxEdits, distances, path, candidates, 0);
+    long[] sorted = Arrays.copyOf(candidates[0], found);
+    Arrays.sort(sorted);
+
+    Selection selection = new Selection(Math.min(count, this.ROWS.length));
+    for (int group = 0; group < sorted.length; ) {
+      // candidates with as many typos, English postings are read first
+      long distance = sorted[group] >>> (LENGTH_BITS + NODE_BITS);
+      int groupEnd = group;
+      while (groupEnd < sorted.length
+          && sorted[groupEnd] >>> (LENGTH_BITS + NODE_BITS) == distance)
+        ++groupEnd;
+      for (int japanese = 0; japanese < 2; ++japanese)
+        for (int i = group; i < groupEnd; ++i)
+          if (select((int) sorted[i], japanese == 1, match, selection))
+            return selection.rows();
+      group = groupEnd;
+    }
+    return selection.rows();
+  }
+
+  /**
+   * Walks the children of a node, extending the edit distance table by one row per character and
+   * skipping every subtree whose cheapest alignment already needs more than maxEdits typos. Every
+   * key node within maxEdits is recorded as a candidate ordered by typos, key length and node
+   *
+   * @return the number of candidates recorded
+   */
+  private int collect(int node, int depth, String query, int maxEdits, int[][] distances,
+      char[] path, long[][] candidates, int found) {
+    int[] above = distances[depth];
+    int distance = above[query.length()];
+    if (distance <= maxEdits && this.POSTING_START[node] < this.POSTING_START[node + 1]) {
+      if (found == candidates[0].length)
+        candidates[0] = Arrays.copyOf(candidates[0], found * 2);
+      candidates[0][found++] =
+          (long) distance << (LENGTH_BITS + NODE_BITS) | (long) depth << NODE_BITS | node;
+    }
+
+    int[] current = distances[depth + 1];
+    for (int child = node + 1; child < this.END[node]; child = this.END[child]) {
+      char label = this.LABELS[child];
+      path[depth] = label;
+      current[0] = depth + 1;
+      int cheapest = current[0];
+      for (int j = 1; j <= query.length(); ++j) {
+        char wanted = query.charAt(j - 1);
+        int cost = Math.min(Math.min(above[j] + 1, current[j - 1] + 1),
+            above[j - 1] + (wanted == label ? 0 : 1));
+        // two swapped neighbours count as a single typo
+        if (depth > 0 && j > 1 && wanted == path[depth - 1] && query.charAt(j - 2) == label)
+          cost = Math.min(cost, distances[depth - 1][j - 2] + 1);
+        current[j] = cost;
+        cheapest = Math.min(cheapest, cost);
+      }
+      if (cheapest <= maxEdits)
+        found = collect(child, depth + 1, query, maxEdits, distances, path, candidates, found);
+    }
+    return found;
+  }
+
+  /**
+   * Adds the rows of a key node's English or Japanese postings to a selection
+   *
+   * @return true once the selection is full
+   */
+  private boolean select(int node, boolean japanese, long[] match, Selection selection) {
+    int end = japanese ? this.POSTING_START[node + 1] : this.JAPANESE_START[node];
+    for (int posting = japanese ? this.JAPANESE_START[node] : this.POSTING_START[node];
+        posting < end; ++posting) {
+      int row = this.ROWS[posting];
+      if ((match == null || (match[row >>> 6] & 1L << row) != 0) && selection.add(row))
+        return true;
+    }
+    return selection.isFull();
+  }
+
+  /**
+   * Follows a key down from the root
+   *
+   * @return the node the key ends at, or -1 if no name starts with it
+   */
+  private int find(String key) {
+    int node = 0;
+    for (int i = 0; i < key.length() && node >= 0; ++i)
+      node = child(node, key.charAt(i));
+    return node;
+  }
+
+  /**
+   * Finds the child of a node reached by a character. Children are in character order, so the
+   * scan stops at the first larger label
+   *
+   * @return the child, or -1 if there is none
+   */
+  private int child(int node, char label) {
+    for (int child = node + 1; child < this.END[node]; child = this.END[child]) {
+      if (this.LABELS[child] == label)
+        return child;
+      if (this.LABELS[child] > label)
+        break;
+    }
+    return -1;
+  }
+
+  /**
+   * Reduces a name to the key it is indexed under: its letters and digits, lower cased
+   *
+   * @param name the name
+   * @return the key
+   */
+  public static String normalize(String name) {
+    StringBuilder key = new StringBuilder(name.length());
+    appendKey(name, 0, name.length(), key);
+    return key.toString();
+  }
+
+  /**
+   * Appends the key of part of a name
+   */
+  private static void appendKey(String name, int start, int end, StringBuilder key) {
+    for (int i = start; i < end; ) {
+      int codePoint = name.codePointAt(i);
+      if (Character.isLetterOrDigit(codePoint))
+        key.appendCodePoint(Character.toLowerCase(codePoint));
+      i += Character.charCount(codePoint);
+    }
+  }
+
+  /**
+   * Gets the ids of the keys of every part of a name written in a single script, so a Japanese
+   * name such as "Fushigidaneフシギダネ" is found by its romanization and by its katakana. Keys
+   * seen for the first time are given the next id
+   */
+  private static int[] keyIds(String name, Map<String, Integer> ids, List<String> texts) {
+    int[] keys = new int[0];
+    StringBuilder key = new StringBuilder();
+    int start = 0;
+    while (start < name.length()) {
+      boolean latin = isLatin(name.codePointAt(start));
+      int end = start;
+      while (end < name.length() && isLatin(name.codePointAt(end)) == latin)
+        end += Character.charCount(name.codePointAt(end));
+      key.setLength(0);
+      appendKey(name, start, end, key);
+      if (key.length() > 0) {
+        String text = key.toString();
+        Integer id = ids.get(text);
+        if (id == null) {
+          id = texts.size();
+          ids.put(text, id);
+          texts.add(text);
+        }
+        keys = Arrays.copyOf(keys, keys.length + 1);
+        keys[keys.length - 1] = id;
+      }
+      start = end;
+    }
+    return keys;
+  }
+
+  /**
+   * Checks whether a character belongs to an English name rather than a katakana one. Digits and
+   * punctuation are shared by both and stay with the Latin part
+   */
+  private static boolean isLatin(int codePoint) {
+    Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+    return script != Character.UnicodeScript.KATAKANA
+        && script != Character.UnicodeScript.HIRAGANA && script != Character.UnicodeScript.HAN;
+  }
+
+  /**
+   * Collects distinct rows in the order they are added, up to a capacity
+   */
+  private static final class Selection {
+
+    // rows added, in order
+    private final int[] ROWS;
+    // open addressing set of the rows added, -1 marks a free slot
+    private final int[] SEEN;
+    // shift that keeps the top bits of a hash, as many as index SEEN
+    private final int SHIFT;
+    // number of rows added
+    private int size;
+
+    private Selection(int capacity) {
+      this.ROWS = new int[capacity];
+      this.SEEN = new int[Integer.highestOneBit(Math.max(1, capacity)) * 4];
+      Arrays.fill(this.SEEN, -1);
+      this.SHIFT = Integer.numberOfLeadingZeros(this.SEEN.length - 1);
+    }
+
+    /**
+     * Adds a row unless it was added before
+     *
+     * @return true once the selection is full
+     */
+    private boolean add(int row) {
+      if (this.size == this.ROWS.length)
+        return true;
+      int mask = this.SEEN.length - 1;
+      int slot = row * 0x9E3779B9 >>> this.SHIFT;
+      while (this.SEEN[slot] >= 0) {
+        if (this.SEEN[slot] == row)
+          return false;
+        slot = slot + 1 & mask;
+      }
+      this.SEEN[slot] = row;
+      this.ROWS[this.size++] = row;
+      return this.size == this.ROWS.length;
+    }
+
+    /**
+     * Checks whether the selection holds as many rows as it can
+     */
+    private boolean isFull() {
+      return this.size == this.ROWS.length;
+    }
+
+    /**
+     * Gets the rows added, in order
+     */
+    private int[] rows() {
+      return this.size == this.ROWS.length ? this.ROWS : Arrays.copyOf(this.ROWS, this.size);
+    }
+  }
+}
@@ -0,0 +1,199 @@
+import java.util.Arrays;
+
+/**
+ * Class that counts how often every pair of pokemon is used together, by the dense ids a &lt; b
+ * of the pair at index b * (b - 1) / 2 + a of a lower triangular matrix. Indexes are longs, so
+ * the matrix has room for every pair of 65536 pokedex numbers
+ *
+ * <p>While the matrix fits in MAX_DENSE_PAIRS, counts are kept in one flat array of the whole
+ * matrix, which is the fastest to count into. Beyond that the array alone would take gigabytes
+ * per worker, so counts are kept in an open addressing table of the pairs seen so far instead,
+ * which a team of six members grows by at most 15 pairs
+ */
+public class PokemonPairCounts {
+
+  // most pairs counted in a flat array, 16 MB of counts
+  public static final int MAX_DENSE_PAIRS = 1 << 21;
+  // slots of a new table
+  private static final int MIN_SLOTS = 1 << 10;
+  // golden ratio multiplier spreading indexes over the slots of the table
+  private static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+  // count of every pair in the matrix, null when counts are kept in the table
+  private final long[] DENSE;
+  // pair index plus one in every slot of the table, 0 for an empty slot
+  private long[] keys;
+  // count of the pair in every slot of the table
+  private long[] counts;
+  // number of pairs in the table
+  private int size;
+
+  /**
+   * Constructor that counts no pair yet
+   *
+   * @param ids the number of dense ids
+   */
+  public PokemonPairCounts(int ids) {
+    long pairs = (long) ids * (ids - 1) / 2;
+    this.DENSE = pairs <= MAX_DENSE_PAIRS ? new long[(int) pairs] : null;
+    if (this.DENSE == null) {
+      this.keys = new long[MIN_SLOTS];
+      this.counts = new long[MIN_SLOTS];
+    }
+  }
+
+  /**
+   * Gets the index of a pair of dense ids in the matrix
+   *
+   * @param a a dense id
+   * @param b another dense id
+   * @return the index of the pair
+   */
+  public static long index(int a, int b) {
+    return a < b ? (long) b * (b - 1) / 2 + a : (long) a * (a - 1) / 2 + b;
+  }
+
+  /**
+   * Gets the pair of dense ids at an index of the matrix
+   *
+   * @param index the index of the pair
+   * @return the smaller and the larger id
+   */
+  public static int[] pair(long index) {
+    // the larger id is the row of the triangle the index falls in
+    long b = (long) ((1 + Math.sqrt(1 + 8.0 * index)) / 2);
+    while (b * (b - 1) / 2 > index)
+      --b;
+    while ((b + 1) * b / 2 <= index)
+      ++b;
+    return new int[]{(int) (index - b * (b - 1) / 2), (int) b};
+  }
+
+  /**
+   * Adds one to the count of a pair
+   *
+   * @param index the index of the pair
+   */
+  public void increment(long index) {
+    add(index, 1);
+  }
+
+  /**
+   * Adds to the count of a pair
+   *
+   * @param index the index of the pair
+   * @param count the count to add
+   */
+  public void add(long index, long count) {
+    if (this.DENSE != null) {
+      this.DENSE[(int) index] += count;
+      return;
+    }
+    int slot = slot(index);
+    if (this.keys[slot] == 0) {
+      // the table is kept at most half full
+      if (2 * (this.size + 1) > this.keys.length) {
+        grow();
+        slot = slot(index);
+      }
+      this.keys[slot] = index + 1;
+      ++this.size;
+    }
+    this.counts[slot] += count;
+  }
+
+  /**
+   * Adds the counts of other pairs into these, which must have the same number of ids
+   *
+   * @param other the counts to add
+   */
+  public void addAll(PokemonPairCounts other) {
+    if (other.DENSE != null) {
+      for (int i = 0; i < other.DENSE.length; ++i)
+        this.DENSE[i] += other.DENSE[i];
+      return;
+    }
+    for (int slot = 0; slot < other.keys.length; ++slot)
+      if (other.keys[slot] != 0)
+        add(other.keys[slot] - 1, other.counts[slot]);
+  }
+
+  /**
+   * Gets the count of a pair
+   *
+   * @param index the index of the pair
+   * @return the count, 0 for pairs never counted
+   */
+  public long get(long index) {
+    if (this.DENSE != null)
+      return this.DENSE[(int) index];
+    int slot = slot(index);
+    return this.keys[slot] == 0 ? 0 : this.counts[slot];
+  }
+
+  /**
+   * Finds the indexes of the largest nonzero counts, largest first and ties by index
+   *
+   * @param count the most indexes to return
+   * @return up to count indexes of pairs
+   */
+  public long[] top(int count) {
+    long[] best = new long[Math.max(0, count)];
+    long[] bestCounts = new long[best.length];
+    int found = 0;
+    if (best.length == 0)
+      return best;
+    int entries = this.DENSE != null ? this.DENSE.length : this.keys.length;
+    for (int i = 0; i < entries; ++i) {
+      long index = this.DENSE != null ? i : this.keys[i] - 1;
+      long current = this.DENSE != null ? this.DENSE[i] : this.counts[i];
+      if (index < 0 || current == 0 || found == best.length && !before(current, index,
+          bestCounts[found - 1], best[found - 1]))
+        continue;
+      // insert into the sorted run, dropping the smallest when it is full
+      int at = found < best.length ? found++ : found - 1;
+      while (at > 0 && before(current, index, bestCounts[at - 1], best[at - 1])) {
+        best[at] = best[at - 1];
+        bestCounts[at] = bestCounts[at - 1];
+        --at;
+      }
+      best[at] = index;
+      bestCounts[at] = current;
+    }
+    return Arrays.copyOf(best, found);
+  }
+
+  /**
+   * Checks if a count ranks before another, larger counts first and ties by smaller index
+   */
+  private static boolean before(long count, long index, long otherCount, long otherIndex) {
+    return count > otherCount || count == otherCount && index < otherIndex;
+  }
+
+  /**
+   * Finds the slot of a pair in the table, or the empty slot it would go in
+   */
+  private int slot(long index) {
+    int mask = this.keys.length - 1;
+    int slot = (int) ((index + 1) * SPREAD >>> 32) & mask;
+    while (this.keys[slot] != 0 && this.keys[slot] != index + 1)
+      slot = (slot + 1) & mask;
+    return slot;
+  }
+
+  /**
+   * Doubles the slots of the table
+   */
+  private void grow() {
+    long[] oldKeys = this.keys;
+    long[] oldCounts = this.counts;
+    this.keys = new long[oldKeys.length * 2];
+    this.counts = new long[oldKeys.length * 2];
+    for (int slot = 0; slot < oldKeys.length; ++slot)
+      if (oldKeys[slot] != 0) {
+        int at = slot(oldKeys[slot] - 1);
+        this.keys[at] = oldKeys[slot];
+        this.counts[at] = oldCounts[slot];
+      }
+  }
+}
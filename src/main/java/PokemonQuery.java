@@ -0,0 +1,368 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Class representing a parsed query of the query language, a conjunction of whitespace separated
+ * terms, each negated by a leading !. For example, fire or dragon types of the first three
+ * generations with a speed of at least 100 that are not legendary and whose name starts with char:
+ *
+ * <pre>
+ *   type:fire|dragon gen:1..3 speed&gt;=100 !legendary name:char*
+ * </pre>
+ *
+ * <p>The terms are:
+ * <ul>
+ *   <li>type:a|b, either type of the pokemon is one of the types</li>
+ *   <li>gen:a|b, gen:a..b, the generation is one of the generations or in the range, an
+ *   inverted range such as 3..1 holding none</li>
+ *   <li>ability:a|b, the pokemon can have one of the abilities, with _ for spaces</li>
+ *   <li>name:a, name:a*, the name or Japanese name is, or starts with, a, ignoring case, spaces
+ *   and punctuation</li>
+ *   <li>legendary, the pokemon is legendary</li>
+ *   <li>s&gt;=n, s&gt;n, s&lt;=n, s&lt;n, s=n, s:n, s:a..b, the stat or dex number s compares
+ *   to n or lies in the inclusive range, whose ends may be left out</li>
+ * </ul>
+ *
+ * <p>A parsed query does not depend on a dataset. Its text is normalised, so queries that only
+ * differ in case, spacing, term order or how a range is written share one plan
+ */
+public class PokemonQuery {
+
+  // terms of the query, in normalised text order
+  private final List<Term> TERMS;
+  // normalised text of the query
+  private final String TEXT;
+
+  private PokemonQuery(List<Term> terms, String text) {
+    this.TERMS = terms;
+    this.TEXT = text;
+  }
+
+  /**
+   * Parses a query
+   *
+   * @param text the query text, empty for a query matching everything
+   * @return the parsed query
+   * @throws IllegalArgumentException if a term is not part of the language
+   */
+  public static PokemonQuery parse(String text) {
+    // a sorted set drops repeated terms and orders the rest by their normalised text
+    TreeSet<Term> terms = new TreeSet<>((a, b) -> a.TEXT.compareTo(b.TEXT));
+    for (String term : text.trim().split("\\s+"))
+      if (!term.isEmpty())
+        terms.add(parseTerm(term));
+    StringBuilder normalised = new StringBuilder();
+    for (Term term : terms)
+      normalised.append(normalised.length() == 0 ? "" : " ").append(term.TEXT);
+    return new PokemonQuery(List.copyOf(terms), normalised.toString());
+  }
+
+  /**
+   * Parses a single term
+   */
+  private static Term parseTerm(String term) {
+    boolean negated = term.startsWith("!");
+    String body = (negated ? term.substring(1) : term).toLowerCase(Locale.ROOT);
+    if (body.equals("legendary"))
+      return new Term(Kind.LEGENDARY, negated, null, 0, 0, 0, null);
+    int colon = body.indexOf(':');
+    if (colon > 0) {
+      String field = body.substring(0, colon);
+      String value = body.substring(colon + 1);
+      switch (field) {
+        case "type":
+          return new Term(Kind.TYPE, negated, null, typeMask(value), 0, 0, null);
+        case "gen":
+        case "generation":
+          return new Term(Kind.GENERATION, negated, null, generationMask(value), 0, 0, null);
+        case "ability":
+          return new Term(Kind.ABILITY, negated, null, 0, 0, 0, abilities(value));
+        case "name":
+          boolean prefix = value.endsWith("*");
+          String key = PokemonNameIndex.normalize(prefix ? value.substring(0, value.length() - 1)
+              : value);
+          if (key.isEmpty() && !prefix)
+            throw new IllegalArgumentException("Invalid query term: " + term);
+          return new Term(prefix ? Kind.NAME_PREFIX : Kind.NAME, negated, null, 0, 0, 0,
+              List.of(key));
+        default:
+          int dots = value.indexOf("..");
+          if (dots < 0)
+            return range(term, negated, field, "=", value);
+          return new Term(Kind.RANGE, negated, numericKey(field),
+              0, dots == 0 ? Integer.MIN_VALUE : number(value.substring(0, dots)),
+              dots + 2 == value.length() ? Integer.MAX_VALUE : number(value.substring(dots + 2)),
+              null);
+      }
+    }
+    for (String operator : new String[]{">=", "<=", ">", "<", "="}) {
+      int at = body.indexOf(operator);
+      if (at > 0)
+        return range(term, negated, body.substring(0, at), operator,
+            body.substring(at + operator.length()));
+    }
+    throw new IllegalArgumentException("Invalid query term: " + term);
+  }
+
+  /**
+   * Builds the range term of a comparison
+   */
+  private static Term range(String term, boolean negated, String field, String operator,
+      String value) {
+    PokemonSortKey key = numericKey(field);
+    int number = number(value);
+    switch (operator) {
+      case ">=":
+        return new Term(Kind.RANGE, negated, key, 0, number, Integer.MAX_VALUE, null);
+      case ">":
+        return number == Integer.MAX_VALUE ? new Term(Kind.RANGE, negated, key, 0, 1, 0, null)
+            : new Term(Kind.RANGE, negated, key, 0, number + 1, Integer.MAX_VALUE, null);
+      case "<=":
+        return new Term(Kind.RANGE, negated, key, 0, Integer.MIN_VALUE, number, null);
+      case "<":
+        return number == Integer.MIN_VALUE ? new Term(Kind.RANGE, negated, key, 0, 1, 0, null)
+            : new Term(Kind.RANGE, negated, key, 0, Integer.MIN_VALUE, number - 1, null);
+      default:
+        return new Term(Kind.RANGE, negated, key, 0, number, number, null);
+    }
+  }
+
+  /**
+   * Finds the stat or dex number a range term compares
+   */
+  private static PokemonSortKey numericKey(String field) {
+    PokemonSortKey key = PokemonSortKey.parse(field);
+    if (key == PokemonSortKey.NAME)
+      throw new IllegalArgumentException("Cannot compare names, use name:");
+    return key;
+  }
+
+  /**
+   * Parses a number of a range term
+   */
+  private static int number(String value) {
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException nfe) {
+      throw new IllegalArgumentException("Not a number: " + value);
+    }
+  }
+
+  /**
+   * Parses the | separated types of a type term into a mask of their ordinals
+   */
+  private static long typeMask(String value) {
+    long mask = 0;
+    for (String type : value.split("\\|"))
+      try {
+        mask |= 1L << PokemonTypes.valueOf(type.toUpperCase(Locale.ROOT)).ordinal();
+      } catch (IllegalArgumentException iae) {
+        throw new IllegalArgumentException("Unknown type: " + type);
+      }
+    return mask;
+  }
+
+  /**
+   * Parses the | separated generations and generation ranges of a generation term into a mask
+   */
+  private static long generationMask(String value) {
+    long mask = 0;
+    for (String generations : value.split("\\|")) {
+      int dots = generations.indexOf("..");
+      int from = dots == 0 ? 0 : number(dots < 0 ? generations : generations.substring(0, dots));
+      int to = dots < 0 ? from : dots + 2 == generations.length()
+          ? PokemonFilterIndex.MAX_GENERATION : number(generations.substring(dots + 2));
+      if (from < 0 || to > PokemonFilterIndex.MAX_GENERATION)
+        throw new IllegalArgumentException("Generations go from 0 to "
+            + PokemonFilterIndex.MAX_GENERATION + ": " + generations);
+      for (int generation = from; generation <= to; ++generation)
+        mask |= 1L << generation;
+    }
+    return mask;
+  }
+
+  /**
+   * Parses the | separated abilities of an ability term, sorted and without repeats
+   */
+  private static List<String> abilities(String value) {
+    TreeSet<String> abilities = new TreeSet<>();
+    for (String ability : value.split("\\|"))
+      if (!ability.isEmpty())
+        abilities.add(ability.replace('_', ' '));
+    if (abilities.isEmpty())
+      throw new IllegalArgumentException("Invalid query term: ability:" + value);
+    return List.copyOf(abilities);
+  }
+
+  /**
+   * Gets the terms of the query
+   *
+   * @return the terms in normalised text order
+   */
+  public List<Term> getTerms() {
+    return this.TERMS;
+  }
+
+  /**
+   * Gets the normalised text of the query, which parses to an equal query
+   *
+   * @return the normalised text
+   */
+  @Override public String toString() {
+    return this.TEXT;
+  }
+
+  /**
+   * Kinds of term of the query language
+   */
+  public enum Kind {
+    TYPE,
+    GENERATION,
+    ABILITY,
+    NAME,
+    NAME_PREFIX,
+    LEGENDARY,
+    RANGE
+  }
+
+  /**
+   * Class representing a single term of a query
+   */
+  public static final class Term {
+
+    // what the term restricts
+    private final Kind KIND;
+    // true if the term excludes the pokemon it describes
+    private final boolean NEGATED;
+    // stat or dex number of a range term, null for other kinds
+    private final PokemonSortKey KEY;
+    // type ordinals of a type term or generations of a generation term
+    private final long MASK;
+    // inclusive range of a range term
+    private final int MIN;
+    private final int MAX;
+    // lower cased abilities of an ability term or the name key of a name term
+    private final List<String> NAMES;
+    // normalised text of the term
+    private final String TEXT;
+
+    private Term(Kind kind, boolean negated, PokemonSortKey key, long mask, int min, int max,
+        List<String> names) {
+      this.KIND = kind;
+      this.NEGATED = negated;
+      this.KEY = key;
+      this.MASK = mask;
+      this.MIN = min;
+      this.MAX = max;
+      this.NAMES = names;
+      this.TEXT = (negated ? "!" : "") + text();
+    }
+
+    /**
+     * Writes the term without its negation
+     */
+    private String text() {
+      switch (this.KIND) {
+        case TYPE:
+          List<String> types = new ArrayList<>();
+          for (PokemonTypes type : PokemonTypes.values())
+            if ((this.MASK & 1L << type.ordinal()) != 0)
+              types.add(type.name().toLowerCase(Locale.ROOT));
+          return "type:" + String.join("|", types);
+        case GENERATION:
+          List<String> generations = new ArrayList<>();
+          for (long mask = this.MASK; mask != 0; mask &= mask - 1)
+            generations.add(Integer.toString(Long.numberOfTrailingZeros(mask)));
+          // inverted ranges such as 3..1 leave no generation, and read like an empty range term
+          return "gen:" + (generations.isEmpty() ? "1..0" : String.join("|", generations));
+        case ABILITY:
+          return "ability:" + String.join("|", this.NAMES).replace(' ', '_');
+        case NAME:
+          return "name:" + this.NAMES.get(0);
+        case NAME_PREFIX:
+          return "name:" + this.NAMES.get(0) + "*";
+        case LEGENDARY:
+          return "legendary";
+        default:
+          // every empty range reads the same
+          return this.KEY.name().toLowerCase(Locale.ROOT) + ":"
+              + (this.MIN > this.MAX ? "1..0" : (this.MIN == Integer.MIN_VALUE ? "" : this.MIN)
+              + ".." + (this.MAX == Integer.MAX_VALUE ? "" : this.MAX));
+      }
+    }
+
+    /**
+     * Gets what the term restricts
+     *
+     * @return the kind of term
+     */
+    public Kind getKind() {
+      return this.KIND;
+    }
+
+    /**
+     * Checks if the term excludes the pokemon it describes
+     *
+     * @return true for a term with a leading !
+     */
+    public boolean isNegated() {
+      return this.NEGATED;
+    }
+
+    /**
+     * Gets the stat or dex number of a range term
+     *
+     * @return the sort key, null for other kinds
+     */
+    public PokemonSortKey getKey() {
+      return this.KEY;
+    }
+
+    /**
+     * Gets the types of a type term or the generations of a generation term
+     *
+     * @return bit i is set for the type with ordinal i or generation i
+     */
+    public long getMask() {
+      return this.MASK;
+    }
+
+    /**
+     * Gets the lowest value of a range term
+     *
+     * @return the lowest accepted value, Integer.MIN_VALUE if there is none
+     */
+    public int getMin() {
+      return this.MIN;
+    }
+
+    /**
+     * Gets the highest value of a range term
+     *
+     * @return the highest accepted value, Integer.MAX_VALUE if there is none
+     */
+    public int getMax() {
+      return this.MAX;
+    }
+
+    /**
+     * Gets the abilities of an ability term or the name key of a name term
+     *
+     * @return the lower cased names
+     */
+    public List<String> getNames() {
+      return this.NAMES;
+    }
+
+    /**
+     * Gets the normalised text of the term
+     *
+     * @return the text, with a leading ! if it is negated
+     */
+    @Override public String toString() {
+      return this.TEXT;
+    }
+  }
+}
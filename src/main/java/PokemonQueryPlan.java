@@ -0,0 +1,317 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class representing a PokemonQuery compiled against one dataset, ready to be run any number of
+ * times
+ *
+ * <p>A plan runs in three steps. The positive term with the fewest rows in its index, whether the
+ * type or generation bitsets, the ability postings, the name trie or the slice of a stat's sort
+ * order, gives the rows everything else is checked on. The legendary term is then applied a word
+ * at a time. Every other term was folded into plain arrays when the plan was compiled, types
+ * into masks, stat comparisons into ranges, abilities into ids, and a single evaluator checks all
+ * of them on every row left, so rows never go through a chain of predicate objects
+ */
+public class PokemonQueryPlan {
+
+  // the query the plan was compiled from
+  private final PokemonQuery QUERY;
+  // the dataset the plan reads
+  private final PokemonDataset DATASET;
+  // true if some positive term matches no row of the dataset
+  private final boolean EMPTY;
+  // positive term whose index gives the rows to check, null to check the rows given
+  private final PokemonQuery.Term DRIVER;
+  // ability ids of the driver when it is an ability term
+  private final int[] DRIVER_ABILITIES;
+  // required legendary status, -1 if either is accepted
+  private final int LEGENDARY;
+  // type masks a row must have one of the types of, one per positive type term
+  private final long[] TYPES_ANY;
+  // types a row must have neither of its types in
+  private final long TYPES_NONE;
+  // generations a row may be of, -1 if every generation is accepted
+  private final long GENERATIONS;
+  // key of every range a row is checked against
+  private final PokemonSortKey[] RANGE_KEYS;
+  // inclusive bounds of every range
+  private final int[] RANGE_MIN;
+  private final int[] RANGE_MAX;
+  // true for a range the key must lie in, false for one it must lie outside
+  private final boolean[] RANGE_INSIDE;
+  // abilities a row must have one of, one array per positive ability term
+  private final int[][] ABILITIES_ANY;
+  // abilities a row must have none of
+  private final int[] ABILITIES_NONE;
+  // name terms checked on every row, looked up in the trie on every run
+  private final PokemonQuery.Term[] NAMES;
+  // true if any term is checked row by row
+  private final boolean RESIDUAL;
+
+  /**
+   * Constructor that compiles a query against a dataset
+   *
+   * @param query   the parsed query
+   * @param dataset the dataset the plan will run on
+   */
+  public PokemonQueryPlan(PokemonQuery query, PokemonDataset dataset) {
+    this.QUERY = query;
+    this.DATASET = dataset;
+    PokemonStore store = dataset.getStore();
+
+    // the driver is the positive indexed term matching the fewest rows
+    boolean empty = false;
+    PokemonQuery.Term driver = null;
+    long fewest = Long.MAX_VALUE;
+    for (PokemonQuery.Term term : query.getTerms()) {
+      if (term.isNegated() || term.getKind() == PokemonQuery.Kind.LEGENDARY)
+        continue;
+      long rows = estimate(term, dataset);
+      // type and generation estimates only count the rows of the default filters
+      empty |= rows == 0 && term.getKind() != PokemonQuery.Kind.TYPE
+          && term.getKind() != PokemonQuery.Kind.GENERATION;
+      if (rows < fewest) {
+        fewest = rows;
+        driver = term;
+      }
+    }
+    this.DRIVER = driver;
+    this.DRIVER_ABILITIES = driver != null && driver.getKind() == PokemonQuery.Kind.ABILITY
+        ? abilityIds(store, driver.getNames()) : null;
+
+    int legendary = -1;
+    List<Long> typesAny = new ArrayList<>();
+    long typesNone = 0;
+    long generations = -1L;
+    List<PokemonQuery.Term> ranges = new ArrayList<>();
+    List<int[]> abilitiesAny = new ArrayList<>();
+    List<Integer> abilitiesNone = new ArrayList<>();
+    List<PokemonQuery.Term> names = new ArrayList<>();
+    for (PokemonQuery.Term term : query.getTerms()) {
+      if (term == driver)
+        continue;
+      switch (term.getKind()) {
+        case LEGENDARY:
+          // legendary and !legendary together match nothing
+          empty |= legendary >= 0 && legendary != (term.isNegated() ? 0 : 1);
+          legendary = term.isNegated() ? 0 : 1;
+          break;
+        case TYPE:
+          if (term.isNegated())
+            typesNone |= term.getMask();
+          else
+            typesAny.add(term.getMask());
+          break;
+        case GENERATION:
+          generations &= term.isNegated() ? ~term.getMask() : term.getMask();
+          break;
+        case ABILITY:
+          int[] ids = abilityIds(store, term.getNames());
+          if (term.isNegated())
+            for (int id : ids)
+              abilitiesNone.add(id);
+          else
+            abilitiesAny.add(ids);
+          break;
+        case RANGE:
+          ranges.add(term);
+          break;
+        default:
+          names.add(term);
+      }
+    }
+    this.EMPTY = empty;
+    this.LEGENDARY = legendary;
+    this.TYPES_ANY = typesAny.stream().mapToLong(Long::longValue).toArray();
+    this.TYPES_NONE = typesNone;
+    this.GENERATIONS = generations;
+    this.RANGE_KEYS = new PokemonSortKey[ranges.size()];
+    this.RANGE_MIN = new int[ranges.size()];
+    this.RANGE_MAX = new int[ranges.size()];
+    this.RANGE_INSIDE = new boolean[ranges.size()];
+    for (int i = 0; i < ranges.size(); ++i) {
+      this.RANGE_KEYS[i] = ranges.get(i).getKey();
+      this.RANGE_MIN[i] = ranges.get(i).getMin();
+      this.RANGE_MAX[i] = ranges.get(i).getMax();
+      this.RANGE_INSIDE[i] = !ranges.get(i).isNegated();
+    }
+    this.ABILITIES_ANY = abilitiesAny.toArray(new int[0][]);
+    this.ABILITIES_NONE = abilitiesNone.stream().mapToInt(Integer::intValue).toArray();
+    this.NAMES = names.toArray(new PokemonQuery.Term[0]);
+    this.RESIDUAL = this.TYPES_ANY.length > 0 || this.TYPES_NONE != 0 || this.GENERATIONS != -1L
+        || ranges.size() > 0 || this.ABILITIES_ANY.length > 0 || this.ABILITIES_NONE.length > 0
+        || this.NAMES.length > 0;
+  }
+
+  /**
+   * Estimates how many rows a positive term matches from its index
+   */
+  private static long estimate(PokemonQuery.Term term, PokemonDataset dataset) {
+    long rows = 0;
+    switch (term.getKind()) {
+      case TYPE:
+        // pokemon of two of the types count twice, which only matters against close estimates
+        for (PokemonTypes type : PokemonTypes.values())
+          if ((term.getMask() & 1L << type.ordinal()) != 0)
+            rows += dataset.getDefaultFacets().getTypeCount(type);
+        return rows;
+      case GENERATION:
+        for (long mask = term.getMask(); mask != 0; mask &= mask - 1)
+          rows += dataset.getDefaultFacets().getGenerationCount(Long.numberOfTrailingZeros(mask));
+        return rows;
+      case ABILITY:
+        for (int id : abilityIds(dataset.getStore(), term.getNames()))
+          rows += dataset.getAbilityIndex().count(id);
+        return rows;
+      case NAME:
+      case NAME_PREFIX:
+        return dataset.getNameIndex().count(term.getNames().get(0),
+            term.getKind() == PokemonQuery.Kind.NAME_PREFIX);
+      default:
+        return dataset.getSortIndex().count(term.getKey(), term.getMin(), term.getMax());
+    }
+  }
+
+  /**
+   * Looks up the ids of ability names in a store, leaving out the names it does not have
+   */
+  private static int[] abilityIds(PokemonStore store, List<String> abilities) {
+    int[] ids = new int[abilities.size()];
+    int found = 0;
+    for (String ability : abilities) {
+      int id = store.findAbility(ability);
+      if (id >= 0)
+        ids[found++] = id;
+    }
+    return found == ids.length ? ids : Arrays.copyOf(ids, found);
+  }
+
+  /**
+   * Gets the query the plan was compiled from
+   *
+   * @return the parsed query
+   */
+  public PokemonQuery getQuery() {
+    return this.QUERY;
+  }
+
+  /**
+   * Gets the dataset the plan reads
+   *
+   * @return the dataset
+   */
+  public PokemonDataset getDataset() {
+    return this.DATASET;
+  }
+
+  /**
+   * Gets the term whose index the plan starts from
+   *
+   * @return the term, null if the plan checks every row it is given
+   */
+  public PokemonQuery.Term getDriver() {
+    return this.DRIVER;
+  }
+
+  /**
+   * Narrows a bitset of rows down to the rows matching the query
+   *
+   * @param bits the bitset to narrow, one bit per row of the dataset
+   */
+  public void retainMatches(long[] bits) {
+    if (this.EMPTY) {
+      Arrays.fill(bits, 0L);
+      return;
+    }
+    if (this.DRIVER != null) {
+      long[] rows = new long[bits.length];
+      drive(bits, rows);
+      PokemonFilterIndex.and(bits, rows, bits);
+    }
+    if (this.LEGENDARY >= 0)
+      this.DATASET.getStore().retainLegendary(bits, this.LEGENDARY == 1);
+    if (!this.RESIDUAL)
+      return;
+    long[][] names = new long[this.NAMES.length][];
+    for (int i = 0; i < names.length; ++i) {
+      names[i] = new long[bits.length];
+      this.DATASET.getNameIndex().addMatches(this.NAMES[i].getNames().get(0),
+          this.NAMES[i].getKind() == PokemonQuery.Kind.NAME_PREFIX, names[i]);
+    }
+    for (int word = 0; word < bits.length; ++word) {
+      long keep = bits[word];
+      for (long left = keep; left != 0; left &= left - 1)
+        if (!accepts(word << 6 | Long.numberOfTrailingZeros(left), names))
+          keep &= ~(left & -left);
+      bits[word] = keep;
+    }
+  }
+
+  /**
+   * Writes the rows of the driver into an empty bitset, leaving out rows not in bits when that
+   * saves work
+   */
+  private void drive(long[] bits, long[] rows) {
+    switch (this.DRIVER.getKind()) {
+      case TYPE:
+        this.DATASET.getIndex().unionTypes(this.DRIVER.getMask(), rows);
+        break;
+      case GENERATION:
+        this.DATASET.getIndex().unionGenerations(this.DRIVER.getMask(), rows);
+        break;
+      case ABILITY:
+        this.DATASET.getAbilityIndex().anyOf(this.DRIVER_ABILITIES, bits, rows);
+        break;
+      case NAME:
+      case NAME_PREFIX:
+        this.DATASET.getNameIndex().addMatches(this.DRIVER.getNames().get(0),
+            this.DRIVER.getKind() == PokemonQuery.Kind.NAME_PREFIX, rows);
+        break;
+      default:
+        this.DATASET.getSortIndex().addRange(this.DRIVER.getKey(), this.DRIVER.getMin(),
+            this.DRIVER.getMax(), rows);
+    }
+  }
+
+  /**
+   * Checks every term but the driver and the legendary term on a row
+   */
+  private boolean accepts(int row, long[][] names) {
+    PokemonStore store = this.DATASET.getStore();
+    if (this.TYPES_ANY.length > 0 || this.TYPES_NONE != 0) {
+      long types = 1L << store.getTypeOne(row);
+      if (store.getTypeTwo(row) != PokemonStore.NO_TYPE)
+        types |= 1L << store.getTypeTwo(row);
+      if ((types & this.TYPES_NONE) != 0)
+        return false;
+      for (long any : this.TYPES_ANY)
+        if ((types & any) == 0)
+          return false;
+    }
+    if (this.GENERATIONS != -1L) {
+      int generation = store.getGeneration(row);
+      if (generation < 0 || generation >= Long.SIZE || (this.GENERATIONS & 1L << generation) == 0)
+        return false;
+    }
+    for (int i = 0; i < this.RANGE_KEYS.length; ++i) {
+      int value = this.DATASET.getSortIndex().key(this.RANGE_KEYS[i], row);
+      if ((value >= this.RANGE_MIN[i] && value <= this.RANGE_MAX[i]) != this.RANGE_INSIDE[i])
+        return false;
+    }
+    for (int[] any : this.ABILITIES_ANY) {
+      boolean found = false;
+      for (int ability : any)
+        found |= store.hasAbility(row, ability);
+      if (!found)
+        return false;
+    }
+    for (int ability : this.ABILITIES_NONE)
+      if (store.hasAbility(row, ability))
+        return false;
+    for (int i = 0; i < names.length; ++i)
+      if (((names[i][row >>> 6] & 1L << row) != 0) == this.NAMES[i].isNegated())
+        return false;
+    return true;
+  }
+}
@@ -0,0 +1,59 @@
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Class representing an immutable list of rows of a PokemonStore. Views of the rows are only
+ * created as elements are read
+ */
+public class PokemonRowList extends AbstractList<IPokemon> implements RandomAccess {
+
+  // the store holding the rows
+  private final PokemonStore STORE;
+  // rows in list order
+  private final int[] ROWS;
+
+  /**
+   * Constructor that wraps a list of rows
+   *
+   * @param store the store holding the rows
+   * @param rows  the rows in list order, not copied
+   */
+  public PokemonRowList(PokemonStore store, int[] rows) {
+    this.STORE = store;
+    this.ROWS = rows;
+  }
+
+  /**
+   * Builds the list of every row set in a bitset, in row order
+   *
+   * @param store the store holding the rows
+   * @param bits  the bitset of rows
+   * @return the rows as a list
+   */
+  public static PokemonRowList of(PokemonStore store, long[] bits) {
+    int[] rows = new int[PokemonFilterIndex.cardinality(bits)];
+    int next = 0;
+    for (int word = 0; word < bits.length; ++word)
+      for (long remaining = bits[word]; remaining != 0; remaining &= remaining - 1)
+        rows[next++] = (word << 6) + Long.numberOfTrailingZeros(remaining);
+    return new PokemonRowList(store, rows);
+  }
+
+  @Override public IPokemon get(int index) {
+    return this.STORE.get(this.ROWS[index]);
+  }
+
+  /**
+   * Gets the row of the store at a position in the list
+   *
+   * @param index the position in the list
+   * @return the row
+   */
+  public int getRow(int index) {
+    return this.ROWS[index];
+  }
+
+  @Override public int size() {
+    return this.ROWS.length;
+  }
+}
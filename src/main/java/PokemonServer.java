@@ -0,0 +1,854 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Class that serves the team builder as a JSON API on the JDK's built-in HTTP server, handling
+ * every request on its own virtual thread. Sessions share one dataset and are addressed by the
+ * id returned when they are created
+ *
+ * <p>Routes, all taking their arguments as query parameters:
+ * <ul>
+ *   <li>POST /sessions creates a session, DELETE /sessions?session= ends it. Sessions unused for
+ *   30 minutes end by themselves, and while the most sessions are open POST /sessions answers
+ *   503</li>
+ *   <li>GET /pokemon?session=&amp;types=&amp;generations=&amp;page=&amp;size=&amp;sort= searches,
+ *   where types and generations are comma separated and replace the session's filters when
+ *   given, and sort names a column such as base_total, largest first with a leading -. Without a
+ *   session the search runs on a throwaway session with all filters on</li>
+ *   <li>GET /pokemon/query?session=&amp;q=&amp;page=&amp;size= searches with a query of the
+ *   query language, such as type:fire|dragon gen:1..3 speed&gt;=100 !legendary, within the
+ *   session's filters, or all pokemon without a session</li>
+ *   <li>GET /pokemon/top?session=&amp;sort=&amp;size= lists the first pokemon in the order of a
+ *   column within the session's filters, or all pokemon without a session</li>
+ *   <li>GET /pokemon/names?session=&amp;prefix=&amp;size= autocompletes a name and
+ *   GET /pokemon/names?session=&amp;name=&amp;edits=&amp;size= looks one up allowing typos, both
+ *   within the session's filters, or all pokemon without a session</li>
+ *   <li>GET /pokemon/facets?session= counts the matching pokemon of every type and generation
+ *   and the pokemon matching after toggling each of them, with all filters on without a
+ *   session</li>
+ *   <li>GET /pokemon/abilities?session=&amp;any= and GET /pokemon/abilities?session=&amp;all=
+ *   list the pokemon that can have any or all of some comma separated abilities, within the
+ *   session's filters or all pokemon without a session</li>
+ *   <li>GET /pokemon/similar?session=&amp;pokedex=&amp;size= lists the pokemon most like a
+ *   pokedex number in stats and type matchups, within the session's filters or all pokemon
+ *   without a session</li>
+ *   <li>GET /team?session= lists the team, POST /team?session=&amp;pokedex= adds a Pokemon and
+ *   DELETE /team?session=&amp;index= removes one</li>
+ *   <li>GET /team/analysis?session=&amp;suggestions=&amp;timeout= reports the team's coverage and
+ *   optionally suggests completions</li>
+ *   <li>PUT /team?session=&amp;code= replaces a session's team with the team of a shared code</li>
+ *   <li>POST /teams?session= saves a session's team and responds with its id and code,
+ *   GET /teams?id= gets a saved team and DELETE /teams?id= deletes it</li>
+ *   <li>GET /sprites?pokedex= responds with the thumbnail of a pokemon as raw premultiplied
+ *   ARGB ints in row order, big endian, whose width and height are in the X-Sprite-Size
+ *   header. When the server has an atlas, every pokemon the other routes list links to its
+ *   thumbnail in a sprite field, null if it has none</li>
+ *   <li>GET /metrics reports the latency, result sizes and allocations of every backend call in
+ *   the Prometheus text format</li>
+ * </ul>
+ *
+ * <p>A session holds up to three bitsets as large as the dataset once its filters change, about
+ * 300 bytes over pokemon.csv but 375 KB over a million rows, so the open sessions are capped to
+ * keep a large dataset from exhausting the heap. The cap defaults to 100000 and is set with the
+ * pokemon.server.maxSessions system property. Requests failing on the server's side are logged
+ * with their stack trace through the System.Logger of this class
+ */
+public class PokemonServer {
+
+  // pokemon per page when a search does not ask for a size
+  private static final int DEFAULT_PAGE_SIZE = 10;
+  // largest page a search may ask for
+  private static final int MAX_PAGE_SIZE = 1000;
+  // names a name lookup returns when it does not ask for a size
+  private static final int DEFAULT_NAME_COUNT = 10;
+  // connections the operating system queues before they are accepted
+  private static final int BACKLOG = 4096;
+  // longest a team analysis may search for suggestions
+  private static final long MAX_SUGGESTION_MILLIS = 2000;
+  // most sessions open at once unless pokemon.server.maxSessions says otherwise, each holds
+  // bitsets as large as the dataset
+  private static final int DEFAULT_MAX_SESSIONS = 100000;
+  // where failed requests are logged
+  private static final System.Logger LOGGER = System.getLogger(PokemonServer.class.getName());
+  // minutes after its last request a session ends
+  private static final long SESSION_IDLE_MINUTES = 30;
+
+  static {
+    // a chunked response ends with a tiny separate write, which Nagle's algorithm would hold back
+    // until the client's delayed ACK, adding about 40 ms to every kept-alive request
+    if (System.getProperty("sun.net.httpserver.nodelay") == null)
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+  }
+
+  // supplies the dataset every session searches, which a reloader may replace
+  private final Supplier<PokemonDataset> DATASETS;
+  // records every call sessions make
+  private final PokemonMetrics METRICS;
+  // where teams are saved, null when they are not
+  private final PokemonTeamJournal TEAMS;
+  // thumbnails of the pokemon in responses, null when sprites are not served
+  private final PokemonSpriteAtlas SPRITES;
+  // most sessions open at once
+  private final int MAX_SESSIONS = Integer.getInteger("pokemon.server.maxSessions",
+      DEFAULT_MAX_SESSIONS);
+  // the open sessions, by id
+  private final Map<String, Session> SESSIONS = new ConcurrentHashMap<>();
+  // the underlying server
+  private final HttpServer SERVER;
+  // runs every request on a new virtual thread
+  private final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+  /**
+   * Constructor that binds the server without starting it
+   *
+   * @param dataset the dataset to serve
+   * @param address the address to listen on, port 0 for any free port
+   * @throws IOException if the address could not be bound
+   */
+  public PokemonServer(PokemonDataset dataset, InetSocketAddress address) throws IOException {
+    this(() -> dataset, address);
+  }
+
+  /**
+   * Constructor that binds the server over a dataset that may be replaced without starting it
+   *
+   * @param datasets supplies the current dataset, such as a PokemonDatasetReloader
+   * @param address  the address to listen on, port 0 for any free port
+   * @throws IOException if the address could not be bound
+   */
+  public PokemonServer(Supplier<PokemonDataset> datasets, InetSocketAddress address)
+      throws IOException {
+    this(datasets, new PokemonMetrics(), address);
+  }
+
+  /**
+   * Constructor that binds the server over a dataset that may be replaced without starting it,
+   * recording every session's calls into the given metrics
+   *
+   * @param datasets supplies the current dataset, such as a PokemonDatasetReloader
+   * @param metrics  where session calls are recorded and what GET /metrics reports
+   * @param address  the address to listen on, port 0 for any free port
+   * @throws IOException if the address could not be bound
+   */
+  public PokemonServer(Supplier<PokemonDataset> datasets, PokemonMetrics metrics,
+      InetSocketAddress address) throws IOException {
+    this(datasets, metrics, null, address);
+  }
+
+  /**
+   * Constructor that binds the server over a dataset that may be replaced without starting it,
+   * recording every session's calls and saving teams to a journal
+   *
+   * @param datasets supplies the current dataset, such as a PokemonDatasetReloader
+   * @param metrics  where session calls are recorded and what GET /metrics reports
+   * @param teams    where the /teams routes save teams, null to not offer them
+   * @param address  the address to listen on, port 0 for any free port
+   * @throws IOException if the address could not be bound
+   */
+  public PokemonServer(Supplier<PokemonDataset> datasets, PokemonMetrics metrics,
+      PokemonTeamJournal teams, InetSocketAddress address) throws IOException {
+    this(datasets, metrics, teams, null, address);
+  }
+
+  /**
+   * Constructor that binds the server over a dataset that may be replaced without starting it,
+   * recording every session's calls, saving teams to a journal and serving thumbnails from an
+   * atlas
+   *
+   * @param datasets supplies the current dataset, such as a PokemonDatasetReloader
+   * @param metrics  where session calls are recorded and what GET /metrics reports
+   * @param teams    where the /teams routes save teams, null to not offer them
+   * @param sprites  the thumbnails GET /sprites serves and pokemon link to, null to not offer
+   *                 them
+   * @param address  the address to listen on, port 0 for any free port
+   * @throws IOException if the address could not be bound
+   */
+  public PokemonServer(Supplier<PokemonDataset> datasets, PokemonMetrics metrics,
+      PokemonTeamJournal teams, PokemonSpriteAtlas sprites, InetSocketAddress address)
+      throws IOException {
+    this.DATASETS = datasets;
+    this.METRICS = metrics;
+    this.TEAMS = teams;
+    this.SPRITES = sprites;
+    this.SERVER = HttpServer.create(address, BACKLOG);
+    this.SERVER.setExecutor(this.EXECUTOR);
+    this.SERVER.createContext("/", this::handle);
+  }
+
+  /**
+   * Starts accepting requests
+   */
+  public void start() {
+    this.SERVER.start();
+  }
+
+  /**
+   * Stops accepting requests and waits up to the given time for running requests to finish
+   *
+   * @param delaySeconds the longest to wait
+   */
+  public void stop(int delaySeconds) {
+    this.SERVER.stop(delaySeconds);
+    this.EXECUTOR.shutdown();
+  }
+
+  /**
+   * Gets the address the server listens on
+   *
+   * @return the bound address
+   */
+  public InetSocketAddress getAddress() {
+    return this.SERVER.getAddress();
+  }
+
+  /**
+   * Routes a request and turns failures into JSON errors
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+      String route = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+      try {
+        switch (route) {
+          case "POST /sessions":
+            createSession(exchange);
+            break;
+          case "DELETE /sessions":
+            if (this.SESSIONS.remove(required(query, "session")) == null)
+              throw new NoSuchSessionException();
+            respond(exchange, 204).close();
+            break;
+          case "GET /pokemon":
+            search(exchange, query);
+            break;
+          case "GET /pokemon/names":
+            searchNames(exchange, query);
+            break;
+          case "GET /pokemon/query":
+            searchQuery(exchange, query);
+            break;
+          case "GET /pokemon/top":
+            searchTop(exchange, query);
+            break;
+          case "GET /pokemon/facets":
+            facets(exchange, query);
+            break;
+          case "GET /pokemon/abilities":
+            searchAbilities(exchange, query);
+            break;
+          case "GET /pokemon/similar":
+            searchSimilar(exchange, query);
+            break;
+          case "GET /team":
+            listTeam(exchange, session(query));
+            break;
+          case "POST /team":
+            addToTeam(exchange, query);
+            break;
+          case "DELETE /team":
+            removeFromTeam(exchange, query);
+            break;
+          case "PUT /team":
+            replaceTeam(exchange, query);
+            break;
+          case "POST /teams":
+            saveTeam(exchange, query);
+            break;
+          case "GET /teams":
+            getSavedTeam(exchange, query);
+            break;
+          case "DELETE /teams":
+            if (!teams().delete(Long.parseLong(required(query, "id"))))
+              throw new NoSuchTeamException();
+            respond(exchange, 204).close();
+            break;
+          case "GET /team/analysis":
+            analyzeTeam(exchange, query);
+            break;
+          case "GET /metrics":
+            metrics(exchange);
+            break;
+          case "GET /sprites":
+            sprite(exchange, query);
+            break;
+          default:
+            error(exchange, 404, "No route " + route);
+        }
+      } catch (NoSuchSessionException nsse) {
+        error(exchange, 404, "No such session");
+      } catch (NoSuchTeamException nste) {
+        error(exchange, 404, nste.getMessage());
+      } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+        error(exchange, 400, e.getMessage());
+      } catch (RuntimeException | IOException e) {
+        // anything else, such as a failing team journal, is the server's fault
+        LOGGER.log(System.Logger.Level.ERROR, route + " failed", e);
+        error(exchange, 500, "Internal error");
+      }
+    }
+  }
+
+  /**
+   * Creates a session with all filters on and responds with its id, or with 503 if too many are
+   * open
+   */
+  private void createSession(HttpExchange exchange) throws IOException {
+    // idle sessions are only swept when they stand in the way of a new one
+    if (this.SESSIONS.size() >= this.MAX_SESSIONS)
+      this.SESSIONS.values().removeIf(Session::isIdle);
+    if (this.SESSIONS.size() >= this.MAX_SESSIONS) {
+      error(exchange, 503, "Too many sessions");
+      return;
+    }
+    String id = UUID.randomUUID().toString();
+    this.SESSIONS.put(id, new Session(newSession()));
+    try (PokemonJsonWriter json = respond(exchange, 201)) {
+      json.beginObject().name("session").value(id).endObject();
+    }
+  }
+
+  /**
+   * Responds with one page of the pokemon matching the filters
+   */
+  private void search(HttpExchange exchange, Map<String, String> query) throws IOException {
+    IPokemonBackend session = query.containsKey("session") ? session(query)
+        : newSession();
+    int page = intParameter(query, "page", 0);
+    int size = intParameter(query, "size", DEFAULT_PAGE_SIZE);
+    if (page < 0 || size <= 0 || size > MAX_PAGE_SIZE)
+      throw new IllegalArgumentException("page must be >= 0 and size between 1 and "
+          + MAX_PAGE_SIZE);
+    String sort = query.get("sort");
+    PokemonSortKey order = sort == null ? null : PokemonSortKey.parse(sort.replaceFirst("^-", ""));
+    boolean descending = sort != null && sort.startsWith("-");
+    // the filters are parsed before any is changed, so a bad value leaves the session as it was
+    List<PokemonTypes> types = query.containsKey("types") ? types(query.get("types")) : null;
+    List<Integer> generations = query.containsKey("generations")
+        ? generations(query.get("generations")) : null;
+    int count;
+    List<IPokemon> pokemon;
+    // filters and search happen together so concurrent requests on a session do not interleave
+    synchronized (session) {
+      if (types != null) {
+        session.resetTypeFilter();
+        for (PokemonTypes type : types)
+          if (!session.getTypeFilter(type))
+            session.toggleTypeFilter(type);
+      }
+      if (generations != null) {
+        session.resetGenerationFilter();
+        for (int generation : generations)
+          if (!session.getGenerationFilter(generation))
+            session.toggleGenerationFilter(generation);
+      }
+      count = session.searchCount();
+      pokemon = session.searchPage(page, size, order, descending);
+    }
+    try (PokemonJsonWriter json = respond(exchange, 200)) {
+      json.beginObject();
+      json.name("count").value(count);
+      json.name("page").value(page);
+      json.name("size").value(size);
+      json.name("pokemon").pokemon(pokemon, this.SPRITES);
+      json.endObject();
+    }
+  }
+
+  /**
+   * Responds with the pokemon completing a name prefix, or matching a name up to some typos
+   */
+  private void searchNames(HttpExchange exchange, Map<String, String> query) throws IOException {
+    IPokemonBackend session = query.containsKey("session") ? session(query)
+        : newSession();
+    int size = intParameter(query, "size", DEFAULT_NAME_COUNT);
+    if (size <= 0 || size > MAX_PAGE_SIZE)
+      throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+    List<IPokemon> pokemon = query.containsKey("prefix")
+        ? session.completeName(query.get("prefix"), size)
+        : session.searchByName(required(query, "name"), intParameter(query, "edits", 0), size);
+    try (PokemonJsonWriter json = respond(exchange, 200)) {
+      json.pokemon(pokemon, this.SPRITES);
+    }
+  }
+
+  /**
+   * Responds with one page of the pokemon matching a query of the query language
+   */
+  private void searchQuery(HttpExchange exchange, Map<String, String> query) throws IOException {
+    IPokemonBackend session = query.containsKey("session") ? session(query)
+        : newSession();
+    int page = intParameter(query, "page", 0);
+    int size = intParameter(query, "size", DEFAULT_PAGE_SIZE);
+    if (page < 0 || size <= 0 || size > MAX_PAGE_SIZE)
+      throw new IllegalArgumentException("page must be >= 0 and size between 1 and "
+          + MAX_PAGE_SIZE);
+    List<IPokemon> pokemon = session.searchQuery(required(query, "q"));
+    int from = (int) Math.min((long) page * size, pokemon.size());
+    try (PokemonJsonWriter json = respond(exchange, 200)) {
+      json.beginObject();
+      json.name("count").value(pokemon.size());
+      json.name("page").value(page);
+      json.name("size").value(size);
+      json.name("pokemon")
+          .pokemon(pokemon.subList(from, Math.min(from + size, pokemon.size())), this.SPRITES);
+      json.endObject();
+    }
+  }
+
+  /**
+   * Responds with the first pokemon in the order of a column
+   */
+  private void searchTop(HttpExchange exchange, Map<String, String> query) throws IOException {
+    IPokemonBackend session = query.containsKey("session") ? session(query)
+        : newSession();
+    int size = intParameter(query, "size", DEFAULT_PAGE_SIZE);
+    if (size <= 0 || size > MAX_PAGE_SIZE)
+      throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+    String sort = required(query, "sort");
+    List<IPokemon> pokemon = session.searchTop(PokemonSortKey.parse(sort.replaceFirst("^-", "")),
+        sort.startsWith("-"), size);
+    try (PokemonJsonWriter json = respond(exchange, 200)) {
+      json.pokemon(pokemon, this.SPRITES);
+    }
+  }
+
+  /**
+   * Responds with the facet counts of a session's filters
+   */
+  private void facets(HttpExchange exchange, Map<String, String> query) throws IOException {
+    IPokemonBackend session = query.containsKey("session") ? session(query)
+        : newSession();
+    PokemonFacets facets = session.getFacets();
+    try (PokemonJsonWriter json = respond(exchange, 200)) {
+      json.beginObject();
+      json.name("count").value(facets.getCount());
+      json.name("types").beginObject();
+      for (PokemonTypes type : PokemonTypes.values()) {
+        json.name(type.name()).beginObject();
+        json.name("active").value(session.getTypeFilter(type));
+        json.name("count").value(facets.getTypeCount(type));
+        json.name("toggled").value(facets.getTypeToggleCount(type));
+        json.endObject();
+      }
+      json.endObject();
+      json.name("generations").beginObject();
+      for (int generation = 1; generation <= PokemonFilterIndex.MAX_GENERATION; ++generation) {
+        json.name(Integer.toString(generation)).beginObject();
+        json.name("active").value(session.getGenerationFilter(generation));
+        json.name("count").value(facets.getGenerationCount(generation));
+        json.name("toggled").value(facets.getGenerationToggleCount(generation));
+        json.endObject();
+      }
+      json.endObject();
+      json.endObject();
+    }
+  }
+
+  /**
+   * Responds with the pokemon having any or all of some abilities
+   */
+  private void searchAbilities(HttpExchange exchange, Map<String, String> query)
+      throws IOException {
+    IPokemonBackend session = query.containsKey("session") ? session(query)
+        : newSession();
+    boolean all = query.containsKey("all");
+    List<String> abilities = new ArrayList<>();
+    for (String ability : (all ? query.get("all") : required(query, "any")).split(","))
+      if (!ability.isBlank())
+        abilities.add(ability);
+    List<IPokemon> pokemon = all ? session.findByAllAbilities(abilities)
+        : session.findByAnyAbility(abilities);
+    try (PokemonJsonWriter json = respond(exchange, 200)) {
+      json.pokemon(pokemon, this.SPRITES);
+    }
+  }
+
+  /**
+   * Responds with the pokemon most like the one with the given pokedex number
+   */
+  private void searchSimilar(HttpExchange exchange, Map<String, String> query)
+      throws IOException {
+    IPokemonBackend session = query.containsKey("session") ? session(query)
+        : newSession();
+    int size = intParameter(query, "size", DEFAULT_NAME_COUNT);
+    if (size <= 0 || size > MAX_PAGE_SIZE)
+      throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+    IPokemon pokemon =
+        this.DATASETS.get().findPokedex(Integer.parseInt(required(query, "pokedex")));
+    if (pokemon == null) {
+      error(exchange, 404, "No such pokedex number");
+      return;
+    }
+    try (PokemonJsonWriter json = respond(exchange, 200)) {
+      json.pokemon(session.findSimilar(pokemon, size), this.SPRITES);
+    }
+  }
+
+  /**
+   * Responds with a session's team
+   */
+  private void listTeam(HttpExchange exchange, IPokemonBackend session) throws IOException {
+    try (PokemonJsonWriter json = respond(exchange, 200)) {
+      json.pokemon(session.getTeam(), this.SPRITES);
+    }
+  }
+
+  /**
+   * Adds the pokemon with the given pokedex number to a session's team
+   */
+  private void addToTeam(HttpExchange exchange, Map<String, String> query) throws IOException {
+    IPokemonBackend session = session(query);
+    IPokemon pokemon =
+        this.DATASETS.get().findPokedex(Integer.parseInt(required(query, "pokedex")));
+    if (pokemon == null) {
+      error(exchange, 404, "No such pokedex number");
+      return;
+    }
+    boolean full;
+    synchronized (session) {
+      full = session.getTeam().size() >= PokemonTeamOptimizer.TEAM_SIZE;
+      if (!full)
+        session.addToTeam(pokemon);
+    }
+    if (full)
+      error(exchange, 409, "Team is full");
+    else
+      listTeam(exchange, session);
+  }
+
+  /**
+   * Removes the pokemon at the given position from a session's team
+   */
+  private void removeFromTeam(HttpExchange exchange, Map<String, String> query)
+      throws IOException {
+    IPokemonBackend session = session(query);
+    session.removeFromTeam(Integer.parseInt(required(query, "index")));
+    listTeam(exchange, session);
+  }
+
+  /**
+   * Replaces a session's team with the team of a shared code
+   */
+  private void replaceTeam(HttpExchange exchange, Map<String, String> query) throws IOException {
+    IPokemonBackend session = session(query);
+    List<IPokemon> team = PokemonTeamCodec.decode(
+        PokemonTeamCodec.fromCode(required(query, "code")), this.DATASETS.get());
+    synchronized (session) {
+      for (int i = session.getTeam().size() - 1; i >= 0; --i)
+        session.removeFromTeam(i);
+      for (IPokemon pokemon : team)
+        session.addToTeam(pokemon);
+    }
+    listTeam(exchange, session);
+  }
+
+  /**
+   * Saves a session's team and responds with its id and code
+   */
+  private void saveTeam(HttpExchange exchange, Map<String, String> query) throws IOException {
+    PokemonTeamJournal teams = teams();
+    byte[] team = PokemonTeamCodec.encode(session(query).getTeam(), this.DATASETS.get());
+    long id = teams.save(team);
+    try (PokemonJsonWriter json = respond(exchange, 201)) {
+      json.beginObject().name("id").value(id).name("code").value(PokemonTeamCodec.toCode(team))
+          .endObject();
+    }
+  }
+
+  /**
+   * Responds with a saved team
+   */
+  private void getSavedTeam(HttpExchange exchange, Map<String, String> query)
+      throws IOException {
+    long id = Long.parseLong(required(query, "id"));
+    byte[] team = teams().get(id);
+    if (team == null)
+      throw new NoSuchTeamException();
+    try (PokemonJsonWriter json = respond(exchange, 200)) {
+      json.beginObject().name("id").value(id).name("code").value(PokemonTeamCodec.toCode(team));
+      json.name("team").pokemon(PokemonTeamCodec.decode(team, this.DATASETS.get()), this.SPRITES)
+          .endObject();
+    }
+  }
+
+  /**
+   * Gets the journal teams are saved to
+   *
+   * @throws NoSuchTeamException if the server does not save teams
+   */
+  private PokemonTeamJournal teams() {
+    if (this.TEAMS == null)
+      throw new NoSuchTeamException("Teams are not saved on this server");
+    return this.TEAMS;
+  }
+
+  /**
+   * Responds with the coverage of a session's team and, when asked for, suggested completions
+   */
+  private void analyzeTeam(HttpExchange exchange, Map<String, String> query) throws IOException {
+    IPokemonBackend session = session(query);
+    List<IPokemon> team = session.getTeam();
+    PokemonTypeChart chart = session.getTypeChart();
+    long packed = PokemonTypeChart.pack(team);
+    int resists = chart.resistancesOf(packed);
+    long weaknesses = chart.weaknessesOf(packed);
+    int suggestions = intParameter(query, "suggestions", 0);
+    long timeout = Math.min(intParameter(query, "timeout", 200), MAX_SUGGESTION_MILLIS);
+    List<PokemonTeamSuggestion> suggested =
+        suggestions > 0 ? session.suggestTeams(suggestions, timeout) : List.of();
+
+    try (PokemonJsonWriter json = respond(exchange, 200)) {
+      json.beginObject();
+      json.name("team").pokemon(team, this.SPRITES);
+      json.name("hits").types(chart.coverageOf(packed));
+      json.name("resists").types(resists);
+      json.name("weaknesses").beginObject();
+      int uncovered = 0;
+      for (PokemonTypes type : PokemonTypes.values()) {
+        int weak = PokemonTypeChart.weakCount(weaknesses, type);
+        if (weak == 0)
+          continue;
+        json.name(type.name()).value(weak);
+        if ((resists & 1 << type.ordinal()) == 0)
+          uncovered |= 1 << type.ordinal();
+      }
+      json.endObject();
+      json.name("uncovered").types(uncovered);
+      json.name("suggestions").beginArray();
+      for (PokemonTeamSuggestion suggestion : suggested) {
+        json.beginObject();
+        json.name("score").value(suggestion.getScore());
+        json.name("resists").value(suggestion.getDefensiveCoverage());
+        json.name("hits").value(suggestion.getOffensiveCoverage());
+        json.name("uncovered").value(suggestion.getUncoveredWeaknesses());
+        json.name("baseTotal").value(suggestion.getBaseTotal());
+        json.name("team").beginArray();
+        for (IPokemon member : suggestion.getTeam())
+          json.value(member.getPokedex());
+        json.endArray().endObject();
+      }
+      json.endArray().endObject();
+    }
+  }
+
+  /**
+   * Responds with the recorded metrics in the Prometheus text format
+   */
+  private void metrics(HttpExchange exchange) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+    exchange.sendResponseHeaders(200, 0);
+    try (Writer out =
+        new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+      this.METRICS.writePrometheus(out);
+    }
+  }
+
+  /**
+   * Responds with the pixels of a thumbnail, copied straight from the mapped atlas without
+   * decoding the sprite, or with 404 if the server has no atlas or it has no such sprite
+   */
+  private void sprite(HttpExchange exchange, Map<String, String> query) throws IOException {
+    int pokedex = Integer.parseInt(required(query, "pokedex"));
+    IntBuffer pixels = this.SPRITES == null ? null : this.SPRITES.getThumbnail(pokedex, null);
+    if (pixels == null) {
+      error(exchange, 404, "No such sprite");
+      return;
+    }
+    ByteBuffer bytes = ByteBuffer.allocate(pixels.remaining() * Integer.BYTES);
+    bytes.asIntBuffer().put(pixels);
+    exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+    exchange.getResponseHeaders().set("X-Sprite-Size", Integer.toString(this.SPRITES.getSize()));
+    exchange.sendResponseHeaders(200, bytes.capacity());
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes.array());
+    }
+  }
+
+  /**
+   * Creates a session with all filters on whose calls are recorded
+   */
+  private IPokemonBackend newSession() {
+    return new InstrumentedPokemonBackend(new PokemonBackend(this.DATASETS), this.METRICS);
+  }
+
+  /**
+   * Looks up the session named by the session parameter
+   *
+   * @throws NoSuchSessionException if there is no such session
+   */
+  private IPokemonBackend session(Map<String, String> query) {
+    String id = required(query, "session");
+    Session session = this.SESSIONS.get(id);
+    if (session != null && session.isIdle()) {
+      this.SESSIONS.remove(id, session);
+      session = null;
+    }
+    if (session == null)
+      throw new NoSuchSessionException();
+    session.lastUsed = System.nanoTime();
+    return session.BACKEND;
+  }
+
+  /**
+   * Sends the response headers and opens a JSON writer on the streamed body
+   */
+  private static PokemonJsonWriter respond(HttpExchange exchange, int status)
+      throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    // a length of 0 streams the body in chunks, -1 sends none
+    exchange.sendResponseHeaders(status, status == 204 ? -1 : 0);
+    return new PokemonJsonWriter(exchange.getResponseBody());
+  }
+
+  /**
+   * Responds with a JSON error, unless a response was already started, whose status can no longer
+   * change and which closing the exchange cuts short
+   */
+  private static void error(HttpExchange exchange, int status, String message) throws IOException {
+    if (exchange.getResponseCode() != -1)
+      return;
+    try (PokemonJsonWriter json = respond(exchange, status)) {
+      json.beginObject().name("error").value(message).endObject();
+    }
+  }
+
+  /**
+   * Parses the comma separated types of a types parameter
+   *
+   * @throws IllegalArgumentException if a type does not exist
+   */
+  private static List<PokemonTypes> types(String value) {
+    List<PokemonTypes> types = new ArrayList<>();
+    for (String type : value.split(","))
+      if (!type.isEmpty())
+        try {
+          types.add(PokemonTypes.valueOf(type.toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException iae) {
+          throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    return types;
+  }
+
+  /**
+   * Parses the comma separated generations of a generations parameter
+   *
+   * @throws IllegalArgumentException if a generation is not a number of the filter index
+   */
+  private static List<Integer> generations(String value) {
+    List<Integer> generations = new ArrayList<>();
+    for (String generation : value.split(","))
+      if (!generation.isEmpty()) {
+        int number = Integer.parseInt(generation);
+        if (number < 0 || number > PokemonFilterIndex.MAX_GENERATION)
+          throw new IllegalArgumentException("Generations go from 0 to "
+              + PokemonFilterIndex.MAX_GENERATION + ": " + generation);
+        generations.add(number);
+      }
+    return generations;
+  }
+
+  /**
+   * Gets a parameter that has to be present
+   */
+  private static String required(Map<String, String> query, String name) {
+    String value = query.get(name);
+    if (value == null)
+      throw new IllegalArgumentException("Missing parameter " + name);
+    return value;
+  }
+
+  /**
+   * Gets a number parameter, or a default when it is not present
+   */
+  private static int intParameter(Map<String, String> query, String name, int defaultValue) {
+    String value = query.get(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+
+  /**
+   * Decodes the parameters of a raw query string
+   */
+  private static Map<String, String> parseQuery(String rawQuery) {
+    Map<String, String> query = new HashMap<>();
+    if (rawQuery == null)
+      return query;
+    for (String parameter : rawQuery.split("&")) {
+      int equals = parameter.indexOf('=');
+      if (equals < 0)
+        query.put(URLDecoder.decode(parameter, StandardCharsets.UTF_8), "");
+      else
+        query.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+            URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+    }
+    return query;
+  }
+
+  /**
+   * An open session with the time of its last request
+   */
+  private static final class Session {
+
+    // the session's backend
+    private final IPokemonBackend BACKEND;
+    // System.nanoTime of the last request naming the session
+    private volatile long lastUsed = System.nanoTime();
+
+    private Session(IPokemonBackend backend) {
+      this.BACKEND = backend;
+    }
+
+    /**
+     * Checks if the session went unused for longer than SESSION_IDLE_MINUTES
+     */
+    private boolean isIdle() {
+      return System.nanoTime() - this.lastUsed > TimeUnit.MINUTES.toNanos(SESSION_IDLE_MINUTES);
+    }
+  }
+
+  /**
+   * Thrown when a request names a session that does not exist
+   */
+  private static class NoSuchSessionException extends RuntimeException {
+
+    // version of the serialized form
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * Thrown when a request names a saved team that does not exist
+   */
+  private static class NoSuchTeamException extends RuntimeException {
+
+    // version of the serialized form
+    private static final long serialVersionUID = 1L;
+
+    private NoSuchTeamException() {
+      this("No such team");
+    }
+
+    private NoSuchTeamException(String message) {
+      super(message);
+    }
+  }
+}
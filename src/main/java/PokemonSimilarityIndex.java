@@ -0,0 +1,319 @@
+import java.util.Random;
+
+/**
+ * Class representing a vantage point tree over the stat vectors of a PokemonStore, answering
+ * "which pokemon are most like this one" with row ids so the results combine with the filter
+ * bitsets
+ *
+ * <p>Every row is a point made of its six base stats, each scaled to unit variance over the
+ * dataset, and its damage taken from each of the 18 attacking types as a power of two. The 18
+ * type dimensions share a single scale chosen so that, together, they weigh as much as the six
+ * stats, so neither half drowns out the other. Points are compared by euclidean distance
+ *
+ * <p>The tree is laid out in preorder in flat arrays: the subtree of the node at i covers
+ * [i, end), its inner half [i + 1, mid) and its outer half [mid, end) with mid halfway between,
+ * so the tree needs no pointers and is balanced however many points coincide. Every node also
+ * keeps the types and generations found below it, so subtrees the filters rule out are skipped
+ * without reading their points. A query allocates nothing but the arrays it returns
+ */
+public class PokemonSimilarityIndex {
+
+  // stats a point is made of
+  private static final PokemonStats[] STATS = {PokemonStats.HP, PokemonStats.ATTACK,
+      PokemonStats.DEFENSE, PokemonStats.SP_ATTACK, PokemonStats.SP_DEFENSE, PokemonStats.SPEED};
+  // number of attacking types, one dimension each
+  private static final int TYPES = PokemonTypes.values().length;
+  // floats per point
+  public static final int DIMENSIONS = STATS.length + TYPES;
+  // seed of the vantage point choice, fixed so the same data always builds the same tree
+  private static final long SEED = 0x5EED;
+
+  // row of every node
+  private final int[] ROWS;
+  // node of every row
+  private final int[] NODES;
+  // point of every node, DIMENSIONS floats each, in node order so subtrees are read in sequence
+  private final float[] POINTS;
+  // distance from every node splitting its inner half from its outer half: inner points are no
+  // farther and outer points no closer
+  private final float[] RADII;
+  // bit t is set if a pokemon of the type with ordinal t is in the subtree of the node
+  private final int[] TYPE_MASKS;
+  // bit g is set if a pokemon of generation g is in the subtree of the node
+  private final long[] GENERATION_MASKS;
+  // pokedex number of every node, the pokemon a query is for is never its own alternative
+  private final int[] POKEDEX;
+
+  /**
+   * Constructor that builds the tree over every row of a store
+   *
+   * @param store the store to index
+   */
+  public PokemonSimilarityIndex(PokemonStore store) {
+    int size = store.size();
+    float[] points = points(store);
+    this.ROWS = new int[size];
+    for (int row = 0; row < size; ++row)
+      this.ROWS[row] = row;
+    this.RADII = new float[size];
+    this.TYPE_MASKS = new int[size];
+    this.GENERATION_MASKS = new long[size];
+    build(store, points, 0, size, new float[size], new Random(SEED));
+
+    this.NODES = new int[size];
+    this.POINTS = new float[size * DIMENSIONS];
+    this.POKEDEX = new int[size];
+    for (int node = 0; node < size; ++node) {
+      int row = this.ROWS[node];
+      this.NODES[row] = node;
+      System.arraycopy(points, row * DIMENSIONS, this.POINTS, node * DIMENSIONS, DIMENSIONS);
+      this.POKEDEX[node] = store.getPokedex(row);
+    }
+  }
+
+  /**
+   * Computes the point of every row, in row order
+   */
+  private static float[] points(PokemonStore store) {
+    int size = store.size();
+    float[] points = new float[size * DIMENSIONS];
+    for (int s = 0; s < STATS.length; ++s) {
+      double sum = 0;
+      double squares = 0;
+      for (int row = 0; row < size; ++row) {
+        int stat = store.getStat(STATS[s], row);
+        sum += stat;
+        squares += (double) stat * stat;
+      }
+      double mean = size == 0 ? 0 : sum / size;
+      double deviation = size == 0 ? 0 : Math.sqrt(Math.max(0, squares / size - mean * mean));
+      double scale = deviation == 0 ? 1 : 1 / deviation;
+      for (int row = 0; row < size; ++row)
+        points[row * DIMENSIONS + s] = (float) ((store.getStat(STATS[s], row) - mean) * scale);
+    }
+
+    // the type dimensions are centred one by one but scaled together, so a type that rarely
+    // matters is not blown up to weigh as much as one that often does
+    double[] means = new double[TYPES];
+    double squares = 0;
+    for (int t = 0; t < TYPES; ++t) {
+      double sum = 0;
+      for (int row = 0; row < size; ++row) {
+        int power = store.getMultiplierCode(t, row) - PokemonStore.NEUTRAL;
+        sum += power;
+        squares += power * power;
+      }
+      means[t] = size == 0 ? 0 : sum / size;
+      squares -= size * means[t] * means[t];
+    }
+    double variance = size == 0 ? 0 : squares / size;
+    double scale = variance <= 0 ? 1 : Math.sqrt((double) STATS.length / variance);
+    for (int t = 0; t < TYPES; ++t)
+      for (int row = 0; row < size; ++row)
+        points[row * DIMENSIONS + STATS.length + t] = (float)
+            ((store.getMultiplierCode(t, row) - PokemonStore.NEUTRAL - means[t]) * scale);
+    return points;
+  }
+
+  /**
+   * Builds the subtree over the nodes [from, to), whose rows are in ROWS, and fills in its masks
+   *
+   * @param points    the points in row order
+   * @param distances scratch space for the distance of every node to its vantage point
+   */
+  private void build(PokemonStore store, float[] points, int from, int to, float[] distances,
+      Random random) {
+    if (from >= to)
+      return;
+    swap(this.ROWS, distances, from, from + random.nextInt(to - from));
+    int vantage = this.ROWS[from] * DIMENSIONS;
+    for (int node = from + 1; node < to; ++node)
+      distances[node] = distance(points, vantage, points, this.ROWS[node] * DIMENSIONS);
+    int mid = middle(from, to);
+    if (mid < to) {
+      select(this.ROWS, distances, from + 1, to, mid);
+      this.RADII[from] = distances[mid];
+    }
+    build(store, points, from + 1, mid, distances, random);
+    build(store, points, mid, to, distances, random);
+
+    int row = this.ROWS[from];
+    int types = 1 << store.getTypeOne(row);
+    if (store.getTypeTwo(row) != PokemonStore.NO_TYPE)
+      types |= 1 << store.getTypeTwo(row);
+    long generations = 1L << store.getGeneration(row);
+    if (from + 1 < mid) {
+      types |= this.TYPE_MASKS[from + 1];
+      generations |= this.GENERATION_MASKS[from + 1];
+    }
+    if (mid < to) {
+      types |= this.TYPE_MASKS[mid];
+      generations |= this.GENERATION_MASKS[mid];
+    }
+    this.TYPE_MASKS[from] = types;
+    this.GENERATION_MASKS[from] = generations;
+  }
+
+  /**
+   * Gets where the outer half of the subtree over [from, to) starts
+   */
+  private static int middle(int from, int to) {
+    return from + 1 + (to - from - 1) / 2;
+  }
+
+  /**
+   * Reorders [from, to) so the node at k has the distance it would have if the range was sorted,
+   * with none greater before it and none smaller after it
+   */
+  private static void select(int[] rows, float[] distances, int from, int to, int k) {
+    int low = from;
+    int high = to - 1;
+    while (low < high) {
+      float pivot = distances[low + (high - low) / 2];
+      int i = low;
+      int j = high;
+      // stopping at equal distances on both sides keeps ranges of equal points balanced
+      while (i <= j) {
+        while (distances[i] < pivot)
+          ++i;
+        while (distances[j] > pivot)
+          --j;
+        if (i <= j)
+          swap(rows, distances, i++, j--);
+      }
+      if (k <= j)
+        high = j;
+      else if (k >= i)
+        low = i;
+      else
+        return;
+    }
+  }
+
+  private static void swap(int[] rows, float[] distances, int i, int j) {
+    int row = rows[i];
+    rows[i] = rows[j];
+    rows[j] = row;
+    float distance = distances[i];
+    distances[i] = distances[j];
+    distances[j] = distance;
+  }
+
+  /**
+   * Gets the euclidean distance between two points
+   */
+  private static float distance(float[] a, int aOffset, float[] b, int bOffset) {
+    float sum = 0;
+    for (int d = 0; d < DIMENSIONS; ++d) {
+      float difference = a[aOffset + d] - b[bOffset + d];
+      sum += difference * difference;
+    }
+    return (float) Math.sqrt(sum);
+  }
+
+  /**
+   * Finds the rows closest to a row that match the filters, leaving out the rows with the same
+   * pokedex number as it
+   *
+   * @param row         the row to find alternatives to
+   * @param match       the rows matching the filters
+   * @param types       the type filter, bit t set if the type with ordinal t is active
+   * @param generations the generation filter, bit g set if generation g is active
+   * @param rows        receives the closest rows, closest first, as many as it has room for
+   * @param distances   receives the distance of each of them, at least as long as rows
+   * @return the number of rows found
+   */
+  public int nearest(int row, long[] match, long types, long generations, int[] rows,
+      float[] distances) {
+    if (rows.length == 0 || row < 0 || row >= this.NODES.length)
+      return 0;
+    int node = this.NODES[row];
+    int found = search(0, this.ROWS.length, node * DIMENSIONS, this.POKEDEX[node], match, types,
+        generations, rows, distances, 0);
+    // the max-heap is sorted in place by moving its top to the end one at a time
+    for (int end = found - 1; end > 0; --end) {
+      swap(rows, distances, 0, end);
+      siftDown(rows, distances, 0, end);
+    }
+    return found;
+  }
+
+  /**
+   * Searches the subtree over [from, to) and adds the rows closer than the farthest found so far
+   * to a max-heap of found rows
+   *
+   * @param query   offset of the query point in POINTS
+   * @param pokedex pokedex number to leave out
+   * @param found   number of rows in the heap
+   * @return the number of rows in the heap afterwards
+   */
+  private int search(int from, int to, int query, int pokedex, long[] match, long types,
+      long generations, int[] rows, float[] distances, int found) {
+    if (from >= to || (this.TYPE_MASKS[from] & types) == 0
+        || (this.GENERATION_MASKS[from] & generations) == 0)
+      return found;
+    float distance = distance(this.POINTS, query, this.POINTS, from * DIMENSIONS);
+    int row = this.ROWS[from];
+    if (this.POKEDEX[from] != pokedex && (match[row >>> 6] & 1L << row) != 0)
+      found = offer(row, distance, rows, distances, found);
+
+    int mid = middle(from, to);
+    float radius = this.RADII[from];
+    // every inner point is at least distance - radius away, every outer one radius - distance,
+    // so the side the query falls on goes first and the other only if it can still be closer
+    if (distance <= radius) {
+      found = search(from + 1, mid, query, pokedex, match, types, generations, rows, distances,
+          found);
+      if (found < rows.length || radius - distance < distances[0])
+        found = search(mid, to, query, pokedex, match, types, generations, rows, distances,
+            found);
+    } else {
+      found = search(mid, to, query, pokedex, match, types, generations, rows, distances, found);
+      if (found < rows.length || distance - radius < distances[0])
+        found = search(from + 1, mid, query, pokedex, match, types, generations, rows,
+            distances, found);
+    }
+    return found;
+  }
+
+  /**
+   * Adds a row to the max-heap of found rows if it has room or the row is closer than its top
+   *
+   * @return the number of rows in the heap afterwards
+   */
+  private static int offer(int row, float distance, int[] rows, float[] distances, int found) {
+    if (found < rows.length) {
+      // sift up
+      int i = found;
+      while (i > 0 && distances[(i - 1) / 2] < distance) {
+        rows[i] = rows[(i - 1) / 2];
+        distances[i] = distances[(i - 1) / 2];
+        i = (i - 1) / 2;
+      }
+      rows[i] = row;
+      distances[i] = distance;
+      return found + 1;
+    }
+    if (distance < distances[0]) {
+      rows[0] = row;
+      distances[0] = distance;
+      siftDown(rows, distances, 0, found);
+    }
+    return found;
+  }
+
+  /**
+   * Moves the entry at i of a max-heap of the given size down until its children are no farther
+   */
+  private static void siftDown(int[] rows, float[] distances, int i, int size) {
+    while (2 * i + 1 < size) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && distances[child + 1] > distances[child])
+        ++child;
+      if (distances[child] <= distances[i])
+        return;
+      swap(rows, distances, i, child);
+      i = child;
+    }
+  }
+}
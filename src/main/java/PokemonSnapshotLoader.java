@@ -0,0 +1,266 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class that loads Pokemon from a compact binary snapshot of the csv, and only parses the csv with
+ * a fallback loader when the snapshot is missing or stale
+ *
+ * <p>Snapshot layout (big endian): a header of magic, format version, the size and modification
+ * time of the csv it was built from, the row count, the string table length and the ability
+ * count, followed by one fixed-width record per row, holding its stats as shorts in ordinal
+ * order, its damage multipliers as PokemonStore codes in type ordinal order and the ids of its
+ * abilities, then the offset and length of every ability name, and finally a UTF-8 string table
+ * holding every name, Japanese name and ability name. Every ability name is stored once however
+ * many rows have it.
+ */
+public class PokemonSnapshotLoader implements IPokemonLoader {
+
+  // "PKMN"
+  private static final int MAGIC = 0x504B4D4E;
+  // bumped whenever the record layout changes so older snapshots are rebuilt
+  private static final short VERSION = 5;
+  // magic, version, reserved, source size, source modification time, row count, string bytes,
+  // ability count
+  private static final int HEADER_BYTES = 4 + 2 + 2 + 8 + 8 + 4 + 4 + 4;
+  // most abilities a row can have in a snapshot
+  private static final int MAX_ABILITIES = 6;
+  // pokedex, generation, type one, type two, flags, name offset, name length, Japanese name
+  // offset, Japanese name length, stats, damage multiplier codes, ability count, ability ids
+  private static final int RECORD_BYTES = 2 + 1 + 1 + 1 + 1 + 4 + 2 + 4 + 2
+      + 2 * PokemonStats.values().length + PokemonTypes.values().length + 1 + 2 * MAX_ABILITIES;
+  // name offset and name length of an ability
+  private static final int ABILITY_BYTES = 4 + 2;
+  // flag bit marking a legendary pokemon
+  private static final byte LEGENDARY = 1;
+  // marks a missing second type
+  private static final byte NO_TYPE = -1;
+  // file extension appended to the csv path
+  private static final String EXTENSION = ".snapshot";
+  // where snapshots that could not be written are reported
+  private static final System.Logger LOGGER =
+      System.getLogger(PokemonSnapshotLoader.class.getName());
+
+  // loader used to parse the csv when there is no usable snapshot
+  private final IPokemonLoader FALLBACK;
+
+  /**
+   * Constructor that sets the loader used to rebuild the snapshot
+   *
+   * @param fallback loader that parses the csv
+   */
+  public PokemonSnapshotLoader(IPokemonLoader fallback) {
+    this.FALLBACK = fallback;
+  }
+
+  /**
+   * Loads the Pokemon from the snapshot of the given csv file, rebuilding the snapshot from the
+   * csv first if it is missing or stale. A snapshot that cannot be written, for a dataset the
+   * format cannot hold or a read-only directory, is logged as a warning and the csv is used
+   *
+   * @param filename the path of the csv file
+   * @return a list of all Pokemon objects found in the file
+   * @throws FileNotFoundException if the filepath was incorrect/file not found
+   */
+  @Override public List<IPokemon> loadPokemon(String filename) throws IOException {
+    File source = new File(filename);
+    Path snapshot = Paths.get(filename + EXTENSION);
+    if (Files.isRegularFile(snapshot)) {
+      List<IPokemon> pokemon = readSnapshot(snapshot, source);
+      if (pokemon != null)
+        return pokemon;
+    }
+
+    List<IPokemon> pokemon = this.FALLBACK.loadPokemon(filename);
+    try {
+      writeSnapshot(pokemon, source, snapshot);
+    } catch (IOException ioe) {
+      // the snapshot is only a cache, a read-only directory should not stop the app from starting,
+      // but every start will parse the csv until it is fixed
+      LOGGER.log(System.Logger.Level.WARNING, "Could not write " + snapshot
+          + ", loading " + filename + " from the csv every time: " + ioe.getMessage());
+    }
+    return pokemon;
+  }
+
+  /**
+   * Memory maps a snapshot and rebuilds the Pokemon stored in it
+   *
+   * @param snapshot the snapshot file
+   * @param source   the csv the snapshot should have been built from
+   * @return the Pokemon in the snapshot, or null if the snapshot is stale or not a snapshot
+   * @throws IOException if the snapshot could not be read
+   */
+  private static List<IPokemon> readSnapshot(Path snapshot, File source) throws IOException {
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_BYTES)
+        return null;
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION)
+        return null;
+      buffer.getShort();
+      long sourceSize = buffer.getLong();
+      long sourceModified = buffer.getLong();
+      // a missing csv leaves the snapshot as the only copy of the data
+      if (source.exists() && (source.length() != sourceSize
+          || source.lastModified() != sourceModified))
+        return null;
+      int rows = buffer.getInt();
+      int stringBytes = buffer.getInt();
+      int abilityCount = buffer.getInt();
+      if (rows < 0 || stringBytes < 0 || abilityCount < 0 || channel.size() != HEADER_BYTES
+          + (long) rows * RECORD_BYTES + (long) abilityCount * ABILITY_BYTES + stringBytes)
+        return null;
+
+      // copy the string table out once so names decode straight from a byte array
+      byte[] strings = new byte[stringBytes];
+      buffer.position(HEADER_BYTES + rows * RECORD_BYTES + abilityCount * ABILITY_BYTES);
+      buffer.get(strings);
+      buffer.position(HEADER_BYTES + rows * RECORD_BYTES);
+      String[] abilities = new String[abilityCount];
+      for (int i = 0; i < abilityCount; ++i) {
+        int offset = buffer.getInt();
+        int length = buffer.getShort() & 0xFFFF;
+        abilities[i] = PokemonAbilities.intern(
+            new String(strings, offset, length, StandardCharsets.UTF_8));
+      }
+      buffer.position(HEADER_BYTES);
+
+      PokemonTypes[] types = PokemonTypes.values();
+      List<IPokemon> pokemon = new ArrayList<>(rows);
+      for (int i = 0; i < rows; ++i) {
+        Pokemon current = new Pokemon();
+        current.setPokedex(buffer.getShort() & 0xFFFF);
+        current.setGeneration(buffer.get());
+        current.setTypeOne(types[buffer.get()]);
+        byte typeTwo = buffer.get();
+        current.setTypeTwo(typeTwo == NO_TYPE ? null : types[typeTwo]);
+        current.setLegendary((buffer.get() & LEGENDARY) != 0);
+        int nameOffset = buffer.getInt();
+        int nameLength = buffer.getShort() & 0xFFFF;
+        current.setName(new String(strings, nameOffset, nameLength, StandardCharsets.UTF_8));
+        int japaneseOffset = buffer.getInt();
+        int japaneseLength = buffer.getShort() & 0xFFFF;
+        if (japaneseLength > 0)
+          current.setJapaneseName(
+              new String(strings, japaneseOffset, japaneseLength, StandardCharsets.UTF_8));
+        for (PokemonStats stat : PokemonStats.values())
+          current.setStat(stat, buffer.getShort());
+        for (PokemonTypes type : types)
+          current.setDamageMultiplier(type, PokemonStore.decodeMultiplier(buffer.get()));
+        String[] rowAbilities = new String[buffer.get()];
+        for (int a = 0; a < MAX_ABILITIES; ++a) {
+          int ability = buffer.getShort();
+          if (a < rowAbilities.length)
+            rowAbilities[a] = abilities[ability];
+        }
+        current.setAbilities(List.of(rowAbilities));
+        pokemon.add(current);
+      }
+      return pokemon;
+    }
+  }
+
+  /**
+   * Writes a snapshot of the given Pokemon, replacing any previous snapshot atomically
+   *
+   * @param pokemon  the Pokemon to store
+   * @param source   the csv the Pokemon were loaded from
+   * @param snapshot the snapshot file to write
+   * @throws IOException if the snapshot could not be written
+   */
+  private static void writeSnapshot(List<IPokemon> pokemon, File source, Path snapshot)
+      throws IOException {
+    // lay out the string table first so every record knows where its names live, the Japanese
+    // names follow right after the names of the same row
+    byte[][] names = new byte[pokemon.size()][];
+    byte[][] japaneseNames = new byte[pokemon.size()][];
+    int stringBytes = 0;
+    for (int i = 0; i < names.length; ++i) {
+      names[i] = pokemon.get(i).getName().getBytes(StandardCharsets.UTF_8);
+      String japaneseName = pokemon.get(i).getJapaneseName();
+      japaneseNames[i] = japaneseName == null ? new byte[0]
+          : japaneseName.getBytes(StandardCharsets.UTF_8);
+      stringBytes += names[i].length + japaneseNames[i].length;
+    }
+    // number the abilities in order of appearance, their names go at the end of the table
+    Map<String, Integer> abilityIds = new LinkedHashMap<>();
+    for (IPokemon current : pokemon) {
+      if (current.getAbilities().size() > MAX_ABILITIES)
+        throw new IOException(current.getName() + " has more than " + MAX_ABILITIES
+            + " abilities");
+      for (String ability : current.getAbilities())
+        abilityIds.putIfAbsent(ability, abilityIds.size());
+    }
+    if (abilityIds.size() > Short.MAX_VALUE)
+      throw new IOException("More than " + Short.MAX_VALUE + " abilities");
+    byte[][] abilityNames = new byte[abilityIds.size()][];
+    for (Map.Entry<String, Integer> ability : abilityIds.entrySet()) {
+      abilityNames[ability.getValue()] = ability.getKey().getBytes(StandardCharsets.UTF_8);
+      stringBytes += abilityNames[ability.getValue()].length;
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + pokemon.size() * RECORD_BYTES
+        + abilityNames.length * ABILITY_BYTES + stringBytes);
+    buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+    buffer.putLong(source.length()).putLong(source.lastModified());
+    buffer.putInt(pokemon.size()).putInt(stringBytes).putInt(abilityNames.length);
+    int nameOffset = 0;
+    for (int i = 0; i < names.length; ++i) {
+      IPokemon current = pokemon.get(i);
+      buffer.putShort((short) current.getPokedex());
+      buffer.put((byte) current.getGeneration());
+      buffer.put((byte) current.getTypeOne().ordinal());
+      buffer.put(current.getTypeTwo() == null ? NO_TYPE : (byte) current.getTypeTwo().ordinal());
+      buffer.put(current.isLegendary() ? LEGENDARY : 0);
+      buffer.putInt(nameOffset).putShort((short) names[i].length);
+      nameOffset += names[i].length;
+      buffer.putInt(nameOffset).putShort((short) japaneseNames[i].length);
+      nameOffset += japaneseNames[i].length;
+      for (PokemonStats stat : PokemonStats.values())
+        buffer.putShort((short) current.getStat(stat));
+      for (PokemonTypes type : PokemonTypes.values())
+        buffer.put(PokemonStore.encodeMultiplier(current.getDamageMultiplier(type)));
+      List<String> abilities = current.getAbilities();
+      buffer.put((byte) abilities.size());
+      for (int a = 0; a < MAX_ABILITIES; ++a)
+        buffer.putShort(a < abilities.size() ? abilityIds.get(abilities.get(a)).shortValue() : 0);
+    }
+    for (byte[] abilityName : abilityNames) {
+      buffer.putInt(nameOffset).putShort((short) abilityName.length);
+      nameOffset += abilityName.length;
+    }
+    for (int i = 0; i < names.length; ++i)
+      buffer.put(names[i]).put(japaneseNames[i]);
+    for (byte[] abilityName : abilityNames)
+      buffer.put(abilityName);
+    buffer.flip();
+
+    // write next to the snapshot and move it into place so readers never see half a file
+    Path temp = Files.createTempFile(snapshot.toAbsolutePath().getParent(),
+        snapshot.getFileName().toString(), ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+      while (buffer.hasRemaining())
+        channel.write(buffer);
+    }
+    try {
+      Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+}
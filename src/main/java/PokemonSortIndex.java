@@ -0,0 +1,250 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class representing every row of a PokemonStore in the order of every PokemonSortKey, so sorted
+ * results are read off a permutation built at load time instead of sorting on every request
+ *
+ * <p>Every permutation orders its rows by key and then by row, and is built with a counting sort
+ * over the key, names sorting by their rank among the distinct names. A sorted page walks the
+ * permutation and keeps the rows set in the result bitset. Descending pages walk it backwards
+ * one run of equal keys at a time, so ties stay in row order both ways. A top-k query over a
+ * sparse result instead scans the result's rows into a bounded heap, which reads fewer rows than
+ * walking past every row the result leaves out
+ */
+public final class PokemonSortIndex {
+
+  // the store the rows belong to
+  private final PokemonStore STORE;
+  // rank of every row's name among the distinct names, ignoring case
+  private final int[] NAME_RANKS;
+  // rows in ascending order of every key, indexed by key ordinal
+  private final int[][] ORDERS;
+
+  /**
+   * Constructor that builds the permutation of every key
+   *
+   * @param store the store to order
+   */
+  public PokemonSortIndex(PokemonStore store) {
+    this.STORE = store;
+    int size = store.size();
+    // names repeat across forms and datasets, so only the distinct names are sorted
+    Map<String, Integer> distinct = new HashMap<>();
+    int[] nameIds = new int[size];
+    for (int row = 0; row < size; ++row)
+      nameIds[row] = distinct.computeIfAbsent(store.getName(row), name -> distinct.size());
+    String[] names = distinct.keySet().toArray(new String[0]);
+    Arrays.sort(names, String.CASE_INSENSITIVE_ORDER);
+    int[] ranks = new int[names.length];
+    for (int i = 0; i < names.length; ++i)
+      ranks[distinct.get(names[i])] = i > 0
+          && String.CASE_INSENSITIVE_ORDER.compare(names[i - 1], names[i]) == 0
+          ? ranks[distinct.get(names[i - 1])] : i;
+    this.NAME_RANKS = new int[size];
+    for (int row = 0; row < size; ++row)
+      this.NAME_RANKS[row] = ranks[nameIds[row]];
+
+    PokemonSortKey[] keys = PokemonSortKey.values();
+    this.ORDERS = new int[keys.length][];
+    for (PokemonSortKey key : keys)
+      this.ORDERS[key.ordinal()] = countingSort(key);
+  }
+
+  /**
+   * Orders every row by a key and then by row
+   */
+  private int[] countingSort(PokemonSortKey key) {
+    int size = this.STORE.size();
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (int row = 0; row < size; ++row) {
+      min = Math.min(min, key(key, row));
+      max = Math.max(max, key(key, row));
+    }
+    int[] order = new int[size];
+    if (size == 0)
+      return order;
+    int[] starts = new int[max - min + 2];
+    for (int row = 0; row < size; ++row)
+      ++starts[key(key, row) - min + 1];
+    for (int i = 1; i < starts.length; ++i)
+      starts[i] += starts[i - 1];
+    for (int row = 0; row < size; ++row)
+      order[starts[key(key, row) - min]++] = row;
+    return order;
+  }
+
+  /**
+   * Gets the value a row is ordered by
+   *
+   * @param key the sort key
+   * @param row the row
+   * @return the stat, the pokedex number or the rank of the name
+   */
+  public int key(PokemonSortKey key, int row) {
+    if (key.getStat() != null)
+      return this.STORE.getStat(key.getStat(), row);
+    return key == PokemonSortKey.NAME ? this.NAME_RANKS[row] : this.STORE.getPokedex(row);
+  }
+
+  /**
+   * Counts the rows whose key lies within an inclusive range
+   *
+   * @param key the sort key
+   * @param min the lowest accepted key
+   * @param max the highest accepted key
+   * @return the number of rows
+   */
+  public int count(PokemonSortKey key, int min, int max) {
+    if (min > max)
+      return 0;
+    return lowerBound(key, max == Integer.MAX_VALUE ? max : max + 1, max == Integer.MAX_VALUE)
+        - lowerBound(key, min, false);
+  }
+
+  /**
+   * Sets the bits of the rows whose key lies within an inclusive range. The rows are one slice
+   * of the key's permutation, found by binary search
+   *
+   * @param key the sort key
+   * @param min the lowest accepted key
+   * @param max the highest accepted key
+   * @param out the bitset to add the rows to
+   */
+  public void addRange(PokemonSortKey key, int min, int max, long[] out) {
+    if (min > max)
+      return;
+    int[] order = this.ORDERS[key.ordinal()];
+    int end = lowerBound(key, max == Integer.MAX_VALUE ? max : max + 1, max == Integer.MAX_VALUE);
+    for (int i = lowerBound(key, min, false); i < end; ++i)
+      out[order[i] >>> 6] |= 1L << order[i];
+  }
+
+  /**
+   * Finds the first position of a key's permutation holding a key of at least a value, or past
+   * the value when inclusive
+   */
+  private int lowerBound(PokemonSortKey key, int value, boolean inclusive) {
+    int[] order = this.ORDERS[key.ordinal()];
+    int low = 0;
+    int high = order.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int found = key(key, order[middle]);
+      if (found < value || inclusive && found == value)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low;
+  }
+
+  /**
+   * Reads one page of a result in the order of a key
+   *
+   * @param key        the sort key
+   * @param descending true for the largest keys first
+   * @param match      the rows of the result
+   * @param skip       the number of result rows before the page
+   * @param out        receives the rows of the page, as many as it has room for
+   * @return the number of rows read, fewer than out has room for at the end of the result
+   */
+  public int page(PokemonSortKey key, boolean descending, long[] match, int skip, int[] out) {
+    int[] order = this.ORDERS[key.ordinal()];
+    int found = 0;
+    if (!descending) {
+      for (int i = 0; i < order.length && found < out.length; ++i) {
+        int row = order[i];
+        if ((match[row >>> 6] & 1L << row) != 0 && skip-- <= 0)
+          out[found++] = row;
+      }
+      return found;
+    }
+    for (int end = order.length; end > 0 && found < out.length; ) {
+      // find the run of rows sharing the last key, then read it forwards
+      int start = end - 1;
+      int value = key(key, order[start]);
+      while (start > 0 && key(key, order[start - 1]) == value)
+        --start;
+      for (int i = start; i < end && found < out.length; ++i) {
+        int row = order[i];
+        if ((match[row >>> 6] & 1L << row) != 0 && skip-- <= 0)
+          out[found++] = row;
+      }
+      end = start;
+    }
+    return found;
+  }
+
+  /**
+   * Finds the first rows of a result in the order of a key, the same rows as its first page
+   *
+   * @param key        the sort key
+   * @param descending true for the largest keys first
+   * @param match      the rows of the result
+   * @param count      the number of rows in the result
+   * @param out        receives the first rows in order, as many as it has room for
+   * @return the number of rows found
+   */
+  public int top(PokemonSortKey key, boolean descending, long[] match, int count, int[] out) {
+    // walking the permutation reads about out.length * size / count rows before it has enough,
+    // scanning the result reads count, so a result sparser than that goes through a heap
+    if ((long) count * count >= (long) out.length * this.STORE.size())
+      return page(key, descending, match, 0, out);
+    int found = 0;
+    for (int word = 0; word < match.length; ++word)
+      for (long bits = match[word]; bits != 0; bits &= bits - 1) {
+        int row = word << 6 | Long.numberOfTrailingZeros(bits);
+        if (found < out.length) {
+          // sift up past the rows that come before it
+          int i = found++;
+          while (i > 0 && before(key, descending, out[(i - 1) / 2], row)) {
+            out[i] = out[(i - 1) / 2];
+            i = (i - 1) / 2;
+          }
+          out[i] = row;
+        } else if (found > 0 && before(key, descending, row, out[0])) {
+          out[0] = row;
+          siftDown(key, descending, out, 0, found);
+        }
+      }
+    // the heap keeps the row that comes last on top, moving it to the end sorts the heap
+    for (int end = found - 1; end > 0; --end) {
+      int last = out[0];
+      out[0] = out[end];
+      out[end] = last;
+      siftDown(key, descending, out, 0, end);
+    }
+    return found;
+  }
+
+  /**
+   * Moves the row at i of a heap down until no row below it comes after it
+   */
+  private void siftDown(PokemonSortKey key, boolean descending, int[] heap, int i, int size) {
+    while (2 * i + 1 < size) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && before(key, descending, heap[child], heap[child + 1]))
+        ++child;
+      if (!before(key, descending, heap[i], heap[child]))
+        return;
+      int row = heap[i];
+      heap[i] = heap[child];
+      heap[child] = row;
+      i = child;
+    }
+  }
+
+  /**
+   * Checks if a row comes before another in the order of a key, ties going by row
+   */
+  private boolean before(PokemonSortKey key, boolean descending, int a, int b) {
+    int keyA = key(key, a);
+    int keyB = key(key, b);
+    if (keyA != keyB)
+      return descending ? keyA > keyB : keyA < keyB;
+    return a < b;
+  }
+}
@@ -0,0 +1,48 @@
+/**
+ * Columns search results can be ordered by: the name, the pokedex number or any stat
+ */
+public enum PokemonSortKey {
+  NAME(null),
+  POKEDEX(null),
+  HP(PokemonStats.HP),
+  ATTACK(PokemonStats.ATTACK),
+  DEFENSE(PokemonStats.DEFENSE),
+  SP_ATTACK(PokemonStats.SP_ATTACK),
+  SP_DEFENSE(PokemonStats.SP_DEFENSE),
+  SPEED(PokemonStats.SPEED),
+  BASE_TOTAL(PokemonStats.BASE_TOTAL),
+  CAPTURE_RATE(PokemonStats.CAPTURE_RATE);
+
+  // the stat the key orders by, null for the name and the pokedex number
+  private final PokemonStats STAT;
+
+  PokemonSortKey(PokemonStats stat) {
+    this.STAT = stat;
+  }
+
+  /**
+   * Gets the stat the key orders by
+   *
+   * @return the stat, or null if the key is not a stat
+   */
+  public PokemonStats getStat() {
+    return this.STAT;
+  }
+
+  /**
+   * Finds a key by its name or the csv column of its stat, ignoring case
+   *
+   * @param name the name, such as "speed", "BASE_TOTAL" or "dex"
+   * @return the key
+   * @throws IllegalArgumentException if no key has the name
+   */
+  public static PokemonSortKey parse(String name) {
+    String key = name.trim();
+    if (key.equalsIgnoreCase("dex"))
+      return POKEDEX;
+    for (PokemonSortKey sortKey : values())
+      if (sortKey.name().equalsIgnoreCase(key))
+        return sortKey;
+    throw new IllegalArgumentException("Cannot sort by " + name);
+  }
+}
@@ -0,0 +1,352 @@
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Class that packs every sprite into a memory-mapped atlas of pre-scaled thumbnails, so a page of
+ * search results is served as slices of the file without decoding a single PNG
+ *
+ * <p>Atlas layout (big endian): a header of magic, format version, thumbnail size, the total size
+ * and latest modification time of the sprites it was built from, the sprite count, the string
+ * table length and the offset of the first tile, followed by one name offset and length per
+ * sprite, the UTF-8 string table of sprite names such as "150-mega-x", and finally one tile per
+ * sprite in the same order. A tile is size * size premultiplied ARGB ints in row order, so every
+ * thumbnail is one contiguous slice. Tiles are grouped into pages of TILES_PER_PAGE, which can be
+ * assembled into a texture atlas with getPage.
+ */
+public class PokemonSpriteAtlas {
+
+  // "PKSA"
+  private static final int MAGIC = 0x504B5341;
+  // bumped whenever the layout changes so older atlases are rebuilt
+  private static final short VERSION = 1;
+  // magic, version, thumbnail size, sprites size, sprites modification time, sprite count, string
+  // bytes, tile offset
+  private static final int HEADER_BYTES = 4 + 2 + 2 + 8 + 8 + 4 + 4 + 4;
+  // name offset and name length
+  private static final int ENTRY_BYTES = 4 + 2;
+  // tiles start on a page boundary of the file
+  private static final int TILE_ALIGNMENT = 4096;
+  // tiles along each side of a texture page
+  public static final int PAGE_TILES = 16;
+  // tiles in a texture page
+  public static final int TILES_PER_PAGE = PAGE_TILES * PAGE_TILES;
+  // file extension of every sprite
+  private static final String EXTENSION = ".png";
+
+  // width and height of every thumbnail
+  private final int SIZE;
+  // tile index of every sprite name
+  private final Map<String, Integer> TILES;
+  // premultiplied ARGB pixels of every tile
+  private final IntBuffer PIXELS;
+
+  /**
+   * Constructor that indexes a mapped atlas
+   */
+  private PokemonSpriteAtlas(int size, Map<String, Integer> tiles, IntBuffer pixels) {
+    this.SIZE = size;
+    this.TILES = tiles;
+    this.PIXELS = pixels;
+  }
+
+  /**
+   * Opens the atlas of a sprite directory, rebuilding it first if it is missing, stale or holds
+   * thumbnails of another size
+   *
+   * @param sprites the directory holding the sprites
+   * @param atlas   the atlas file
+   * @param size    width and height of the thumbnails
+   * @return the mapped atlas
+   * @throws IOException if the atlas could not be built or read
+   */
+  public static PokemonSpriteAtlas open(File sprites, Path atlas, int size) throws IOException {
+    File[] files = spriteFiles(sprites);
+    long[] signature = signatureOf(files);
+    if (Files.isRegularFile(atlas)) {
+      PokemonSpriteAtlas mapped = map(atlas, size, signature);
+      if (mapped != null)
+        return mapped;
+    }
+    build(files, signature, atlas, size);
+    PokemonSpriteAtlas mapped = map(atlas, size, signature);
+    if (mapped == null)
+      throw new IOException("Atlas " + atlas + " was modified while it was opened");
+    return mapped;
+  }
+
+  /**
+   * Builds the atlas of the pokemon directory offline
+   *
+   * @param args the atlas file and the thumbnail size, defaulting to pokemon.atlas and 64
+   * @throws IOException if the atlas could not be built
+   */
+  public static void main(String[] args) throws IOException {
+    Path atlas = Path.of(args.length > 0 ? args[0] : "pokemon.atlas");
+    int size = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+    PokemonSpriteAtlas opened = open(new File("pokemon"), atlas, size);
+    System.out.println(
+        "Packed " + opened.TILES.size() + " sprites into " + opened.getPageCount() + " pages");
+  }
+
+  /**
+   * Gets the width and height of every thumbnail
+   *
+   * @return the thumbnail size
+   */
+  public int getSize() {
+    return this.SIZE;
+  }
+
+  /**
+   * Gets the number of texture pages the tiles are grouped into
+   *
+   * @return the page count
+   */
+  public int getPageCount() {
+    return (this.TILES.size() + TILES_PER_PAGE - 1) / TILES_PER_PAGE;
+  }
+
+  /**
+   * Checks whether the atlas holds a sprite
+   *
+   * @param pokedex the pokedex number
+   * @param form    the form, or null for the regular sprite
+   * @return true if getThumbnail finds the sprite
+   */
+  public boolean hasThumbnail(int pokedex, String form) {
+    return this.TILES.containsKey(form == null ? Integer.toString(pokedex) : pokedex + "-" + form);
+  }
+
+  /**
+   * Gets the pixels of a thumbnail straight from the mapped file
+   *
+   * @param pokedex the pokedex number
+   * @param form    the form, or null for the regular sprite
+   * @return a read-only buffer of size * size premultiplied ARGB pixels in row order, or null if
+   *     there is no such sprite
+   */
+  public IntBuffer getThumbnail(int pokedex, String form) {
+    Integer tile = this.TILES.get(form == null ? Integer.toString(pokedex) : pokedex + "-" + form);
+    if (tile == null)
+      return null;
+    int pixels = this.SIZE * this.SIZE;
+    return this.PIXELS.duplicate().position(tile * pixels).limit((tile + 1) * pixels).slice();
+  }
+
+  /**
+   * Copies a thumbnail into an image, which needs no decoding
+   *
+   * @param pokedex the pokedex number
+   * @param form    the form, or null for the regular sprite
+   * @return the thumbnail, or null if there is no such sprite
+   */
+  public BufferedImage getThumbnailImage(int pokedex, String form) {
+    IntBuffer pixels = getThumbnail(pokedex, form);
+    if (pixels == null)
+      return null;
+    BufferedImage image = new BufferedImage(this.SIZE, this.SIZE, BufferedImage.TYPE_INT_ARGB_PRE);
+    pixels.get(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+    return image;
+  }
+
+  /**
+   * Assembles a texture page, with tile i of the page at column i % PAGE_TILES and row
+   * i / PAGE_TILES
+   *
+   * @param page the page index
+   * @return the page as one premultiplied ARGB image
+   */
+  public BufferedImage getPage(int page) {
+    int side = PAGE_TILES * this.SIZE;
+    BufferedImage image = new BufferedImage(side, side, BufferedImage.TYPE_INT_ARGB_PRE);
+    int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    IntBuffer pixels = this.PIXELS.duplicate();
+    int first = page * TILES_PER_PAGE;
+    int last = Math.min(first + TILES_PER_PAGE, this.TILES.size());
+    for (int tile = first; tile < last; ++tile) {
+      int x = (tile - first) % PAGE_TILES * this.SIZE;
+      int y = (tile - first) / PAGE_TILES * this.SIZE;
+      pixels.position(tile * this.SIZE * this.SIZE);
+      for (int row = 0; row < this.SIZE; ++row)
+        pixels.get(data, (y + row) * side + x, this.SIZE);
+    }
+    return image;
+  }
+
+  /**
+   * Gets the page and the position inside it of a sprite's tile
+   *
+   * @param pokedex the pokedex number
+   * @param form    the form, or null for the regular sprite
+   * @return page, x and y in pixels, or null if there is no such sprite
+   */
+  public int[] getPagePosition(int pokedex, String form) {
+    Integer tile = this.TILES.get(form == null ? Integer.toString(pokedex) : pokedex + "-" + form);
+    if (tile == null)
+      return null;
+    int slot = tile % TILES_PER_PAGE;
+    return new int[] {tile / TILES_PER_PAGE, slot % PAGE_TILES * this.SIZE,
+        slot / PAGE_TILES * this.SIZE};
+  }
+
+  /**
+   * Memory maps an atlas and indexes its sprites
+   *
+   * @return the atlas, or null if it is stale, of another size or not an atlas
+   */
+  private static PokemonSpriteAtlas map(Path atlas, int size, long[] signature)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(atlas, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_BYTES)
+        return null;
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION || buffer.getShort() != size
+          || buffer.getLong() != signature[0] || buffer.getLong() != signature[1])
+        return null;
+      int sprites = buffer.getInt();
+      int stringBytes = buffer.getInt();
+      int tileOffset = buffer.getInt();
+      if (sprites < 0 || stringBytes < 0
+          || tileOffset < HEADER_BYTES + (long) sprites * ENTRY_BYTES + stringBytes
+          || channel.size() != tileOffset + (long) sprites * size * size * 4)
+        return null;
+
+      byte[] strings = new byte[stringBytes];
+      buffer.position(HEADER_BYTES + sprites * ENTRY_BYTES);
+      buffer.get(strings);
+      buffer.position(HEADER_BYTES);
+      Map<String, Integer> tiles = new HashMap<>(sprites * 2);
+      for (int i = 0; i < sprites; ++i) {
+        int nameOffset = buffer.getInt();
+        int nameLength = buffer.getShort() & 0xFFFF;
+        tiles.put(new String(strings, nameOffset, nameLength, StandardCharsets.UTF_8), i);
+      }
+      // the mapping stays valid after the channel is closed
+      IntBuffer pixels = buffer.position(tileOffset).slice().asIntBuffer().asReadOnlyBuffer();
+      return new PokemonSpriteAtlas(size, tiles, pixels);
+    }
+  }
+
+  /**
+   * Decodes and scales every sprite and writes the atlas, replacing any previous atlas atomically
+   */
+  private static void build(File[] files, long[] signature, Path atlas, int size)
+      throws IOException {
+    byte[][] names = new byte[files.length][];
+    int stringBytes = 0;
+    for (int i = 0; i < files.length; ++i) {
+      String name = files[i].getName();
+      names[i] = name.substring(0, name.length() - EXTENSION.length())
+          .getBytes(StandardCharsets.UTF_8);
+      stringBytes += names[i].length;
+    }
+    int tileOffset = HEADER_BYTES + files.length * ENTRY_BYTES + stringBytes;
+    tileOffset = (tileOffset + TILE_ALIGNMENT - 1) / TILE_ALIGNMENT * TILE_ALIGNMENT;
+
+    ByteBuffer buffer = ByteBuffer.allocate(tileOffset + files.length * size * size * 4);
+    buffer.putInt(MAGIC).putShort(VERSION).putShort((short) size);
+    buffer.putLong(signature[0]).putLong(signature[1]);
+    buffer.putInt(files.length).putInt(stringBytes).putInt(tileOffset);
+    int nameOffset = 0;
+    for (byte[] name : names) {
+      buffer.putInt(nameOffset).putShort((short) name.length);
+      nameOffset += name.length;
+    }
+    for (byte[] name : names)
+      buffer.put(name);
+    // tiles are independent, so they are decoded in parallel straight into their slice
+    IntBuffer tiles = buffer.position(tileOffset).slice().asIntBuffer();
+    try {
+      IntStream.range(0, files.length).parallel().forEach(i -> {
+        int[] pixels = thumbnail(files[i], size);
+        tiles.duplicate().position(i * size * size).put(pixels);
+      });
+    } catch (UncheckedIOException uioe) {
+      throw uioe.getCause();
+    }
+    buffer.position(0);
+
+    Path temp = Files.createTempFile(atlas.toAbsolutePath().getParent(),
+        atlas.getFileName().toString(), ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        while (buffer.hasRemaining())
+          channel.write(buffer);
+      }
+      Files.move(temp, atlas, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Decodes a sprite and scales it to fit a size * size tile, centred and keeping its aspect ratio
+   *
+   * @return the premultiplied ARGB pixels of the tile in row order
+   */
+  private static int[] thumbnail(File file, int size) {
+    BufferedImage sprite;
+    try {
+      sprite = ImageIO.read(file);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+    if (sprite == null)
+      throw new UncheckedIOException(new IOException(file + " is not a readable image"));
+    BufferedImage tile = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB_PRE);
+    double scale = Math.min((double) size / sprite.getWidth(), (double) size / sprite.getHeight());
+    int width = (int) Math.round(sprite.getWidth() * scale);
+    int height = (int) Math.round(sprite.getHeight() * scale);
+    Graphics2D graphics = tile.createGraphics();
+    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+        RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+    graphics.drawImage(sprite, (size - width) / 2, (size - height) / 2, width, height, null);
+    graphics.dispose();
+    return ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+  }
+
+  /**
+   * Lists the sprites of a directory in name order, so rebuilding gives the same tile order
+   */
+  private static File[] spriteFiles(File sprites) throws IOException {
+    File[] files = sprites.listFiles((dir, name) -> name.endsWith(EXTENSION));
+    if (files == null)
+      throw new IOException(sprites + " is not a directory");
+    Arrays.sort(files);
+    return files;
+  }
+
+  /**
+   * Sums the sizes and finds the latest modification time of the sprites, which changes whenever a
+   * sprite is added, removed or replaced
+   */
+  private static long[] signatureOf(File[] files) {
+    long[] signature = new long[2];
+    for (File file : files) {
+      signature[0] += file.length();
+      signature[1] = Math.max(signature[1], file.lastModified());
+    }
+    return signature;
+  }
+}
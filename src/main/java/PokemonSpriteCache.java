@@ -0,0 +1,231 @@
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Class that decodes Pokemon sprites lazily and keeps the most recently used ones in an LRU cache
+ * bounded by the bytes of decoded pixels it holds
+ *
+ * <p>Sprites are named after the pokedex number, with an optional form suffix such as "3-mega",
+ * "150-mega-x" or "25-belle". Decoding runs on an executor, and concurrent requests for the same
+ * sprite share a single decode.
+ */
+public class PokemonSpriteCache {
+
+  // directory the app ships its sprites in
+  private static final String DEFAULT_DIRECTORY = "pokemon";
+  // decoded bytes kept by the shared cache, about 128 of the 256x256 sprites
+  private static final long DEFAULT_MAX_BYTES = 32L << 20;
+  // file extension of every sprite
+  private static final String EXTENSION = ".png";
+
+  // directory holding the sprites
+  private final File DIRECTORY;
+  // most decoded bytes the cache may hold
+  private final long MAX_BYTES;
+  // runs the decodes
+  private final Executor EXECUTOR;
+  // sprite names found in the directory, so missing sprites never touch the disk
+  private final Set<String> SPRITES = new HashSet<>();
+  // forms found in the directory, indexed by pokedex number
+  private final Map<Integer, List<String>> FORMS = new ConcurrentHashMap<>();
+  // decoded sprites in access order, least recently used first
+  private final LinkedHashMap<String, BufferedImage> CACHE = new LinkedHashMap<>(16, .75f, true);
+  // decodes that have not completed yet
+  private final Map<String, CompletableFuture<BufferedImage>> IN_FLIGHT =
+      new ConcurrentHashMap<>();
+  // decoded bytes currently in the cache, guarded by CACHE
+  private long cachedBytes;
+
+  /**
+   * Constructor that indexes the sprite directory without decoding anything
+   *
+   * @param directory the directory holding the sprites
+   * @param maxBytes  most decoded bytes the cache may hold
+   * @param executor  runs the decodes
+   */
+  public PokemonSpriteCache(File directory, long maxBytes, Executor executor) {
+    this.DIRECTORY = directory;
+    this.MAX_BYTES = maxBytes;
+    this.EXECUTOR = executor;
+    String[] files = directory.list();
+    if (files == null)
+      return;
+    for (String file : files) {
+      if (!file.endsWith(EXTENSION))
+        continue;
+      String sprite = file.substring(0, file.length() - EXTENSION.length());
+      this.SPRITES.add(sprite);
+      int dash = sprite.indexOf('-');
+      if (dash > 0)
+        try {
+          this.FORMS.computeIfAbsent(Integer.parseInt(sprite.substring(0, dash)),
+              k -> new ArrayList<>()).add(sprite.substring(dash + 1));
+        } catch (NumberFormatException nfe) {
+          // not a sprite of this app
+        }
+    }
+    for (List<String> forms : this.FORMS.values())
+      Collections.sort(forms);
+  }
+
+  /**
+   * Gets the cache shared by the app, reading from the pokemon directory
+   *
+   * @return the shared cache
+   */
+  public static PokemonSpriteCache getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * Gets the forms that have their own sprite, such as "mega", "mega-x" or "belle"
+   *
+   * @param pokedex the pokedex number
+   * @return the forms in alphabetical order, empty if there are none
+   */
+  public List<String> getForms(int pokedex) {
+    List<String> forms = this.FORMS.get(pokedex);
+    return forms == null ? Collections.emptyList() : Collections.unmodifiableList(forms);
+  }
+
+  /**
+   * Gets a sprite, waiting for it to be decoded if it is not cached
+   *
+   * @param pokedex the pokedex number
+   * @param form    the form, or null for the regular sprite
+   * @return the sprite, or null if there is none
+   * @throws UncheckedIOException if the sprite could not be decoded
+   */
+  public BufferedImage getSprite(int pokedex, String form) {
+    return requestSprite(pokedex, form).join();
+  }
+
+  /**
+   * Requests a sprite without waiting for it to be decoded
+   *
+   * @param pokedex the pokedex number
+   * @param form    the form, or null for the regular sprite
+   * @return a future completing with the sprite, or with null if there is none
+   */
+  public CompletableFuture<BufferedImage> requestSprite(int pokedex, String form) {
+    String sprite = form == null ? Integer.toString(pokedex) : pokedex + "-" + form;
+    if (!this.SPRITES.contains(sprite))
+      return CompletableFuture.completedFuture(null);
+    BufferedImage cached = cached(sprite);
+    if (cached != null)
+      return CompletableFuture.completedFuture(cached);
+
+    CompletableFuture<BufferedImage> decode = new CompletableFuture<>();
+    CompletableFuture<BufferedImage> running = this.IN_FLIGHT.putIfAbsent(sprite, decode);
+    if (running != null)
+      return running;
+    // the previous decode may have been cached between the lookup and claiming the sprite
+    cached = cached(sprite);
+    if (cached != null) {
+      this.IN_FLIGHT.remove(sprite, decode);
+      decode.complete(cached);
+      return decode;
+    }
+    this.EXECUTOR.execute(() -> decode(sprite, decode));
+    return decode;
+  }
+
+  /**
+   * Gets the bytes of decoded pixels the cache currently holds
+   *
+   * @return the cached bytes
+   */
+  public long getCachedBytes() {
+    synchronized (this.CACHE) {
+      return this.cachedBytes;
+    }
+  }
+
+  /**
+   * Decodes a sprite, caches it and completes the requests waiting for it
+   */
+  private void decode(String sprite, CompletableFuture<BufferedImage> decode) {
+    BufferedImage image;
+    try {
+      image = ImageIO.read(new File(this.DIRECTORY, sprite + EXTENSION));
+    } catch (IOException | RuntimeException e) {
+      this.IN_FLIGHT.remove(sprite, decode);
+      decode.completeExceptionally(e instanceof IOException
+          ? new UncheckedIOException((IOException) e) : e);
+      return;
+    }
+    if (image != null)
+      cache(sprite, image);
+    // cached before leaving flight so a new request always finds the sprite in one of them
+    this.IN_FLIGHT.remove(sprite, decode);
+    decode.complete(image);
+  }
+
+  /**
+   * Looks up a decoded sprite, marking it as most recently used
+   */
+  private BufferedImage cached(String sprite) {
+    synchronized (this.CACHE) {
+      return this.CACHE.get(sprite);
+    }
+  }
+
+  /**
+   * Caches a decoded sprite and evicts the least recently used ones until the cache fits
+   */
+  private void cache(String sprite, BufferedImage image) {
+    long bytes = bytesOf(image);
+    if (bytes > this.MAX_BYTES)
+      return;
+    synchronized (this.CACHE) {
+      BufferedImage previous = this.CACHE.put(sprite, image);
+      this.cachedBytes += bytes - (previous == null ? 0 : bytesOf(previous));
+      Iterator<BufferedImage> eldest = this.CACHE.values().iterator();
+      while (this.cachedBytes > this.MAX_BYTES) {
+        this.cachedBytes -= bytesOf(eldest.next());
+        eldest.remove();
+      }
+    }
+  }
+
+  /**
+   * Gets the bytes of pixel data a decoded image holds
+   */
+  private static long bytesOf(BufferedImage image) {
+    DataBuffer data = image.getRaster().getDataBuffer();
+    return (long) data.getSize() * data.getNumBanks()
+        * DataBuffer.getDataTypeSize(data.getDataType()) / 8;
+  }
+
+  /**
+   * Holds the shared cache, created on first use so apps that never show a sprite never index the
+   * directory
+   */
+  private static class DefaultHolder {
+
+    // the shared cache, decoding on two daemon threads
+    private static final PokemonSpriteCache INSTANCE =
+        new PokemonSpriteCache(new File(DEFAULT_DIRECTORY), DEFAULT_MAX_BYTES,
+            Executors.newFixedThreadPool(2, runnable -> {
+              Thread thread = new Thread(runnable, "pokemon-sprites");
+              thread.setDaemon(true);
+              return thread;
+            }));
+  }
+}
@@ -0,0 +1,117 @@
+import java.util.Arrays;
+
+/**
+ * Class representing a query on the stats of Pokemon, a conjunction of inclusive stat ranges and
+ * an optional legendary condition. For example, speed of at least 100 and a base total between
+ * 500 and 600 that is not legendary:
+ *
+ * <pre>
+ *   new PokemonStatQuery().atLeast(PokemonStats.SPEED, 100)
+ *       .between(PokemonStats.BASE_TOTAL, 500, 600).legendary(false)
+ * </pre>
+ */
+public class PokemonStatQuery {
+
+  // lowest accepted value of every stat, indexed by stat ordinal
+  private final int[] MIN = new int[PokemonStats.values().length];
+  // highest accepted value of every stat, indexed by stat ordinal
+  private final int[] MAX = new int[PokemonStats.values().length];
+  // true if the stat with that ordinal is restricted
+  private final boolean[] RESTRICTED = new boolean[PokemonStats.values().length];
+  // required legendary status, null if either is accepted
+  private Boolean legendary;
+
+  /**
+   * Constructor for a query that accepts every Pokemon
+   */
+  public PokemonStatQuery() {
+    Arrays.fill(this.MIN, Integer.MIN_VALUE);
+    Arrays.fill(this.MAX, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Only accept Pokemon whose stat is at least the given value
+   *
+   * @param stat the stat to restrict
+   * @param min  the lowest accepted value
+   * @return this query
+   */
+  public PokemonStatQuery atLeast(PokemonStats stat, int min) {
+    return between(stat, min, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Only accept Pokemon whose stat is at most the given value
+   *
+   * @param stat the stat to restrict
+   * @param max  the highest accepted value
+   * @return this query
+   */
+  public PokemonStatQuery atMost(PokemonStats stat, int max) {
+    return between(stat, Integer.MIN_VALUE, max);
+  }
+
+  /**
+   * Only accept Pokemon whose stat is within an inclusive range. Restricting the same stat twice
+   * keeps the intersection of both ranges
+   *
+   * @param stat the stat to restrict
+   * @param min  the lowest accepted value
+   * @param max  the highest accepted value
+   * @return this query
+   */
+  public PokemonStatQuery between(PokemonStats stat, int min, int max) {
+    int i = stat.ordinal();
+    this.MIN[i] = Math.max(this.MIN[i], min);
+    this.MAX[i] = Math.min(this.MAX[i], max);
+    this.RESTRICTED[i] = true;
+    return this;
+  }
+
+  /**
+   * Only accept Pokemon that are, or are not, legendary
+   *
+   * @param legendary true to only accept legendary Pokemon, false to exclude them
+   * @return this query
+   */
+  public PokemonStatQuery legendary(boolean legendary) {
+    this.legendary = legendary;
+    return this;
+  }
+
+  /**
+   * Narrows a bitset of rows down to the rows accepted by this query
+   *
+   * @param store the store holding the rows
+   * @param bits  the bitset to narrow, one bit per row of the store
+   */
+  public void retainMatches(PokemonStore store, long[] bits) {
+    if (this.legendary != null)
+      store.retainLegendary(bits, this.legendary);
+
+    boolean restricted = false;
+    for (boolean stat : this.RESTRICTED)
+      restricted |= stat;
+    if (!restricted)
+      return;
+
+    // every range is one branch-free pass over its column, then the rejections are packed
+    // into the bitset once
+    byte[] rejected = new byte[store.size()];
+    for (PokemonStats stat : PokemonStats.values())
+      if (this.RESTRICTED[stat.ordinal()]) {
+        // clamp so the subtractions in the range check cannot overflow
+        int min = (int) Math.max(this.MIN[stat.ordinal()], Short.MIN_VALUE - 1L);
+        int max = (int) Math.min(this.MAX[stat.ordinal()], Short.MAX_VALUE + 1L);
+        store.rejectOutside(stat, min, max, rejected);
+      }
+    for (int word = 0; word < bits.length; ++word) {
+      int base = word << 6;
+      int end = Math.min(64, rejected.length - base);
+      long keep = 0;
+      for (int bit = 0; bit < end; ++bit)
+        keep |= (long) (rejected[base + bit] ^ 1) << bit;
+      bits[word] &= keep;
+    }
+  }
+}
@@ -0,0 +1,29 @@
+/**
+ * Numeric stats loaded for every Pokemon, each bound to its column in pokemon.csv
+ */
+public enum PokemonStats {
+  HP("hp"),
+  ATTACK("attack"),
+  DEFENSE("defense"),
+  SP_ATTACK("sp_attack"),
+  SP_DEFENSE("sp_defense"),
+  SPEED("speed"),
+  BASE_TOTAL("base_total"),
+  CAPTURE_RATE("capture_rate");
+
+  // name of the csv column holding the stat
+  private final String COLUMN;
+
+  PokemonStats(String column) {
+    this.COLUMN = column;
+  }
+
+  /**
+   * Gets the name of the csv column holding the stat
+   *
+   * @return the column name
+   */
+  public String getColumn() {
+    return this.COLUMN;
+  }
+}
@@ -0,0 +1,417 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Class representing a Pokemon dataset stored column by column in primitive arrays. Rows are
+ * addressed by their position in the dataset, and IPokemon views are only created when a caller
+ * asks for one
+ */
+public class PokemonStore {
+
+  // marks a missing second type
+  public static final byte NO_TYPE = -1;
+  // damage multiplier every multiplier code stands for, indexed by code
+  private static final float[] MULTIPLIERS = {0, 0.25f, 0.5f, 1, 2, 4};
+  // code of a neutral damage multiplier, lower codes resist and higher codes are weak
+  public static final byte NEUTRAL = 3;
+  // largest pokedex number the store holds, as it keeps them in unsigned shorts
+  public static final int MAX_POKEDEX = 0xFFFF;
+  // largest generation the store holds, as it keeps them in bytes
+  public static final int MAX_GENERATION = Byte.MAX_VALUE;
+
+  // number of rows in the store
+  private final int SIZE;
+  // ordinal of the first type of every row
+  private final byte[] TYPE_ONE;
+  // ordinal of the second type of every row, NO_TYPE if there is none
+  private final byte[] TYPE_TWO;
+  // generation of every row
+  private final byte[] GENERATION;
+  // pokedex number of every row, read unsigned
+  private final short[] POKEDEX;
+  // every stat of every row, indexed by stat ordinal then row
+  private final short[][] STATS;
+  // damage multiplier code of every attacking type against every row, indexed by type ordinal
+  // then row
+  private final byte[][] AGAINST;
+  // bit set for every legendary row
+  private final long[] LEGENDARY;
+  // UTF-8 bytes of every name back to back
+  private final byte[] NAMES;
+  // start of every row's name in NAMES, with one extra entry marking the end of the last name
+  private final int[] NAME_OFFSETS;
+  // UTF-8 bytes of every Japanese name back to back, rows without one take no bytes
+  private final byte[] JAPANESE_NAMES;
+  // start of every row's Japanese name in JAPANESE_NAMES, with one extra entry marking the end
+  private final int[] JAPANESE_NAME_OFFSETS;
+  // name of every ability in the store, indexed by ability id, in alphabetical order
+  private final String[] ABILITY_NAMES;
+  // id of every ability, keyed by its lower cased name
+  private final Map<String, Integer> ABILITY_IDS;
+  // ability ids of every row back to back, in the order the row lists them
+  private final short[] ABILITIES;
+  // start of every row's abilities in ABILITIES, with one extra entry marking the end
+  private final int[] ABILITY_OFFSETS;
+
+  /**
+   * Constructor that copies a list of Pokemon into columns
+   *
+   * @param pokemon the Pokemon to store, in row order
+   * @throws IllegalArgumentException if a pokedex number is not between 0 and MAX_POKEDEX, a
+   *                                  generation is not between 0 and MAX_GENERATION or a stat
+   *                                  does not fit in a short
+   */
+  public PokemonStore(List<IPokemon> pokemon) {
+    this.SIZE = pokemon.size();
+    this.TYPE_ONE = new byte[this.SIZE];
+    this.TYPE_TWO = new byte[this.SIZE];
+    this.GENERATION = new byte[this.SIZE];
+    this.POKEDEX = new short[this.SIZE];
+    this.STATS = new short[PokemonStats.values().length][this.SIZE];
+    this.LEGENDARY = new long[PokemonFilterIndex.wordsFor(this.SIZE)];
+    this.AGAINST = new byte[PokemonTypes.values().length][this.SIZE];
+    this.NAME_OFFSETS = new int[this.SIZE + 1];
+    this.JAPANESE_NAME_OFFSETS = new int[this.SIZE + 1];
+
+    byte[][] names = new byte[this.SIZE][];
+    byte[][] japaneseNames = new byte[this.SIZE][];
+    for (int row = 0; row < this.SIZE; ++row) {
+      IPokemon current = pokemon.get(row);
+      this.TYPE_ONE[row] = (byte) current.getTypeOne().ordinal();
+      this.TYPE_TWO[row] =
+          current.getTypeTwo() == null ? NO_TYPE : (byte) current.getTypeTwo().ordinal();
+      if (current.getGeneration() < 0 || current.getGeneration() > MAX_GENERATION)
+        throw new IllegalArgumentException("Generation of " + current.getName()
+            + " is not between 0 and " + MAX_GENERATION + ": " + current.getGeneration());
+      this.GENERATION[row] = (byte) current.getGeneration();
+      if (current.getPokedex() < 0 || current.getPokedex() > MAX_POKEDEX)
+        throw new IllegalArgumentException("Pokedex number of " + current.getName()
+            + " is not between 0 and " + MAX_POKEDEX + ": " + current.getPokedex());
+      this.POKEDEX[row] = (short) current.getPokedex();
+      for (PokemonStats stat : PokemonStats.values()) {
+        int value = current.getStat(stat);
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE)
+          throw new IllegalArgumentException(stat + " of " + current.getName()
+              + " does not fit in a short: " + value);
+        this.STATS[stat.ordinal()][row] = (short) value;
+      }
+      if (current.isLegendary())
+        this.LEGENDARY[row >>> 6] |= 1L << row;
+      for (PokemonTypes type : PokemonTypes.values())
+        this.AGAINST[type.ordinal()][row] = encodeMultiplier(current.getDamageMultiplier(type));
+      names[row] = current.getName().getBytes(StandardCharsets.UTF_8);
+      this.NAME_OFFSETS[row + 1] = this.NAME_OFFSETS[row] + names[row].length;
+      japaneseNames[row] = current.getJapaneseName() == null ? new byte[0]
+          : current.getJapaneseName().getBytes(StandardCharsets.UTF_8);
+      this.JAPANESE_NAME_OFFSETS[row + 1] =
+          this.JAPANESE_NAME_OFFSETS[row] + japaneseNames[row].length;
+    }
+    this.NAMES = concatenate(names, this.NAME_OFFSETS);
+    this.JAPANESE_NAMES = concatenate(japaneseNames, this.JAPANESE_NAME_OFFSETS);
+
+    // number the abilities in order of appearance, then renumber them alphabetically
+    Map<String, Integer> seen = new HashMap<>();
+    this.ABILITY_OFFSETS = new int[this.SIZE + 1];
+    for (int row = 0; row < this.SIZE; ++row) {
+      List<String> abilities = pokemon.get(row).getAbilities();
+      for (String ability : abilities)
+        seen.putIfAbsent(ability, seen.size());
+      this.ABILITY_OFFSETS[row + 1] = this.ABILITY_OFFSETS[row] + abilities.size();
+    }
+    if (seen.size() > Short.MAX_VALUE)
+      throw new IllegalArgumentException("More than " + Short.MAX_VALUE + " abilities");
+    this.ABILITY_NAMES = seen.keySet().toArray(new String[0]);
+    Arrays.sort(this.ABILITY_NAMES);
+    this.ABILITY_IDS = new HashMap<>();
+    int[] renumber = new int[this.ABILITY_NAMES.length];
+    for (int id = 0; id < this.ABILITY_NAMES.length; ++id) {
+      renumber[seen.get(this.ABILITY_NAMES[id])] = id;
+      this.ABILITY_IDS.putIfAbsent(this.ABILITY_NAMES[id].toLowerCase(Locale.ROOT), id);
+    }
+    this.ABILITIES = new short[this.ABILITY_OFFSETS[this.SIZE]];
+    for (int row = 0; row < this.SIZE; ++row) {
+      List<String> abilities = pokemon.get(row).getAbilities();
+      for (int i = 0; i < abilities.size(); ++i)
+        this.ABILITIES[this.ABILITY_OFFSETS[row] + i] =
+            (short) renumber[seen.get(abilities.get(i))];
+    }
+  }
+
+  /**
+   * Copies strings back to back into a single table
+   *
+   * @param strings the bytes of every string
+   * @param offsets the start of every string in the table, with one extra entry marking the end
+   * @return the table
+   */
+  private static byte[] concatenate(byte[][] strings, int[] offsets) {
+    byte[] table = new byte[offsets[strings.length]];
+    for (int i = 0; i < strings.length; ++i)
+      System.arraycopy(strings[i], 0, table, offsets[i], strings[i].length);
+    return table;
+  }
+
+  /**
+   * Gets the number of rows in the store
+   *
+   * @return the number of rows
+   */
+  public int size() {
+    return this.SIZE;
+  }
+
+  /**
+   * Gets a view of a single row
+   *
+   * @param row the row to view
+   * @return a read-only Pokemon backed by the row
+   */
+  public IPokemon get(int row) {
+    if (row < 0 || row >= this.SIZE)
+      throw new IndexOutOfBoundsException("Row " + row + " out of " + this.SIZE);
+    return new PokemonView(this, row);
+  }
+
+  /**
+   * Gets the name of a row, decoded from the name table
+   *
+   * @param row the row
+   * @return the name
+   */
+  public String getName(int row) {
+    return new String(this.NAMES, this.NAME_OFFSETS[row],
+        this.NAME_OFFSETS[row + 1] - this.NAME_OFFSETS[row], StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Gets the Japanese name of a row, decoded from the Japanese name table
+   *
+   * @param row the row
+   * @return the Japanese name, or null if the row has none
+   */
+  public String getJapaneseName(int row) {
+    int length = this.JAPANESE_NAME_OFFSETS[row + 1] - this.JAPANESE_NAME_OFFSETS[row];
+    return length == 0 ? null : new String(this.JAPANESE_NAMES, this.JAPANESE_NAME_OFFSETS[row],
+        length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Gets the abilities of a row
+   *
+   * @param row the row
+   * @return an immutable list of the ability names
+   */
+  public List<String> getAbilities(int row) {
+    String[] abilities = new String[this.ABILITY_OFFSETS[row + 1] - this.ABILITY_OFFSETS[row]];
+    for (int i = 0; i < abilities.length; ++i)
+      abilities[i] = this.ABILITY_NAMES[this.ABILITIES[this.ABILITY_OFFSETS[row] + i]];
+    return List.of(abilities);
+  }
+
+  /**
+   * Gets the number of abilities of a row
+   *
+   * @param row the row
+   * @return the number of abilities
+   */
+  public int getAbilityCount(int row) {
+    return this.ABILITY_OFFSETS[row + 1] - this.ABILITY_OFFSETS[row];
+  }
+
+  /**
+   * Gets one of the abilities of a row
+   *
+   * @param row   the row
+   * @param index the position of the ability in the row's list
+   * @return the ability id
+   */
+  public int getAbility(int row, int index) {
+    return this.ABILITIES[this.ABILITY_OFFSETS[row] + index];
+  }
+
+  /**
+   * Checks if a row has an ability
+   *
+   * @param row     the row
+   * @param ability the ability id
+   * @return true if the row lists the ability
+   */
+  public boolean hasAbility(int row, int ability) {
+    for (int i = this.ABILITY_OFFSETS[row]; i < this.ABILITY_OFFSETS[row + 1]; ++i)
+      if (this.ABILITIES[i] == ability)
+        return true;
+    return false;
+  }
+
+  /**
+   * Gets the number of distinct abilities in the store
+   *
+   * @return the number of abilities, ids run from 0 to one less
+   */
+  public int abilityCount() {
+    return this.ABILITY_NAMES.length;
+  }
+
+  /**
+   * Gets the name of an ability
+   *
+   * @param ability the ability id
+   * @return the ability name
+   */
+  public String getAbilityName(int ability) {
+    return this.ABILITY_NAMES[ability];
+  }
+
+  /**
+   * Finds the id of an ability, ignoring case
+   *
+   * @param name the ability name
+   * @return the ability id, or -1 if no row has the ability
+   */
+  public int findAbility(String name) {
+    Integer id = this.ABILITY_IDS.get(name.trim().toLowerCase(Locale.ROOT));
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Gets the ordinal of the first type of a row
+   *
+   * @param row the row
+   * @return the type ordinal
+   */
+  public int getTypeOne(int row) {
+    return this.TYPE_ONE[row];
+  }
+
+  /**
+   * Gets the ordinal of the second type of a row
+   *
+   * @param row the row
+   * @return the type ordinal, or NO_TYPE if the row has a single type
+   */
+  public int getTypeTwo(int row) {
+    return this.TYPE_TWO[row];
+  }
+
+  /**
+   * Gets the generation of a row
+   *
+   * @param row the row
+   * @return the generation
+   */
+  public int getGeneration(int row) {
+    return this.GENERATION[row];
+  }
+
+  /**
+   * Gets the pokedex number of a row
+   *
+   * @param row the row
+   * @return the pokedex number
+   */
+  public int getPokedex(int row) {
+    return this.POKEDEX[row] & 0xFFFF;
+  }
+
+  /**
+   * Gets one stat of a row
+   *
+   * @param stat the stat
+   * @param row  the row
+   * @return the value of the stat
+   */
+  public int getStat(PokemonStats stat, int row) {
+    return this.STATS[stat.ordinal()][row];
+  }
+
+  /**
+   * Checks if a row is legendary
+   *
+   * @param row the row
+   * @return true if the row is legendary
+   */
+  public boolean isLegendary(int row) {
+    return (this.LEGENDARY[row >>> 6] & (1L << row)) != 0;
+  }
+
+  /**
+   * Gets the damage multiplier of attacks of a type against a row
+   *
+   * @param attacking the type of the attack
+   * @param row       the row
+   * @return the damage multiplier
+   */
+  public float getDamageMultiplier(PokemonTypes attacking, int row) {
+    return MULTIPLIERS[this.AGAINST[attacking.ordinal()][row]];
+  }
+
+  /**
+   * Gets the damage multiplier code of attacks of a type against a row
+   *
+   * @param attacking the ordinal of the type of the attack
+   * @param row       the row
+   * @return the multiplier code, below NEUTRAL if the row resists and above if it is weak
+   */
+  public int getMultiplierCode(int attacking, int row) {
+    return this.AGAINST[attacking][row];
+  }
+
+  /**
+   * Encodes a damage multiplier as the code of the nearest multiplier in 0, 1/4, 1/2, 1, 2 and 4
+   *
+   * @param multiplier the damage multiplier
+   * @return the multiplier code
+   */
+  public static byte encodeMultiplier(float multiplier) {
+    if (multiplier <= 0)
+      return 0;
+    // codes above 0 are log2 of the multiplier shifted by NEUTRAL
+    long code = Math.round(Math.log(multiplier) / Math.log(2)) + NEUTRAL;
+    return (byte) Math.max(1, Math.min(MULTIPLIERS.length - 1, code));
+  }
+
+  /**
+   * Decodes a damage multiplier code
+   *
+   * @param code the multiplier code
+   * @return the damage multiplier
+   */
+  public static float decodeMultiplier(int code) {
+    return MULTIPLIERS[code];
+  }
+
+  /**
+   * Marks every row whose stat falls outside an inclusive range. The loop has no branches so the
+   * JIT can vectorise it
+   *
+   * @param stat     the stat to check
+   * @param min      the lowest accepted value
+   * @param max      the highest accepted value
+   * @param rejected one entry per row, set to 1 for rows outside the range and left alone for the
+   *                 rest
+   */
+  public void rejectOutside(PokemonStats stat, int min, int max, byte[] rejected) {
+    short[] column = this.STATS[stat.ordinal()];
+    for (int row = 0; row < this.SIZE; ++row) {
+      int value = column[row];
+      // the sign bit is set exactly when value < min or value > max
+      rejected[row] |= (byte) (((value - min) | (max - value)) >>> 31);
+    }
+  }
+
+  /**
+   * Keeps only the rows of a bitset that are, or are not, legendary
+   *
+   * @param bits      the bitset to narrow
+   * @param legendary true to keep legendary rows, false to keep the rest
+   */
+  public void retainLegendary(long[] bits, boolean legendary) {
+    long flip = legendary ? 0 : -1L;
+    for (int i = 0; i < bits.length; ++i)
+      bits[i] &= this.LEGENDARY[i] ^ flip;
+  }
+}
@@ -0,0 +1,115 @@
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Class that encodes teams in a few bytes and as short codes that can be shared
+ *
+ * <p>A team is a header byte holding the format version in its high nibble and the team size in
+ * its low nibble, followed by one big endian short per member: the pokedex number shifted left
+ * by four bits and the form in the low four. A full team is 13 bytes, or an 18 character code
+ * in URL-safe base64 without padding
+ */
+public final class PokemonTeamCodec {
+
+  // bumped whenever the encoding changes, so old codes are rejected rather than misread
+  private static final int VERSION = 1;
+  // bits of a member id holding the form
+  private static final int FORM_BITS = 4;
+  // forms a pokedex number can have in an encoded team
+  public static final int MAX_FORMS = 1 << FORM_BITS;
+  // highest pokedex number that can be encoded
+  public static final int MAX_POKEDEX = (1 << (16 - FORM_BITS)) - 1;
+  // longest encoded team
+  public static final int MAX_BYTES = 1 + 2 * PokemonTeamOptimizer.TEAM_SIZE;
+
+  private PokemonTeamCodec() {
+  }
+
+  /**
+   * Encodes a team
+   *
+   * @param team    the team, at most TEAM_SIZE pokemon
+   * @param dataset the dataset telling the forms of the members apart
+   * @return the encoded team
+   * @throws IllegalArgumentException if the team is too big or a member cannot be encoded
+   */
+  public static byte[] encode(List<IPokemon> team, PokemonDataset dataset) {
+    if (team.size() > PokemonTeamOptimizer.TEAM_SIZE)
+      throw new IllegalArgumentException("A team has at most " + PokemonTeamOptimizer.TEAM_SIZE
+          + " pokemon");
+    byte[] bytes = new byte[1 + 2 * team.size()];
+    bytes[0] = (byte) (VERSION << 4 | team.size());
+    for (int i = 0; i < team.size(); ++i) {
+      IPokemon pokemon = team.get(i);
+      int form = dataset.formOf(pokemon, MAX_FORMS);
+      if (pokemon.getPokedex() < 1 || pokemon.getPokedex() > MAX_POKEDEX || form < 0)
+        throw new IllegalArgumentException("Cannot encode " + pokemon.getName());
+      int id = pokemon.getPokedex() << FORM_BITS | form;
+      bytes[1 + 2 * i] = (byte) (id >>> 8);
+      bytes[2 + 2 * i] = (byte) id;
+    }
+    return bytes;
+  }
+
+  /**
+   * Decodes a team
+   *
+   * @param bytes   the encoded team
+   * @param dataset the dataset to find the members in
+   * @return the team
+   * @throws IllegalArgumentException if the bytes are not a team or a member is not in the dataset
+   */
+  public static List<IPokemon> decode(byte[] bytes, PokemonDataset dataset) {
+    int size = size(bytes);
+    List<IPokemon> team = new ArrayList<>(size);
+    for (int i = 0; i < size; ++i) {
+      int id = (bytes[1 + 2 * i] & 0xFF) << 8 | bytes[2 + 2 * i] & 0xFF;
+      IPokemon pokemon = dataset.findForm(id >>> FORM_BITS, id & (MAX_FORMS - 1));
+      if (pokemon == null)
+        throw new IllegalArgumentException("No pokemon " + (id >>> FORM_BITS) + " of form "
+            + (id & (MAX_FORMS - 1)));
+      team.add(pokemon);
+    }
+    return team;
+  }
+
+  /**
+   * Checks an encoded team and gets its size
+   *
+   * @param bytes the encoded team
+   * @return the number of pokemon in the team
+   * @throws IllegalArgumentException if the bytes are not a team of this version
+   */
+  public static int size(byte[] bytes) {
+    if (bytes.length == 0 || (bytes[0] & 0xFF) >>> 4 != VERSION)
+      throw new IllegalArgumentException("Not a team of version " + VERSION);
+    int size = bytes[0] & 0xF;
+    if (size > PokemonTeamOptimizer.TEAM_SIZE || bytes.length != 1 + 2 * size)
+      throw new IllegalArgumentException("Malformed team");
+    return size;
+  }
+
+  /**
+   * Turns an encoded team into a code that can be shared in text and URLs
+   *
+   * @param bytes the encoded team
+   * @return the team code
+   */
+  public static String toCode(byte[] bytes) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  /**
+   * Turns a team code back into an encoded team
+   *
+   * @param code the team code
+   * @return the encoded team
+   * @throws IllegalArgumentException if the code is not a team
+   */
+  public static byte[] fromCode(String code) {
+    byte[] bytes = Base64.getUrlDecoder().decode(code.trim());
+    size(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,657 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Class that stores encoded teams by id in an append-only journal file, keeping every live team
+ * in memory for lookups
+ *
+ * <p>Journal layout (big endian): a header of magic and format version, then one record per
+ * change: a CRC32C checksum of the rest of the record, the length of the record's body, and the
+ * body, which is an operation, the team id and, for saves, the encoded team. Replaying the
+ * records in order rebuilds the teams. A record cut short or damaged by a crash fails its
+ * checksum, and the journal is truncated to the last good record when it is opened
+ *
+ * <p>Saves and deletes return once their record is on disk. Callers that arrive while another
+ * call is syncing wait for it and are then written and synced together by one of them, so a
+ * single fsync covers every change made in the meantime. Once the journal holds more than twice
+ * the bytes of its live teams it is rewritten with only those, in a new file that replaces it
+ * atomically
+ */
+public class PokemonTeamJournal implements Closeable {
+
+  // "PKTJ"
+  private static final int MAGIC = 0x504B544A;
+  // bumped whenever the record layout changes
+  private static final short VERSION = 1;
+  // magic, version, reserved
+  private static final int HEADER_BYTES = 4 + 2 + 2;
+  // checksum and body length ahead of every record body
+  private static final int RECORD_HEADER_BYTES = 4 + 1;
+  // operation and team id at the start of every record body
+  private static final int BODY_HEADER_BYTES = 1 + 8;
+  // record operations
+  private static final byte SAVE = 1;
+  private static final byte DELETE = 2;
+  // journals smaller than this are never compacted
+  private static final long MIN_COMPACT_BYTES = 1 << 20;
+  // bytes read or written at a time while replaying and compacting
+  private static final int IO_BUFFER_BYTES = 1 << 20;
+
+  // the journal file
+  private final Path FILE;
+  // every live team, by id
+  private final TeamIndex TEAMS = new TeamIndex();
+  // guards everything but the writes and syncs themselves
+  private final ReentrantLock LOCK = new ReentrantLock();
+  // signalled whenever a sync finishes
+  private final Condition SYNCED = LOCK.newCondition();
+  // bytes the journal lost to a damaged tail when it was opened
+  private final long TRUNCATED_BYTES;
+  // the open journal, null once closed
+  private FileChannel channel;
+  // id the next new team gets
+  private long nextId = 1;
+  // bytes written to the file
+  private long writtenBytes;
+  // bytes the records of the live teams take
+  private long liveBytes;
+  // records appended but not yet written
+  private byte[] pending = new byte[4096];
+  private int pendingLength;
+  // the buffer a sync is writing, swapped with pending
+  private byte[] spare = new byte[4096];
+  // records appended and records on disk so far
+  private long appended;
+  private long synced;
+  // true while a caller is writing and syncing
+  private boolean syncing;
+  // the error that broke the journal, after which it refuses changes
+  private IOException failure;
+
+  /**
+   * Constructor that opens a journal, creating it if it does not exist, and replays it
+   *
+   * @param file the journal file
+   * @throws IOException if the file could not be opened or is not a team journal
+   */
+  public PokemonTeamJournal(Path file) throws IOException {
+    this.FILE = file;
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      if (this.channel.size() == 0) {
+        writeFully(this.channel, header(), 0);
+        this.channel.force(true);
+        this.writtenBytes = HEADER_BYTES;
+        this.TRUNCATED_BYTES = 0;
+        return;
+      }
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      this.channel.read(header, 0);
+      if (header.position() < HEADER_BYTES || header.getInt(0) != MAGIC
+          || header.getShort(4) != VERSION)
+        throw new IOException(file + " is not a team journal of version " + VERSION);
+      long good = replay();
+      this.TRUNCATED_BYTES = this.channel.size() - good;
+      if (this.TRUNCATED_BYTES > 0) {
+        this.channel.truncate(good);
+        this.channel.force(true);
+      }
+      this.writtenBytes = good;
+    } catch (IOException | RuntimeException e) {
+      this.channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Saves a new team
+   *
+   * @param team the encoded team
+   * @return the id of the team
+   * @throws IOException if the journal could not be written
+   * @throws IllegalArgumentException if the bytes are not a team
+   */
+  public long save(byte[] team) throws IOException {
+    PokemonTeamCodec.size(team);
+    long id;
+    long sequence;
+    LOCK.lock();
+    try {
+      checkWritable();
+      id = this.nextId++;
+      sequence = append(SAVE, id, team);
+    } finally {
+      LOCK.unlock();
+    }
+    awaitSynced(sequence);
+    return id;
+  }
+
+  /**
+   * Saves a team under an id, replacing the team saved under it before
+   *
+   * @param id   the id, at least 1
+   * @param team the encoded team
+   * @throws IOException if the journal could not be written
+   * @throws IllegalArgumentException if the id is not positive or the bytes are not a team
+   */
+  public void save(long id, byte[] team) throws IOException {
+    PokemonTeamCodec.size(team);
+    if (id < 1)
+      throw new IllegalArgumentException("Team ids start at 1");
+    long sequence;
+    LOCK.lock();
+    try {
+      checkWritable();
+      this.nextId = Math.max(this.nextId, id + 1);
+      sequence = append(SAVE, id, team);
+    } finally {
+      LOCK.unlock();
+    }
+    awaitSynced(sequence);
+  }
+
+  /**
+   * Deletes a team
+   *
+   * @param id the id of the team
+   * @return true if there was a team with the id
+   * @throws IOException if the journal could not be written
+   */
+  public boolean delete(long id) throws IOException {
+    long sequence;
+    LOCK.lock();
+    try {
+      checkWritable();
+      if (this.TEAMS.get(id) == null)
+        return false;
+      sequence = append(DELETE, id, null);
+    } finally {
+      LOCK.unlock();
+    }
+    awaitSynced(sequence);
+    return true;
+  }
+
+  /**
+   * Gets a saved team
+   *
+   * @param id the id of the team
+   * @return the encoded team, or null if there is none with the id
+   */
+  public byte[] get(long id) {
+    LOCK.lock();
+    try {
+      return this.TEAMS.get(id);
+    } finally {
+      LOCK.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of saved teams
+   *
+   * @return the number of teams
+   */
+  public int size() {
+    LOCK.lock();
+    try {
+      return this.TEAMS.size;
+    } finally {
+      LOCK.unlock();
+    }
+  }
+
+  /**
+   * Gets how many bytes of damaged or unfinished records were cut from the end of the journal
+   * when it was opened
+   *
+   * @return the bytes dropped, 0 if the journal was intact
+   */
+  public long getTruncatedBytes() {
+    return this.TRUNCATED_BYTES;
+  }
+
+  /**
+   * Rewrites the journal with only the live teams, whatever its size
+   *
+   * @throws IOException if the journal could not be rewritten
+   */
+  public void compact() throws IOException {
+    LOCK.lock();
+    try {
+      // a sync running without the lock still writes to the old file
+      while (this.syncing)
+        SYNCED.awaitUninterruptibly();
+      checkWritable();
+      rewrite();
+    } finally {
+      LOCK.unlock();
+    }
+  }
+
+  /**
+   * Writes the changes not yet on disk and closes the journal
+   *
+   * @throws IOException if the changes could not be written
+   */
+  @Override public void close() throws IOException {
+    LOCK.lock();
+    try {
+      if (this.channel == null)
+        return;
+      if (this.failure == null)
+        awaitSynced(this.appended);
+      while (this.syncing)
+        SYNCED.awaitUninterruptibly();
+      this.channel.close();
+      this.channel = null;
+    } finally {
+      LOCK.unlock();
+    }
+  }
+
+  /**
+   * Appends a record and applies it to the teams. Callers hold the lock
+   *
+   * @return the sequence number of the record, which is on disk once synced reaches it
+   */
+  private long append(byte operation, long id, byte[] team) {
+    int bodyLength = BODY_HEADER_BYTES + (team == null ? 0 : team.length);
+    int length = RECORD_HEADER_BYTES + bodyLength;
+    if (this.pendingLength + length > this.pending.length)
+      this.pending = Arrays.copyOf(this.pending, Math.max(this.pending.length * 2,
+          this.pendingLength + length));
+    encode(this.pending, this.pendingLength, operation, id, team);
+    this.pendingLength += length;
+
+    int previous = operation == SAVE ? this.TEAMS.put(id, team, 0, team.length)
+        : this.TEAMS.remove(id);
+    if (previous >= 0)
+      this.liveBytes -= RECORD_HEADER_BYTES + BODY_HEADER_BYTES + previous;
+    if (operation == SAVE)
+      this.liveBytes += length;
+    return ++this.appended;
+  }
+
+  /**
+   * Waits until a record is on disk, writing and syncing everything appended so far unless
+   * another caller is already doing so. Callers may hold the lock
+   */
+  private void awaitSynced(long sequence) throws IOException {
+    LOCK.lock();
+    try {
+      while (this.synced < sequence) {
+        if (this.failure != null)
+          throw new IOException("team journal failed earlier", this.failure);
+        if (this.syncing)
+          SYNCED.awaitUninterruptibly();
+        else
+          sync();
+      }
+    } finally {
+      LOCK.unlock();
+    }
+  }
+
+  /**
+   * Writes and syncs every pending record, without holding the lock while the disk works so that
+   * more records can be appended for the next sync. Callers hold the lock
+   */
+  private void sync() throws IOException {
+    byte[] batch = this.pending;
+    int length = this.pendingLength;
+    long upTo = this.appended;
+    long position = this.writtenBytes;
+    FileChannel channel = this.channel;
+    this.pending = this.spare;
+    this.pendingLength = 0;
+    this.spare = batch;
+    this.syncing = true;
+    LOCK.unlock();
+    IOException failed = null;
+    try {
+      writeFully(channel, ByteBuffer.wrap(batch, 0, length), position);
+      channel.force(false);
+    } catch (IOException ioe) {
+      failed = ioe;
+    } finally {
+      LOCK.lock();
+      this.syncing = false;
+      SYNCED.signalAll();
+    }
+    if (failed != null) {
+      // the teams in memory are now ahead of the disk, so nothing more may be written
+      this.failure = failed;
+      throw failed;
+    }
+    this.writtenBytes = position + length;
+    this.synced = upTo;
+    long journalBytes = this.writtenBytes + this.pendingLength;
+    if (journalBytes >= MIN_COMPACT_BYTES && journalBytes - HEADER_BYTES > 2 * this.liveBytes)
+      rewrite();
+  }
+
+  /**
+   * Writes the live teams to a new journal that replaces the current one. Records still pending
+   * are already in the teams, so writing them after the new journal's end replays them twice,
+   * which leaves the same teams. Callers hold the lock, and no sync is running
+   */
+  private void rewrite() throws IOException {
+    Path temporary = this.FILE.resolveSibling(this.FILE.getFileName() + ".compact");
+    long position;
+    try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      position = writeFully(out, header(), 0);
+      byte[] buffer = new byte[IO_BUFFER_BYTES];
+      int length = 0;
+      byte[] team = new byte[PokemonTeamCodec.MAX_BYTES];
+      TeamIndex teams = this.TEAMS;
+      for (int slot = 0; slot < teams.ids.length; ++slot) {
+        if (teams.ids[slot] == 0)
+          continue;
+        int teamLength = teams.unpack(slot, team);
+        if (length + RECORD_HEADER_BYTES + BODY_HEADER_BYTES + teamLength > buffer.length) {
+          position = writeFully(out, ByteBuffer.wrap(buffer, 0, length), position);
+          length = 0;
+        }
+        length += encode(buffer, length, SAVE, teams.ids[slot], Arrays.copyOf(team, teamLength));
+      }
+      position = writeFully(out, ByteBuffer.wrap(buffer, 0, length), position);
+      out.force(true);
+    }
+    Files.move(temporary, this.FILE, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    this.channel.close();
+    this.channel = FileChannel.open(this.FILE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.writtenBytes = position;
+    // make the rename itself durable, where the platform lets a directory be synced
+    try (FileChannel directory = FileChannel.open(this.FILE.toAbsolutePath().getParent(),
+        StandardOpenOption.READ)) {
+      directory.force(true);
+    } catch (IOException ioe) {
+      // the new journal is complete either way, only its name may roll back after a crash
+    }
+  }
+
+  /**
+   * Replays the records after the header into the teams
+   *
+   * @return the offset just past the last good record
+   */
+  private long replay() throws IOException {
+    byte[] buffer = new byte[IO_BUFFER_BYTES];
+    CRC32C checksum = new CRC32C();
+    // file offset of buffer[0]
+    long offset = HEADER_BYTES;
+    int start = 0;
+    int end = 0;
+    boolean eof = false;
+    while (true) {
+      while (end - start >= RECORD_HEADER_BYTES) {
+        int bodyLength = buffer[start + 4] & 0xFF;
+        int length = RECORD_HEADER_BYTES + bodyLength;
+        if (end - start < length)
+          break;
+        checksum.reset();
+        checksum.update(buffer, start + 4, 1 + bodyLength);
+        if ((int) checksum.getValue() != getInt(buffer, start)
+            || !apply(buffer, start + RECORD_HEADER_BYTES, bodyLength))
+          return offset + start;
+        start += length;
+      }
+      if (eof)
+        return offset + start;
+      System.arraycopy(buffer, start, buffer, 0, end - start);
+      offset += start;
+      end -= start;
+      start = 0;
+      int read = this.channel.read(ByteBuffer.wrap(buffer, end, buffer.length - end),
+          offset + end);
+      if (read < 0)
+        eof = true;
+      else
+        end += read;
+    }
+  }
+
+  /**
+   * Applies the body of a replayed record to the teams
+   *
+   * @return false if the body is not a valid record
+   */
+  private boolean apply(byte[] buffer, int start, int length) {
+    if (length < BODY_HEADER_BYTES)
+      return false;
+    byte operation = buffer[start];
+    long id = (long) getInt(buffer, start + 1) << 32 | getInt(buffer, start + 5) & 0xFFFFFFFFL;
+    int teamLength = length - BODY_HEADER_BYTES;
+    if (id < 1 || operation == DELETE && teamLength != 0)
+      return false;
+    int previous;
+    if (operation == SAVE) {
+      byte[] team = Arrays.copyOfRange(buffer, start + BODY_HEADER_BYTES, start + length);
+      try {
+        PokemonTeamCodec.size(team);
+      } catch (IllegalArgumentException iae) {
+        return false;
+      }
+      previous = this.TEAMS.put(id, team, 0, teamLength);
+      this.liveBytes += RECORD_HEADER_BYTES + length;
+    } else if (operation == DELETE) {
+      previous = this.TEAMS.remove(id);
+    } else {
+      return false;
+    }
+    if (previous >= 0)
+      this.liveBytes -= RECORD_HEADER_BYTES + BODY_HEADER_BYTES + previous;
+    this.nextId = Math.max(this.nextId, id + 1);
+    return true;
+  }
+
+  /**
+   * Refuses changes once the journal is closed or broken. Callers hold the lock
+   */
+  private void checkWritable() throws IOException {
+    if (this.channel == null)
+      throw new IOException("team journal is closed");
+    if (this.failure != null)
+      throw new IOException("team journal failed earlier", this.failure);
+  }
+
+  /**
+   * Encodes a record
+   *
+   * @return the length of the record
+   */
+  private static int encode(byte[] buffer, int start, byte operation, long id, byte[] team) {
+    int bodyLength = BODY_HEADER_BYTES + (team == null ? 0 : team.length);
+    ByteBuffer record = ByteBuffer.wrap(buffer, start, RECORD_HEADER_BYTES + bodyLength);
+    record.position(start + 4);
+    record.put((byte) bodyLength).put(operation).putLong(id);
+    if (team != null)
+      record.put(team);
+    CRC32C checksum = new CRC32C();
+    checksum.update(buffer, start + 4, 1 + bodyLength);
+    record.putInt(start, (int) checksum.getValue());
+    return RECORD_HEADER_BYTES + bodyLength;
+  }
+
+  /**
+   * Builds the journal header
+   */
+  private static ByteBuffer header() {
+    return ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putShort(VERSION).putShort((short) 0)
+        .flip();
+  }
+
+  /**
+   * Writes a whole buffer at a position
+   *
+   * @return the position just past the written bytes
+   */
+  private static long writeFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining())
+      position += channel.write(buffer, position);
+    return position;
+  }
+
+  /**
+   * Reads a big endian int
+   */
+  private static int getInt(byte[] buffer, int start) {
+    return (buffer[start] & 0xFF) << 24 | (buffer[start + 1] & 0xFF) << 16
+        | (buffer[start + 2] & 0xFF) << 8 | buffer[start + 3] & 0xFF;
+  }
+
+  /**
+   * Open addressing map from team ids to encoded teams, packed into two longs per slot so that
+   * millions of teams cost about 40 bytes each and no objects
+   */
+  private static final class TeamIndex {
+
+    // keeps the table at most two thirds full
+    private static final int LOAD_NUMERATOR = 2;
+    private static final int LOAD_DENOMINATOR = 3;
+
+    // the id in each slot, 0 for an empty slot
+    private long[] ids = new long[16];
+    // the team in each slot: bytes 0 to 7, then bytes 8 to 14 above the team's length
+    private long[] teams = new long[32];
+    // the number of teams
+    private int size;
+
+    /**
+     * Gets a team
+     *
+     * @return the encoded team, or null if there is none with the id
+     */
+    byte[] get(long id) {
+      int slot = find(id);
+      if (this.ids[slot] == 0)
+        return null;
+      byte[] team = new byte[PokemonTeamCodec.MAX_BYTES];
+      return Arrays.copyOf(team, unpack(slot, team));
+    }
+
+    /**
+     * Stores a team of at most 15 bytes
+     *
+     * @return the length of the team it replaced, or -1 if there was none
+     */
+    int put(long id, byte[] team, int start, int length) {
+      int slot = find(id);
+      int previous = -1;
+      if (this.ids[slot] != 0) {
+        previous = (int) (this.teams[2 * slot + 1] & 0xFF);
+      } else {
+        if ((this.size + 1) * LOAD_DENOMINATOR > this.ids.length * LOAD_NUMERATOR) {
+          grow();
+          slot = find(id);
+        }
+        this.ids[slot] = id;
+        ++this.size;
+      }
+      long low = 0;
+      long high = length;
+      for (int i = 0; i < length; ++i)
+        if (i < 8)
+          low |= (team[start + i] & 0xFFL) << (56 - 8 * i);
+        else
+          high |= (team[start + i] & 0xFFL) << (56 - 8 * (i - 8));
+      this.teams[2 * slot] = low;
+      this.teams[2 * slot + 1] = high;
+      return previous;
+    }
+
+    /**
+     * Removes a team, moving later teams of the same probe run back so lookups need no
+     * tombstones
+     *
+     * @return the length of the removed team, or -1 if there was none
+     */
+    int remove(long id) {
+      int hole = find(id);
+      if (this.ids[hole] == 0)
+        return -1;
+      int previous = (int) (this.teams[2 * hole + 1] & 0xFF);
+      int mask = this.ids.length - 1;
+      for (int next = (hole + 1) & mask; this.ids[next] != 0; next = (next + 1) & mask) {
+        int home = home(this.ids[next]);
+        // the team at next may fill the hole only if its probe run passes through it
+        if (((next - home) & mask) >= ((next - hole) & mask)) {
+          this.ids[hole] = this.ids[next];
+          this.teams[2 * hole] = this.teams[2 * next];
+          this.teams[2 * hole + 1] = this.teams[2 * next + 1];
+          hole = next;
+        }
+      }
+      this.ids[hole] = 0;
+      --this.size;
+      return previous;
+    }
+
+    /**
+     * Copies the team in a slot out
+     *
+     * @return the length of the team
+     */
+    int unpack(int slot, byte[] team) {
+      long low = this.teams[2 * slot];
+      long high = this.teams[2 * slot + 1];
+      int length = (int) (high & 0xFF);
+      for (int i = 0; i < length; ++i)
+        team[i] = (byte) (i < 8 ? low >>> (56 - 8 * i) : high >>> (56 - 8 * (i - 8)));
+      return length;
+    }
+
+    /**
+     * Finds the slot holding an id, or the empty slot where it would go
+     */
+    private int find(long id) {
+      int mask = this.ids.length - 1;
+      int slot = home(id);
+      while (this.ids[slot] != 0 && this.ids[slot] != id)
+        slot = (slot + 1) & mask;
+      return slot;
+    }
+
+    /**
+     * Gets the slot an id's probe run starts at
+     */
+    private int home(long id) {
+      return (int) ((id * 0x9E3779B97F4A7C15L) >>> (64 - Integer.numberOfTrailingZeros(
+          this.ids.length)));
+    }
+
+    /**
+     * Doubles the table
+     */
+    private void grow() {
+      long[] ids = this.ids;
+      long[] teams = this.teams;
+      this.ids = new long[ids.length * 2];
+      this.teams = new long[teams.length * 2];
+      for (int slot = 0; slot < ids.length; ++slot) {
+        if (ids[slot] == 0)
+          continue;
+        int target = find(ids[slot]);
+        this.ids[target] = ids[slot];
+        this.teams[2 * target] = teams[2 * slot];
+        this.teams[2 * target + 1] = teams[2 * slot + 1];
+      }
+    }
+  }
+}
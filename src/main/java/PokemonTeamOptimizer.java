@@ -0,0 +1,330 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that completes a partial team with the members that maximise its type coverage. Each
+ * Pokemon is reduced to three 18-bit masks built from the against_* columns: the attacking types
+ * it resists, the attacking types it is weak to, and the defending types its own types hit super
+ * effectively according to the type chart. Teams are scored on those masks and searched branch
+ * and bound on a fork-join pool until the search space is exhausted or a deadline passes,
+ * whichever comes first
+ */
+public class PokemonTeamOptimizer {
+
+  // maximum number of Pokemon on a team
+  public static final int TEAM_SIZE = 6;
+  // the coverage score sits above the base total in a composite team score
+  private static final int COVERAGE_SHIFT = 32;
+  // nodes searched between deadline checks
+  private static final int DEADLINE_CHECK_INTERVAL = 1 << 10;
+
+  // the dataset the candidates come from
+  private final PokemonStore STORE;
+  // the pool the search runs on
+  private final ForkJoinPool POOL;
+  // the type chart offensive coverage is read from
+  private final PokemonTypeChart CHART;
+
+  /**
+   * Constructor that sets the dataset and the pool to search on
+   *
+   * @param store the dataset candidates are picked from
+   * @param chart the type chart of the dataset
+   * @param pool  the pool to run searches on
+   */
+  public PokemonTeamOptimizer(PokemonStore store, PokemonTypeChart chart, ForkJoinPool pool) {
+    this.STORE = store;
+    this.CHART = chart;
+    this.POOL = pool;
+  }
+
+  /**
+   * Finds the best completions of a partial team
+   *
+   * @param team          the user's current team, kept in every suggestion
+   * @param candidates    bitset of the rows new members may be picked from
+   * @param count         the number of teams to return
+   * @param timeoutMillis how long to search before returning the best teams found so far
+   * @return up to count teams, best first
+   */
+  public List<PokemonTeamSuggestion> optimize(List<IPokemon> team, long[] candidates, int count,
+      long timeoutMillis) {
+    // fold the current members into a single set of masks
+    int resist = 0;
+    int weak = 0;
+    int offense = 0;
+    int baseTotal = 0;
+    Set<Integer> pokedex = new HashSet<>();
+    for (IPokemon member : team) {
+      for (PokemonTypes attacking : PokemonTypes.values()) {
+        float multiplier = member.getDamageMultiplier(attacking);
+        if (multiplier < 1)
+          resist |= 1 << attacking.ordinal();
+        else if (multiplier > 1)
+          weak |= 1 << attacking.ordinal();
+      }
+      offense |= this.CHART.superEffectiveAgainst(member.getTypeOne().ordinal());
+      if (member.getTypeTwo() != null)
+        offense |= this.CHART.superEffectiveAgainst(member.getTypeTwo().ordinal());
+      baseTotal += member.getStat(PokemonStats.BASE_TOTAL);
+      pokedex.add(member.getPokedex());
+    }
+
+    int slots = Math.max(0, TEAM_SIZE - team.size());
+    Search search = new Search(candidates(candidates, pokedex, slots), slots, count,
+        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    search.run(resist, weak, offense, baseTotal);
+
+    List<PokemonTeamSuggestion> suggestions = new ArrayList<>();
+    for (long[] found : search.RESULTS.best()) {
+      List<IPokemon> suggested = new ArrayList<>(team);
+      int r = resist;
+      int w = weak;
+      int o = offense;
+      for (int i = 1; i < found.length; ++i) {
+        int candidate = (int) found[i];
+        suggested.add(this.STORE.get(search.ROWS[candidate]));
+        r |= search.RESIST[candidate];
+        w |= search.WEAK[candidate];
+        o |= search.OFFENSE[candidate];
+      }
+      suggestions.add(new PokemonTeamSuggestion(suggested, Integer.bitCount(r),
+          Integer.bitCount(o), Integer.bitCount(w & ~r), (int) found[0]));
+    }
+    return suggestions;
+  }
+
+  /**
+   * Reduces the candidate rows to at most as many rows per distinct set of masks as there are
+   * open slots, keeping the rows with the highest base totals, since rows with the same masks are
+   * interchangeable for coverage but a team may still need several of them to be full
+   *
+   * @param candidates bitset of candidate rows
+   * @param excluded   pokedex numbers already on the team
+   * @param slots      the number of members to add
+   * @return the kept candidate rows, highest base total first
+   */
+  private int[] candidates(long[] candidates, Set<Integer> excluded, int slots) {
+    Map<Long, List<Integer>> distinct = new HashMap<>();
+    for (int word = 0; word < candidates.length; ++word)
+      for (long bits = candidates[word]; bits != 0; bits &= bits - 1) {
+        int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+        if (excluded.contains(this.STORE.getPokedex(row)))
+          continue;
+        long key = resistOf(row) | (long) weakOf(row) << 18 | (long) offenseOf(row) << 36;
+        distinct.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+      }
+    return distinct.values().stream()
+        .flatMap(rows -> rows.stream().sorted((a, b) -> baseTotalOf(b) - baseTotalOf(a))
+            .limit(slots))
+        .sorted((a, b) -> baseTotalOf(b) - baseTotalOf(a)).mapToInt(Integer::intValue).toArray();
+  }
+
+  private int resistOf(int row) {
+    int mask = 0;
+    for (int attacking = 0; attacking < PokemonTypes.values().length; ++attacking)
+      if (this.STORE.getMultiplierCode(attacking, row) < PokemonStore.NEUTRAL)
+        mask |= 1 << attacking;
+    return mask;
+  }
+
+  private int weakOf(int row) {
+    int mask = 0;
+    for (int attacking = 0; attacking < PokemonTypes.values().length; ++attacking)
+      if (this.STORE.getMultiplierCode(attacking, row) > PokemonStore.NEUTRAL)
+        mask |= 1 << attacking;
+    return mask;
+  }
+
+  private int offenseOf(int row) {
+    return this.CHART.coverageOf(
+        PokemonTypeChart.addMember(0, this.STORE.getTypeOne(row), this.STORE.getTypeTwo(row)));
+  }
+
+  private int baseTotalOf(int row) {
+    return this.STORE.getStat(PokemonStats.BASE_TOTAL, row);
+  }
+
+  /**
+   * Combines a team's coverage and base total into one comparable score
+   */
+  private static long score(int resist, int weak, int offense, int baseTotal) {
+    long coverage = Integer.bitCount(resist) + Integer.bitCount(offense)
+        - Integer.bitCount(weak & ~resist);
+    return coverage << COVERAGE_SHIFT | baseTotal;
+  }
+
+  /**
+   * State of a single search, shared by every task working on it
+   */
+  private final class Search {
+
+    // the candidate rows, highest base total first
+    private final int[] ROWS;
+    // masks and base totals of the candidates, indexed like ROWS
+    private final int[] RESIST;
+    private final int[] WEAK;
+    private final int[] OFFENSE;
+    private final int[] BASE_TOTAL;
+    // masks every candidate from an index onwards could still add
+    private final int[] RESIST_AFTER;
+    private final int[] OFFENSE_AFTER;
+    // sum of the base totals of the candidates before an index
+    private final int[] BASE_TOTAL_BEFORE;
+    // number of members to add
+    private final int SLOTS;
+    // the best teams found so far
+    private final TopTeams RESULTS;
+    // System.nanoTime() after which the search stops
+    private final long DEADLINE;
+    // set once any task notices the deadline has passed
+    private volatile boolean expired;
+
+    private Search(int[] rows, int slots, int count, long deadline) {
+      int size = rows.length;
+      this.ROWS = rows;
+      this.RESIST = new int[size];
+      this.WEAK = new int[size];
+      this.OFFENSE = new int[size];
+      this.BASE_TOTAL = new int[size];
+      this.RESIST_AFTER = new int[size + 1];
+      this.OFFENSE_AFTER = new int[size + 1];
+      this.BASE_TOTAL_BEFORE = new int[size + 1];
+      for (int i = 0; i < size; ++i) {
+        this.RESIST[i] = resistOf(rows[i]);
+        this.WEAK[i] = weakOf(rows[i]);
+        this.OFFENSE[i] = offenseOf(rows[i]);
+        this.BASE_TOTAL[i] = baseTotalOf(rows[i]);
+        this.BASE_TOTAL_BEFORE[i + 1] = this.BASE_TOTAL_BEFORE[i] + this.BASE_TOTAL[i];
+      }
+      for (int i = size - 1; i >= 0; --i) {
+        this.RESIST_AFTER[i] = this.RESIST_AFTER[i + 1] | this.RESIST[i];
+        this.OFFENSE_AFTER[i] = this.OFFENSE_AFTER[i + 1] | this.OFFENSE[i];
+      }
+      this.SLOTS = Math.min(slots, size);
+      this.RESULTS = new TopTeams(count);
+      this.DEADLINE = deadline;
+    }
+
+    /**
+     * Runs the search from the current team's masks, one task per choice of first new member
+     */
+    private void run(int resist, int weak, int offense, int baseTotal) {
+      if (this.SLOTS == 0) {
+        this.RESULTS.offer(score(resist, weak, offense, baseTotal), new int[0], 0);
+        return;
+      }
+      List<RecursiveAction> tasks = new ArrayList<>();
+      for (int first = 0; first + this.SLOTS <= this.ROWS.length; ++first) {
+        int chosen = first;
+        tasks.add(new RecursiveAction() {
+          @Override protected void compute() {
+            int[] picked = new int[Search.this.SLOTS];
+            picked[0] = chosen;
+            search(chosen + 1, 1, picked, resist | RESIST[chosen], weak | WEAK[chosen],
+                offense | OFFENSE[chosen], baseTotal + BASE_TOTAL[chosen], new int[1]);
+          }
+        });
+      }
+      POOL.invoke(new RecursiveAction() {
+        @Override protected void compute() {
+          invokeAll(tasks);
+        }
+      });
+    }
+
+    /**
+     * Depth-first search over the candidates from an index onwards
+     *
+     * @param next   the first candidate that may still be picked
+     * @param depth  the number of members picked so far
+     * @param picked the candidates picked so far
+     * @param nodes  nodes visited by this task, used to space out deadline checks
+     */
+    private void search(int next, int depth, int[] picked, int resist, int weak, int offense,
+        int baseTotal, int[] nodes) {
+      if (depth == this.SLOTS) {
+        this.RESULTS.offer(score(resist, weak, offense, baseTotal), picked, depth);
+        return;
+      }
+      if (this.expired || (++nodes[0] & (DEADLINE_CHECK_INTERVAL - 1)) == 0
+          && System.nanoTime() > this.DEADLINE) {
+        this.expired = true;
+        return;
+      }
+      int remaining = this.SLOTS - depth;
+      for (int i = next; i + remaining <= this.ROWS.length; ++i) {
+        // best case, every later candidate's coverage joins and the strongest ones are picked
+        int resistBound = resist | this.RESIST_AFTER[i];
+        long bound = score(resistBound, weak & ~resistBound, offense | this.OFFENSE_AFTER[i],
+            baseTotal + this.BASE_TOTAL_BEFORE[i + remaining] - this.BASE_TOTAL_BEFORE[i]);
+        // candidates are ordered by base total, so the bound only shrinks from here on
+        if (bound <= this.RESULTS.threshold())
+          return;
+        picked[depth] = i;
+        search(i + 1, depth + 1, picked, resist | this.RESIST[i], weak | this.WEAK[i],
+            offense | this.OFFENSE[i], baseTotal + this.BASE_TOTAL[i], nodes);
+        if (this.expired)
+          return;
+      }
+    }
+  }
+
+  /**
+   * The best teams found by a search, bounded to a fixed count
+   */
+  private static final class TopTeams {
+
+    // the number of teams to keep
+    private final int COUNT;
+    // the kept teams as {score, picked candidates...}, worst first
+    private final PriorityQueue<long[]> TEAMS =
+        new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+    // score a team must beat to be kept, lets tasks prune without taking the lock
+    private volatile long threshold = Long.MIN_VALUE;
+
+    private TopTeams(int count) {
+      this.COUNT = Math.max(1, count);
+    }
+
+    private long threshold() {
+      return this.threshold;
+    }
+
+    /**
+     * Keeps a team if it is among the best found so far
+     */
+    private synchronized void offer(long score, int[] picked, int size) {
+      if (this.TEAMS.size() == this.COUNT && score <= this.threshold)
+        return;
+      long[] team = new long[size + 1];
+      team[0] = score;
+      for (int i = 0; i < size; ++i)
+        team[i + 1] = picked[i];
+      this.TEAMS.add(team);
+      if (this.TEAMS.size() > this.COUNT)
+        this.TEAMS.poll();
+      if (this.TEAMS.size() == this.COUNT)
+        this.threshold = this.TEAMS.peek()[0];
+    }
+
+    /**
+     * Gets the kept teams, best first, with the score's base total in place of the full score
+     */
+    private synchronized List<long[]> best() {
+      List<long[]> best = new ArrayList<>(this.TEAMS);
+      best.sort((a, b) -> Long.compare(b[0], a[0]));
+      for (long[] team : best)
+        team[0] &= (1L << COVERAGE_SHIFT) - 1;
+      return best;
+    }
+  }
+}
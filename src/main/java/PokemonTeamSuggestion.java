@@ -0,0 +1,106 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class representing a team suggested by the team optimizer together with its coverage
+ */
+public class PokemonTeamSuggestion {
+
+  // the full suggested team, the user's current members first
+  private final List<IPokemon> TEAM;
+  // number of attacking types at least one member resists
+  private final int DEFENSIVE_COVERAGE;
+  // number of defending types at least one member's type hits super effectively
+  private final int OFFENSIVE_COVERAGE;
+  // number of attacking types some member is weak to and no member resists
+  private final int UNCOVERED_WEAKNESSES;
+  // sum of the members' base totals
+  private final int BASE_TOTAL;
+
+  /**
+   * Constructor that sets the team and its coverage
+   *
+   * @param team                the suggested team
+   * @param defensiveCoverage   number of attacking types at least one member resists
+   * @param offensiveCoverage   number of defending types the team hits super effectively
+   * @param uncoveredWeaknesses number of attacking types the team is weak to and never resists
+   * @param baseTotal           sum of the members' base totals
+   */
+  public PokemonTeamSuggestion(List<IPokemon> team, int defensiveCoverage, int offensiveCoverage,
+      int uncoveredWeaknesses, int baseTotal) {
+    this.TEAM = Collections.unmodifiableList(team);
+    this.DEFENSIVE_COVERAGE = defensiveCoverage;
+    this.OFFENSIVE_COVERAGE = offensiveCoverage;
+    this.UNCOVERED_WEAKNESSES = uncoveredWeaknesses;
+    this.BASE_TOTAL = baseTotal;
+  }
+
+  /**
+   * Gets the suggested team
+   *
+   * @return the suggested team, the user's current members first
+   */
+  public List<IPokemon> getTeam() {
+    return this.TEAM;
+  }
+
+  /**
+   * Gets the number of attacking types at least one member resists
+   *
+   * @return the defensive coverage
+   */
+  public int getDefensiveCoverage() {
+    return this.DEFENSIVE_COVERAGE;
+  }
+
+  /**
+   * Gets the number of defending types at least one member's type hits super effectively
+   *
+   * @return the offensive coverage
+   */
+  public int getOffensiveCoverage() {
+    return this.OFFENSIVE_COVERAGE;
+  }
+
+  /**
+   * Gets the number of attacking types some member is weak to and no member resists
+   *
+   * @return the uncovered weaknesses
+   */
+  public int getUncoveredWeaknesses() {
+    return this.UNCOVERED_WEAKNESSES;
+  }
+
+  /**
+   * Gets the sum of the members' base totals, used to rank teams with the same coverage
+   *
+   * @return the sum of base totals
+   */
+  public int getBaseTotal() {
+    return this.BASE_TOTAL;
+  }
+
+  /**
+   * Gets the coverage score teams are ranked by: defensive plus offensive coverage minus uncovered
+   * weaknesses
+   *
+   * @return the coverage score
+   */
+  public int getScore() {
+    return this.DEFENSIVE_COVERAGE + this.OFFENSIVE_COVERAGE - this.UNCOVERED_WEAKNESSES;
+  }
+
+  /**
+   * Forms a string of the team and its coverage
+   *
+   * @return A nicely formatted string of the suggestion
+   */
+  @Override public String toString() {
+    StringBuilder suggestion = new StringBuilder("Score " + getScore() + " (resists "
+        + this.DEFENSIVE_COVERAGE + ", hits " + this.OFFENSIVE_COVERAGE + ", uncovered "
+        + this.UNCOVERED_WEAKNESSES + ", base total " + this.BASE_TOTAL + "):");
+    for (IPokemon pokemon : this.TEAM)
+      suggestion.append(' ').append(pokemon.getName());
+    return suggestion.toString();
+  }
+}
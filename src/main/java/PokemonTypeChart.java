@@ -0,0 +1,261 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class representing the 18x18 type effectiveness chart, derived from the against_* columns of a
+ * dataset and stored as one flat array of PokemonStore multiplier codes. Multiplier codes are
+ * logarithmic, so combining the two types of a defender is an addition
+ *
+ * <p>Teams are packed into a single long so scoring them allocates nothing: the low 3 bits hold
+ * the member count and every member takes 9 more bits holding its type combination
+ */
+public final class PokemonTypeChart {
+
+  // number of pokemon types
+  private static final int TYPES = PokemonTypes.values().length;
+  // bits holding the member count of a packed team
+  private static final int COUNT_BITS = 3;
+  // bits holding each member of a packed team
+  private static final int MEMBER_BITS = 9;
+  // bits holding the weak count of one attacking type in a packed weakness count
+  private static final int WEAK_COUNT_BITS = 3;
+  // largest team a long can hold
+  public static final int MAX_TEAM = 6;
+
+  // multiplier code of every attacking type against every defending type, attacking major
+  private final byte[] CHART = new byte[TYPES * TYPES];
+  // mask of defending types every attacking type hits super effectively, indexed by ordinal
+  private final int[] SUPER_EFFECTIVE = new int[TYPES];
+  // per type combination: mask of attacking types it resists
+  private final int[] RESISTS = new int[TYPES * (TYPES + 1)];
+  // per type combination: one 3-bit field per attacking type, 1 if the combination is weak to it
+  private final long[] WEAKNESSES = new long[TYPES * (TYPES + 1)];
+  // rows whose against_* columns disagree with the chart, typically because of an ability
+  private final int[] MISMATCHED_ROWS;
+
+  /**
+   * Constructor that derives the chart from a dataset and cross-validates it against every row
+   *
+   * @param store the dataset to derive the chart from
+   */
+  public PokemonTypeChart(PokemonStore store) {
+    // every single-typed row votes for how each attacking type hits its type, which outvotes the
+    // few rows whose ability changes a multiplier
+    int[] votes = new int[TYPES * TYPES * 6];
+    for (int row = 0; row < store.size(); ++row)
+      if (store.getTypeTwo(row) == PokemonStore.NO_TYPE)
+        for (int attacking = 0; attacking < TYPES; ++attacking)
+          ++votes[(attacking * TYPES + store.getTypeOne(row)) * 6
+              + store.getMultiplierCode(attacking, row)];
+    boolean[] known = new boolean[TYPES];
+    for (int cell = 0; cell < CHART.length; ++cell) {
+      int best = PokemonStore.NEUTRAL;
+      for (int code = 0; code < 6; ++code)
+        if (votes[cell * 6 + code] > votes[cell * 6 + best])
+          best = code;
+      this.CHART[cell] = (byte) best;
+      if (votes[cell * 6 + best] > 0)
+        known[cell % TYPES] = true;
+    }
+    // a type no single-typed row has is solved from rows pairing it with a known type
+    for (int row = 0; row < store.size(); ++row) {
+      int typeOne = store.getTypeOne(row);
+      int typeTwo = store.getTypeTwo(row);
+      if (typeTwo == PokemonStore.NO_TYPE || known[typeOne] == known[typeTwo])
+        continue;
+      int solved = known[typeOne] ? typeTwo : typeOne;
+      int other = known[typeOne] ? typeOne : typeTwo;
+      for (int attacking = 0; attacking < TYPES; ++attacking) {
+        int combined = store.getMultiplierCode(attacking, row);
+        int partial = this.CHART[attacking * TYPES + other];
+        if (combined != 0 && partial != 0)
+          this.CHART[attacking * TYPES + solved] =
+              (byte) (combined - partial + PokemonStore.NEUTRAL);
+      }
+      known[solved] = true;
+    }
+
+    for (int attacking = 0; attacking < TYPES; ++attacking)
+      for (int defending = 0; defending < TYPES; ++defending)
+        if (this.CHART[attacking * TYPES + defending] > PokemonStore.NEUTRAL)
+          this.SUPER_EFFECTIVE[attacking] |= 1 << defending;
+    for (int typeOne = 0; typeOne < TYPES; ++typeOne)
+      for (int typeTwo = PokemonStore.NO_TYPE; typeTwo < TYPES; ++typeTwo) {
+        int combination = combination(typeOne, typeTwo);
+        for (int attacking = 0; attacking < TYPES; ++attacking) {
+          int code = multiplierCode(attacking, typeOne, typeTwo);
+          if (code < PokemonStore.NEUTRAL)
+            this.RESISTS[combination] |= 1 << attacking;
+          else if (code > PokemonStore.NEUTRAL)
+            this.WEAKNESSES[combination] |= 1L << (attacking * WEAK_COUNT_BITS);
+        }
+      }
+
+    int[] mismatched = new int[store.size()];
+    int count = 0;
+    for (int row = 0; row < store.size(); ++row)
+      for (int attacking = 0; attacking < TYPES; ++attacking)
+        if (store.getMultiplierCode(attacking, row)
+            != multiplierCode(attacking, store.getTypeOne(row), store.getTypeTwo(row))) {
+          mismatched[count++] = row;
+          break;
+        }
+    this.MISMATCHED_ROWS = Arrays.copyOf(mismatched, count);
+  }
+
+  /**
+   * Gets the damage multiplier code of an attacking type against a type combination
+   *
+   * @param attacking the ordinal of the attacking type
+   * @param typeOne   the ordinal of the defender's first type
+   * @param typeTwo   the ordinal of the defender's second type, or PokemonStore.NO_TYPE
+   * @return the multiplier code
+   */
+  public int multiplierCode(int attacking, int typeOne, int typeTwo) {
+    int first = this.CHART[attacking * TYPES + typeOne];
+    if (typeTwo == PokemonStore.NO_TYPE || first == 0)
+      return first;
+    int second = this.CHART[attacking * TYPES + typeTwo];
+    return second == 0 ? 0 : first + second - PokemonStore.NEUTRAL;
+  }
+
+  /**
+   * Gets the damage multiplier of an attacking type against a defending type
+   *
+   * @param attacking the attacking type
+   * @param defending the defending type
+   * @return the damage multiplier
+   */
+  public float getMultiplier(PokemonTypes attacking, PokemonTypes defending) {
+    return PokemonStore.decodeMultiplier(this.CHART[attacking.ordinal() * TYPES
+        + defending.ordinal()]);
+  }
+
+  /**
+   * Gets the defending types an attacking type hits super effectively
+   *
+   * @param attacking the ordinal of the attacking type
+   * @return mask of defending type ordinals
+   */
+  public int superEffectiveAgainst(int attacking) {
+    return this.SUPER_EFFECTIVE[attacking];
+  }
+
+  /**
+   * Gets the rows of the dataset whose against_* columns disagree with the chart, which are the
+   * Pokemon whose ability changes how a type hits them
+   *
+   * @return the mismatched rows in row order
+   */
+  public int[] getMismatchedRows() {
+    return this.MISMATCHED_ROWS.clone();
+  }
+
+  /**
+   * Adds a member to a packed team
+   *
+   * @param team    the packed team, 0 for an empty team
+   * @param typeOne the ordinal of the member's first type
+   * @param typeTwo the ordinal of the member's second type, or PokemonStore.NO_TYPE
+   * @return the packed team with the member added
+   * @throws IllegalStateException if the team is already full
+   */
+  public static long addMember(long team, int typeOne, int typeTwo) {
+    int count = size(team);
+    if (count == MAX_TEAM)
+      throw new IllegalStateException("A packed team holds at most " + MAX_TEAM + " members");
+    return (team | (long) combination(typeOne, typeTwo) << (COUNT_BITS + count * MEMBER_BITS))
+        + 1;
+  }
+
+  /**
+   * Packs the types of a team into a long
+   *
+   * @param team the team, at most MAX_TEAM members
+   * @return the packed team
+   */
+  public static long pack(List<IPokemon> team) {
+    long packed = 0;
+    for (IPokemon member : team)
+      packed = addMember(packed, member.getTypeOne().ordinal(),
+          member.getTypeTwo() == null ? PokemonStore.NO_TYPE : member.getTypeTwo().ordinal());
+    return packed;
+  }
+
+  /**
+   * Gets the number of members in a packed team
+   *
+   * @param team the packed team
+   * @return the member count
+   */
+  public static int size(long team) {
+    return (int) (team & ((1 << COUNT_BITS) - 1));
+  }
+
+  /**
+   * Gets the defending types a packed team's own types hit super effectively
+   *
+   * @param team the packed team
+   * @return mask of defending type ordinals
+   */
+  public int coverageOf(long team) {
+    int coverage = 0;
+    long members = team >>> COUNT_BITS;
+    for (int i = size(team); i > 0; --i, members >>>= MEMBER_BITS) {
+      int combination = (int) (members & ((1 << MEMBER_BITS) - 1));
+      coverage |= this.SUPER_EFFECTIVE[combination / (TYPES + 1)];
+      int typeTwo = combination % (TYPES + 1) - 1;
+      if (typeTwo != PokemonStore.NO_TYPE)
+        coverage |= this.SUPER_EFFECTIVE[typeTwo];
+    }
+    return coverage;
+  }
+
+  /**
+   * Gets the attacking types at least one member of a packed team resists
+   *
+   * @param team the packed team
+   * @return mask of attacking type ordinals
+   */
+  public int resistancesOf(long team) {
+    int resists = 0;
+    long members = team >>> COUNT_BITS;
+    for (int i = size(team); i > 0; --i, members >>>= MEMBER_BITS)
+      resists |= this.RESISTS[(int) (members & ((1 << MEMBER_BITS) - 1))];
+    return resists;
+  }
+
+  /**
+   * Counts how many members of a packed team are weak to every attacking type
+   *
+   * @param team the packed team
+   * @return one 3-bit count per attacking type, read with weakCount
+   */
+  public long weaknessesOf(long team) {
+    long weaknesses = 0;
+    long members = team >>> COUNT_BITS;
+    // each field counts at most MAX_TEAM members, so the fields never carry into each other
+    for (int i = size(team); i > 0; --i, members >>>= MEMBER_BITS)
+      weaknesses += this.WEAKNESSES[(int) (members & ((1 << MEMBER_BITS) - 1))];
+    return weaknesses;
+  }
+
+  /**
+   * Reads the weak count of one attacking type from the result of weaknessesOf
+   *
+   * @param weaknesses the packed weak counts
+   * @param attacking  the attacking type
+   * @return the number of members weak to the type
+   */
+  public static int weakCount(long weaknesses, PokemonTypes attacking) {
+    return (int) (weaknesses >>> (attacking.ordinal() * WEAK_COUNT_BITS))
+        & ((1 << WEAK_COUNT_BITS) - 1);
+  }
+
+  /**
+   * Gets the index of a type combination, with the second type shifted up so NO_TYPE is 0
+   */
+  private static int combination(int typeOne, int typeTwo) {
+    return typeOne * (TYPES + 1) + typeTwo + 1;
+  }
+}
@@ -16,5 +16,15 @@ public enum PokemonTypes {
   FAIRY,
   STEEL,
   FLYING,
-  POISON,
+  POISON;
+
+  /**
+   * Gets the name of the pokemon.csv column holding the damage multiplier of attacks of this type
+   *
+   * @return the column name, e.g. against_fire
+   */
+  public String getAgainstColumn() {
+    // the dataset abbreviates fighting
+    return this == FIGHTING ? "against_fight" : "against_" + name().toLowerCase();
+  }
 }
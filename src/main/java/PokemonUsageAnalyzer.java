@@ -0,0 +1,455 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class that computes usage statistics over logs of user built teams. A log holds one team per
+ * line, its members separated by commas, each a pokedex number or a name in any case, spacing
+ * and punctuation, such as "Charizard, 9, mr mime". Blank lines and lines starting with # are
+ * skipped
+ *
+ * <p>The logs are split into chunks that the workers of a fork-join pool take one at a time. A
+ * line belongs to the chunk its first byte is in, so a chunk skips the line running into it and
+ * reads past its end to finish its last line. Every worker streams its chunks through one buffer
+ * and counts into accumulators of its own, which are only merged once every worker is done, so
+ * workers never share a counter. Pairs are counted in PokemonPairCounts, which keeps only the
+ * pairs seen once a matrix of every pair would not fit, so the memory of a worker is bounded by
+ * the dataset or by the teams it read. Members are resolved straight from the buffer: numbers
+ * are parsed in place and names are lower cased into a scratch key looked up in an open
+ * addressing table, so a line allocates nothing beyond growing that pair table
+ */
+public class PokemonUsageAnalyzer {
+
+  // bytes a worker reads at once, lines longer than this are dropped
+  private static final int BUFFER_BYTES = 1 << 20;
+  // smallest and largest number of bytes in a chunk
+  private static final long MIN_CHUNK = 1 << 20;
+  private static final long MAX_CHUNK = 1 << 28;
+  // chunks per worker, so workers that finish early can take over the rest
+  private static final int CHUNKS_PER_WORKER = 4;
+  // longest name key looked up, longer members are no pokemon
+  private static final int MAX_KEY_BYTES = 64;
+  // resolve result of a member that is only whitespace
+  private static final int NO_MEMBER = -2;
+  // offset basis and prime of the FNV-1a hash of the name keys
+  private static final int FNV_BASIS = 0x811C9DC5;
+  private static final int FNV_PRIME = 0x01000193;
+
+  // runs the workers
+  private final ForkJoinPool POOL;
+  // dense id of every pokedex number, -1 for numbers not in the dataset
+  private final int[] IDS;
+  // pokedex number of every dense id
+  private final int[] POKEDEX;
+  // name of every dense id
+  private final String[] NAMES;
+  // defending types every dense id hits super effectively with its own types
+  private final int[] MEMBER_COVERAGE;
+  // normalised names as UTF-8 bytes, in an open addressing table of a power of two slots
+  private final byte[][] KEYS;
+  // hash of the name in every slot of KEYS, compared before its bytes
+  private final int[] KEY_HASHES;
+  // dense id of the name in every slot of KEYS
+  private final int[] KEY_IDS;
+
+  /**
+   * Constructor that analyzes on the common fork-join pool
+   *
+   * @param dataset the dataset team members are resolved against
+   */
+  public PokemonUsageAnalyzer(PokemonDataset dataset) {
+    this(dataset, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructor that analyzes on the given pool, using as many workers as it has
+   *
+   * @param dataset the dataset team members are resolved against
+   * @param pool    the pool to analyze on
+   */
+  public PokemonUsageAnalyzer(PokemonDataset dataset, ForkJoinPool pool) {
+    this.POOL = pool;
+    PokemonTypeChart chart = dataset.getTypeChart();
+    PokemonStore store = dataset.getStore();
+    // every pokedex number counts as its first form
+    int maxPokedex = 0;
+    for (int row = 0; row < store.size(); ++row)
+      maxPokedex = Math.max(maxPokedex, store.getPokedex(row));
+    this.IDS = new int[maxPokedex + 1];
+    Arrays.fill(this.IDS, -1);
+    List<Integer> rows = new ArrayList<>();
+    for (int row = 0; row < store.size(); ++row)
+      if (this.IDS[store.getPokedex(row)] < 0) {
+        this.IDS[store.getPokedex(row)] = rows.size();
+        rows.add(row);
+      }
+    // ids follow pokedex order, so pairs read in the same order whatever order the rows are in
+    rows.sort((a, b) -> Integer.compare(store.getPokedex(a), store.getPokedex(b)));
+    this.POKEDEX = new int[rows.size()];
+    this.NAMES = new String[rows.size()];
+    this.MEMBER_COVERAGE = new int[rows.size()];
+    for (int id = 0; id < rows.size(); ++id) {
+      int row = rows.get(id);
+      this.POKEDEX[id] = store.getPokedex(row);
+      this.IDS[this.POKEDEX[id]] = id;
+      this.NAMES[id] = store.getName(row);
+      // a team hits what any of its members hits, so its coverage is the union of theirs
+      this.MEMBER_COVERAGE[id] = chart.coverageOf(
+          PokemonTypeChart.addMember(0, store.getTypeOne(row), store.getTypeTwo(row)));
+    }
+
+    this.KEYS = new byte[Integer.highestOneBit(Math.max(1, rows.size()) * 4)][];
+    this.KEY_HASHES = new int[this.KEYS.length];
+    this.KEY_IDS = new int[this.KEYS.length];
+    for (int id = 0; id < this.NAMES.length; ++id) {
+      byte[] key = PokemonNameIndex.normalize(this.NAMES[id]).getBytes(StandardCharsets.UTF_8);
+      int hash = hash(key, key.length);
+      int slot = hash & (this.KEYS.length - 1);
+      while (this.KEYS[slot] != null && !Arrays.equals(this.KEYS[slot], key))
+        slot = (slot + 1) & (this.KEYS.length - 1);
+      // the first pokedex number keeps a name shared by several
+      if (this.KEYS[slot] == null && key.length <= MAX_KEY_BYTES) {
+        this.KEYS[slot] = key;
+        this.KEY_HASHES[slot] = hash;
+        this.KEY_IDS[slot] = id;
+      }
+    }
+  }
+
+  /**
+   * Hashes the first bytes of a key, FNV-1a
+   */
+  private static int hash(byte[] key, int length) {
+    int hash = FNV_BASIS;
+    for (int i = 0; i < length; ++i)
+      hash = (hash ^ key[i]) * FNV_PRIME;
+    return mix(hash);
+  }
+
+  /**
+   * Folds the high bits of a hash into the low bits the table is indexed by
+   */
+  private static int mix(int hash) {
+    return hash ^ hash >>> 16;
+  }
+
+  /**
+   * Streams the team logs and counts their usage statistics
+   *
+   * @param logs the team logs
+   * @return the usage statistics of every team in the logs
+   * @throws FileNotFoundException if a log is not found
+   * @throws IOException           if a log could not be read
+   */
+  public PokemonUsageReport analyze(List<Path> logs) throws IOException {
+    List<FileChannel> channels = new ArrayList<>(logs.size());
+    try {
+      long total = 0;
+      for (Path log : logs) {
+        try {
+          channels.add(FileChannel.open(log, StandardOpenOption.READ));
+        } catch (NoSuchFileException nsfe) {
+          throw new FileNotFoundException(log.toString());
+        }
+        total += channels.get(channels.size() - 1).size();
+      }
+      long chunkSize = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK,
+          total / ((long) this.POOL.getParallelism() * CHUNKS_PER_WORKER) + 1));
+      List<long[]> chunks = new ArrayList<>();
+      for (int log = 0; log < channels.size(); ++log)
+        for (long start = 0, size = channels.get(log).size(); start < size; start += chunkSize)
+          chunks.add(new long[]{log, start, Math.min(size, start + chunkSize)});
+
+      // every worker takes the next chunk until there are none left
+      AtomicInteger next = new AtomicInteger();
+      List<Callable<Accumulator>> workers = new ArrayList<>();
+      for (int i = Math.min(this.POOL.getParallelism(), chunks.size()); i > 0; --i)
+        workers.add(() -> {
+          Accumulator accumulator = new Accumulator();
+          for (int chunk = next.getAndIncrement(); chunk < chunks.size();
+              chunk = next.getAndIncrement()) {
+            long[] range = chunks.get(chunk);
+            scan(channels.get((int) range[0]), range[1], range[2], accumulator);
+          }
+          return accumulator;
+        });
+      return merge(runAll(workers));
+    } finally {
+      for (FileChannel channel : channels)
+        channel.close();
+    }
+  }
+
+  /**
+   * Counts the lines starting within a range of a log
+   */
+  private void scan(FileChannel channel, long start, long end, Accumulator accumulator)
+      throws IOException {
+    byte[] bytes = accumulator.BUFFER;
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    // the line running into the chunk belongs to the chunk before
+    boolean skip = false;
+    if (start > 0) {
+      buffer.limit(1);
+      skip = channel.read(buffer, start - 1) == 1 && bytes[0] != '\n';
+    }
+    // offset is where in the log the pending line starts, filled the bytes read of it and after
+    long offset = start;
+    int filled = 0;
+    while (offset < end) {
+      buffer.limit(bytes.length).position(filled);
+      int read = channel.read(buffer, offset + filled);
+      if (read < 0) {
+        // the log ends without a line break
+        if (filled > 0 && !skip)
+          accumulator.line(bytes, 0, filled);
+        return;
+      }
+      filled += read;
+      int line = 0;
+      // the bytes carried over hold no line break, only the new ones are searched
+      for (int i = filled - read; i < filled; ++i)
+        if (bytes[i] == '\n') {
+          if (!skip)
+            accumulator.line(bytes, line, i);
+          skip = false;
+          line = i + 1;
+          if (offset + line >= end)
+            return;
+        }
+      if (line == 0 && filled == bytes.length) {
+        // a line filling the whole buffer is dropped up to its line break
+        if (!skip)
+          ++accumulator.malformed;
+        skip = true;
+        offset += filled;
+        filled = 0;
+        continue;
+      }
+      System.arraycopy(bytes, line, bytes, 0, filled - line);
+      filled -= line;
+      offset += line;
+    }
+  }
+
+  /**
+   * Sums the counts of every worker
+   */
+  private PokemonUsageReport merge(List<Accumulator> accumulators) {
+    long teams = 0;
+    long malformed = 0;
+    long unresolved = 0;
+    long[] usage = new long[this.POKEDEX.length];
+    PokemonPairCounts pairs = new PokemonPairCounts(this.POKEDEX.length);
+    long[] coverage = new long[PokemonTypes.values().length + 1];
+    long[] typeCoverage = new long[PokemonTypes.values().length];
+    for (Accumulator accumulator : accumulators) {
+      teams += accumulator.teams;
+      malformed += accumulator.malformed;
+      unresolved += accumulator.unresolved;
+      add(usage, accumulator.USAGE);
+      pairs.addAll(accumulator.PAIRS);
+      add(coverage, accumulator.COVERAGE);
+      add(typeCoverage, accumulator.TYPE_COVERAGE);
+    }
+    return new PokemonUsageReport(this.POKEDEX, this.NAMES, teams, malformed, unresolved, usage,
+        pairs, coverage, typeCoverage);
+  }
+
+  /**
+   * Adds counts into running totals
+   */
+  private static void add(long[] totals, long[] counts) {
+    for (int i = 0; i < totals.length; ++i)
+      totals[i] += counts[i];
+  }
+
+  /**
+   * Runs the workers on the pool and waits for all of them
+   */
+  private List<Accumulator> runAll(List<Callable<Accumulator>> workers) throws IOException {
+    List<Accumulator> accumulators = new ArrayList<>(workers.size());
+    try {
+      for (Future<Accumulator> worker : this.POOL.invokeAll(workers))
+        accumulators.add(worker.get());
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("analysis was interrupted");
+    } catch (ExecutionException ee) {
+      if (ee.getCause() instanceof IOException ioe)
+        throw ioe;
+      if (ee.getCause() instanceof RuntimeException re)
+        throw re;
+      if (ee.getCause() instanceof Error e)
+        throw e;
+      throw new IOException(ee.getCause());
+    }
+    return accumulators;
+  }
+
+  /**
+   * Counts of a single worker, with the buffers it reads and resolves through
+   */
+  private final class Accumulator {
+
+    // bytes of the log being read
+    private final byte[] BUFFER = new byte[BUFFER_BYTES];
+    // normalised name of the member being resolved
+    private final byte[] KEY = new byte[MAX_KEY_BYTES];
+    // dense ids of the team being read, ascending and without repeats
+    private final int[] MEMBERS = new int[PokemonTypeChart.MAX_TEAM];
+    // teams using every pokemon, by dense id
+    private final long[] USAGE = new long[POKEDEX.length];
+    // teams using every pair of pokemon
+    private final PokemonPairCounts PAIRS = new PokemonPairCounts(POKEDEX.length);
+    // teams hitting every number of types super effectively
+    private final long[] COVERAGE = new long[PokemonTypes.values().length + 1];
+    // teams hitting every type super effectively, by type ordinal
+    private final long[] TYPE_COVERAGE = new long[PokemonTypes.values().length];
+    // teams counted
+    private long teams;
+    // lines that were not a team
+    private long malformed;
+    // members naming no pokemon of the dataset
+    private long unresolved;
+
+    /**
+     * Counts the team on a line, without its line break
+     */
+    private void line(byte[] bytes, int from, int to) {
+      while (from < to && isSpace(bytes[from]))
+        ++from;
+      if (from == to || bytes[from] == '#')
+        return;
+      int size = 0;
+      int members = 0;
+      int unknown = 0;
+      for (int start = from, i = from; i <= to; ++i) {
+        if (i < to && bytes[i] != ',')
+          continue;
+        int id = resolve(bytes, start, i);
+        start = i + 1;
+        if (id == NO_MEMBER)
+          continue;
+        if (++members > PokemonTypeChart.MAX_TEAM) {
+          ++this.malformed;
+          return;
+        }
+        if (id < 0) {
+          ++unknown;
+          continue;
+        }
+        // insertion into the sorted members, dropping repeats
+        int at = size;
+        while (at > 0 && this.MEMBERS[at - 1] > id)
+          --at;
+        if (at > 0 && this.MEMBERS[at - 1] == id)
+          continue;
+        System.arraycopy(this.MEMBERS, at, this.MEMBERS, at + 1, size - at);
+        this.MEMBERS[at] = id;
+        ++size;
+      }
+      this.unresolved += unknown;
+      if (size == 0) {
+        ++this.malformed;
+        return;
+      }
+
+      ++this.teams;
+      int coverage = 0;
+      for (int i = 0; i < size; ++i) {
+        int id = this.MEMBERS[i];
+        ++this.USAGE[id];
+        // members are ascending, so every earlier member is the smaller id of its pair
+        long row = (long) id * (id - 1) / 2;
+        for (int j = 0; j < i; ++j)
+          this.PAIRS.increment(row + this.MEMBERS[j]);
+        coverage |= MEMBER_COVERAGE[id];
+      }
+      ++this.COVERAGE[Integer.bitCount(coverage)];
+      for (; coverage != 0; coverage &= coverage - 1)
+        ++this.TYPE_COVERAGE[Integer.numberOfTrailingZeros(coverage)];
+    }
+
+    /**
+     * Finds the dense id of a member
+     *
+     * @return the id, -1 if it names no pokemon of the dataset, NO_MEMBER if it is blank
+     */
+    private int resolve(byte[] bytes, int from, int to) {
+      while (from < to && isSpace(bytes[from]))
+        ++from;
+      while (to > from && isSpace(bytes[to - 1]))
+        --to;
+      if (from == to)
+        return NO_MEMBER;
+      // a pokedex number
+      int number = 0;
+      int i = from;
+      while (i < to && i - from < 9 && bytes[i] >= '0' && bytes[i] <= '9')
+        number = number * 10 + bytes[i++] - '0';
+      if (i == to)
+        return number < IDS.length ? IDS[number] : -1;
+      // a name, keeping its letters and digits lower cased as the name index does and hashing
+      // them on the way
+      int length = 0;
+      int hash = FNV_BASIS;
+      for (i = from; i < to; ++i) {
+        byte b = bytes[i];
+        if (b < 0)
+          return resolveUnicode(bytes, from, to);
+        if (b >= 'A' && b <= 'Z')
+          b += 'a' - 'A';
+        else if (!(b >= 'a' && b <= 'z' || b >= '0' && b <= '9'))
+          continue;
+        if (length == MAX_KEY_BYTES)
+          return -1;
+        this.KEY[length++] = b;
+        hash = (hash ^ b) * FNV_PRIME;
+      }
+      return find(this.KEY, length, mix(hash));
+    }
+
+    /**
+     * Finds the dense id of a member holding characters outside ASCII, such as Flabébé
+     */
+    private int resolveUnicode(byte[] bytes, int from, int to) {
+      byte[] key = PokemonNameIndex.normalize(new String(bytes, from, to - from,
+          StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+      return key.length > MAX_KEY_BYTES ? -1 : find(key, key.length, hash(key, key.length));
+    }
+
+    /**
+     * Looks up a normalised name in the table
+     */
+    private int find(byte[] key, int length, int hash) {
+      for (int slot = hash & (KEYS.length - 1); KEYS[slot] != null;
+          slot = (slot + 1) & (KEYS.length - 1))
+        if (KEY_HASHES[slot] == hash
+            && Arrays.equals(KEYS[slot], 0, KEYS[slot].length, key, 0, length))
+          return KEY_IDS[slot];
+      return -1;
+    }
+  }
+
+  /**
+   * Checks if a byte is a space, tab or carriage return
+   */
+  private static boolean isSpace(byte b) {
+    return b == ' ' || b == '\t' || b == '\r';
+  }
+}
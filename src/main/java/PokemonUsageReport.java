@@ -0,0 +1,248 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Class representing the usage statistics of a batch of team logs: how often every pokemon is
+ * used, how often every two pokemon are used together, and how many types the teams hit super
+ * effectively
+ *
+ * <p>Pokemon are counted by pokedex number, every number once per team however many times the
+ * team lists it. Pairs are counted by PokemonPairCounts, the pair of the pokemon with dense ids
+ * a &lt; b at index b * (b - 1) / 2 + a
+ */
+public class PokemonUsageReport {
+
+  // pokedex number of every dense id
+  private final int[] POKEDEX;
+  // name of every dense id
+  private final String[] NAMES;
+  // dense id of every pokedex number, -1 for numbers not in the dataset
+  private final int[] IDS;
+  // teams counted
+  private final long TEAMS;
+  // lines that were not a team
+  private final long MALFORMED;
+  // team members naming no pokemon of the dataset
+  private final long UNRESOLVED;
+  // teams using every pokemon, indexed by dense id
+  private final long[] USAGE;
+  // teams using every pair of pokemon, by pair index
+  private final PokemonPairCounts PAIRS;
+  // teams hitting every number of types super effectively, indexed by the number of types
+  private final long[] COVERAGE;
+  // teams hitting every type super effectively, indexed by type ordinal
+  private final long[] TYPE_COVERAGE;
+
+  /**
+   * Constructor that sets the counts, which are not copied
+   *
+   * @param pokedex      pokedex number of every dense id
+   * @param names        name of every dense id
+   * @param teams        teams counted
+   * @param malformed    lines that were not a team
+   * @param unresolved   team members naming no pokemon of the dataset
+   * @param usage        teams using every pokemon, by dense id
+   * @param pairs        teams using every pair of pokemon, by pair index
+   * @param coverage     teams hitting every number of types super effectively
+   * @param typeCoverage teams hitting every type super effectively, by type ordinal
+   */
+  public PokemonUsageReport(int[] pokedex, String[] names, long teams, long malformed,
+      long unresolved, long[] usage, PokemonPairCounts pairs, long[] coverage,
+      long[] typeCoverage) {
+    this.POKEDEX = pokedex;
+    this.NAMES = names;
+    this.TEAMS = teams;
+    this.MALFORMED = malformed;
+    this.UNRESOLVED = unresolved;
+    this.USAGE = usage;
+    this.PAIRS = pairs;
+    this.COVERAGE = coverage;
+    this.TYPE_COVERAGE = typeCoverage;
+    int maxPokedex = 0;
+    for (int number : pokedex)
+      maxPokedex = Math.max(maxPokedex, number);
+    this.IDS = new int[maxPokedex + 1];
+    Arrays.fill(this.IDS, -1);
+    for (int id = 0; id < pokedex.length; ++id)
+      this.IDS[pokedex[id]] = id;
+  }
+
+  /**
+   * Gets the number of teams counted
+   *
+   * @return the number of teams
+   */
+  public long getTeams() {
+    return this.TEAMS;
+  }
+
+  /**
+   * Gets the number of lines that were not a team: too many members, too long, or no member in
+   * the dataset
+   *
+   * @return the number of lines
+   */
+  public long getMalformedLines() {
+    return this.MALFORMED;
+  }
+
+  /**
+   * Gets the number of team members naming no pokemon of the dataset, which were left out of
+   * their teams
+   *
+   * @return the number of members
+   */
+  public long getUnresolvedMembers() {
+    return this.UNRESOLVED;
+  }
+
+  /**
+   * Gets the number of teams using a pokemon
+   *
+   * @param pokedex the pokedex number
+   * @return the number of teams, 0 for numbers not in the dataset
+   */
+  public long getUsage(int pokedex) {
+    int id = id(pokedex);
+    return id < 0 ? 0 : this.USAGE[id];
+  }
+
+  /**
+   * Gets the share of the teams using a pokemon
+   *
+   * @param pokedex the pokedex number
+   * @return the share between 0 and 1, 0 if there are no teams
+   */
+  public double getUsageRate(int pokedex) {
+    return this.TEAMS == 0 ? 0 : (double) getUsage(pokedex) / this.TEAMS;
+  }
+
+  /**
+   * Gets the number of teams using two pokemon together
+   *
+   * @param pokedexA a pokedex number
+   * @param pokedexB another pokedex number
+   * @return the number of teams, 0 for numbers not in the dataset or a number with itself
+   */
+  public long getCoOccurrence(int pokedexA, int pokedexB) {
+    int a = id(pokedexA);
+    int b = id(pokedexB);
+    return a < 0 || b < 0 || a == b ? 0 : this.PAIRS.get(PokemonPairCounts.index(a, b));
+  }
+
+  /**
+   * Gets the number of teams hitting a number of types super effectively with their own types
+   *
+   * @param types the number of types
+   * @return the number of teams
+   */
+  public long getTeamsCovering(int types) {
+    return types < 0 || types >= this.COVERAGE.length ? 0 : this.COVERAGE[types];
+  }
+
+  /**
+   * Gets the number of teams hitting a type super effectively with their own types
+   *
+   * @param type the defending type
+   * @return the number of teams
+   */
+  public long getTeamsCovering(PokemonTypes type) {
+    return this.TYPE_COVERAGE[type.ordinal()];
+  }
+
+  /**
+   * Finds the most used pokemon
+   *
+   * @param count the most pokemon to return
+   * @return up to count pokedex numbers of used pokemon, most used first
+   */
+  public int[] mostUsed(int count) {
+    int[] ids = top(this.USAGE, count);
+    for (int i = 0; i < ids.length; ++i)
+      ids[i] = this.POKEDEX[ids[i]];
+    return ids;
+  }
+
+  /**
+   * Finds the pairs of pokemon most often used together
+   *
+   * @param count the most pairs to return
+   * @return up to count pairs of pokedex numbers used together, most common first
+   */
+  public int[][] mostCommonPairs(int count) {
+    long[] indexes = this.PAIRS.top(count);
+    int[][] pairs = new int[indexes.length][];
+    for (int i = 0; i < indexes.length; ++i) {
+      int[] ids = PokemonPairCounts.pair(indexes[i]);
+      pairs[i] = new int[]{this.POKEDEX[ids[0]], this.POKEDEX[ids[1]]};
+    }
+    return pairs;
+  }
+
+  /**
+   * Finds the indexes of the largest nonzero counts, largest first and ties by index
+   */
+  private static int[] top(long[] counts, int count) {
+    int[] best = new int[Math.max(0, Math.min(count, counts.length))];
+    int found = 0;
+    if (best.length == 0)
+      return best;
+    for (int i = 0; i < counts.length; ++i) {
+      if (counts[i] == 0 || found == best.length && counts[i] <= counts[best[found - 1]])
+        continue;
+      // insert into the sorted run, dropping the smallest when it is full
+      int at = found < best.length ? found++ : found - 1;
+      while (at > 0 && counts[best[at - 1]] < counts[i]) {
+        best[at] = best[at - 1];
+        --at;
+      }
+      best[at] = i;
+    }
+    return Arrays.copyOf(best, found);
+  }
+
+  /**
+   * Gets the dense id of a pokedex number
+   */
+  private int id(int pokedex) {
+    return pokedex < 0 || pokedex >= this.IDS.length ? -1 : this.IDS[pokedex];
+  }
+
+  /**
+   * Writes the totals, the most used pokemon and pairs and the coverage distributions as a JSON
+   * object
+   *
+   * @param json the writer
+   * @param top  the most pokemon and pairs to list
+   * @throws IOException if the writer failed
+   */
+  public void writeTo(PokemonJsonWriter json, int top) throws IOException {
+    json.beginObject();
+    json.name("teams").value(this.TEAMS);
+    json.name("malformedLines").value(this.MALFORMED);
+    json.name("unresolvedMembers").value(this.UNRESOLVED);
+    json.name("mostUsed").beginArray();
+    for (int pokedex : mostUsed(top))
+      json.beginObject().name("pokedex").value(pokedex).name("name")
+          .value(this.NAMES[this.IDS[pokedex]]).name("teams").value(getUsage(pokedex))
+          .name("rate").value(getUsageRate(pokedex)).endObject();
+    json.endArray();
+    json.name("mostCommonPairs").beginArray();
+    for (int[] pair : mostCommonPairs(top))
+      json.beginObject().name("pokedex").beginArray().value(pair[0]).value(pair[1]).endArray()
+          .name("names").beginArray().value(this.NAMES[this.IDS[pair[0]]])
+          .value(this.NAMES[this.IDS[pair[1]]]).endArray()
+          .name("teams").value(getCoOccurrence(pair[0], pair[1])).endObject();
+    json.endArray();
+    // teams by how many types they hit super effectively
+    json.name("coverage").beginArray();
+    for (long teams : this.COVERAGE)
+      json.value(teams);
+    json.endArray();
+    json.name("typeCoverage").beginObject();
+    for (PokemonTypes type : PokemonTypes.values())
+      json.name(type.name()).value(getTeamsCovering(type));
+    json.endObject();
+    json.endObject();
+  }
+}
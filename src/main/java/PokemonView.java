@@ -0,0 +1,264 @@
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Class representing a read-only Pokémon backed by a row of a PokemonStore
+ */
+public class PokemonView implements IPokemon {
+
+  // the store holding the row
+  private final PokemonStore STORE;
+  // the row this view reads
+  private final int ROW;
+
+  /**
+   * Constructor that binds the view to a row
+   *
+   * @param store the store holding the row
+   * @param row   the row to view
+   */
+  public PokemonView(PokemonStore store, int row) {
+    this.STORE = store;
+    this.ROW = row;
+  }
+
+  /**
+   * Gets the store holding the row
+   *
+   * @return the store
+   */
+  public PokemonStore getStore() {
+    return this.STORE;
+  }
+
+  /**
+   * Gets the row of the store this view reads
+   *
+   * @return the row
+   */
+  public int getRow() {
+    return this.ROW;
+  }
+
+  /**
+   * Gets the name of the Pokémon
+   *
+   * @return the name of the Pokémon
+   */
+  @Override public String getName() {
+    return this.STORE.getName(this.ROW);
+  }
+
+  /**
+   * Views are read-only, the store is shared by every user of the dataset
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override public void setName(String name) {
+    throw new UnsupportedOperationException("Stored Pokemon are read-only");
+  }
+
+  /**
+   * Gets the Japanese name of the Pokémon
+   *
+   * @return the Japanese name of the Pokémon, or null if the dataset has none
+   */
+  @Override public String getJapaneseName() {
+    return this.STORE.getJapaneseName(this.ROW);
+  }
+
+  /**
+   * Views are read-only, the store is shared by every user of the dataset
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override public void setJapaneseName(String japaneseName) {
+    throw new UnsupportedOperationException("Stored Pokemon are read-only");
+  }
+
+  /**
+   * Gets the first type of the Pokémon
+   *
+   * @return the first type of the Pokémon
+   */
+  @Override public PokemonTypes getTypeOne() {
+    return PokemonTypes.values()[this.STORE.getTypeOne(this.ROW)];
+  }
+
+  /**
+   * Views are read-only, the store is shared by every user of the dataset
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override public void setTypeOne(PokemonTypes typeOne) {
+    throw new UnsupportedOperationException("Stored Pokemon are read-only");
+  }
+
+  /**
+   * Gets the second type of the Pokémon
+   *
+   * @return the second type of the Pokémon, null if it only has one type
+   */
+  @Override public PokemonTypes getTypeTwo() {
+    int type = this.STORE.getTypeTwo(this.ROW);
+    return type == PokemonStore.NO_TYPE ? null : PokemonTypes.values()[type];
+  }
+
+  /**
+   * Views are read-only, the store is shared by every user of the dataset
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override public void setTypeTwo(PokemonTypes typeTwo) {
+    throw new UnsupportedOperationException("Stored Pokemon are read-only");
+  }
+
+  /**
+   * Gets the generation number of the Pokémon
+   *
+   * @return the generation number of the Pokémon
+   */
+  @Override public int getGeneration() {
+    return this.STORE.getGeneration(this.ROW);
+  }
+
+  /**
+   * Views are read-only, the store is shared by every user of the dataset
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override public void setGeneration(int generation) {
+    throw new UnsupportedOperationException("Stored Pokemon are read-only");
+  }
+
+  /**
+   * Gets the Pokédex number of the Pokémon
+   *
+   * @return the Pokédex number of the Pokémon
+   */
+  @Override public int getPokedex() {
+    return this.STORE.getPokedex(this.ROW);
+  }
+
+  /**
+   * Views are read-only, the store is shared by every user of the dataset
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override public void setPokedex(int pokedex) {
+    throw new UnsupportedOperationException("Stored Pokemon are read-only");
+  }
+
+  /**
+   * Gets one of the Pokémon's stats
+   *
+   * @param stat the stat to get
+   * @return the value of the stat
+   */
+  @Override public int getStat(PokemonStats stat) {
+    return this.STORE.getStat(stat, this.ROW);
+  }
+
+  /**
+   * Views are read-only, the store is shared by every user of the dataset
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override public void setStat(PokemonStats stat, int value) {
+    throw new UnsupportedOperationException("Stored Pokemon are read-only");
+  }
+
+  /**
+   * Checks if the Pokémon is legendary
+   *
+   * @return true if the Pokémon is legendary
+   */
+  @Override public boolean isLegendary() {
+    return this.STORE.isLegendary(this.ROW);
+  }
+
+  /**
+   * Views are read-only, the store is shared by every user of the dataset
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override public void setLegendary(boolean legendary) {
+    throw new UnsupportedOperationException("Stored Pokemon are read-only");
+  }
+
+  /**
+   * Gets the damage multiplier of attacks of the given type against the Pokémon
+   *
+   * @param attacking the type of the attack
+   * @return the damage multiplier
+   */
+  @Override public float getDamageMultiplier(PokemonTypes attacking) {
+    return this.STORE.getDamageMultiplier(attacking, this.ROW);
+  }
+
+  /**
+   * Views are read-only, the store is shared by every user of the dataset
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override public void setDamageMultiplier(PokemonTypes attacking, float multiplier) {
+    throw new UnsupportedOperationException("Stored Pokemon are read-only");
+  }
+
+  /**
+   * Gets the abilities the Pokémon can have, read from the store's ability dictionary
+   *
+   * @return an immutable list of the ability names
+   */
+  @Override public List<String> getAbilities() {
+    return this.STORE.getAbilities(this.ROW);
+  }
+
+  /**
+   * Views are read-only, the store is shared by every user of the dataset
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override public void setAbilities(List<String> abilities) {
+    throw new UnsupportedOperationException("Stored Pokemon are read-only");
+  }
+
+  /**
+   * Gets the sprite of the Pokémon, decoded on first use by the shared sprite cache
+   *
+   * @return the sprite, or null if there is none
+   */
+  @Override public Image getImage() {
+    return PokemonSpriteCache.getDefault().getSprite(getPokedex(), null);
+  }
+
+  /**
+   * Views are read-only, the store is shared by every user of the dataset
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override public void setImage(Image picture) {
+    throw new UnsupportedOperationException("Stored Pokemon are read-only");
+  }
+
+  /**
+   * Two views are equal if they read the same row of the same store
+   */
+  @Override public boolean equals(Object other) {
+    return other instanceof PokemonView && ((PokemonView) other).STORE == this.STORE
+        && ((PokemonView) other).ROW == this.ROW;
+  }
+
+  @Override public int hashCode() {
+    return this.ROW;
+  }
+
+  /**
+   * Forms a string of the Pokemon's metadata
+   *
+   * @return A nicely formatted string containing the Pokemons metadata
+   */
+  @Override public String toString() {
+    return Pokemon.toString(this);
+  }
+}
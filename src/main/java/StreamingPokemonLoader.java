@@ -0,0 +1,28 @@
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class that loads all Pokemon into a list by streaming the csv through a hand-written parser
+ * instead of OpenCSV's reflection-driven bean binding
+ */
+public class StreamingPokemonLoader implements IPokemonLoader {
+
+  /**
+   * Parses through a given csv file of Pokemon data
+   *
+   * @param filename the path of the file to parse through
+   * @return a list of all Pokemon objects found in the file
+   * @throws FileNotFoundException if the filepath was incorrect/file not found
+   */
+  @Override public List<IPokemon> loadPokemon(String filename) throws IOException {
+    List<IPokemon> pokemon = new ArrayList<>();
+    try (InputStream in = new FileInputStream(filename)) {
+      PokemonCsvParser.parse(in, pokemon);
+    }
+    return pokemon;
+  }
+}
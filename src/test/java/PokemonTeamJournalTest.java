@@ -0,0 +1,129 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Crash recovery of PokemonTeamJournal: a journal cut short or damaged inside a record reopens
+ * with every team saved before that record
+ */
+class PokemonTeamJournalTest {
+
+  // teams saved into every journal
+  private static final int TEAMS = 20;
+
+  // encoded teams of one to six members, saved in order
+  private static final List<byte[]> ENCODED = new ArrayList<>();
+
+  @TempDir
+  Path directory;
+
+  /**
+   * Encodes the teams from the pokemon of pokemon.csv
+   */
+  @BeforeAll
+  static void encodeTeams() throws IOException {
+    PokemonDataset dataset = new PokemonDataset(new StreamingPokemonLoader());
+    for (int i = 0; i < TEAMS; ++i) {
+      List<IPokemon> team = new ArrayList<>();
+      for (int member = 0; member <= i % PokemonTeamOptimizer.TEAM_SIZE; ++member)
+        team.add(dataset.findPokedex(1 + (i * 7 + member * 31) % 700));
+      ENCODED.add(PokemonTeamCodec.encode(team, dataset));
+    }
+  }
+
+  /**
+   * Saves every team into a new journal
+   *
+   * @return the size of the file after every save, the header alone first
+   */
+  private long[] saveTeams(Path file) throws IOException {
+    long[] sizes = new long[TEAMS + 1];
+    try (PokemonTeamJournal journal = new PokemonTeamJournal(file)) {
+      sizes[0] = Files.size(file);
+      for (int i = 0; i < TEAMS; ++i) {
+        assertEquals(i + 1, journal.save(ENCODED.get(i)));
+        sizes[i + 1] = Files.size(file);
+      }
+    }
+    return sizes;
+  }
+
+  /**
+   * Checks that a journal holds exactly the first teams saved
+   */
+  private static void assertFirstTeams(PokemonTeamJournal journal, int teams) {
+    assertEquals(teams, journal.size());
+    for (int i = 0; i < TEAMS; ++i)
+      if (i < teams)
+        assertArrayEquals(ENCODED.get(i), journal.get(i + 1), "team " + (i + 1));
+      else
+        assertNull(journal.get(i + 1), "team " + (i + 1));
+  }
+
+  @Test
+  void truncatedLastRecordDropsOnlyTheLastTeam() throws IOException {
+    Path original = this.directory.resolve("original.journal");
+    long[] sizes = saveTeams(original);
+    long recordStart = sizes[TEAMS - 1];
+    long recordLength = sizes[TEAMS] - recordStart;
+    assertTrue(recordLength > 1);
+    for (long cut = 1; cut < recordLength; ++cut) {
+      Path file = this.directory.resolve("cut-" + cut + ".journal");
+      Files.copy(original, file);
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        channel.truncate(recordStart + cut);
+      }
+      try (PokemonTeamJournal journal = new PokemonTeamJournal(file)) {
+        // exactly the bytes of the unfinished record are dropped
+        assertEquals(cut, journal.getTruncatedBytes(), "cut " + cut);
+        assertFirstTeams(journal, TEAMS - 1);
+      }
+      assertEquals(recordStart, Files.size(file));
+    }
+  }
+
+  @Test
+  void flippedByteDropsTheDamagedRecordAndAfter() throws IOException {
+    Path file = this.directory.resolve("flipped.journal");
+    long[] sizes = saveTeams(file);
+    int damaged = TEAMS / 2;
+    long position = (sizes[damaged] + sizes[damaged + 1]) / 2;
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[(int) position] ^= 0x10;
+    Files.write(file, bytes);
+    try (PokemonTeamJournal journal = new PokemonTeamJournal(file)) {
+      assertEquals(sizes[TEAMS] - sizes[damaged], journal.getTruncatedBytes());
+      assertFirstTeams(journal, damaged);
+    }
+  }
+
+  @Test
+  void recoveredJournalKeepsNewSaves() throws IOException {
+    Path file = this.directory.resolve("recovered.journal");
+    long[] sizes = saveTeams(file);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(sizes[TEAMS] - 1);
+    }
+    try (PokemonTeamJournal journal = new PokemonTeamJournal(file)) {
+      assertTrue(journal.getTruncatedBytes() > 0);
+      assertEquals(TEAMS, journal.save(ENCODED.get(TEAMS - 1)));
+    }
+    try (PokemonTeamJournal journal = new PokemonTeamJournal(file)) {
+      assertEquals(0, journal.getTruncatedBytes());
+      assertFirstTeams(journal, TEAMS);
+    }
+  }
+}